@@ -0,0 +1,119 @@
+package emissary.benchmark;
+
+import emissary.core.BaseDataObject;
+import emissary.core.IBaseDataObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Seeded generators for benchmark inputs. Each benchmark draws from a {@link Random} made by {@link #random(String)} so
+ * it sees the same input on every run and every machine, which keeps results from different builds comparable. The
+ * seed can be changed with -Demissary.benchmark.seed=N to check that a result does not depend on one particular input.
+ */
+public final class BenchmarkData {
+
+    /** The seed shared by every generator */
+    public static final long SEED = Long.getLong("emissary.benchmark.seed", 0L);
+
+    private static final String[] FORMS = {"UNKNOWN", "TEXT", "HTML", "PDF", "ZIP", "JPEG", "MSWORD", "EMAIL", "JSON", "XML"};
+
+    private BenchmarkData() {}
+
+    /**
+     * Create a generator for one named input
+     *
+     * @param name distinguishes inputs drawn by the same benchmark
+     * @return a generator that produces the same sequence for the same name and seed
+     */
+    public static Random random(final String name) {
+        return new Random(SEED ^ name.hashCode());
+    }
+
+    /**
+     * @param random the generator
+     * @param minLength the shortest word
+     * @param maxLength the longest word
+     * @return a lowercase word
+     */
+    public static String word(final Random random, final int minLength, final int maxLength) {
+        final int length = minLength + random.nextInt(maxLength - minLength + 1);
+        final char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @param random the generator
+     * @return an uppercase form name, drawn mostly from a small set of common forms
+     */
+    public static String form(final Random random) {
+        if (random.nextInt(4) == 0) {
+            return word(random, 3, 10).toUpperCase();
+        }
+        return FORMS[random.nextInt(FORMS.length)];
+    }
+
+    /**
+     * @param random the generator
+     * @param size the number of bytes
+     * @return ASCII words separated by spaces, punctuation and line breaks
+     */
+    public static byte[] text(final Random random, final int size) {
+        final StringBuilder sb = new StringBuilder(size + 16);
+        while (sb.length() < size) {
+            sb.append(word(random, 1, 12));
+            final int separator = random.nextInt(20);
+            if (separator == 0) {
+                sb.append(".\n");
+            } else if (separator == 1) {
+                sb.append(", ");
+            } else {
+                sb.append(' ');
+            }
+        }
+        sb.setLength(size);
+        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * @param random the generator
+     * @param size the number of bytes
+     * @return uniformly random bytes
+     */
+    public static byte[] binary(final Random random, final int size) {
+        final byte[] data = new byte[size];
+        random.nextBytes(data);
+        return data;
+    }
+
+    /**
+     * Create a data object shaped like one part way through a workflow
+     *
+     * @param random the generator
+     * @param dataSize the number of bytes of text data
+     * @param parameterCount the number of parameters, some with several values
+     * @return a new data object
+     */
+    public static IBaseDataObject payload(final Random random, final int dataSize, final int parameterCount) {
+        final IBaseDataObject ibdo = new BaseDataObject(text(random, dataSize), "/benchmark/" + word(random, 4, 12) + ".txt");
+        ibdo.setClassification("UNCLASSIFIED");
+        ibdo.setFileType(form(random));
+        ibdo.pushCurrentForm(form(random));
+        ibdo.pushCurrentForm(form(random));
+        ibdo.setHeader(text(random, 64));
+        for (int i = 0; i < parameterCount; i++) {
+            final String name = "PARAM_" + word(random, 2, 8).toUpperCase() + "_" + i;
+            final int values = 1 + random.nextInt(3);
+            for (int j = 0; j < values; j++) {
+                ibdo.appendParameter(name, word(random, 3, 24));
+            }
+        }
+        ibdo.addAlternateView("TEXT", text(random, Math.min(dataSize, 1024)));
+        ibdo.appendTransformHistory("UNKNOWN.UNIXFILE.ID.http://localhost:8001/UnixFilePlace$5050");
+        ibdo.appendTransformHistory(ibdo.currentForm() + ".TEXTSTATS.ANALYZE.http://localhost:8001/TextStatsPlace$6050");
+        return ibdo;
+    }
+}
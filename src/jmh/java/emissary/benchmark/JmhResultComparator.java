@@ -0,0 +1,162 @@
+package emissary.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+/**
+ * Compare two JMH result files written with -rf json and fail if any benchmark got slower than a threshold.
+ * <p>
+ * Results are matched on the benchmark name and its parameters. A result counts as a regression when it is worse than
+ * the baseline by more than the threshold percentage and by more than the two score errors combined, so noisy
+ * benchmarks whose confidence intervals still overlap are reported but do not fail the run. Throughput modes are better
+ * when higher, every other mode when lower, and the reported change is positive when a benchmark improved.
+ * <p>
+ * Usage: {@code JmhResultComparator <baseline.json> <current.json> [thresholdPercent]}, exiting 1 on a regression and 2
+ * if the files cannot be read.
+ */
+public final class JmhResultComparator {
+
+    /** Used when no threshold is given */
+    public static final double DEFAULT_THRESHOLD_PERCENT = 10.0;
+
+    private JmhResultComparator() {}
+
+    /**
+     * The score of one benchmark with one set of parameters
+     */
+    static final class Score {
+        final String mode;
+        final double score;
+        final double error;
+        final String unit;
+
+        Score(final String mode, final double score, final double error, final String unit) {
+            this.mode = mode;
+            this.score = score;
+            this.error = Double.isNaN(error) ? 0 : error;
+            this.unit = unit;
+        }
+    }
+
+    /**
+     * A benchmark present in both files
+     */
+    static final class Comparison {
+        final String name;
+        final Score baseline;
+        final Score current;
+        final double changePercent;
+        final boolean regression;
+
+        Comparison(final String name, final Score baseline, final Score current, final double thresholdPercent) {
+            this.name = name;
+            this.baseline = baseline;
+            this.current = current;
+            final double worse = "thrpt".equals(current.mode) ? baseline.score - current.score : current.score - baseline.score;
+            this.changePercent = baseline.score == 0 ? 0 : 100.0 * worse / baseline.score;
+            this.regression = changePercent > thresholdPercent && worse > baseline.error + current.error;
+        }
+    }
+
+    public static void main(final String[] args) {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: JmhResultComparator <baseline.json> <current.json> [thresholdPercent]");
+            System.exit(2);
+        }
+
+        final Map<String, Score> baseline;
+        final Map<String, Score> current;
+        try {
+            baseline = read(Path.of(args[0]));
+            current = read(Path.of(args[1]));
+        } catch (IOException e) {
+            System.err.println("Cannot read JMH results: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        final double threshold = args.length == 3 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+
+        final List<Comparison> comparisons = compare(baseline, current, threshold);
+        report(comparisons, baseline, current, threshold, System.out);
+        System.exit(comparisons.stream().anyMatch(c -> c.regression) ? 1 : 0);
+    }
+
+    /**
+     * Read a JMH json result file
+     *
+     * @param file the file to read
+     * @return scores keyed by benchmark name and parameters, in file order
+     * @throws IOException if the file cannot be read or is not a JMH result
+     */
+    static Map<String, Score> read(final Path file) throws IOException {
+        final JsonNode root = new ObjectMapper().readTree(file.toFile());
+        if (root == null || !root.isArray()) {
+            throw new IOException(file + " is not a JMH json result");
+        }
+        final Map<String, Score> scores = new LinkedHashMap<>();
+        for (final JsonNode result : root) {
+            final JsonNode metric = result.path("primaryMetric");
+            scores.put(key(result),
+                    new Score(result.path("mode").asText(), metric.path("score").asDouble(), metric.path("scoreError").asDouble(Double.NaN),
+                            metric.path("scoreUnit").asText()));
+        }
+        return scores;
+    }
+
+    private static String key(final JsonNode result) {
+        final StringBuilder key = new StringBuilder(result.path("benchmark").asText());
+        final JsonNode params = result.path("params");
+        if (params.isObject() && params.size() > 0) {
+            final Map<String, String> sorted = new TreeMap<>();
+            params.fields().forEachRemaining(param -> sorted.put(param.getKey(), param.getValue().asText()));
+            final StringJoiner joiner = new StringJoiner(",", "{", "}");
+            sorted.forEach((name, value) -> joiner.add(name + "=" + value));
+            key.append(joiner);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Compare every benchmark present in both results
+     *
+     * @param baseline the reference scores
+     * @param current the scores to check
+     * @param thresholdPercent how much worse a score may get before it is a regression
+     * @return one comparison per shared benchmark, in current file order
+     */
+    static List<Comparison> compare(final Map<String, Score> baseline, final Map<String, Score> current, final double thresholdPercent) {
+        final List<Comparison> comparisons = new ArrayList<>();
+        current.forEach((name, score) -> {
+            final Score base = baseline.get(name);
+            if (base != null && base.mode.equals(score.mode) && base.unit.equals(score.unit)) {
+                comparisons.add(new Comparison(name, base, score, thresholdPercent));
+            }
+        });
+        return comparisons;
+    }
+
+    private static void report(final List<Comparison> comparisons, final Map<String, Score> baseline, final Map<String, Score> current,
+            final double thresholdPercent, final PrintStream out) {
+        int regressions = 0;
+        for (final Comparison c : comparisons) {
+            out.printf("%-12s %-90s %14.3f -> %14.3f %-10s %+7.1f%%%n", c.regression ? "REGRESSION" : "ok", c.name, c.baseline.score,
+                    c.current.score, c.current.unit, -c.changePercent);
+            if (c.regression) {
+                regressions++;
+            }
+        }
+        current.keySet().stream().filter(name -> !baseline.containsKey(name)).forEach(name -> out.println("new          " + name));
+        baseline.keySet().stream().filter(name -> !current.containsKey(name)).forEach(name -> out.println("missing      " + name));
+        out.printf("%d of %d benchmarks regressed by more than %.1f%%%n", regressions, comparisons.size(), thresholdPercent);
+    }
+}
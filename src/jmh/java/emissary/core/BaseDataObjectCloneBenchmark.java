@@ -0,0 +1,57 @@
+package emissary.core;
+
+import emissary.benchmark.BenchmarkData;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BaseDataObject#clone()} of a payload with parameters, an alternate view and, optionally, extracted records,
+ * which are cloned along with it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BaseDataObjectCloneBenchmark {
+
+    @Param({"1024", "1048576"})
+    public int dataSize;
+
+    @Param({"50"})
+    public int parameterCount;
+
+    @Param({"0", "10"})
+    public int recordCount;
+
+    private IBaseDataObject payload;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final Random random = BenchmarkData.random("BaseDataObjectCloneBenchmark");
+        payload = BenchmarkData.payload(random, dataSize, parameterCount);
+        for (int i = 0; i < recordCount; i++) {
+            payload.addExtractedRecord(BenchmarkData.payload(random, 256, 10));
+        }
+    }
+
+    @Benchmark
+    public IBaseDataObject cloneObject() throws CloneNotSupportedException {
+        return payload.clone();
+    }
+}
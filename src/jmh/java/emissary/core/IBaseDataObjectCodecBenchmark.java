@@ -0,0 +1,114 @@
+package emissary.core;
+
+import org.jdom2.Document;
+import org.jdom2.JDOMException;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.input.sax.XMLReaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static emissary.core.IBaseDataObjectXmlCodecs.DEFAULT_ELEMENT_DECODERS;
+import static emissary.core.IBaseDataObjectXmlCodecs.DEFAULT_ELEMENT_ENCODERS;
+
+/**
+ * Encode and decode throughput of {@link IBaseDataObjectBinaryCodec} compared with {@link IBaseDataObjectXmlHelper} for a
+ * family with a parent, extracted records and children.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IBaseDataObjectCodecBenchmark {
+
+    @Param({"1024", "1048576"})
+    public int payloadSize;
+
+    @Param({"10"})
+    public int childCount;
+
+    private IBaseDataObject parent;
+    private List<IBaseDataObject> children;
+    private IBaseDataObject initial;
+    private byte[] binary;
+    private String xml;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        final Random random = new Random(0);
+
+        initial = new BaseDataObject();
+        parent = createIbdo(random, "parent");
+        parent.addExtractedRecord(createIbdo(random, "record1"));
+        parent.addExtractedRecord(createIbdo(random, "record2"));
+        children = new ArrayList<>();
+        for (int i = 0; i < childCount; i++) {
+            children.add(createIbdo(random, "child" + i));
+        }
+
+        binary = encodeBinary();
+        xml = encodeXml();
+    }
+
+    private IBaseDataObject createIbdo(final Random random, final String name) {
+        final byte[] data = new byte[payloadSize];
+        random.nextBytes(data);
+
+        final IBaseDataObject ibdo = new BaseDataObject(data, name);
+        ibdo.setClassification("UNCLASSIFIED");
+        ibdo.pushCurrentForm("FORM-" + random.nextInt(100));
+        ibdo.setFileType("FILETYPE");
+        ibdo.setHeader("header".getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < 50; i++) {
+            ibdo.putParameter("PARAM_" + i, "value-" + random.nextInt());
+        }
+        ibdo.addAlternateView("VIEW", "alternate view".getBytes(StandardCharsets.UTF_8));
+        ibdo.appendTransformHistory("*.FIRST.ID.http://localhost:8001/FirstPlace$5050");
+        ibdo.appendTransformHistory("*.SECOND.ANALYZE.http://localhost:8001/SecondPlace$5050");
+        return ibdo;
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        IBaseDataObjectBinaryCodec.encode(parent, children, baos, IBaseDataObjectBinaryCodec.INLINE_PAYLOADS);
+        return baos.toByteArray();
+    }
+
+    @Benchmark
+    public String encodeXml() {
+        return IBaseDataObjectXmlHelper.xmlFromIbdo(parent, children, initial, DEFAULT_ELEMENT_ENCODERS);
+    }
+
+    @Benchmark
+    public IBaseDataObject decodeBinary() throws IOException {
+        return IBaseDataObjectBinaryCodec.decode(new ByteArrayInputStream(binary), new ArrayList<>(), IBaseDataObjectBinaryCodec.FILE_PAYLOADS);
+    }
+
+    @Benchmark
+    public IBaseDataObject decodeXml() throws IOException, JDOMException {
+        final Document document = new SAXBuilder(XMLReaders.NONVALIDATING).build(new StringReader(xml));
+        return IBaseDataObjectXmlHelper.ibdoFromXml(document, new ArrayList<>(), DEFAULT_ELEMENT_DECODERS);
+    }
+}
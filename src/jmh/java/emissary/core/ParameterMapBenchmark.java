@@ -0,0 +1,77 @@
+package emissary.core;
+
+import emissary.benchmark.BenchmarkData;
+
+import com.google.common.collect.LinkedListMultimap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filling and reading the metadata of a child carrying many parameters, in {@link ParameterMap} and in the
+ * {@link LinkedListMultimap} it replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParameterMapBenchmark {
+
+    @Param({"20", "300"})
+    public int parameterCount;
+
+    private String[] keys;
+    private String[] values;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final Random random = BenchmarkData.random("ParameterMapBenchmark");
+        keys = new String[parameterCount];
+        values = new String[parameterCount * 2];
+        for (int i = 0; i < parameterCount; i++) {
+            keys[i] = "PARAM_" + BenchmarkData.word(random, 2, 8).toUpperCase() + "_" + i;
+        }
+        for (int i = 0; i < values.length; i++) {
+            values[i] = BenchmarkData.word(random, 3, 24);
+        }
+    }
+
+    @Benchmark
+    public void parameterMap(final Blackhole bh) {
+        final ParameterMap map = new ParameterMap();
+        for (int i = 0; i < values.length; i++) {
+            map.put(keys[i % keys.length], values[i]);
+        }
+        for (final String key : keys) {
+            bh.consume(map.get(key));
+        }
+        bh.consume(map.snapshot());
+    }
+
+    @Benchmark
+    public void linkedListMultimap(final Blackhole bh) {
+        final LinkedListMultimap<String, Object> map = LinkedListMultimap.create(100);
+        for (int i = 0; i < values.length; i++) {
+            map.put(keys[i % keys.length], values[i]);
+        }
+        for (final String key : keys) {
+            bh.consume(map.get(key));
+        }
+        bh.consume(map.asMap());
+    }
+}
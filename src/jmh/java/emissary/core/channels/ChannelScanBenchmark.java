@@ -0,0 +1,110 @@
+package emissary.core.channels;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repeated full sequential scans of a large file-backed payload, as done when several places each read the whole
+ * payload through their own channel.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChannelScanBenchmark {
+
+    /** Number of channels created and fully read per invocation. */
+    private static final int SCANS = 4;
+
+    @Param({"16777216", "268435456"})
+    public int payloadSize;
+
+    @Param({"file", "buffered", "mapped", "prefetching"})
+    public String factoryType;
+
+    @Param({"8192"})
+    public int readSize;
+
+    private Path path;
+    private SeekableByteChannelFactory sbcf;
+    private ByteBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        path = Files.createTempFile("ChannelScanBenchmark", ".dat");
+
+        final Random random = new Random(0);
+        final byte[] chunk = new byte[1 << 20];
+        try (OutputStream os = Files.newOutputStream(path)) {
+            for (int written = 0; written < payloadSize; written += chunk.length) {
+                random.nextBytes(chunk);
+                os.write(chunk, 0, Math.min(chunk.length, payloadSize - written));
+            }
+        }
+
+        switch (factoryType) {
+            case "file":
+                sbcf = FileChannelFactory.create(path);
+                break;
+            case "buffered":
+                sbcf = BufferedChannelFactory.create(FileChannelFactory.create(path), 1 << 20);
+                break;
+            case "mapped":
+                sbcf = MappedChannelFactory.create(path);
+                break;
+            case "prefetching":
+                sbcf = PrefetchingChannelFactory.create(FileChannelFactory.create(path), 1 << 20);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown factoryType " + factoryType);
+        }
+
+        buffer = ByteBuffer.allocate(readSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Benchmark
+    public long repeatedFullScan() throws IOException {
+        long checksum = 0;
+
+        for (int i = 0; i < SCANS; i++) {
+            try (SeekableByteChannel sbc = sbcf.create()) {
+                while (sbc.read(buffer) > 0) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        checksum += buffer.get();
+                    }
+                    buffer.clear();
+                }
+            }
+        }
+
+        return checksum;
+    }
+}
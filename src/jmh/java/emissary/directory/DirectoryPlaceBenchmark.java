@@ -0,0 +1,109 @@
+package emissary.directory;
+
+import emissary.benchmark.BenchmarkData;
+import emissary.core.IBaseDataObject;
+import emissary.util.io.ResourceReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routing lookups through {@link DirectoryPlace#nextKeys(String, IBaseDataObject, DirectoryEntry, DirectoryEntryMap)}
+ * against a synthetic directory of remote places. Queries mix exact, wildcarded and unknown data ids, both on a first
+ * visit and when revisiting a data id after one of its places.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class DirectoryPlaceBenchmark {
+
+    private static final String[] SERVICE_TYPES = {"ID", "TRANSFORM", "ANALYZE", "IO"};
+    private static final int QUERY_COUNT = 1024;
+
+    @Param({"100", "2000"})
+    public int placeCount;
+
+    private DirectoryPlace directory;
+    private DirectoryEntryMap entries;
+    private IBaseDataObject payload;
+    private String[] queries;
+    private DirectoryEntry[] lastPlaces;
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        final Random random = BenchmarkData.random("DirectoryPlaceBenchmark");
+        try (InputStream config = new ResourceReader().getConfigDataAsStream(DirectoryPlace.class)) {
+            directory = new DirectoryPlace(config, "http://localhost:8001/DirectoryPlace", new EmissaryNode());
+        }
+
+        final String[] forms = new String[Math.max(1, placeCount / 4)];
+        for (int i = 0; i < forms.length; i++) {
+            forms[i] = BenchmarkData.form(random) + (random.nextBoolean() ? "" : "-" + BenchmarkData.word(random, 2, 6).toUpperCase());
+        }
+
+        entries = new DirectoryEntryMap();
+        final List<DirectoryEntry> all = new ArrayList<>();
+        for (int i = 0; i < placeCount; i++) {
+            final String form = random.nextInt(10) == 0 ? forms[random.nextInt(forms.length)] + "-*" : forms[random.nextInt(forms.length)];
+            final DirectoryEntry entry = new DirectoryEntry(form, "PLACE" + i, SERVICE_TYPES[random.nextInt(SERVICE_TYPES.length)],
+                    "http://host" + random.nextInt(8) + ".example.com:8001/Place" + i, "benchmark place", random.nextInt(100), 50);
+            entries.addEntry(entry);
+            all.add(entry);
+        }
+
+        payload = BenchmarkData.payload(random, 64, 4);
+        queries = new String[QUERY_COUNT];
+        lastPlaces = new DirectoryEntry[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            final DirectoryEntry entry = all.get(random.nextInt(all.size()));
+            final int kind = random.nextInt(8);
+            if (kind == 0) {
+                queries[i] = "NOSUCHFORM" + i + KeyManipulator.DATAIDSEPARATOR + entry.getServiceType();
+            } else if (kind == 1) {
+                queries[i] = entry.getDataType().replace("-*", "") + "-EXTRA" + KeyManipulator.DATAIDSEPARATOR + entry.getServiceType();
+            } else {
+                queries[i] = entry.getDataId();
+            }
+            lastPlaces[i] = entry;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        directory.shutDown();
+    }
+
+    @Benchmark
+    public List<DirectoryEntry> nextKeysFirstVisit() {
+        final int i = next++ & (QUERY_COUNT - 1);
+        return directory.nextKeys(queries[i], payload, null, entries);
+    }
+
+    @Benchmark
+    public List<DirectoryEntry> nextKeysRevisit() {
+        final int i = next++ & (QUERY_COUNT - 1);
+        return directory.nextKeys(queries[i], payload, lastPlaces[i], entries);
+    }
+}
@@ -0,0 +1,74 @@
+package emissary.directory;
+
+import emissary.benchmark.BenchmarkData;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Glob matching of directory keys with {@link KeyManipulator#gmatch(String, String)} for the pattern shapes used when
+ * looking up and removing places: an exact key, a wildcarded location and a wildcarded data type that mostly misses.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class KeyManipulatorBenchmark {
+
+    private static final int KEY_COUNT = 1024;
+
+    private String[] keys;
+    private String[] exactPatterns;
+    private String[] locationPatterns;
+    private String[] dataTypePatterns;
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final Random random = BenchmarkData.random("KeyManipulatorBenchmark");
+        keys = new String[KEY_COUNT];
+        exactPatterns = new String[KEY_COUNT];
+        locationPatterns = new String[KEY_COUNT];
+        dataTypePatterns = new String[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            final String host = "http://host" + random.nextInt(16) + ".example.com:8001/";
+            final String place = BenchmarkData.word(random, 4, 12) + "Place";
+            keys[i] = KeyManipulator.makeKey(BenchmarkData.form(random), place.toUpperCase(), "ANALYZE", host + place) + "$" + random.nextInt(10000);
+            exactPatterns[i] = keys[i];
+            locationPatterns[i] = "*.*.*." + host + "*";
+            dataTypePatterns[i] = BenchmarkData.form(random) + "*.*.ANALYZE.*";
+        }
+    }
+
+    @Benchmark
+    public boolean gmatchExact() {
+        final int i = next++ & (KEY_COUNT - 1);
+        return KeyManipulator.gmatch(keys[i], exactPatterns[i]);
+    }
+
+    @Benchmark
+    public boolean gmatchLocation() {
+        final int i = next++ & (KEY_COUNT - 1);
+        return KeyManipulator.gmatch(keys[i], locationPatterns[(i * 7) & (KEY_COUNT - 1)]);
+    }
+
+    @Benchmark
+    public boolean gmatchDataType() {
+        final int i = next++ & (KEY_COUNT - 1);
+        return KeyManipulator.gmatch(keys[i], dataTypePatterns[i]);
+    }
+}
@@ -0,0 +1,101 @@
+package emissary.kff;
+
+import emissary.benchmark.BenchmarkData;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checksums and known file lookups through {@link KffChain#check(String, byte[])} with an in-memory filter, so the
+ * result is the cost of hashing plus the chain itself rather than of any remote store. Half of the payloads are known.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class KffChainBenchmark {
+
+    private static final int PAYLOAD_COUNT = 16;
+
+    @Param({"1024", "1048576"})
+    public int dataSize;
+
+    @Param({"SHA-1", "MD5,SHA-1,SHA-256", "SHA-256,SSDEEP"})
+    public String algorithms;
+
+    private KffChain chain;
+    private byte[][] payloads;
+    private int next = 0;
+
+    /**
+     * Matches the first configured hash against a set of known values
+     */
+    static final class KnownHashFilter implements KffFilter {
+        private final String algorithm;
+        private final Set<String> known = new HashSet<>();
+
+        KnownHashFilter(final String algorithm) {
+            this.algorithm = algorithm;
+        }
+
+        @Override
+        public String getName() {
+            return "KNOWN";
+        }
+
+        @Override
+        public FilterType getFilterType() {
+            return FilterType.IGNORE;
+        }
+
+        @Override
+        public boolean check(final String fname, final ChecksumResults sums) {
+            return known.contains(sums.getHashString(algorithm));
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws NoSuchAlgorithmException {
+        final Random random = BenchmarkData.random("KffChainBenchmark");
+        final String[] names = algorithms.split(",");
+
+        chain = new KffChain();
+        chain.setAlgorithms(Arrays.asList(names));
+        chain.setMinDataSize(0);
+        final KnownHashFilter filter = new KnownHashFilter(names[0]);
+        chain.addFilter(filter);
+
+        payloads = new byte[PAYLOAD_COUNT][];
+        for (int i = 0; i < PAYLOAD_COUNT; i++) {
+            payloads[i] = i % 2 == 0 ? BenchmarkData.text(random, dataSize) : BenchmarkData.binary(random, dataSize);
+            if (i % 4 < 2) {
+                filter.known.add(chain.computeSums(payloads[i]).getHashString(names[0]));
+            }
+        }
+    }
+
+    @Benchmark
+    public KffResult check() throws NoSuchAlgorithmException {
+        final int i = next++ & (PAYLOAD_COUNT - 1);
+        return chain.check("payload" + i, payloads[i]);
+    }
+}
@@ -0,0 +1,54 @@
+package emissary.kff;
+
+import emissary.benchmark.BenchmarkData;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Ssdeep#fuzzyHash(byte[])} over text, which usually settles on a block size in one pass, and over random bytes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SsdeepBenchmark {
+
+    @Param({"4096", "1048576"})
+    public int dataSize;
+
+    private Ssdeep ssdeep;
+    private byte[] text;
+    private byte[] binary;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ssdeep = new Ssdeep();
+        text = BenchmarkData.text(BenchmarkData.random("SsdeepBenchmark.text"), dataSize);
+        binary = BenchmarkData.binary(BenchmarkData.random("SsdeepBenchmark.binary"), dataSize);
+    }
+
+    @Benchmark
+    public String fuzzyHashText() {
+        return ssdeep.fuzzyHash(text);
+    }
+
+    @Benchmark
+    public String fuzzyHashBinary() {
+        return ssdeep.fuzzyHash(binary);
+    }
+}
@@ -0,0 +1,71 @@
+package emissary.output.filter;
+
+import emissary.benchmark.BenchmarkData;
+import emissary.config.ServiceConfigGuide;
+import emissary.core.IBaseDataObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JsonOutputFilter} writing a family of payloads, with and without the payload bytes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonOutputFilterBenchmark {
+
+    @Param({"1", "20"})
+    public int familySize;
+
+    @Param({"true", "false"})
+    public boolean emitPayload;
+
+    private IDropOffFilter filter;
+    private List<IBaseDataObject> family;
+    private Map<String, Object> params;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final ServiceConfigGuide config = new ServiceConfigGuide();
+        config.addEntry("OUTPUT_PATH", System.getProperty("java.io.tmpdir"));
+        config.addEntry("EMIT_PAYLOAD", Boolean.toString(emitPayload));
+        filter = new JsonOutputFilter();
+        filter.initialize(config, "JSON", config);
+
+        final Random random = BenchmarkData.random("JsonOutputFilterBenchmark");
+        family = new ArrayList<>();
+        for (int i = 0; i < familySize; i++) {
+            family.add(BenchmarkData.payload(random, 4096, 40));
+        }
+        params = new HashMap<>();
+    }
+
+    @Benchmark
+    public int filter() {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        filter.filter(family, params, output);
+        return output.size();
+    }
+}
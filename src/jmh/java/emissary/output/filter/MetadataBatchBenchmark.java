@@ -0,0 +1,88 @@
+package emissary.output.filter;
+
+import emissary.benchmark.BenchmarkData;
+import emissary.config.ServiceConfigGuide;
+import emissary.core.IBaseDataObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The JSON and XML filters writing a large family whose children share their metadata keys, each filter resolving the
+ * metadata itself against sharing a {@link MetadataBatch}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetadataBatchBenchmark {
+
+    @Param({"10000"})
+    public int familySize;
+
+    @Param({"true", "false"})
+    public boolean useBatch;
+
+    private IDropOffFilter json;
+    private IDropOffFilter xml;
+    private List<IBaseDataObject> family;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final ServiceConfigGuide config = new ServiceConfigGuide();
+        config.addEntry("OUTPUT_PATH", System.getProperty("java.io.tmpdir"));
+        config.addEntry("EMIT_PAYLOAD", "false");
+        json = new JsonOutputFilter();
+        json.initialize(config, "JSON", config);
+        xml = new XmlOutputFilter();
+        xml.initialize(config, "XML", config);
+
+        final Random random = BenchmarkData.random("MetadataBatchBenchmark");
+        family = new ArrayList<>();
+        family.add(BenchmarkData.payload(random, 4096, 40));
+        for (int i = 1; i < familySize; i++) {
+            final IBaseDataObject child = BenchmarkData.payload(random, 256, 0);
+            for (int p = 0; p < 30; p++) {
+                child.appendParameter("CHILD_PARAM_" + p, BenchmarkData.word(random, 3, 24));
+            }
+            family.add(child);
+        }
+    }
+
+    @Benchmark
+    public MetadataBatch build() {
+        return new MetadataBatch(family);
+    }
+
+    @Benchmark
+    public int filters() {
+        final Map<String, Object> params = new HashMap<>();
+        if (useBatch) {
+            params.put(IDropOffFilter.METADATA_BATCH, new MetadataBatch(family));
+        }
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        json.filter(family, params, output);
+        xml.filter(family, params, output);
+        return output.size();
+    }
+}
@@ -0,0 +1,87 @@
+package emissary.pickup;
+
+import emissary.benchmark.BenchmarkData;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binary and XML serialization of a {@link WorkBundle} as it is sent between pickup places and clients.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WorkBundleBenchmark {
+
+    @Param({"1", "1024"})
+    public int fileCount;
+
+    private WorkBundle bundle;
+    private byte[] binary;
+    private String xml;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        final Random random = BenchmarkData.random("WorkBundleBenchmark");
+        bundle = new WorkBundle("/data/output", "/data/input");
+        bundle.setCaseId("case-" + BenchmarkData.word(random, 4, 8));
+        bundle.setPriority(random.nextInt(10));
+        bundle.setSimpleMode(random.nextBoolean());
+        bundle.setSentTo("http://localhost:8001/FilePickUpPlace");
+        final long now = 1_700_000_000_000L;
+        for (int i = 0; i < fileCount; i++) {
+            final String path = "/data/input/" + BenchmarkData.word(random, 2, 8) + "/" + BenchmarkData.word(random, 4, 16) + "." + i + ".dat";
+            bundle.addFileName(path, now - random.nextInt(86_400_000), random.nextInt(10_000_000));
+        }
+
+        binary = writeToStream();
+        xml = toXml();
+    }
+
+    @Benchmark
+    public byte[] writeToStream() throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(baos)) {
+            bundle.writeToStream(out);
+        }
+        return baos.toByteArray();
+    }
+
+    @Benchmark
+    public WorkBundle readFromStream() throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(binary))) {
+            return WorkBundle.readFromStream(in);
+        }
+    }
+
+    @Benchmark
+    public String toXml() {
+        return bundle.toXml();
+    }
+
+    @Benchmark
+    public WorkBundle buildWorkBundle() {
+        return WorkBundle.buildWorkBundle(xml);
+    }
+}
@@ -0,0 +1,70 @@
+package emissary.util;
+
+import emissary.benchmark.BenchmarkData;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MagicNumberUtil#describe(byte[])} with the magic file shipped in src/main/config, or the one named by
+ * -Demissary.benchmark.magic, against samples that start with common signatures, plain text and random bytes. Run from
+ * the project directory so the default magic file is found.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class MagicNumberUtilBenchmark {
+
+    private static final int SAMPLE_COUNT = 64;
+    private static final int SAMPLE_SIZE = 512;
+    private static final String[] SIGNATURES = {"%PDF-1.4\n", "PK\003\004", "\211PNG\r\n\032\n", "\037\213\010\000", "\177ELF\002\001\001",
+            "GIF89a", "<?xml version=\"1.0\"?>", "From: someone@example.com\n"};
+
+    private MagicNumberUtil magic;
+    private byte[][] samples;
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        magic = new MagicNumberUtil();
+        magic.load(new File(System.getProperty("emissary.benchmark.magic", "src/main/config/magic")), true);
+
+        final Random random = BenchmarkData.random("MagicNumberUtilBenchmark");
+        samples = new byte[SAMPLE_COUNT][];
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            final int kind = random.nextInt(4);
+            if (kind < 2) {
+                samples[i] = BenchmarkData.binary(random, SAMPLE_SIZE);
+                final byte[] signature = SIGNATURES[random.nextInt(SIGNATURES.length)].getBytes(StandardCharsets.ISO_8859_1);
+                System.arraycopy(signature, 0, samples[i], 0, signature.length);
+            } else if (kind == 2) {
+                samples[i] = BenchmarkData.text(random, SAMPLE_SIZE);
+            } else {
+                samples[i] = BenchmarkData.binary(random, SAMPLE_SIZE);
+            }
+        }
+    }
+
+    @Benchmark
+    public String describe() {
+        return magic.describe(samples[next++ & (SAMPLE_COUNT - 1)]);
+    }
+}
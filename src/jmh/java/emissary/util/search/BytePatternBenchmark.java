@@ -0,0 +1,90 @@
+package emissary.util.search;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding every occurrence of a short pattern in a multi-megabyte buffer with the boxed {@link ByteMatcher} methods
+ * compared with a precompiled {@link BytePattern} collecting into a reused {@link IntList}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BytePatternBenchmark {
+
+    @Param({"4194304"})
+    public int dataSize;
+
+    @Param({":", "\r\n", "To:", "Content-Type"})
+    public String pattern;
+
+    @Param({"true", "false"})
+    public boolean caseSensitive;
+
+    private byte[] data;
+    private byte[] patternBytes;
+    private ByteMatcher byteMatcher;
+    private BytePattern compiled;
+    private final IntList offsets = new IntList(1 << 16);
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final Random random = new Random(0);
+        final String[] headers = {"From: ", "To: ", "Subject: ", "Date: ", "content-type: ", "X-Mailer: "};
+        final StringBuilder text = new StringBuilder(dataSize + 128);
+
+        // Header-like lines with random printable values
+        while (text.length() < dataSize) {
+            text.append(headers[random.nextInt(headers.length)]);
+            final int valueLength = 10 + random.nextInt(60);
+            for (int i = 0; i < valueLength; i++) {
+                text.append((char) (' ' + random.nextInt(95)));
+            }
+            text.append("\r\n");
+        }
+
+        data = text.substring(0, dataSize).getBytes(StandardCharsets.ISO_8859_1);
+        patternBytes = pattern.getBytes(StandardCharsets.ISO_8859_1);
+        byteMatcher = new ByteMatcher(data);
+        compiled = BytePattern.compile(patternBytes, caseSensitive);
+    }
+
+    @Benchmark
+    public int firstIndexByteMatcher() {
+        return caseSensitive ? byteMatcher.indexOf(patternBytes, data.length / 2) : byteMatcher.indexIgnoreCase(patternBytes, data.length / 2);
+    }
+
+    @Benchmark
+    public int firstIndexBytePattern() {
+        return compiled.indexOf(data, data.length / 2, data.length);
+    }
+
+    @Benchmark
+    public List<Integer> allIndexesByteMatcher() {
+        return caseSensitive ? byteMatcher.listIndexOf(patternBytes) : byteMatcher.indexListIgnoreCase(patternBytes);
+    }
+
+    @Benchmark
+    public int allIndexesBytePattern() {
+        offsets.clear();
+        return compiled.indexAll(data, 0, data.length, offsets);
+    }
+}
@@ -0,0 +1,130 @@
+package emissary.util.search;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of one shared {@link FastBoyerMoore} and {@link BackwardsTreeScanner} scanned by 1, 4 and 8 threads. With
+ * lock-free scanning the total throughput should grow with the thread count, up to the number of available cores.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class KeywordScanScalingBenchmark {
+
+    /**
+     * Scanners and data shared by every benchmark thread.
+     */
+    @State(Scope.Benchmark)
+    public static class Shared {
+        @Param({"1048576"})
+        public int dataSize;
+
+        @Param({"16", "256"})
+        public int keywordCount;
+
+        FastBoyerMoore fastBoyerMoore;
+        BackwardsTreeScanner backwardsTreeScanner;
+        byte[] data;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            final Random random = new Random(0);
+            final String[] keywords = new String[keywordCount];
+            for (int i = 0; i < keywordCount; i++) {
+                keywords[i] = "keyword" + Integer.toString(random.nextInt(1 << 20), 36);
+            }
+
+            final StringBuilder text = new StringBuilder(dataSize);
+            while (text.length() < dataSize) {
+                if (random.nextInt(100) == 0) {
+                    text.append(keywords[random.nextInt(keywordCount)]);
+                } else {
+                    text.append((char) ('a' + random.nextInt(26)));
+                }
+                if (random.nextInt(8) == 0) {
+                    text.append(' ');
+                }
+            }
+            data = text.substring(0, dataSize).getBytes(StandardCharsets.UTF_8);
+
+            fastBoyerMoore = new FastBoyerMoore(keywords);
+            backwardsTreeScanner = new BackwardsTreeScanner(keywords);
+        }
+    }
+
+    /**
+     * Per-thread hit buffer, reused across invocations.
+     */
+    @State(Scope.Thread)
+    public static class PerThread {
+        final HitBuffer hits = new HitBuffer(4096);
+    }
+
+    private static int fastBoyerMoore(final Shared shared, final PerThread perThread) {
+        perThread.hits.clear();
+        shared.fastBoyerMoore.scan(shared.data, 0, shared.data.length, perThread.hits);
+        return perThread.hits.size();
+    }
+
+    private static int backwardsTreeScanner(final Shared shared, final PerThread perThread) {
+        perThread.hits.clear();
+        for (int pos = 0; pos < shared.data.length; pos++) {
+            shared.backwardsTreeScanner.scan(shared.data, pos, perThread.hits);
+        }
+        return perThread.hits.size();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int fastBoyerMoore1Thread(final Shared shared, final PerThread perThread) {
+        return fastBoyerMoore(shared, perThread);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int fastBoyerMoore4Threads(final Shared shared, final PerThread perThread) {
+        return fastBoyerMoore(shared, perThread);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int fastBoyerMoore8Threads(final Shared shared, final PerThread perThread) {
+        return fastBoyerMoore(shared, perThread);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int backwardsTreeScanner1Thread(final Shared shared, final PerThread perThread) {
+        return backwardsTreeScanner(shared, perThread);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int backwardsTreeScanner4Threads(final Shared shared, final PerThread perThread) {
+        return backwardsTreeScanner(shared, perThread);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int backwardsTreeScanner8Threads(final Shared shared, final PerThread perThread) {
+        return backwardsTreeScanner(shared, perThread);
+    }
+}
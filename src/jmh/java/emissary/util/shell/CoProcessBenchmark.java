@@ -0,0 +1,103 @@
+package emissary.util.shell;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Payloads per second through the same framed echo worker, either forked by {@link Executrix} for every payload or kept
+ * running in a {@link CoProcessPool}. The worker handles one frame and exits at end of input when forked, so the
+ * difference is the cost of starting a process and its reader threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class CoProcessBenchmark {
+
+    private static final String ECHO_WORKER = "while :; do\n"
+            + "  header=$(dd bs=1 count=4 2>/dev/null | od -An -tu1)\n"
+            + "  set -- $header\n"
+            + "  [ $# -eq 4 ] || exit 0\n"
+            + "  printf '\\000\\000\\000\\000'\n"
+            + "  printf \"\\\\$(printf %o $1)\\\\$(printf %o $2)\\\\$(printf %o $3)\\\\$(printf %o $4)\"\n"
+            + "  dd bs=1 count=$(( ($1 << 24) | ($2 << 16) | ($3 << 8) | $4 )) 2>/dev/null\n"
+            + "done\n";
+
+    @Param({"4"})
+    public int poolSize;
+
+    @Param({"256"})
+    public int payloadSize;
+
+    private Path script;
+    private String[] cmd;
+    private byte[] frame;
+    private byte[] payload;
+    private Executrix executrix;
+    private CoProcessPool pool;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        script = Files.createTempFile("echoWorker", ".sh");
+        Files.write(script, ECHO_WORKER.getBytes(StandardCharsets.UTF_8));
+        cmd = new String[] {"/bin/sh", script.toString()};
+
+        payload = new byte[payloadSize];
+        final Random random = new Random(0);
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) ('a' + random.nextInt(26));
+        }
+        frame = new byte[payload.length + 4];
+        frame[0] = (byte) (payload.length >>> 24);
+        frame[1] = (byte) (payload.length >>> 16);
+        frame[2] = (byte) (payload.length >>> 8);
+        frame[3] = (byte) payload.length;
+        System.arraycopy(payload, 0, frame, 4, payload.length);
+
+        executrix = new Executrix();
+        pool = new CoProcessPool(cmd, poolSize, 0, 0, executrix.getProcessMaxMillis());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        pool.close();
+        Files.deleteIfExists(script);
+    }
+
+    @Benchmark
+    public int forkPerPayload() {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        executrix.execute(cmd, frame, out, null, null, null);
+        return out.size();
+    }
+
+    @Benchmark
+    public int pooledCoProcess() throws InterruptedException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        pool.execute(payload, out);
+        return out.size();
+    }
+}
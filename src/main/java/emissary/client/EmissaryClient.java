@@ -6,6 +6,8 @@ import emissary.config.Configurator;
 
 import com.google.common.annotations.VisibleForTesting;
 import jakarta.ws.rs.core.MediaType;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
 import org.apache.hc.client5.http.auth.AuthCache;
 import org.apache.hc.client5.http.auth.AuthScope;
 import org.apache.hc.client5.http.auth.Credentials;
@@ -17,15 +19,20 @@ import org.apache.hc.client5.http.config.ConnectionConfig;
 import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.cookie.Cookie;
 import org.apache.hc.client5.http.entity.EntityBuilder;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
 import org.apache.hc.client5.http.impl.auth.BasicAuthCache;
 import org.apache.hc.client5.http.impl.auth.BasicCredentialsProvider;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
 import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
 import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.concurrent.FutureCallback;
 import org.apache.hc.core5.http.HttpStatus;
 import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
 import org.apache.hc.core5.util.Timeout;
+import org.apache.hc.core5.util.VersionInfo;
 import org.eclipse.jetty.util.security.Password;
 import org.glassfish.jersey.server.filter.CsrfProtectionFilter;
 import org.slf4j.Logger;
@@ -35,6 +42,7 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.Collections;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
@@ -56,6 +64,9 @@ public class EmissaryClient {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(EmissaryClient.class);
 
+    // the default user agent of the blocking client, sent by the asynchronous client too so peers see one client
+    static final String USER_AGENT = VersionInfo.getSoftwareInfo("Apache-HttpClient", "org.apache.hc.client5", HttpClientBuilder.class);
+
     private static final PoolingHttpClientConnectionManager CONNECTION_MANAGER = HTTPConnectionFactory.getFactory().getDefaultConnectionManager();
     // some default objects to use
     private static final BasicCredentialsProvider CRED_PROV = new BasicCredentialsProvider();
@@ -69,6 +80,9 @@ public class EmissaryClient {
     private static RequestConfig staticRequestConfig = null;
     @Nullable
     private static ConnectionConfig staticConnectionConfig = null;
+    // started on first use so only processes that send asynchronously run its I/O threads
+    @Nullable
+    private static CloseableHttpAsyncClient staticAsyncClient = null;
 
     // static config variables
     public static String context = DEFAULT_CONTEXT;
@@ -84,7 +98,7 @@ public class EmissaryClient {
     protected static final AuthCache AUTH_CACHE = new BasicAuthCache();
 
     private final CloseableHttpClient client;
-    private final RequestConfig requestConfig;
+    private RequestConfig requestConfig;
     private ConnectionConfig connectionConfig;
 
     static {
@@ -157,7 +171,7 @@ public class EmissaryClient {
 
         staticClient =
                 HttpClientBuilder.create().setConnectionManager(CONNECTION_MANAGER).setDefaultCredentialsProvider(CRED_PROV)
-                        .setDefaultRequestConfig(staticRequestConfig).build();
+                        .setDefaultRequestConfig(staticRequestConfig).setUserAgent(USER_AGENT).build();
 
     }
 
@@ -212,12 +226,71 @@ public class EmissaryClient {
             return thisClient.execute(method, localContext, new EmissaryResponseHandler());
         } catch (IOException e) {
             LOGGER.debug("Problem processing request:", e);
-            BasicClassicHttpResponse response = new BasicClassicHttpResponse(HttpStatus.SC_INTERNAL_SERVER_ERROR, e.getMessage());
-            response.setEntity(EntityBuilder.create().setText(e.getClass() + ": " + e.getMessage()).setContentEncoding(MediaType.TEXT_PLAIN).build());
-            return new EmissaryResponse(response);
+            return errorResponse(e);
         }
     }
 
+    /**
+     * Sends a request to the web server without blocking the calling thread. Requests go through a shared asynchronous
+     * client that speaks HTTP/2 with peers that support it, according to the version policy of the
+     * {@link HTTPConnectionFactory}. The request config of this client is used unless the request has its own.
+     *
+     * @param request the request to be sent
+     * @return the response, an error response if the request could not be sent
+     */
+    public CompletableFuture<EmissaryResponse> sendAsync(final SimpleHttpRequest request) {
+        LOGGER.debug("Sending {} to {} asynchronously", request.getMethod(), request.getRequestUri());
+
+        HttpClientContext localContext = HttpClientContext.create();
+        localContext.setAttribute(HttpClientContext.AUTH_CACHE, EmissaryClient.AUTH_CACHE);
+        // keep a config the caller set for this request
+        if (request.getConfig() == null) {
+            request.setConfig(requestConfig);
+        }
+
+        final CompletableFuture<EmissaryResponse> result = new CompletableFuture<>();
+        getAsyncClient().execute(request, localContext, new FutureCallback<SimpleHttpResponse>() {
+            @Override
+            public void completed(final SimpleHttpResponse response) {
+                result.complete(new EmissaryResponse(response));
+            }
+
+            @Override
+            public void failed(final Exception e) {
+                LOGGER.debug("Problem processing request:", e);
+                result.complete(errorResponse(e));
+            }
+
+            @Override
+            public void cancelled() {
+                result.cancel(false);
+            }
+        });
+        return result;
+    }
+
+    private static EmissaryResponse errorResponse(final Exception e) {
+        BasicClassicHttpResponse response = new BasicClassicHttpResponse(HttpStatus.SC_INTERNAL_SERVER_ERROR, e.getMessage());
+        response.setEntity(EntityBuilder.create().setText(e.getClass() + ": " + e.getMessage()).setContentEncoding(MediaType.TEXT_PLAIN).build());
+        return new EmissaryResponse(response);
+    }
+
+    /**
+     * Get the shared asynchronous client, starting it on first use
+     *
+     * @return the started client
+     */
+    protected static synchronized CloseableHttpAsyncClient getAsyncClient() {
+        if (staticAsyncClient == null) {
+            final PoolingAsyncClientConnectionManager asyncConnectionManager = HTTPConnectionFactory.getFactory().getDefaultAsyncConnectionManager();
+            asyncConnectionManager.setDefaultConnectionConfig(staticConnectionConfig);
+            staticAsyncClient = HttpAsyncClients.custom().setConnectionManager(asyncConnectionManager).setDefaultCredentialsProvider(CRED_PROV)
+                    .setDefaultRequestConfig(staticRequestConfig).setUserAgent(USER_AGENT).build();
+            staticAsyncClient.start();
+        }
+        return staticAsyncClient;
+    }
+
     protected CloseableHttpClient getHttpClient() {
         return client;
     }
@@ -239,6 +312,19 @@ public class EmissaryClient {
         }
     }
 
+    /**
+     * Set how long to wait for a response to each request sent by this client
+     *
+     * @param timeout the timeout in milliseconds
+     */
+    public void setResponseTimeout(int timeout) {
+        if (timeout > 0) {
+            requestConfig = RequestConfig.copy(requestConfig).setResponseTimeout(Timeout.ofMilliseconds(timeout)).build();
+        } else {
+            LOGGER.warn("Tried to set response timeout to {}", timeout);
+        }
+    }
+
     protected String getCsrfToken() {
         return DEFAULT_CONTEXT;
     }
@@ -5,10 +5,13 @@ import emissary.client.response.BaseEntity;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.ws.rs.core.MediaType;
 import org.apache.commons.io.IOUtils;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
 import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ContentType;
 import org.apache.hc.core5.http.Header;
 import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpResponse;
 import org.apache.hc.core5.http.HttpStatus;
 import org.apache.hc.core5.http.io.HttpClientResponseHandler;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
@@ -16,7 +19,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
 import java.util.Arrays;
 import javax.annotation.Nullable;
 
@@ -36,26 +41,14 @@ public class EmissaryResponse {
         int tempStatus = response.getCode();
         String tempContent;
         headers = response.getHeaders();
-        Header[] contentHeaders = response.getHeaders(HttpHeaders.CONTENT_TYPE);
-        if (contentHeaders.length > 0) {
-            contentType = contentHeaders[0].getValue();
-            if (contentHeaders.length > 1) {
-                logger.warn("Too many content headers: {}", contentHeaders.length);
-                if (logger.isDebugEnabled()) {
-                    Arrays.stream(contentHeaders).sequential().forEach(ch -> logger.debug("Header -> {}", ch));
-                }
-            }
-        } else {
-            logger.debug("No content type header, setting to plain text");
-            contentType = MediaType.TEXT_PLAIN;
-        }
+        contentType = contentTypeOf(response);
         try {
             HttpEntity entity = response.getEntity();
             if (entity == null) {
                 logger.debug("No entity");
                 tempContent = "";
             } else {
-                tempContent = IOUtils.toString(entity.getContent(), StandardCharsets.UTF_8);
+                tempContent = IOUtils.toString(entity.getContent(), charsetOf(contentType));
             }
         } catch (UnsupportedOperationException | IOException e) {
             tempContent = e.getMessage();
@@ -67,6 +60,52 @@ public class EmissaryResponse {
         content = tempContent;
     }
 
+    /**
+     * Create a response from the answer to an asynchronous request, which is already read into memory
+     *
+     * @param response the answer
+     */
+    public EmissaryResponse(SimpleHttpResponse response) {
+        headers = response.getHeaders();
+        contentType = contentTypeOf(response);
+        status = response.getCode();
+        byte[] body = response.getBodyBytes();
+        // the body keeps the content type it was read with
+        String bodyType = response.getContentType() == null ? contentType : response.getContentType().toString();
+        content = body == null ? "" : new String(body, charsetOf(bodyType));
+        logger.debug("response was: {} with content: {}", status, content);
+    }
+
+    /**
+     * The charset named by a content type, UTF-8 when it names none or one that is not supported
+     */
+    private static Charset charsetOf(String contentType) {
+        try {
+            ContentType type = ContentType.parse(contentType);
+            if (type != null && type.getCharset() != null) {
+                return type.getCharset();
+            }
+        } catch (UnsupportedCharsetException e) {
+            logger.debug("Unsupported charset in {}, reading as UTF-8", contentType);
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static String contentTypeOf(HttpResponse response) {
+        Header[] contentHeaders = response.getHeaders(HttpHeaders.CONTENT_TYPE);
+        if (contentHeaders.length == 0) {
+            logger.debug("No content type header, setting to plain text");
+            return MediaType.TEXT_PLAIN;
+        }
+        if (contentHeaders.length > 1) {
+            logger.warn("Too many content headers: {}", contentHeaders.length);
+            if (logger.isDebugEnabled()) {
+                Arrays.stream(contentHeaders).sequential().forEach(ch -> logger.debug("Header -> {}", ch));
+            }
+        }
+        return contentHeaders[0].getValue();
+    }
+
     public int getStatus() {
         return status;
     }
@@ -5,24 +5,33 @@ import emissary.config.Configurator;
 import emissary.util.PkiUtil;
 
 import com.google.common.annotations.VisibleForTesting;
+import org.apache.hc.client5.http.config.TlsConfig;
 import org.apache.hc.client5.http.impl.DefaultClientConnectionReuseStrategy;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
 import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
 import org.apache.hc.client5.http.socket.ConnectionSocketFactory;
 import org.apache.hc.client5.http.socket.PlainConnectionSocketFactory;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
 import org.apache.hc.client5.http.ssl.DefaultHostnameVerifier;
 import org.apache.hc.client5.http.ssl.NoopHostnameVerifier;
 import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
 import org.apache.hc.core5.http.ConnectionReuseStrategy;
 import org.apache.hc.core5.http.config.Registry;
 import org.apache.hc.core5.http.config.RegistryBuilder;
+import org.apache.hc.core5.http.nio.ssl.TlsStrategy;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
 import java.security.GeneralSecurityException;
 import java.security.KeyStore;
 import java.security.SecureRandom;
+import java.util.Locale;
 import javax.annotation.Nullable;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.KeyManagerFactory;
@@ -42,12 +51,20 @@ import javax.net.ssl.TrustManagerFactory;
  * javax.net.ssl.keyStore = "[Path to key store]"
  * javax.net.ssl.keyStoreType = "[Key Store type, defaults to JKS]"
  * javax.net.ssl.keyStorePassword = "[Key store password OR path to file, see below]"
+ *
+ * // Protocol used by the asynchronous client, see below
+ * http.versionPolicy = "[NEGOTIATE, FORCE_HTTP_1 or FORCE_HTTP_2, defaults to NEGOTIATE]"
  * </pre>
  * <p>
  * Password configs: For the key or trust store options, if the values are prepended with "file://", this class will
  * attempt to load the password from the file on the path. This is intended to be a single line text file. This is
  * provided to allow for passwords to be placed in limited access files and directories and to eliminate the need to
  * pass these options in JVM System properties which are easily found.
+ * <p>
+ * HTTP/2: Besides the classic blocking client the factory provides an asynchronous client that can speak HTTP/2 with
+ * peers that support it. With NEGOTIATE the protocol is picked during the TLS handshake, so HTTPS peers that only speak
+ * HTTP/1.1 are still reached, while plain HTTP uses HTTP/1.1. FORCE_HTTP_2 also uses HTTP/2 over plain HTTP, which
+ * requires every peer to accept h2c.
  */
 public class HTTPConnectionFactory {
 
@@ -62,11 +79,13 @@ public class HTTPConnectionFactory {
     static final String CFG_HTTP_AGENT = "http.agent";
     static final String CFG_NOOP_VERIFIER = "https.useNoopHostnameVerifier";
     static final String CFG_SSLCONTEXT_TYPE = "emissary.sslcontext.type";
+    static final String CFG_HTTP_VERSION_POLICY = "http.versionPolicy";
     static final String DEFAULT_HTTP_AGENT = "emissary";
     static final int DFLT_MAXCONNS = 200;
     static final boolean DFLT_KEEPALIVE = true;
     static final String DFLT_STORE_TYPE = "JKS";
     static final String DFLT_CONTEXT_TYPE = "TLS";
+    static final HttpVersionPolicy DFLT_VERSION_POLICY = HttpVersionPolicy.NEGOTIATE;
     // meaningful constants
     private static final String HTTP = "http";
     private static final String HTTPS = "https";
@@ -78,12 +97,16 @@ public class HTTPConnectionFactory {
 
     final PoolingHttpClientConnectionManager connMan;
 
+    final PoolingAsyncClientConnectionManager asyncConnMan;
+
     private ConnectionReuseStrategy connReuseStrategy = DefaultClientConnectionReuseStrategy.INSTANCE;
 
     int maxConns = DFLT_MAXCONNS;
 
     String userAgent = DEFAULT_HTTP_AGENT;
 
+    HttpVersionPolicy versionPolicy = DFLT_VERSION_POLICY;
+
     private HTTPConnectionFactory() {
         this(null);
     }
@@ -91,6 +114,7 @@ public class HTTPConnectionFactory {
     @VisibleForTesting
     HTTPConnectionFactory(@Nullable final Configurator config) {
         Registry<ConnectionSocketFactory> registry = null;
+        TlsStrategy tlsStrategy = null;
         try {
             final Configurator cfg = config == null ? ConfigUtil.getConfigInfo(HTTPConnectionFactory.class) : config;
             // if someone doesn't want keep alives...
@@ -99,12 +123,14 @@ public class HTTPConnectionFactory {
             }
             this.maxConns = cfg.findIntEntry(CFG_HTTP_MAXCONNS, DFLT_MAXCONNS);
             this.userAgent = cfg.findStringEntry(CFG_HTTP_AGENT, DEFAULT_HTTP_AGENT);
+            this.versionPolicy = resolveVersionPolicy(cfg.findStringEntry(CFG_HTTP_VERSION_POLICY, DFLT_VERSION_POLICY.name()));
             final SSLContext sslContext = build(cfg);
             // mainly for using in test environments where cert name may not match host name
             final HostnameVerifier v = cfg.findBooleanEntry(CFG_NOOP_VERIFIER, false) ? new NoopHostnameVerifier() : new DefaultHostnameVerifier();
             registry =
                     RegistryBuilder.<ConnectionSocketFactory>create().register(HTTP, PlainConnectionSocketFactory.getSocketFactory())
                             .register(HTTPS, new SSLConnectionSocketFactory(sslContext, v)).build();
+            tlsStrategy = ClientTlsStrategyBuilder.create().setSslContext(sslContext).setHostnameVerifier(v).build();
         } catch (IOException | GeneralSecurityException ex) {
             log.error("Error configuring HTTPConnectionFactory. The connection factory will use HTTP Client default settings", ex);
         }
@@ -115,6 +141,23 @@ public class HTTPConnectionFactory {
         }
 
         this.connMan.setMaxTotal(this.maxConns);
+
+        final PoolingAsyncClientConnectionManagerBuilder asyncBuilder = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(this.maxConns)
+                .setDefaultTlsConfig(TlsConfig.custom().setVersionPolicy(this.versionPolicy).build());
+        if (tlsStrategy != null) {
+            asyncBuilder.setTlsStrategy(tlsStrategy);
+        }
+        this.asyncConnMan = asyncBuilder.build();
+    }
+
+    private static HttpVersionPolicy resolveVersionPolicy(final String value) {
+        try {
+            return HttpVersionPolicy.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            log.error("Unknown " + CFG_HTTP_VERSION_POLICY + " " + value + ", using " + DFLT_VERSION_POLICY);
+            return DFLT_VERSION_POLICY;
+        }
     }
 
     /**
@@ -176,6 +219,37 @@ public class HTTPConnectionFactory {
                 .setConnectionReuseStrategy(this.connReuseStrategy).build();
     }
 
+    /**
+     * Return the connection manager for asynchronous clients, with TLS SSL if configured and the configured HTTP version
+     * policy.
+     *
+     * @return the asynchronous connection manager
+     */
+    public PoolingAsyncClientConnectionManager getDefaultAsyncConnectionManager() {
+        return this.asyncConnMan;
+    }
+
+    /**
+     * Return the HTTP version policy used by asynchronous clients
+     *
+     * @return the version policy
+     */
+    public HttpVersionPolicy getVersionPolicy() {
+        return this.versionPolicy;
+    }
+
+    /**
+     * Returns a CloseableHttpAsyncClient using the configuration options of the factory singleton. It is set up like
+     * {@link #buildDefaultClient()} but uses the asynchronous connection manager, so it speaks HTTP/2 with peers according
+     * to the configured version policy. The caller must start the client before use.
+     *
+     * @return a CloseableHttpAsyncClient
+     */
+    public CloseableHttpAsyncClient buildDefaultAsyncClient() {
+        return HttpAsyncClients.custom().setConnectionManager(this.asyncConnMan).setConnectionManagerShared(true).setUserAgent(this.userAgent)
+                .setConnectionReuseStrategy(this.connReuseStrategy).build();
+    }
+
     /**
      * Returns the Factory
      *
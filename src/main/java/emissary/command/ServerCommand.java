@@ -43,6 +43,13 @@ public class ServerCommand extends ServiceCommand {
     @Option(names = {"--strict"}, description = "If one Place fails to start, shut down the entire server\nDefault: ${DEFAULT-VALUE}")
     private boolean strictMode = false;
 
+    @Option(names = {"--http2"},
+            description = "also accept HTTP/2, h2 with SSL and h2c without, HTTP/1.1 clients are still served\nDefault: ${DEFAULT-VALUE}")
+    private boolean http2 = false;
+
+    @Option(names = {"--disableGzip"}, description = "disable gzip compression of api responses\nDefault: ${DEFAULT-VALUE}")
+    private boolean gzipDisabled = false;
+
     @Override
     public String getCommandName() {
         return COMMAND_NAME;
@@ -69,6 +76,14 @@ public class ServerCommand extends ServiceCommand {
         return dumpJettyBeans;
     }
 
+    public boolean isHttp2Enabled() {
+        return http2;
+    }
+
+    public boolean isGzipEnabled() {
+        return !gzipDisabled;
+    }
+
     /**
      * If strictMode is set to true, the server will shut down if a Place fails to start
      * 
@@ -0,0 +1,164 @@
+package emissary.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+/**
+ * Process wide cache of the lines read from config files, so a file imported by many configs is only read and tokenized
+ * once. Lines are kept as written, before any substitution or removal is done, and are replayed into each
+ * {@link ServiceConfigGuide} that reads the file, so reading a cached file behaves exactly as reading it again would.
+ * Files are keyed by their location and read again when their modification time or size changes. Classpath resources
+ * inside jars cannot change while running and are read once.
+ */
+public final class ConfigParseCache {
+    private static final Logger logger = LoggerFactory.getLogger(ConfigParseCache.class);
+
+    private static final Map<String, Parsed> CACHE = new ConcurrentHashMap<>();
+    private static final AtomicLong PARSES = new AtomicLong();
+
+    /**
+     * One {@code KEY OPERATOR VALUE} line of a config file as written
+     */
+    static final class Line {
+        final String key;
+        final String operator;
+        final String value;
+        final int lineno;
+
+        Line(final String key, final String operator, final String value, final int lineno) {
+            this.key = key;
+            this.operator = operator;
+            this.value = value;
+            this.lineno = lineno;
+        }
+    }
+
+    private static final class Parsed {
+        final long modified;
+        final long size;
+        final List<Line> lines;
+
+        Parsed(final long modified, final long size, final List<Line> lines) {
+            this.modified = modified;
+            this.size = size;
+            this.lines = lines;
+        }
+    }
+
+    private ConfigParseCache() {}
+
+    /**
+     * Get the lines of the config at a location, reading it only if it is not cached or has changed
+     *
+     * @param location where the config is read from
+     * @param name the name of the config for error reporting
+     * @return the lines of the config in order
+     * @throws IOException if the config cannot be read
+     * @throws ConfigSyntaxException if the config cannot be parsed
+     */
+    static List<Line> getLines(final URL location, final String name) throws IOException, ConfigSyntaxException {
+        final String key = location.toExternalForm();
+        final Path path = toPath(location);
+        long modified = -1L;
+        long size = -1L;
+        if (path != null) {
+            final BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            modified = attrs.lastModifiedTime().toMillis();
+            size = attrs.size();
+        }
+
+        final Parsed cached = CACHE.get(key);
+        if (cached != null && cached.modified == modified && cached.size == size) {
+            logger.trace("Using cached config lines for {}", key);
+            return cached.lines;
+        }
+
+        final List<Line> lines;
+        try (InputStream is = open(location)) {
+            lines = ServiceConfigGuide.parseLines(is, name);
+        }
+        PARSES.incrementAndGet();
+        CACHE.put(key, new Parsed(modified, size, lines));
+        logger.debug("Cached {} config lines for {}", lines.size(), key);
+        return lines;
+    }
+
+    /**
+     * Open the config data at a location
+     *
+     * @param location a file or classpath resource
+     * @return an InputStream caller must close
+     * @throws IOException if it cannot be opened
+     */
+    static InputStream open(final URL location) throws IOException {
+        final Path path = toPath(location);
+        return path != null ? Files.newInputStream(path) : location.openStream();
+    }
+
+    /**
+     * Check that the config data at a location can be opened. A resource already cached is not opened again.
+     *
+     * @param location a file or classpath resource
+     * @return true if it can be opened
+     */
+    static boolean canOpen(final URL location) {
+        if (toPath(location) == null && CACHE.containsKey(location.toExternalForm())) {
+            return true;
+        }
+        try {
+            open(location).close();
+            return true;
+        } catch (IOException e) {
+            logger.debug("Cannot open {}", location, e);
+            return false;
+        }
+    }
+
+    @Nullable
+    private static Path toPath(final URL location) {
+        if (!"file".equals(location.getProtocol())) {
+            return null;
+        }
+        try {
+            return Paths.get(location.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            logger.debug("Cannot use {} as a file", location, e);
+            return null;
+        }
+    }
+
+    /**
+     * Forget every cached config
+     */
+    public static void clear() {
+        CACHE.clear();
+    }
+
+    /**
+     * @return number of configs cached
+     */
+    public static int size() {
+        return CACHE.size();
+    }
+
+    /**
+     * @return number of times a config has been read and parsed since startup
+     */
+    public static long getParseCount() {
+        return PARSES.get();
+    }
+}
@@ -11,6 +11,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -290,7 +291,7 @@ public class ConfigUtil {
     public static Configurator getConfigInfo(final Class<?> c) throws IOException {
         final String name = c.getName() + CONFIG_FILE_ENDING;
         logger.debug("Loading config for (class) {}", name);
-        return getConfigInfo(getConfigStream(name), name);
+        return mergeFlavors(new ServiceConfigGuide(getConfigLocation(name), name), name);
     }
 
     /**
@@ -342,7 +343,7 @@ public class ConfigUtil {
      */
     public static Configurator getConfigInfo(final String name) throws IOException {
         logger.debug("Loading config for (string) {}", name);
-        return getConfigInfo(getConfigStream(name), name);
+        return mergeFlavors(new ServiceConfigGuide(getConfigLocation(name), name), name);
     }
 
     /**
@@ -363,8 +364,17 @@ public class ConfigUtil {
      * @return configurator object
      */
     public static Configurator getConfigInfo(final InputStream is, final String name) throws IOException {
-        final ServiceConfigGuide scg = new ServiceConfigGuide(is, name);
+        return mergeFlavors(new ServiceConfigGuide(is, name), name);
+    }
 
+    /**
+     * Merge any flavored versions of the named config into it
+     *
+     * @param scg the config as read
+     * @param name the name it was read from
+     * @return the merged config
+     */
+    private static Configurator mergeFlavors(final ServiceConfigGuide scg, final String name) {
         final String[] flavoredNames = addFlavors(name);
         for (final String flavoredName : flavoredNames) {
             try {
@@ -401,12 +411,25 @@ public class ConfigUtil {
      * @return an InputStream caller must close
      */
     public static InputStream getConfigStream(final String name) throws IOException {
+        return ConfigParseCache.open(getConfigLocation(name));
+    }
+
+    /**
+     * Find where the config data for name is read from. Files in the config directories are preferred over classpath
+     * resources, which are preferred over files using the old style name. A resource that cannot be opened is passed over
+     * for the next place to look.
+     *
+     * @param name the name of the config data to look for
+     * @return the location of the file or resource
+     * @throws IOException if no config data is available for name
+     */
+    public static URL getConfigLocation(final String name) throws IOException {
         // Try the new style override name first ( with package )
         String sname = getConfigFile(name);
         File f = new File(sname);
         if (f.exists() && f.canRead()) {
             logger.debug("Found config data as file {}", f.getPath());
-            return Files.newInputStream(f.toPath());
+            return f.toURI().toURL();
         }
         logger.debug("No file config found using new style {}", f.getName());
 
@@ -415,15 +438,13 @@ public class ConfigUtil {
         for (final String rezname : reznames) {
             final URL url = new ResourceReader().getResource(rezname);
             if (url != null) {
-                if (logger.isDebugEnabled()) {
-                    logger.debug("Found config data as resource {}", url.toExternalForm());
-                }
-
-                try {
-                    return url.openStream();
-                } catch (IOException ex) {
-                    logger.warn("IOException opening stream for resource for {}", rezname);
+                if (ConfigParseCache.canOpen(url)) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Found config data as resource {}", url.toExternalForm());
+                    }
+                    return url;
                 }
+                logger.warn("IOException opening stream for resource for {}", rezname);
             }
 
             logger.debug("No config data as resource for {}", rezname);
@@ -435,7 +456,7 @@ public class ConfigUtil {
         f = new File(sname);
         if (f.exists() && f.canRead()) {
             logger.debug("Found config data as file old style {}", f.getPath());
-            return Files.newInputStream(f.toPath());
+            return f.toURI().toURL();
         }
         logger.debug("No file config found using old style {}", f.getName());
 
@@ -539,11 +560,19 @@ public class ConfigUtil {
      */
     public static InputStream getConfigData(final String f) throws IOException {
         logger.debug("Request for config data from {}", f);
+        return Files.newInputStream(getConfigDataPath(f));
+    }
 
+    /**
+     * Get the path of the config file named
+     *
+     * @param f the named config item (path not necessary, but will be used if present)
+     * @return the path, absolute names are used as they are and others are found in the config directories
+     */
+    public static Path getConfigDataPath(final String f) {
         // Add config.dir part if not already absolute
         final String filename = f.startsWith("/") ? f : getConfigFile(f);
-
-        return Files.newInputStream(Paths.get(filename));
+        return Paths.get(filename);
     }
 
     /**
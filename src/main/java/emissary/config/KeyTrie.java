@@ -0,0 +1,111 @@
+package emissary.config;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+
+/**
+ * Set of config keys arranged as a character trie, so the keys starting with a prefix are found by walking the prefix
+ * and the branch below it without looking at any other key.
+ */
+final class KeyTrie implements Serializable {
+
+    private static final long serialVersionUID = -4519061394012585723L;
+
+    private static final class Node implements Serializable {
+        private static final long serialVersionUID = 2811542711937418905L;
+
+        final Map<Character, Node> children = new TreeMap<>();
+        boolean member;
+    }
+
+    private final Node root = new Node();
+    private int size;
+
+    /**
+     * @param key the key to add
+     * @return true if it was not already present
+     */
+    boolean add(final String key) {
+        Node node = this.root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.children.computeIfAbsent(key.charAt(i), c -> new Node());
+        }
+        if (node.member) {
+            return false;
+        }
+        node.member = true;
+        this.size++;
+        return true;
+    }
+
+    /**
+     * @param key the key to remove, branches left empty are pruned
+     * @return true if it was present
+     */
+    boolean remove(final String key) {
+        final Node[] path = new Node[key.length() + 1];
+        path[0] = this.root;
+        for (int i = 0; i < key.length(); i++) {
+            path[i + 1] = path[i].children.get(key.charAt(i));
+            if (path[i + 1] == null) {
+                return false;
+            }
+        }
+        final Node node = path[key.length()];
+        if (!node.member) {
+            return false;
+        }
+        node.member = false;
+        this.size--;
+        for (int i = key.length(); i > 0 && !path[i].member && path[i].children.isEmpty(); i--) {
+            path[i - 1].children.remove(key.charAt(i - 1));
+        }
+        return true;
+    }
+
+    boolean contains(final String key) {
+        final Node node = find(key);
+        return node != null && node.member;
+    }
+
+    /**
+     * @param prefix the start every key must have
+     * @return the keys starting with prefix in sorted order
+     */
+    List<String> withPrefix(final String prefix) {
+        final List<String> keys = new ArrayList<>();
+        final Node node = find(prefix);
+        if (node != null) {
+            collect(node, new StringBuilder(prefix), keys);
+        }
+        return keys;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    @Nullable
+    private Node find(final String prefix) {
+        Node node = this.root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.children.get(prefix.charAt(i));
+        }
+        return node;
+    }
+
+    private static void collect(final Node node, final StringBuilder key, final List<String> keys) {
+        if (node.member) {
+            keys.add(key.toString());
+        }
+        for (final Map.Entry<Character, Node> child : node.children.entrySet()) {
+            key.append(child.getKey().charValue());
+            collect(child.getValue(), key, keys);
+            key.setLength(key.length() - 1);
+        }
+    }
+}
@@ -16,11 +16,13 @@ import java.io.Reader;
 import java.io.Serializable;
 import java.io.StreamTokenizer;
 import java.net.InetAddress;
+import java.net.URL;
 import java.net.UnknownHostException;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -30,12 +32,17 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
 import javax.annotation.Nullable;
 
 /**
  * This class implements the Configurator interface for services within the Emissary framework.
+ * <p>
+ * Besides the list of entries in order, the entries are indexed by key and the keys are kept in a {@link KeyTrie}, so
+ * lookups by key or by key prefix do not scan every entry. Config files are read through the {@link ConfigParseCache}
+ * so a file imported by many configs is only parsed once.
  */
 
 public class ServiceConfigGuide implements Configurator, Serializable {
@@ -57,6 +64,16 @@ public class ServiceConfigGuide implements Configurator, Serializable {
     // Hold all service specific parameters in a list
     protected List<ConfigEntry> serviceParameters = new ArrayList<>();
 
+    // The entries for each key, in the same order as serviceParameters
+    private final Map<String, List<IndexedEntry>> entryIndex = new LinkedHashMap<>();
+
+    // Every key with an entry, for lookups by prefix
+    private final KeyTrie keyTrie = new KeyTrie();
+
+    // Order given to the entries, merged entries go before all others
+    private long firstOrder = 0;
+    private long lastOrder = 0;
+
     // Hold all remove config entries, operator of !=
     protected List<ConfigEntry> removeParameters = new ArrayList<>();
 
@@ -137,6 +154,22 @@ public class ServiceConfigGuide implements Configurator, Serializable {
         }
     }
 
+    /**
+     * Constructor reading the config at a location through the {@link ConfigParseCache}
+     *
+     * @param location the file or resource to read
+     * @param name the name of the config good for reporting errors
+     */
+    ServiceConfigGuide(final URL location, final String name) throws IOException {
+        this();
+        try {
+            readConfigLocation(location, name);
+        } catch (ConfigSyntaxException ex) {
+            logger.error("Caught ConfigSytaxException {}", ex.getMessage());
+            throw new IOException("Cannot parse configuration file " + ex.getMessage(), ex);
+        }
+    }
+
     /**
      * Public default constructor with InputStream and name
      *
@@ -201,10 +234,37 @@ public class ServiceConfigGuide implements Configurator, Serializable {
 
 
     protected void readConfigData(final InputStream is, final String filename) throws IOException, ConfigSyntaxException {
+        applyLines(parseLines(is, filename), filename);
+    }
+
+    /**
+     * Read the config at a location, parsing it only if it is not in the {@link ConfigParseCache}
+     */
+    protected void readConfigLocation(final URL location, final String filename) throws IOException, ConfigSyntaxException {
+        applyLines(ConfigParseCache.getLines(location, filename), filename);
+    }
+
+    private void applyLines(final List<ConfigParseCache.Line> lines, final String filename) throws IOException {
+        for (final ConfigParseCache.Line line : lines) {
+            this.operator = line.operator;
+            handleNewEntry(line.key, line.value, line.operator, filename, line.lineno, false);
+        }
+    }
+
+    /**
+     * Split config data into its lines without making any substitutions, which depend on what has been read before
+     *
+     * @param is the config data, closed when done
+     * @param filename the name of the data for error reporting
+     * @return the lines in order
+     */
+    static List<ConfigParseCache.Line> parseLines(final InputStream is, final String filename) throws IOException, ConfigSyntaxException {
+        final List<ConfigParseCache.Line> lines = new ArrayList<>();
         final Reader r = new BufferedReader(new InputStreamReader(is));
         final StreamTokenizer in = new StreamTokenizer(r);
         int nextToken = StreamTokenizer.TT_WORD;
         String parmName;
+        String operator;
         String sval;
 
         in.commentChar('#');
@@ -214,45 +274,49 @@ public class ServiceConfigGuide implements Configurator, Serializable {
         in.wordChars(91, 96);
         in.wordChars(123, 65536);
 
-        while (nextToken != StreamTokenizer.TT_EOF) {
-            // Read three tokens at a time (X = Y)
-            nextToken = in.nextToken();
+        try {
+            while (nextToken != StreamTokenizer.TT_EOF) {
+                // Read three tokens at a time (X = Y)
+                nextToken = in.nextToken();
 
-            // Make sure the first token in the tuple is a word
-            if (nextToken == StreamTokenizer.TT_EOF) {
-                break;
-            }
-            if (nextToken == StreamTokenizer.TT_NUMBER) {
-                throw new ConfigSyntaxException("Illegal token " + in.sval + ", missing quote on line " + in.lineno() + "?");
-            }
+                // Make sure the first token in the tuple is a word
+                if (nextToken == StreamTokenizer.TT_EOF) {
+                    break;
+                }
+                if (nextToken == StreamTokenizer.TT_NUMBER) {
+                    throw new ConfigSyntaxException("Illegal token " + in.sval + ", missing quote on line " + in.lineno() + "?");
+                }
 
-            parmName = in.sval;
+                parmName = in.sval;
 
-            nextToken = in.nextToken();
-            this.operator = in.sval;
+                nextToken = in.nextToken();
+                operator = in.sval;
 
-            nextToken = in.nextToken();
-            if (nextToken == StreamTokenizer.TT_NUMBER) {
-                sval = Long.toString((long) in.nval);
-            } else {
-                sval = in.sval;
-            }
+                nextToken = in.nextToken();
+                if (nextToken == StreamTokenizer.TT_NUMBER) {
+                    sval = Long.toString((long) in.nval);
+                } else {
+                    sval = in.sval;
+                }
 
-            if (sval == null) {
-                // Problem is likely on previous line
-                throw new ConfigSyntaxException("Illegal token " + parmName + ", missing space or value on line " + (in.lineno() - 1) + "?");
-            }
+                if (sval == null) {
+                    // Problem is likely on previous line
+                    throw new ConfigSyntaxException("Illegal token " + parmName + ", missing space or value on line " + (in.lineno() - 1) + "?");
+                }
 
-            handleNewEntry(parmName, sval, this.operator, filename, in.lineno() - 1, false);
+                lines.add(new ConfigParseCache.Line(parmName, operator, sval, in.lineno() - 1));
+            }
+        } finally {
+            r.close();
+            is.close();
         }
-        r.close();
-        is.close();
+        logger.trace("Parsed {} lines from {}", lines.size(), filename);
+        return Collections.unmodifiableList(lines);
     }
 
     protected void readSingleConfigFile(final String filename) throws IOException, ConfigSyntaxException {
         logger.debug("Reading config file {}", filename);
-        final InputStream is = ConfigUtil.getConfigData(filename);
-        readConfigData(is, filename);
+        readConfigLocation(ConfigUtil.getConfigDataPath(filename).toUri().toURL(), filename);
     }
 
     /**
@@ -295,6 +359,7 @@ public class ServiceConfigGuide implements Configurator, Serializable {
             } else {
                 this.serviceParameters.add(anEntry);
             }
+            index(anEntry, merge);
 
             // Save this pair in the map
             this.values.put(parmName, sval);
@@ -315,7 +380,7 @@ public class ServiceConfigGuide implements Configurator, Serializable {
                 final String fileFlavor = fileFlavorList.get(i);
                 // recursion alert: This could lead to getFile being called
                 try {
-                    readConfigData(ConfigUtil.getConfigStream(fileFlavor), fileFlavor);
+                    readConfigLocation(ConfigUtil.getConfigLocation(fileFlavor), fileFlavor);
                 } catch (ConfigSyntaxException e) {
                     // whether opt or not, syntax errors are a problem
                     throw new IOException(parmName + " = " + sval + " from " + filename + " failed " + e.getMessage(), e);
@@ -529,11 +594,7 @@ public class ServiceConfigGuide implements Configurator, Serializable {
      */
     @Override
     public Set<String> entryKeys() {
-        final Set<String> set = new HashSet<>();
-        for (final ConfigEntry curEntry : this.serviceParameters) {
-            set.add(curEntry.getKey());
-        }
-        return set;
+        return new HashSet<>(this.entryIndex.keySet());
     }
 
     /**
@@ -613,12 +674,18 @@ public class ServiceConfigGuide implements Configurator, Serializable {
      * @param anEntry the entry to remove
      */
     public void removeEntry(final ConfigEntry anEntry) {
+        final List<IndexedEntry> entries = this.entryIndex.get(anEntry.getKey());
+        if (entries == null || !entries.removeIf(e -> Objects.equals(anEntry.getValue(), e.entry.getValue()))) {
+            return;
+        }
+        if (entries.isEmpty()) {
+            unindex(anEntry.getKey());
+        }
+
         // NB: enhanced for loop does not support remove
         for (final Iterator<ConfigEntry> i = this.serviceParameters.iterator(); i.hasNext();) {
             final ConfigEntry curEntry = i.next();
-            if (anEntry.getKey().equals(curEntry.getKey())
-                    && ((anEntry.getValue() == null && curEntry.getValue() == null) || (anEntry.getValue() != null && anEntry.getValue().equals(
-                            curEntry.getValue())))) {
+            if (anEntry.getKey().equals(curEntry.getKey()) && Objects.equals(anEntry.getValue(), curEntry.getValue())) {
                 logger.debug("Removing {} = {}", curEntry.getKey(), curEntry.getValue());
                 i.remove();
             }
@@ -649,12 +716,13 @@ public class ServiceConfigGuide implements Configurator, Serializable {
      */
     @Override
     public List<String> findEntries(final String theParameter) {
-        final List<String> matchingEntries = new ArrayList<>();
-
-        for (final ConfigEntry curEntry : this.serviceParameters) {
-            if (theParameter.equals(curEntry.getKey())) {
-                matchingEntries.add(curEntry.getValue());
-            }
+        final List<IndexedEntry> entries = this.entryIndex.get(theParameter);
+        if (entries == null) {
+            return new ArrayList<>();
+        }
+        final List<String> matchingEntries = new ArrayList<>(entries.size());
+        for (final IndexedEntry curEntry : entries) {
+            matchingEntries.add(curEntry.entry.getValue());
         }
         return matchingEntries;
     }
@@ -665,6 +733,11 @@ public class ServiceConfigGuide implements Configurator, Serializable {
      * @param theParameter key name to match, all matching will be removed
      */
     public void removeAllEntries(final String theParameter) {
+        if (!this.entryIndex.containsKey(theParameter)) {
+            return;
+        }
+        unindex(theParameter);
+
         // NB: enhanced for loop does not support remove
         for (final Iterator<ConfigEntry> i = this.serviceParameters.iterator(); i.hasNext();) {
             final ConfigEntry curEntry = i.next();
@@ -684,14 +757,7 @@ public class ServiceConfigGuide implements Configurator, Serializable {
     @Override
     public Set<String> findEntriesAsSet(final String theParameter) {
 
-        final Set<String> matchingEntries = new HashSet<>();
-
-        for (final ConfigEntry curEntry : this.serviceParameters) {
-            if (theParameter.equals(curEntry.getKey())) {
-                matchingEntries.add(curEntry.getValue());
-            }
-        }
-        return matchingEntries;
+        return new HashSet<>(findEntries(theParameter));
     }
 
     /**
@@ -702,13 +768,23 @@ public class ServiceConfigGuide implements Configurator, Serializable {
      */
     @Override
     public List<ConfigEntry> findStringMatchEntries(final String theParameter) {
+        if (theParameter.isEmpty()) {
+            return new ArrayList<>(this.serviceParameters);
+        }
 
-        final List<ConfigEntry> matchingEntries = new ArrayList<>();
+        final List<IndexedEntry> matches = new ArrayList<>();
+        final List<String> keys = this.keyTrie.withPrefix(theParameter);
+        for (final String key : keys) {
+            matches.addAll(this.entryIndex.get(key));
+        }
+        if (keys.size() > 1) {
+            // back into the order of the whole config
+            matches.sort(Comparator.comparingLong(e -> e.order));
+        }
 
-        for (final ConfigEntry curEntry : this.serviceParameters) {
-            if (curEntry.getKey().startsWith(theParameter)) {
-                matchingEntries.add(curEntry);
-            }
+        final List<ConfigEntry> matchingEntries = new ArrayList<>(matches.size());
+        for (final IndexedEntry match : matches) {
+            matchingEntries.add(match.entry);
         }
         return matchingEntries;
     }
@@ -722,9 +798,10 @@ public class ServiceConfigGuide implements Configurator, Serializable {
      */
     @Override
     public List<ConfigEntry> findStringMatchList(final String theParameter) {
-        final List<ConfigEntry> list = findStringMatchEntries(theParameter);
-        for (final ConfigEntry entry : list) {
-            entry.setKey(entry.getKey().substring(theParameter.length()));
+        final List<ConfigEntry> list = new ArrayList<>();
+        for (final ConfigEntry entry : findStringMatchEntries(theParameter)) {
+            // copies, the keys of the entries in this config must not change
+            list.add(new ConfigEntry(entry.getKey().substring(theParameter.length()), entry.getValue()));
         }
         return list;
     }
@@ -908,10 +985,12 @@ public class ServiceConfigGuide implements Configurator, Serializable {
      */
     @Override
     public String findStringEntry(final String theParameter, @Nullable final String dflt) {
-        final List<String> matchingEntries = findEntries(theParameter);
-        for (final String entry : matchingEntries) {
-            if (entry != null) {
-                return entry;
+        final List<IndexedEntry> entries = this.entryIndex.get(theParameter);
+        if (entries != null) {
+            for (final IndexedEntry curEntry : entries) {
+                if (curEntry.entry.getValue() != null) {
+                    return curEntry.entry.getValue();
+                }
             }
         }
         return dflt;
@@ -936,13 +1015,11 @@ public class ServiceConfigGuide implements Configurator, Serializable {
      */
     @Override
     public String findLastStringEntry(final String theParameter) {
-        String result = "";
-        for (final ConfigEntry curEntry : this.serviceParameters) {
-            if (theParameter.equals(curEntry.getKey())) {
-                result = curEntry.getValue();
-            }
+        final List<IndexedEntry> entries = this.entryIndex.get(theParameter);
+        if (entries == null) {
+            return "";
         }
-        return result;
+        return entries.get(entries.size() - 1).entry.getValue();
     }
 
     /**
@@ -1171,6 +1248,48 @@ public class ServiceConfigGuide implements Configurator, Serializable {
         }
     }
 
+    /**
+     * Add an entry to the index
+     *
+     * @param entry the entry just added to serviceParameters
+     * @param first true if it was added at the top
+     */
+    private void index(final ConfigEntry entry, final boolean first) {
+        final IndexedEntry indexed = new IndexedEntry(entry, first ? --this.firstOrder : ++this.lastOrder);
+        final List<IndexedEntry> entries = this.entryIndex.computeIfAbsent(entry.getKey(), k -> {
+            this.keyTrie.add(k);
+            return new ArrayList<>();
+        });
+        if (first) {
+            entries.add(0, indexed);
+        } else {
+            entries.add(indexed);
+        }
+    }
+
+    /**
+     * Remove a key and all of its entries from the index
+     */
+    private void unindex(final String key) {
+        this.entryIndex.remove(key);
+        this.keyTrie.remove(key);
+    }
+
+    /**
+     * An entry with its position in the whole config, so entries found under several keys can be put back in order
+     */
+    private static final class IndexedEntry implements Serializable {
+        private static final long serialVersionUID = -6403558121871339210L;
+
+        final ConfigEntry entry;
+        final long order;
+
+        IndexedEntry(final ConfigEntry entry, final long order) {
+            this.entry = entry;
+            this.order = order;
+        }
+    }
+
     /**
      * Public main used to verify config file construction off-line
      */
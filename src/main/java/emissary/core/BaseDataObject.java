@@ -7,8 +7,7 @@ import emissary.pickup.Priority;
 import emissary.util.ByteUtil;
 import emissary.util.PayloadUtil;
 
-import com.google.common.collect.LinkedListMultimap;
-import org.apache.commons.collections4.CollectionUtils;
+import com.google.common.collect.ListMultimap;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
@@ -35,6 +34,7 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 
 /**
@@ -49,9 +49,13 @@ public class BaseDataObject implements Serializable, Cloneable, Remote, IBaseDat
     /* Including this here make serialization of this object faster. */
     private static final long serialVersionUID = 7362181964652092657L;
 
-    /* Actual data - migrate away from this towards byte channels. */
+    /* Actual data - migrate away from this towards byte channels. Private so every change goes through releaseData. */
     @Nullable
-    protected byte[] theData;
+    private byte[] theData;
+
+    /* The number of objects sharing theData since a clone, null when it is not shared. */
+    @Nullable
+    private transient AtomicInteger dataHolders;
 
     /**
      * Original name of the input data. Can only be set in the constructor of the DataObject. returned via the
@@ -92,9 +96,9 @@ public class BaseDataObject implements Serializable, Cloneable, Remote, IBaseDat
     protected String fontEncoding = null;
 
     /**
-     * Dynamic facets or metadata attributes of the data
+     * Dynamic facets or metadata attributes of the data, subclasses reach them through the parameter methods
      */
-    protected LinkedListMultimap<String, Object> parameters = LinkedListMultimap.create(100);
+    private ParameterMap parameters = new ParameterMap();
 
     /**
      * If this file caused other agents to be sprouted, indicate how many
@@ -358,6 +362,7 @@ public class BaseDataObject implements Serializable, Cloneable, Remote, IBaseDat
     @Override
     public void setChannelFactory(final SeekableByteChannelFactory sbcf) {
         Validate.notNull(sbcf, "Required: SeekableByteChannelFactory not null");
+        releaseData();
         this.theData = null;
         this.seekableByteChannelFactory = sbcf;
     }
@@ -412,6 +417,12 @@ public class BaseDataObject implements Serializable, Cloneable, Remote, IBaseDat
      * not be modified.
      * </p>
      * 
+     * <p>
+     * Data shared with a clone is copied on the first call to this method after the clone was made, so an array returned
+     * by this call may be changed in place without affecting any clone. An array returned before a clone was made is
+     * shared with that clone and must not be changed once it exists; call this method again to get one that may be.
+     * </p>
+     * 
      * @see #getChannelFactory()
      * @return the data as a byte array
      */
@@ -423,7 +434,7 @@ public class BaseDataObject implements Serializable, Cloneable, Remote, IBaseDat
             case BYTE_ARRAY_AND_CHANNEL:
                 throw new IllegalStateException(String.format(INVALID_STATE_MSG, shortName()));
             case BYTE_ARRAY_ONLY:
-                return theData;
+                return ownData();
             case CHANNEL_ONLY:
                 // Max size here is slightly less than the true max size to avoid memory issues
                 return SeekableByteChannelHelper.getByteArrayFromBdo(this, MAX_BYTE_ARRAY_SIZE);
@@ -434,10 +445,14 @@ public class BaseDataObject implements Serializable, Cloneable, Remote, IBaseDat
     }
 
     /**
+     * Set new data on the BDO using the array directly, no copy is made. The array is shared with any clone made
+     * afterwards, so the caller should not change it once it has been passed in.
+     *
      * @see #setData(byte[], int, int)
      */
     @Override
     public void setData(@Nullable final byte[] newData) {
+        releaseData();
         this.seekableByteChannelFactory = null;
         this.theData = newData == null ? new byte[0] : newData;
     }
@@ -459,6 +474,7 @@ public class BaseDataObject implements Serializable, Cloneable, Remote, IBaseDat
      */
     @Override
     public void setData(@Nullable final byte[] newData, final int offset, final int length) {
+        releaseData();
         this.seekableByteChannelFactory = null;
         if (length <= 0 || newData == null) {
             this.theData = new byte[0];
@@ -468,6 +484,90 @@ public class BaseDataObject implements Serializable, Cloneable, Remote, IBaseDat
         }
     }
 
+    /**
+     * Share theData with a copy of this object. Neither changes it in place until it has made the data its own with
+     * {@link #ownData()}.
+     *
+     * @param c the copy
+     * @return false if this object does not hold its data in a byte array
+     */
+    boolean shareData(final BaseDataObject c) {
+        if (getDataState() != DataState.BYTE_ARRAY_ONLY) {
+            return false;
+        }
+        c.releaseData();
+        if (this.dataHolders == null) {
+            this.dataHolders = new AtomicInteger(1);
+        }
+        this.dataHolders.incrementAndGet();
+        c.seekableByteChannelFactory = null;
+        c.theData = this.theData;
+        c.dataHolders = this.dataHolders;
+        return true;
+    }
+
+    /**
+     * The parameters as the multimap they used to be kept in, for subclasses that read or changed that field directly.
+     * Changes made through it go to the parameters of this object.
+     *
+     * @return a live multimap view of the parameters
+     * @deprecated the parameters are now held in a private {@link ParameterMap}, use the parameter methods of this class
+     */
+    @Deprecated
+    protected ListMultimap<String, Object> getParameterMultimap() {
+        return this.parameters.asMultimap();
+    }
+
+    /**
+     * Share the parameters with a copy of this object that has none of its own, each copies them before changing them
+     *
+     * @param c the copy
+     * @return false if the copy already has parameters
+     */
+    boolean shareParameters(final BaseDataObject c) {
+        if (!c.parameters.isEmpty()) {
+            return false;
+        }
+        c.parameters = this.parameters.copy();
+        return true;
+    }
+
+    /**
+     * Copy theData if it is still shared before it is handed out where it can be changed. The last holder keeps the
+     * array, a holder copying it leaves the others to it only once the copy is done.
+     */
+    @Nullable
+    private byte[] ownData() {
+        final AtomicInteger holders = this.dataHolders;
+        if (holders != null) {
+            if (holders.get() > 1) {
+                this.theData = this.theData.clone();
+            }
+            holders.decrementAndGet();
+            this.dataHolders = null;
+        }
+        return this.theData;
+    }
+
+    /**
+     * Drop the data, whether held in a byte array or a channel factory, leaving this object with none
+     */
+    protected void clearData() {
+        releaseData();
+        this.theData = null;
+        this.seekableByteChannelFactory = null;
+    }
+
+    /**
+     * Stop sharing theData before it is replaced
+     */
+    private void releaseData() {
+        if (this.dataHolders != null) {
+            this.dataHolders.decrementAndGet();
+            this.dataHolders = null;
+        }
+    }
+
     /**
      * Checks if the data is defined with a non-zero length.
      * 
@@ -952,7 +1052,7 @@ public class BaseDataObject implements Serializable, Cloneable, Remote, IBaseDat
     public List<Object> getParameter(final String key) {
         // Try remapping
         List<Object> v = this.parameters.get(key);
-        if (CollectionUtils.isEmpty(v)) {
+        if (v.isEmpty()) {
             return null;
         }
         return v;
@@ -1322,14 +1422,18 @@ public class BaseDataObject implements Serializable, Cloneable, Remote, IBaseDat
     }
 
     /**
-     * Clone this payload
+     * Clone this payload. The data, parameters and transform history are shared with the clone until either one changes
+     * them, so a clone costs the same whatever the size of the payload. Data is handed out for changing by {@link #data()},
+     * which copies it then if it is still shared; an array taken from {@link #data()} or passed to
+     * {@link #setData(byte[])} before the clone was made is shared with the clone and must not be changed afterwards.
      */
     @Deprecated
     @Override
     public IBaseDataObject clone() throws CloneNotSupportedException {
         final BaseDataObject c = (BaseDataObject) super.clone();
+        c.dataHolders = null;
         if ((this.theData != null) && (this.theData.length > 0)) {
-            c.setData(this.theData, 0, this.theData.length);
+            shareData(c);
         }
 
         if (this.seekableByteChannelFactory != null) {
@@ -1339,6 +1443,9 @@ public class BaseDataObject implements Serializable, Cloneable, Remote, IBaseDat
         c.currentForm = new ArrayList<>(this.currentForm);
         c.history = new TransformHistory(this.history);
         c.multipartAlternative = new HashMap<>(this.multipartAlternative);
+        if (this.procError != null) {
+            c.procError = new StringBuilder(this.procError);
+        }
         c.priority = this.priority;
         c.creationTimestamp = this.creationTimestamp;
 
@@ -1348,8 +1455,7 @@ public class BaseDataObject implements Serializable, Cloneable, Remote, IBaseDat
                 c.addExtractedRecord(r.clone());
             }
         }
-        // This creates a deep copy Guava style
-        c.parameters = LinkedListMultimap.create(this.parameters);
+        c.parameters = this.parameters.copy();
 
         return c;
     }
@@ -0,0 +1,585 @@
+package emissary.core;
+
+import emissary.core.channels.FileChannelFactory;
+import emissary.core.channels.InMemoryChannelFactory;
+import emissary.core.channels.SeekableByteChannelFactory;
+import emissary.core.channels.SegmentChannelFactory;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import javax.annotation.Nullable;
+
+/**
+ * This class converts IBaseDataObjects to and from a compact, versioned, length-prefixed binary form. It is intended for
+ * checkpointing and transporting payloads where {@link IBaseDataObjectXmlHelper} is too slow and too bulky.
+ * <p>
+ * Every stream starts with {@link #MAGIC} and {@link #VERSION}, followed by the parent object, the number of children
+ * and then each child. Each object is written field by field; strings and byte arrays are prefixed with their length
+ * (-1 for null) and the payload is either streamed inline from the channel factory, written as a reference to be
+ * resolved on decode, or omitted when there is no data. Extracted records are written recursively with their parent.
+ * <p>
+ * The object's internal id and top level document are not written; decoded objects get new ones. Parameter values that
+ * are not null, strings, integers, longs, doubles or booleans are written as their string value, as the XML form does.
+ * An empty processing error has no errors to restore and is decoded as no processing error.
+ */
+public final class IBaseDataObjectBinaryCodec {
+    /**
+     * Marks the start of an encoded stream ("EBDO").
+     */
+    public static final int MAGIC = 0x4542444F;
+    /**
+     * The version of the encoding written by this class.
+     */
+    public static final short VERSION = 1;
+
+    private static final byte DATA_NONE = 0;
+    private static final byte DATA_INLINE = 1;
+    private static final byte DATA_REFERENCE = 2;
+
+    private static final byte VALUE_STRING = 0;
+    private static final byte VALUE_INTEGER = 1;
+    private static final byte VALUE_LONG = 2;
+    private static final byte VALUE_DOUBLE = 3;
+    private static final byte VALUE_BOOLEAN = 4;
+    private static final byte VALUE_NULL = 5;
+
+    private static final int NULL_LENGTH = -1;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Interface for deciding whether a payload is written by reference instead of inline.
+     */
+    public interface PayloadReferencer {
+        /**
+         * Returns a reference to the payload that can later be resolved by a {@link PayloadResolver}.
+         * 
+         * @param sbcf the payload of the object being encoded.
+         * @return the reference, or null to write the payload inline.
+         */
+        @Nullable
+        String reference(SeekableByteChannelFactory sbcf);
+    }
+
+    /**
+     * Interface for resolving a payload reference written by a {@link PayloadReferencer}.
+     */
+    public interface PayloadResolver {
+        /**
+         * Returns the payload for a reference.
+         * 
+         * @param reference written when the object was encoded.
+         * @return the payload.
+         * @throws IOException thrown if the reference cannot be resolved.
+         */
+        SeekableByteChannelFactory resolve(String reference) throws IOException;
+    }
+
+    /**
+     * Writes every payload inline.
+     */
+    public static final PayloadReferencer INLINE_PAYLOADS = sbcf -> null;
+
+    /**
+     * Resolves payload references as file paths.
+     */
+    public static final PayloadResolver FILE_PAYLOADS = reference -> FileChannelFactory.create(Paths.get(reference));
+
+    private IBaseDataObjectBinaryCodec() {}
+
+    /**
+     * Encodes an IBaseDataObject, including its extracted records, writing the payload inline.
+     * 
+     * @param ibdo to encode.
+     * @param outputStream to write to, which is flushed but not closed.
+     * @throws IOException thrown if the payload cannot be read or the stream cannot be written.
+     */
+    public static void encode(final IBaseDataObject ibdo, final OutputStream outputStream) throws IOException {
+        encode(ibdo, Collections.emptyList(), outputStream, INLINE_PAYLOADS);
+    }
+
+    /**
+     * Encodes a parent IBaseDataObject and a list of children IBaseDataObjects.
+     * 
+     * @param parent the parent IBaseDataObject.
+     * @param children the children IBaseDataObjects.
+     * @param outputStream to write to, which is flushed but not closed.
+     * @param referencer decides which payloads are written by reference.
+     * @throws IOException thrown if a payload cannot be read or the stream cannot be written.
+     */
+    public static void encode(final IBaseDataObject parent, final List<IBaseDataObject> children, final OutputStream outputStream,
+            final PayloadReferencer referencer) throws IOException {
+        Validate.notNull(parent, "Required: parent not null!");
+        Validate.notNull(children, "Required: children not null!");
+        Validate.notNull(outputStream, "Required: outputStream not null!");
+        Validate.notNull(referencer, "Required: referencer not null!");
+
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream, COPY_BUFFER_SIZE));
+
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        writeIbdo(parent, out, referencer);
+        out.writeInt(children.size());
+        for (final IBaseDataObject child : children) {
+            writeIbdo(child, out, referencer);
+        }
+        out.flush();
+    }
+
+    /**
+     * Decodes an IBaseDataObject and its extracted records, reading any inline payload into memory.
+     * 
+     * @param inputStream to read from.
+     * @return the IBaseDataObject.
+     * @throws IOException thrown if the stream is not a supported encoding or cannot be read.
+     */
+    public static IBaseDataObject decode(final InputStream inputStream) throws IOException {
+        return decode(inputStream, new ArrayList<>(), FILE_PAYLOADS);
+    }
+
+    /**
+     * Decodes a parent IBaseDataObject and its children, reading any inline payloads into memory.
+     * 
+     * @param inputStream to read from.
+     * @param children the list where the children will be added.
+     * @param resolver used to resolve payload references.
+     * @return the parent IBaseDataObject.
+     * @throws IOException thrown if the stream is not a supported encoding or cannot be read.
+     */
+    public static IBaseDataObject decode(final InputStream inputStream, final List<IBaseDataObject> children,
+            final PayloadResolver resolver) throws IOException {
+        Validate.notNull(inputStream, "Required: inputStream not null!");
+
+        return decode(new Reader(inputStream, null), children, resolver);
+    }
+
+    /**
+     * Decodes a parent IBaseDataObject and its children from an encoding held in a channel factory. Inline payloads are
+     * not copied; each becomes a segment of the source.
+     * 
+     * @param source containing the encoding, which must stay valid for as long as the decoded payloads are used.
+     * @param children the list where the children will be added.
+     * @param resolver used to resolve payload references.
+     * @return the parent IBaseDataObject.
+     * @throws IOException thrown if the source is not a supported encoding or cannot be read.
+     */
+    public static IBaseDataObject decode(final SeekableByteChannelFactory source, final List<IBaseDataObject> children,
+            final PayloadResolver resolver) throws IOException {
+        Validate.notNull(source, "Required: source not null!");
+
+        try (SeekableByteChannel sbc = source.create()) {
+            return decode(new Reader(Channels.newInputStream(sbc), source), children, resolver);
+        }
+    }
+
+    private static IBaseDataObject decode(final Reader in, final List<IBaseDataObject> children, final PayloadResolver resolver)
+            throws IOException {
+        Validate.notNull(children, "Required: children not null!");
+        Validate.notNull(resolver, "Required: resolver not null!");
+
+        final int magic = in.readInt();
+        if (magic != MAGIC) {
+            throw new IOException(String.format("Not an encoded IBaseDataObject, magic was 0x%08X", magic));
+        }
+        final short version = in.readShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported IBaseDataObject encoding version " + version);
+        }
+
+        final IBaseDataObject parent = readIbdo(in, resolver);
+        final int childCount = in.readInt();
+        for (int i = 0; i < childCount; i++) {
+            children.add(readIbdo(in, resolver));
+        }
+
+        return parent;
+    }
+
+    private static void writeIbdo(final IBaseDataObject ibdo, final DataOutputStream out, final PayloadReferencer referencer)
+            throws IOException {
+        writeData(ibdo.getChannelFactory(), out, referencer);
+        out.writeInt(ibdo.getBirthOrder());
+        writeString(ibdo.getBroken(), out);
+        writeString(ibdo.getClassification(), out);
+        writeStrings(ibdo.getAllCurrentForms(), out);
+        writeString(ibdo.getFilename(), out);
+        writeString(ibdo.getFontEncoding(), out);
+        writeBytes(ibdo.footer(), out);
+        writeBytes(ibdo.header(), out);
+        writeString(ibdo.getHeaderEncoding(), out);
+        writeString(ibdo.getId(), out);
+        out.writeInt(ibdo.getNumChildren());
+        out.writeInt(ibdo.getNumSiblings());
+        out.writeBoolean(ibdo.isOutputable());
+        out.writeInt(ibdo.getPriority());
+        writeString(ibdo.getProcessingError(), out);
+        writeString(ibdo.getTransactionId(), out);
+        writeString(ibdo.getWorkBundleId(), out);
+        writeTimestamp(ibdo.getCreationTimestamp(), out);
+        writeParameters(ibdo.getParameters(), out);
+        writeAlternateViews(ibdo.getAlternateViews(), out);
+        writeTransformHistory(ibdo.getTransformHistory(), out);
+
+        final List<IBaseDataObject> extractedRecords = ibdo.getExtractedRecords();
+        if (extractedRecords == null) {
+            out.writeInt(0);
+        } else {
+            out.writeInt(extractedRecords.size());
+            for (final IBaseDataObject extractedRecord : extractedRecords) {
+                writeIbdo(extractedRecord, out, referencer);
+            }
+        }
+    }
+
+    private static IBaseDataObject readIbdo(final Reader in, final PayloadResolver resolver) throws IOException {
+        final IBaseDataObject ibdo = DataObjectFactory.getInstance();
+
+        final SeekableByteChannelFactory sbcf = readData(in, resolver);
+        if (sbcf != null) {
+            ibdo.setChannelFactory(sbcf);
+        }
+        ibdo.setBirthOrder(in.readInt());
+        ibdo.setBroken(in.readString());
+        ibdo.setClassification(in.readString());
+        final int formCount = in.readInt();
+        for (int i = 0; i < formCount; i++) {
+            ibdo.enqueueCurrentForm(in.readString());
+        }
+        final String filename = in.readString();
+        if (filename != null) {
+            ibdo.setFilename(filename);
+        }
+        ibdo.setFontEncoding(in.readString());
+        ibdo.setFooter(in.readBytes());
+        ibdo.setHeader(in.readBytes());
+        ibdo.setHeaderEncoding(in.readString());
+        ibdo.setId(in.readString());
+        ibdo.setNumChildren(in.readInt());
+        ibdo.setNumSiblings(in.readInt());
+        ibdo.setOutputable(in.readBoolean());
+        ibdo.setPriority(in.readInt());
+        final String processingError = in.readString();
+        if (StringUtils.isNotEmpty(processingError)) {
+            // addProcessingError appends the line separator that was written with the last error
+            ibdo.addProcessingError(StringUtils.removeEnd(processingError, "\n"));
+        }
+        ibdo.setTransactionId(in.readString());
+        ibdo.setWorkBundleId(in.readString());
+        if (in.readBoolean()) {
+            ibdo.setCreationTimestamp(Instant.ofEpochSecond(in.readLong(), in.readInt()));
+        }
+        readParameters(ibdo, in);
+        final int viewCount = in.readInt();
+        for (int i = 0; i < viewCount; i++) {
+            ibdo.addAlternateView(in.readString(), in.readBytes());
+        }
+        ibdo.setHistory(readTransformHistory(in));
+        final int extractedRecordCount = in.readInt();
+        for (int i = 0; i < extractedRecordCount; i++) {
+            ibdo.addExtractedRecord(readIbdo(in, resolver));
+        }
+
+        return ibdo;
+    }
+
+    private static void writeData(@Nullable final SeekableByteChannelFactory sbcf, final DataOutputStream out,
+            final PayloadReferencer referencer) throws IOException {
+        if (sbcf == null) {
+            out.writeByte(DATA_NONE);
+            return;
+        }
+
+        final String reference = referencer.reference(sbcf);
+        if (reference != null) {
+            out.writeByte(DATA_REFERENCE);
+            writeString(reference, out);
+            return;
+        }
+
+        out.writeByte(DATA_INLINE);
+        try (SeekableByteChannel sbc = sbcf.create()) {
+            final long size = sbc.size();
+            final ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size, COPY_BUFFER_SIZE));
+            long remaining = size;
+
+            out.writeLong(size);
+            while (remaining > 0) {
+                buffer.clear();
+                final int bytesRead = sbc.read(buffer);
+                if (bytesRead < 0) {
+                    throw new IOException("Payload ended " + remaining + " bytes before its size of " + size);
+                }
+                out.write(buffer.array(), 0, bytesRead);
+                remaining -= bytesRead;
+            }
+        }
+    }
+
+    @Nullable
+    private static SeekableByteChannelFactory readData(final Reader in, final PayloadResolver resolver) throws IOException {
+        final byte dataMode = in.readByte();
+
+        switch (dataMode) {
+            case DATA_NONE:
+                return null;
+            case DATA_REFERENCE:
+                return resolver.resolve(in.readString());
+            case DATA_INLINE:
+                return in.readPayload(in.readLong());
+            default:
+                throw new IOException("Unknown payload mode " + dataMode);
+        }
+    }
+
+    private static void writeParameters(final Map<String, Collection<Object>> parameters, final DataOutputStream out) throws IOException {
+        out.writeInt(parameters.size());
+        for (final Entry<String, Collection<Object>> parameter : parameters.entrySet()) {
+            writeString(parameter.getKey(), out);
+            out.writeInt(parameter.getValue().size());
+            for (final Object value : parameter.getValue()) {
+                writeValue(value, out);
+            }
+        }
+    }
+
+    private static void readParameters(final IBaseDataObject ibdo, final Reader in) throws IOException {
+        final int keyCount = in.readInt();
+        for (int i = 0; i < keyCount; i++) {
+            final String key = in.readString();
+            final int valueCount = in.readInt();
+            final List<Object> values = new ArrayList<>(valueCount);
+
+            for (int j = 0; j < valueCount; j++) {
+                values.add(readValue(in));
+            }
+            ibdo.putParameter(key, values);
+        }
+    }
+
+    private static void writeValue(@Nullable final Object value, final DataOutputStream out) throws IOException {
+        if (value == null) {
+            out.writeByte(VALUE_NULL);
+        } else if (value instanceof Integer) {
+            out.writeByte(VALUE_INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(VALUE_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(VALUE_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(VALUE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else {
+            out.writeByte(VALUE_STRING);
+            writeString(value.toString(), out);
+        }
+    }
+
+    @Nullable
+    private static Object readValue(final Reader in) throws IOException {
+        final byte valueType = in.readByte();
+
+        switch (valueType) {
+            case VALUE_STRING:
+                return in.readString();
+            case VALUE_INTEGER:
+                return in.readInt();
+            case VALUE_LONG:
+                return in.readLong();
+            case VALUE_DOUBLE:
+                return in.readDouble();
+            case VALUE_BOOLEAN:
+                return in.readBoolean();
+            case VALUE_NULL:
+                return null;
+            default:
+                throw new IOException("Unknown parameter value type " + valueType);
+        }
+    }
+
+    private static void writeAlternateViews(final Map<String, byte[]> views, final DataOutputStream out) throws IOException {
+        out.writeInt(views.size());
+        for (final Entry<String, byte[]> view : views.entrySet()) {
+            writeString(view.getKey(), out);
+            writeBytes(view.getValue(), out);
+        }
+    }
+
+    private static void writeTransformHistory(final TransformHistory history, final DataOutputStream out) throws IOException {
+        final List<TransformHistory.History> entries = history.getHistory();
+
+        out.writeInt(entries.size());
+        for (final TransformHistory.History entry : entries) {
+            writeString(entry.getKey(), out);
+            writeStrings(entry.getCoordinated(), out);
+        }
+    }
+
+    private static TransformHistory readTransformHistory(final Reader in) throws IOException {
+        final TransformHistory history = new TransformHistory();
+        final int entryCount = in.readInt();
+
+        for (int i = 0; i < entryCount; i++) {
+            history.append(in.readString());
+            final int coordinatedCount = in.readInt();
+            for (int j = 0; j < coordinatedCount; j++) {
+                history.append(in.readString(), true);
+            }
+        }
+
+        return history;
+    }
+
+    private static void writeTimestamp(@Nullable final Instant timestamp, final DataOutputStream out) throws IOException {
+        out.writeBoolean(timestamp != null);
+        if (timestamp != null) {
+            out.writeLong(timestamp.getEpochSecond());
+            out.writeInt(timestamp.getNano());
+        }
+    }
+
+    private static void writeStrings(final List<String> strings, final DataOutputStream out) throws IOException {
+        out.writeInt(strings.size());
+        for (final String string : strings) {
+            writeString(string, out);
+        }
+    }
+
+    private static void writeString(@Nullable final String string, final DataOutputStream out) throws IOException {
+        writeBytes(string == null ? null : string.getBytes(StandardCharsets.UTF_8), out);
+    }
+
+    private static void writeBytes(@Nullable final byte[] bytes, final DataOutputStream out) throws IOException {
+        if (bytes == null) {
+            out.writeInt(NULL_LENGTH);
+        } else {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Reads the encoded fields, keeping track of the position in the stream so that inline payloads can be referenced in
+     * place when decoding from a channel factory.
+     */
+    private static final class Reader extends FilterInputStream {
+        private final DataInputStream in;
+        @Nullable
+        private final SeekableByteChannelFactory source;
+        private long position;
+
+        private Reader(final InputStream inputStream, @Nullable final SeekableByteChannelFactory source) {
+            super(new BufferedInputStream(inputStream, COPY_BUFFER_SIZE));
+            this.in = new DataInputStream(this);
+            this.source = source;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b >= 0) {
+                position++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            final int bytesRead = super.read(b, off, len);
+            if (bytesRead > 0) {
+                position += bytesRead;
+            }
+            return bytesRead;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            final long skipped = super.skip(n);
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        byte readByte() throws IOException {
+            return in.readByte();
+        }
+
+        boolean readBoolean() throws IOException {
+            return in.readBoolean();
+        }
+
+        short readShort() throws IOException {
+            return in.readShort();
+        }
+
+        int readInt() throws IOException {
+            return in.readInt();
+        }
+
+        long readLong() throws IOException {
+            return in.readLong();
+        }
+
+        double readDouble() throws IOException {
+            return in.readDouble();
+        }
+
+        @Nullable
+        byte[] readBytes() throws IOException {
+            final int length = in.readInt();
+            if (length == NULL_LENGTH) {
+                return null;
+            }
+            final byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return bytes;
+        }
+
+        @Nullable
+        String readString() throws IOException {
+            final byte[] bytes = readBytes();
+            return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        SeekableByteChannelFactory readPayload(final long length) throws IOException {
+            if (source != null) {
+                final SeekableByteChannelFactory segment = SegmentChannelFactory.create(source, position, length);
+                IOUtils.skipFully(this, length);
+                return segment;
+            }
+            if (length > BaseDataObject.MAX_BYTE_ARRAY_SIZE) {
+                throw new IOException("Inline payload of " + length + " bytes is too large to decode from a stream");
+            }
+            final byte[] bytes = new byte[(int) length];
+            in.readFully(bytes);
+            return InMemoryChannelFactory.create(bytes);
+        }
+    }
+}
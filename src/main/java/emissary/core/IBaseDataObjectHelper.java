@@ -63,9 +63,14 @@ public final class IBaseDataObjectHelper {
 
         final IBaseDataObject bdo = fullClone ? new InternalIdBaseDataObject(iBaseDataObject.getInternalId()) : DataObjectFactory.getInstance();
 
-        final SeekableByteChannelFactory sbcf = iBaseDataObject.getChannelFactory();
-        if (sbcf != null) {
-            bdo.setChannelFactory(sbcf);
+        // A BaseDataObject shares its data and parameters with the clone until one of them changes them
+        final BaseDataObject source =
+                iBaseDataObject instanceof BaseDataObject && bdo instanceof BaseDataObject ? (BaseDataObject) iBaseDataObject : null;
+        if (source == null || !source.shareData((BaseDataObject) bdo)) {
+            final SeekableByteChannelFactory sbcf = iBaseDataObject.getChannelFactory();
+            if (sbcf != null) {
+                bdo.setChannelFactory(sbcf);
+            }
         }
 
         final List<String> allCurrentForms = iBaseDataObject.getAllCurrentForms();
@@ -73,7 +78,9 @@ public final class IBaseDataObjectHelper {
             bdo.enqueueCurrentForm(allCurrentForms.get(i));
         }
         bdo.setHistory(iBaseDataObject.getTransformHistory());
-        bdo.putParameters(iBaseDataObject.getParameters());
+        if (source == null || !source.shareParameters((BaseDataObject) bdo)) {
+            bdo.putParameters(iBaseDataObject.getParameters());
+        }
         for (final Map.Entry<String, byte[]> entry : iBaseDataObject.getAlternateViews().entrySet()) {
             bdo.addAlternateView(entry.getKey(), entry.getValue());
         }
@@ -130,6 +137,14 @@ public final class IBaseDataObjectHelper {
         Validate.notNull(placeKey, "Required: placeKey not null");
         Validate.notNull(kffDataObjectHandler, "Required: kffDataObjectHandler not null");
 
+        copyParentInformation(parentIBaseDataObject, childIBaseDataObject, nullifyFileType, alwaysCopyMetadataKeys, placeKey);
+
+        // Hash the new child data, overwrites parent hashes if any
+        kffDataObjectHandler.hash(childIBaseDataObject, true);
+    }
+
+    private static void copyParentInformation(final IBaseDataObject parentIBaseDataObject, final IBaseDataObject childIBaseDataObject,
+            final boolean nullifyFileType, final Set<String> alwaysCopyMetadataKeys, final String placeKey) {
         // Copy over the classification
         if (parentIBaseDataObject.getClassification() != null) {
             childIBaseDataObject.setClassification(parentIBaseDataObject.getClassification());
@@ -162,14 +177,12 @@ public final class IBaseDataObjectHelper {
         // Set up the proper KFF/HASH information for the child
         // Change parent hit so it doesn't look like hit on the child
         KffDataObjectHandler.parentToChild(childIBaseDataObject);
-
-        // Hash the new child data, overwrites parent hashes if any
-        kffDataObjectHandler.hash(childIBaseDataObject, true);
     }
 
     /**
-     * Used to propagate needed parent information to a sprouted child. NOTE: This is taken from
-     * emissary.place.MultiFileServerPlace.
+     * Used to propagate needed parent information to sprouted children. NOTE: This is taken from
+     * emissary.place.MultiFileServerPlace. The children are hashed together with
+     * {@link KffDataObjectHandler#hashAll(List)}, so known file lookups for the family are made in one batch.
      * 
      * @param parent the source of parameters to be copied
      * @param children the destination for parameters to be copied
@@ -195,11 +208,13 @@ public final class IBaseDataObjectHelper {
                     LOGGER.warn("addParentInformation with null child");
                     continue;
                 }
-                addParentInformationToChild(parent, child, nullifyFileType, alwaysCopyMetadataKeys, placeKey,
-                        kffDataObjectHandler);
+                copyParentInformation(parent, child, nullifyFileType, alwaysCopyMetadataKeys, placeKey);
                 child.setBirthOrder(birthOrder++);
                 child.setNumSiblings(totalNumSiblings);
             }
+
+            // Hash the new children's data, overwrites parent hashes if any
+            kffDataObjectHandler.hashAll(children);
         }
     }
 
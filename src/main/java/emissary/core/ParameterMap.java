@@ -0,0 +1,1126 @@
+package emissary.core;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.LinkedHashMultiset;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.Multisets;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * The metadata of a data object, a multimap from key to values that keeps keys in the order they were added.
+ * <p>
+ * Entries are kept in insertion order in parallel arrays and found through an open addressing table of entry indexes.
+ * Each key holds its values in one array that is only ever appended to, so a reader holding the array and a count sees
+ * a fixed list no matter what is appended later. Keys are interned so the many objects carrying the same keys share one
+ * copy of each.
+ * <p>
+ * {@link #get(String)}, {@link #keySet()} and {@link #asMap()} hand out live views that read the current arrays on each
+ * call, so they see later changes and changes made through them go to the map. {@link #snapshot()} hands out an
+ * immutable snapshot instead. Taking one is cheap, the next change copies the entry arrays, not the values, before
+ * making the change. {@link #copy()} shares everything the same way, and each side copies the values of a key before it
+ * first appends to them. Not thread safe, like the data object that holds it.
+ * <p>
+ * A key keeps its place in the key order until it is removed, even when its first value is removed through
+ * {@link #get(String)}.
+ */
+public class ParameterMap implements Serializable {
+
+    private static final long serialVersionUID = 4188457207451658377L;
+
+    private static final Interner<String> KEYS = Interners.newWeakInterner();
+
+    private static final int MIN_ENTRIES = 8;
+
+    // The entries in insertion order, a removed entry has a null key and null values
+    private String[] keys;
+    private Object[][] values;
+    private int[] counts;
+
+    // Entry index + 1 for each slot, 0 for an empty slot, the length is a power of two
+    private int[] table;
+
+    // Entries used, including removed ones
+    private int used;
+
+    // Keys present
+    private int live;
+
+    // Values present
+    private int size;
+
+    // True while the entry arrays are shared with a snapshot or copy
+    private transient boolean shared;
+
+    // True for entries whose value arrays belong to another map, null when none do
+    @Nullable
+    private transient boolean[] borrowed;
+
+    // True until the first change after being made as a copy, when every value array is borrowed
+    private transient boolean borrowAll;
+
+    @Nullable
+    private transient Snapshot snapshot;
+
+    // Counts keys added and removed, so iterators over the live views can tell the keys changed under them
+    private transient int keyChanges;
+
+    @Nullable
+    private transient Set<String> keyView;
+
+    @Nullable
+    private transient Map<String, Collection<Object>> mapView;
+
+    @Nullable
+    private transient ListMultimap<String, Object> multimapView;
+
+    /**
+     * Create an empty map
+     */
+    public ParameterMap() {
+        this(MIN_ENTRIES);
+    }
+
+    /**
+     * Create an empty map with room for some keys
+     *
+     * @param expectedKeys the number of keys to make room for
+     */
+    public ParameterMap(final int expectedKeys) {
+        final int capacity = Math.max(MIN_ENTRIES, expectedKeys);
+        this.keys = new String[capacity];
+        this.values = new Object[capacity][];
+        this.counts = new int[capacity];
+        this.table = new int[tableSize(capacity)];
+    }
+
+    /**
+     * Create a map holding the same keys and values as another
+     *
+     * @param other the map to copy
+     */
+    public ParameterMap(final ParameterMap other) {
+        this(other.live);
+        for (int i = 0; i < other.used; i++) {
+            if (other.keys[i] != null) {
+                putAll(other.keys[i], other.values[i], other.counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Make a copy that shares the entries and values of this map until one of them changes
+     *
+     * @return the copy
+     */
+    public ParameterMap copy() {
+        this.shared = true;
+        return new ParameterMap(this.keys, this.values, this.counts, this.table, this.used, this.live, this.size);
+    }
+
+    /**
+     * A copy borrowing all the arrays of another map
+     */
+    private ParameterMap(final String[] keys, final Object[][] values, final int[] counts, final int[] table, final int used, final int live,
+            final int size) {
+        this.keys = keys;
+        this.values = values;
+        this.counts = counts;
+        this.table = table;
+        this.used = used;
+        this.live = live;
+        this.size = size;
+        this.shared = true;
+        this.borrowAll = true;
+    }
+
+    /**
+     * Maps read from one stream share the arrays they shared when written, as a map and its copy do, so treat the arrays
+     * read as borrowed the way a new copy does
+     */
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.shared = true;
+        this.borrowAll = true;
+    }
+
+    /**
+     * @return the number of values for all keys
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return the number of keys
+     */
+    public int keyCount() {
+        return this.live;
+    }
+
+    public boolean isEmpty() {
+        return this.live == 0;
+    }
+
+    public boolean containsKey(@Nullable final String key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * @param key the key
+     * @param value the value
+     * @return true if the key has the value
+     */
+    public boolean containsEntry(@Nullable final String key, @Nullable final Object value) {
+        final int e = find(key);
+        if (e < 0) {
+            return false;
+        }
+        final Object[] v = this.values[e];
+        for (int i = 0; i < this.counts[e]; i++) {
+            if (Objects.equals(v[i], value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param key the key
+     * @return a live list of the values of the key, empty while there are none
+     */
+    public List<Object> get(@Nullable final String key) {
+        return new LiveValues(key);
+    }
+
+    /**
+     * Add a value to the end of the values of the key
+     *
+     * @param key the key
+     * @param value the value
+     */
+    public void put(@Nullable final String key, @Nullable final Object value) {
+        final int e = entry(key);
+        append(e, 1);
+        this.values[e][this.counts[e]++] = value;
+        this.size++;
+    }
+
+    /**
+     * Add values to the end of the values of the key, a key is not added for no values
+     *
+     * @param key the key
+     * @param values the values
+     */
+    public void putAll(@Nullable final String key, final Iterable<?> values) {
+        if (values instanceof Collection) {
+            final Object[] array = ((Collection<?>) values).toArray();
+            putAll(key, array, array.length);
+        } else {
+            for (final Object value : values) {
+                put(key, value);
+            }
+        }
+    }
+
+    private void putAll(@Nullable final String key, final Object[] array, final int count) {
+        if (count == 0) {
+            return;
+        }
+        final int e = entry(key);
+        append(e, count);
+        System.arraycopy(array, 0, this.values[e], this.counts[e], count);
+        this.counts[e] += count;
+        this.size += count;
+    }
+
+    /**
+     * Remove the key and all its values
+     *
+     * @param key the key
+     * @return an immutable list of the values removed, empty if there were none
+     */
+    public List<Object> removeAll(@Nullable final String key) {
+        final int e = find(key);
+        if (e < 0) {
+            return Collections.emptyList();
+        }
+        unshare();
+        final List<Object> removed = new Values(this.values[e], this.counts[e]);
+        this.keyChanges++;
+        unlink(key);
+        this.keys[e] = null;
+        this.values[e] = null;
+        this.size -= this.counts[e];
+        this.counts[e] = 0;
+        this.live--;
+        if (this.used - this.live > Math.max(MIN_ENTRIES, this.live)) {
+            rebuild(this.keys.length);
+        }
+        return removed;
+    }
+
+    /**
+     * Remove all keys and values
+     */
+    public void clear() {
+        if (this.used == 0) {
+            return;
+        }
+        this.borrowed = null;
+        this.borrowAll = false;
+        if (this.shared) {
+            this.keys = new String[this.keys.length];
+            this.values = new Object[this.keys.length][];
+            this.counts = new int[this.keys.length];
+            this.table = new int[this.table.length];
+            this.shared = false;
+        } else {
+            Arrays.fill(this.keys, 0, this.used, null);
+            Arrays.fill(this.values, 0, this.used, null);
+            Arrays.fill(this.counts, 0, this.used, 0);
+            Arrays.fill(this.table, 0);
+        }
+        this.snapshot = null;
+        this.keyChanges++;
+        this.used = 0;
+        this.live = 0;
+        this.size = 0;
+    }
+
+    /**
+     * @return a live set of the keys in the order they were added, removing a key from it removes the key from the map
+     */
+    public Set<String> keySet() {
+        if (this.keyView == null) {
+            this.keyView = new KeyView();
+        }
+        return this.keyView;
+    }
+
+    /**
+     * @return a live map of each key to its values, in the order the keys were added, like {@link #get(String)} for each
+     *         key
+     */
+    public Map<String, Collection<Object>> asMap() {
+        if (this.mapView == null) {
+            this.mapView = new MapView();
+        }
+        return this.mapView;
+    }
+
+    /**
+     * @return a live view of this map as a Guava multimap, for code written against the multimap the parameters used to be
+     *         kept in
+     */
+    public ListMultimap<String, Object> asMultimap() {
+        if (this.multimapView == null) {
+            this.multimapView = new MultimapView();
+        }
+        return this.multimapView;
+    }
+
+    /**
+     * @return an immutable map of each key to its values, in the order the keys were added
+     */
+    public Map<String, Collection<Object>> snapshot() {
+        if (this.snapshot == null) {
+            this.snapshot = new Snapshot(this.keys, this.values, this.counts, this.table, this.used, this.live);
+            this.shared = true;
+        }
+        return this.snapshot;
+    }
+
+    /**
+     * Maps are equal when they hold the same values in the same order for the same keys, like {@link #asMap()}
+     */
+    @Override
+    public boolean equals(final Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof ParameterMap)) {
+            return false;
+        }
+        final ParameterMap other = (ParameterMap) o;
+        if (other.live != this.live || other.size != this.size) {
+            return false;
+        }
+        for (int e = 0; e < this.used; e++) {
+            if (this.values[e] == null) {
+                continue;
+            }
+            final int f = other.find(this.keys[e]);
+            if (f < 0 || other.counts[f] != this.counts[e]) {
+                return false;
+            }
+            for (int i = 0; i < this.counts[e]; i++) {
+                if (!Objects.equals(this.values[e][i], other.values[f][i])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The same hash code as {@link #asMap()}
+     */
+    @Override
+    public int hashCode() {
+        int h = 0;
+        for (int e = 0; e < this.used; e++) {
+            if (this.values[e] == null) {
+                continue;
+            }
+            int list = 1;
+            for (int i = 0; i < this.counts[e]; i++) {
+                list = 31 * list + Objects.hashCode(this.values[e][i]);
+            }
+            h += Objects.hashCode(this.keys[e]) ^ list;
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return asMap().toString();
+    }
+
+    private int find(@Nullable final String key) {
+        return find(key, this.keys, this.table);
+    }
+
+    private static int find(@Nullable final String key, final String[] keys, final int[] table) {
+        final int mask = table.length - 1;
+        for (int slot = hash(key) & mask;; slot = (slot + 1) & mask) {
+            final int e = table[slot] - 1;
+            if (e < 0) {
+                return -1;
+            }
+            final String k = keys[e];
+            if (k == key || (k != null && k.equals(key))) {
+                return e;
+            }
+        }
+    }
+
+    /**
+     * Find the entry for the key, adding it if it is not there
+     */
+    private int entry(@Nullable final String key) {
+        final int found = find(key);
+        if (found >= 0) {
+            unshare();
+            return found;
+        }
+        unshare();
+        this.keyChanges++;
+        if (this.used == this.keys.length) {
+            rebuild(this.live * 2 < this.keys.length ? this.keys.length : this.keys.length * 2);
+        }
+        final int e = this.used++;
+        this.keys[e] = key == null ? null : KEYS.intern(key);
+        link(e);
+        this.live++;
+        return e;
+    }
+
+    /**
+     * Make room in the values of an entry for more values
+     */
+    private void append(final int e, final int more) {
+        final Object[] v = this.values[e];
+        final int needed = this.counts[e] + more;
+        if (v == null) {
+            this.values[e] = new Object[needed];
+        } else if (this.borrowed != null && this.borrowed[e]) {
+            // another map may append to this array too
+            this.values[e] = Arrays.copyOf(v, Math.max(needed, this.counts[e] * 2));
+            this.borrowed[e] = false;
+        } else if (needed > v.length) {
+            this.values[e] = Arrays.copyOf(v, Math.max(needed, v.length * 2));
+        }
+    }
+
+    /**
+     * Copy the entry arrays if a snapshot or copy holds them. Values are only ever appended past the count the others
+     * hold so the value arrays themselves can stay shared, as long as only one map appends to each.
+     */
+    private void unshare() {
+        this.snapshot = null;
+        if (this.shared) {
+            this.keys = this.keys.clone();
+            this.values = this.values.clone();
+            this.counts = this.counts.clone();
+            this.table = this.table.clone();
+            this.shared = false;
+        }
+        if (this.borrowAll) {
+            this.borrowed = new boolean[this.keys.length];
+            Arrays.fill(this.borrowed, 0, this.used, true);
+            this.borrowAll = false;
+        }
+    }
+
+    /**
+     * Drop removed entries and resize to the capacity
+     */
+    private void rebuild(final int capacity) {
+        final String[] k = new String[capacity];
+        final Object[][] v = new Object[capacity][];
+        final int[] c = new int[capacity];
+        final boolean[] b = this.borrowed == null ? null : new boolean[capacity];
+        int n = 0;
+        for (int i = 0; i < this.used; i++) {
+            if (this.values[i] != null) {
+                k[n] = this.keys[i];
+                v[n] = this.values[i];
+                c[n] = this.counts[i];
+                if (b != null) {
+                    b[n] = this.borrowed[i];
+                }
+                n++;
+            }
+        }
+        this.keys = k;
+        this.values = v;
+        this.counts = c;
+        this.borrowed = b;
+        this.used = n;
+        this.table = new int[tableSize(capacity)];
+        for (int i = 0; i < n; i++) {
+            link(i);
+        }
+    }
+
+    private void link(final int e) {
+        final int mask = this.table.length - 1;
+        int slot = hash(this.keys[e]) & mask;
+        while (this.table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        this.table[slot] = e + 1;
+    }
+
+    /**
+     * Remove the slot of the key and shift back the slots after it that would no longer be found
+     */
+    private void unlink(@Nullable final String key) {
+        final int mask = this.table.length - 1;
+        int slot = hash(key) & mask;
+        while (!Objects.equals(this.keys[this.table[slot] - 1], key)) {
+            slot = (slot + 1) & mask;
+        }
+        int hole = slot;
+        for (int next = (hole + 1) & mask; this.table[next] != 0; next = (next + 1) & mask) {
+            final int home = hash(this.keys[this.table[next] - 1]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                this.table[hole] = this.table[next];
+                hole = next;
+            }
+        }
+        this.table[hole] = 0;
+    }
+
+    /**
+     * Give the key a new value array, the old one may still be read by a snapshot or copy
+     */
+    private void replace(@Nullable final String key, final Object[] array, final int count) {
+        if (count == 0) {
+            removeAll(key);
+            return;
+        }
+        final int e = find(key);
+        unshare();
+        this.values[e] = array;
+        this.size += count - this.counts[e];
+        this.counts[e] = count;
+        if (this.borrowed != null) {
+            this.borrowed[e] = false;
+        }
+    }
+
+    /**
+     * The next entry index from an index, skipping removed entries
+     */
+    private int advance(final int from) {
+        int e = from;
+        while (e < this.used && this.values[e] == null) {
+            e++;
+        }
+        return e;
+    }
+
+    private static int hash(@Nullable final String key) {
+        final int h = key == null ? 0 : key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSize(final int capacity) {
+        return Integer.highestOneBit(capacity * 4 - 1);
+    }
+
+    /**
+     * A fixed run of a value array
+     */
+    private static final class Values extends AbstractList<Object> {
+        private final Object[] array;
+        private final int count;
+
+        Values(final Object[] array, final int count) {
+            this.array = array;
+            this.count = count;
+        }
+
+        @Override
+        public Object get(final int index) {
+            Objects.checkIndex(index, this.count);
+            return this.array[index];
+        }
+
+        @Override
+        public int size() {
+            return this.count;
+        }
+    }
+
+    /**
+     * The values of one key as they are now. Changes through it copy the value array, which may be shared.
+     */
+    private final class LiveValues extends AbstractList<Object> {
+        @Nullable
+        private final String key;
+
+        // entries only move when keys are added or removed, so the entry found is good until then
+        private int entry;
+        private int entryChanges;
+
+        LiveValues(@Nullable final String key) {
+            this.key = key;
+            this.entryChanges = ParameterMap.this.keyChanges - 1;
+        }
+
+        private int entry() {
+            if (this.entryChanges != ParameterMap.this.keyChanges) {
+                this.entry = find(this.key);
+                this.entryChanges = ParameterMap.this.keyChanges;
+            }
+            return this.entry;
+        }
+
+        @Override
+        public Object get(final int index) {
+            final int e = entry();
+            Objects.checkIndex(index, e < 0 ? 0 : ParameterMap.this.counts[e]);
+            return ParameterMap.this.values[e][index];
+        }
+
+        @Override
+        public int size() {
+            final int e = entry();
+            return e < 0 ? 0 : ParameterMap.this.counts[e];
+        }
+
+        @Override
+        public Object[] toArray() {
+            final int e = entry();
+            return e < 0 ? new Object[0] : Arrays.copyOf(ParameterMap.this.values[e], ParameterMap.this.counts[e]);
+        }
+
+        @Override
+        public Object set(final int index, final Object value) {
+            final Object[] array = toArray();
+            Objects.checkIndex(index, array.length);
+            final Object old = array[index];
+            array[index] = value;
+            replace(this.key, array, array.length);
+            return old;
+        }
+
+        @Override
+        public void add(final int index, final Object value) {
+            final int count = size();
+            Objects.checkIndex(index, count + 1);
+            if (index == count) {
+                put(this.key, value);
+            } else {
+                final Object[] array = new Object[count + 1];
+                final Object[] current = ParameterMap.this.values[entry()];
+                System.arraycopy(current, 0, array, 0, index);
+                array[index] = value;
+                System.arraycopy(current, index, array, index + 1, count - index);
+                replace(this.key, array, array.length);
+            }
+            this.modCount++;
+        }
+
+        @Override
+        public Object remove(final int index) {
+            final int count = size();
+            Objects.checkIndex(index, count);
+            final Object[] current = ParameterMap.this.values[entry()];
+            final Object old = current[index];
+            final Object[] array = new Object[count - 1];
+            System.arraycopy(current, 0, array, 0, index);
+            System.arraycopy(current, index + 1, array, index, count - index - 1);
+            replace(this.key, array, array.length);
+            this.modCount++;
+            return old;
+        }
+
+        @Override
+        public void clear() {
+            ParameterMap.this.removeAll(this.key);
+            this.modCount++;
+        }
+    }
+
+    /**
+     * Walks the entries as they are now and fails if keys are added or removed other than through it
+     */
+    private abstract class LiveIterator<T> implements Iterator<T> {
+        private int next = advance(0);
+        private int last = -1;
+        private int expected = ParameterMap.this.keyChanges;
+
+        abstract T item(int e);
+
+        @Override
+        public boolean hasNext() {
+            checkForChange();
+            return this.next < ParameterMap.this.used;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            this.last = this.next;
+            this.next = advance(this.next + 1);
+            return item(this.last);
+        }
+
+        @Override
+        public void remove() {
+            if (this.last < 0) {
+                throw new IllegalStateException();
+            }
+            checkForChange();
+            // removing can compact the entries, so find the next one again by its key
+            final boolean more = this.next < ParameterMap.this.used;
+            final String nextKey = more ? ParameterMap.this.keys[this.next] : null;
+            removeAll(ParameterMap.this.keys[this.last]);
+            this.next = more ? find(nextKey) : ParameterMap.this.used;
+            this.last = -1;
+            this.expected = ParameterMap.this.keyChanges;
+        }
+
+        private void checkForChange() {
+            if (this.expected != ParameterMap.this.keyChanges) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * The keys as they are now
+     */
+    private final class KeyView extends AbstractSet<String> {
+        @Override
+        public Iterator<String> iterator() {
+            return new LiveIterator<>() {
+                @Override
+                String item(final int e) {
+                    return ParameterMap.this.keys[e];
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return ParameterMap.this.live;
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            return (o == null || o instanceof String) && containsKey((String) o);
+        }
+
+        @Override
+        public boolean remove(final Object o) {
+            if (!contains(o)) {
+                return false;
+            }
+            ParameterMap.this.removeAll((String) o);
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            ParameterMap.this.clear();
+        }
+    }
+
+    /**
+     * Each key mapped to its values as they are now
+     */
+    private final class MapView extends AbstractMap<String, Collection<Object>> {
+        @Nullable
+        private Set<Map.Entry<String, Collection<Object>>> entries;
+
+        @Override
+        public int size() {
+            return ParameterMap.this.live;
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return keySet().contains(key);
+        }
+
+        @Nullable
+        @Override
+        public Collection<Object> get(final Object key) {
+            return containsKey(key) ? new LiveValues((String) key) : null;
+        }
+
+        @Nullable
+        @Override
+        public Collection<Object> remove(final Object key) {
+            return containsKey(key) ? removeAll((String) key) : null;
+        }
+
+        @Override
+        public void clear() {
+            ParameterMap.this.clear();
+        }
+
+        @Override
+        public Set<String> keySet() {
+            return ParameterMap.this.keySet();
+        }
+
+        @Override
+        public Set<Map.Entry<String, Collection<Object>>> entrySet() {
+            if (this.entries == null) {
+                this.entries = new AbstractSet<>() {
+                    @Override
+                    public Iterator<Map.Entry<String, Collection<Object>>> iterator() {
+                        return new LiveIterator<>() {
+                            @Override
+                            Map.Entry<String, Collection<Object>> item(final int e) {
+                                final String key = ParameterMap.this.keys[e];
+                                return new SimpleImmutableEntry<>(key, new LiveValues(key));
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return ParameterMap.this.live;
+                    }
+                };
+            }
+            return this.entries;
+        }
+    }
+
+    /**
+     * The map as a multimap. Changing a key's values keeps its place in the key order. {@link #values()} and
+     * {@link #entries()} go key by key, not in the order the values were added as in a {@code LinkedListMultimap}, and
+     * cannot be changed. {@link #keys()} is a copy.
+     */
+    private final class MultimapView implements ListMultimap<String, Object> {
+        @Override
+        public int size() {
+            return ParameterMap.this.size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return ParameterMap.this.isEmpty();
+        }
+
+        @Override
+        public boolean containsKey(@Nullable final Object key) {
+            return keySet().contains(key);
+        }
+
+        @Override
+        public boolean containsValue(@Nullable final Object value) {
+            return values().contains(value);
+        }
+
+        @Override
+        public boolean containsEntry(@Nullable final Object key, @Nullable final Object value) {
+            return containsKey(key) && ParameterMap.this.containsEntry((String) key, value);
+        }
+
+        @Override
+        public boolean put(@Nullable final String key, @Nullable final Object value) {
+            ParameterMap.this.put(key, value);
+            return true;
+        }
+
+        @Override
+        public boolean remove(@Nullable final Object key, @Nullable final Object value) {
+            return containsKey(key) && get((String) key).remove(value);
+        }
+
+        @Override
+        public boolean putAll(@Nullable final String key, final Iterable<?> values) {
+            final int before = ParameterMap.this.size;
+            ParameterMap.this.putAll(key, values);
+            return ParameterMap.this.size != before;
+        }
+
+        @Override
+        public boolean putAll(final Multimap<? extends String, ?> multimap) {
+            for (final Map.Entry<? extends String, ?> entry : multimap.entries()) {
+                ParameterMap.this.put(entry.getKey(), entry.getValue());
+            }
+            return !multimap.isEmpty();
+        }
+
+        @Override
+        public List<Object> replaceValues(@Nullable final String key, final Iterable<?> values) {
+            final int e = find(key);
+            if (e < 0) {
+                ParameterMap.this.putAll(key, values);
+                return Collections.emptyList();
+            }
+            final List<Object> old = new Values(ParameterMap.this.values[e], ParameterMap.this.counts[e]);
+            final Object[] array = Iterables.toArray(values, Object.class);
+            replace(key, array, array.length);
+            return old;
+        }
+
+        @Override
+        public List<Object> removeAll(@Nullable final Object key) {
+            return containsKey(key) ? ParameterMap.this.removeAll((String) key) : Collections.emptyList();
+        }
+
+        @Override
+        public void clear() {
+            ParameterMap.this.clear();
+        }
+
+        @Override
+        public List<Object> get(@Nullable final String key) {
+            return ParameterMap.this.get(key);
+        }
+
+        @Override
+        public Set<String> keySet() {
+            return ParameterMap.this.keySet();
+        }
+
+        @Override
+        public Multiset<String> keys() {
+            final Multiset<String> keys = LinkedHashMultiset.create(ParameterMap.this.live);
+            for (int e = advance(0); e < ParameterMap.this.used; e = advance(e + 1)) {
+                keys.add(ParameterMap.this.keys[e], ParameterMap.this.counts[e]);
+            }
+            return Multisets.unmodifiableMultiset(keys);
+        }
+
+        @Override
+        public Collection<Object> values() {
+            return new AbstractCollection<>() {
+                @Override
+                public Iterator<Object> iterator() {
+                    return Iterables.unmodifiableIterable(Iterables.concat(asMap().values())).iterator();
+                }
+
+                @Override
+                public int size() {
+                    return ParameterMap.this.size;
+                }
+            };
+        }
+
+        @Override
+        public Collection<Map.Entry<String, Object>> entries() {
+            return new AbstractCollection<>() {
+                @Override
+                public Iterator<Map.Entry<String, Object>> iterator() {
+                    return Iterables.unmodifiableIterable(Iterables.concat(Iterables.transform(asMap().entrySet(),
+                            entry -> Iterables.transform(entry.getValue(), value -> Maps.immutableEntry(entry.getKey(), value))))).iterator();
+                }
+
+                @Override
+                public int size() {
+                    return ParameterMap.this.size;
+                }
+            };
+        }
+
+        @Override
+        public Map<String, Collection<Object>> asMap() {
+            return ParameterMap.this.asMap();
+        }
+
+        @Override
+        public boolean equals(@Nullable final Object o) {
+            return o == this || (o instanceof Multimap && asMap().equals(((Multimap<?, ?>) o).asMap()));
+        }
+
+        @Override
+        public int hashCode() {
+            return asMap().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return asMap().toString();
+        }
+    }
+
+    /**
+     * The map as it was when the snapshot was taken
+     */
+    private static final class Snapshot extends AbstractMap<String, Collection<Object>> {
+        private final String[] keys;
+        private final Object[][] values;
+        private final int[] counts;
+        private final int[] table;
+        private final int used;
+        private final int live;
+
+        @Nullable
+        private Set<Map.Entry<String, Collection<Object>>> entries;
+
+        @Nullable
+        private Set<String> keySet;
+
+        Snapshot(final String[] keys, final Object[][] values, final int[] counts, final int[] table, final int used, final int live) {
+            this.keys = keys;
+            this.values = values;
+            this.counts = counts;
+            this.table = table;
+            this.used = used;
+            this.live = live;
+        }
+
+        @Override
+        public int size() {
+            return this.live;
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return (key == null || key instanceof String) && find((String) key, this.keys, this.table) >= 0;
+        }
+
+        @Nullable
+        @Override
+        public Collection<Object> get(final Object key) {
+            if (key != null && !(key instanceof String)) {
+                return null;
+            }
+            final int e = find((String) key, this.keys, this.table);
+            return e < 0 ? null : new Values(this.values[e], this.counts[e]);
+        }
+
+        @Override
+        public Set<String> keySet() {
+            if (this.keySet == null) {
+                this.keySet = new AbstractSet<>() {
+                    @Override
+                    public Iterator<String> iterator() {
+                        final Iterator<Map.Entry<String, Collection<Object>>> it = entrySet().iterator();
+                        return new Iterator<>() {
+                            @Override
+                            public boolean hasNext() {
+                                return it.hasNext();
+                            }
+
+                            @Override
+                            public String next() {
+                                return it.next().getKey();
+                            }
+                        };
+                    }
+
+                    @Override
+                    public boolean contains(final Object o) {
+                        return containsKey(o);
+                    }
+
+                    @Override
+                    public int size() {
+                        return Snapshot.this.live;
+                    }
+                };
+            }
+            return this.keySet;
+        }
+
+        @Override
+        public Set<Map.Entry<String, Collection<Object>>> entrySet() {
+            if (this.entries == null) {
+                this.entries = new AbstractSet<>() {
+                    @Override
+                    public Iterator<Map.Entry<String, Collection<Object>>> iterator() {
+                        return new Iterator<>() {
+                            private int next = advance(0);
+
+                            private int advance(final int from) {
+                                int i = from;
+                                while (i < Snapshot.this.used && Snapshot.this.values[i] == null) {
+                                    i++;
+                                }
+                                return i;
+                            }
+
+                            @Override
+                            public boolean hasNext() {
+                                return this.next < Snapshot.this.used;
+                            }
+
+                            @Override
+                            public Map.Entry<String, Collection<Object>> next() {
+                                if (!hasNext()) {
+                                    throw new NoSuchElementException();
+                                }
+                                final int e = this.next;
+                                this.next = advance(e + 1);
+                                return new SimpleImmutableEntry<>(Snapshot.this.keys[e], new Values(Snapshot.this.values[e], Snapshot.this.counts[e]));
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return Snapshot.this.live;
+                    }
+                };
+            }
+            return this.entries;
+        }
+    }
+}
@@ -54,12 +54,26 @@ public class TimedResource implements AutoCloseable {
 
     // checks the state of the current place, returns true if it's closed
     protected boolean checkState(long now) {
-        if (allowedDuration > 0 && (now - started) > (allowedDuration * payloadCount)) {
+        if (exceedsDuration(now)) {
             interruptAgent();
         }
         return isClosed;
     }
 
+    /**
+     * Check whether the place is still running past its time limit
+     *
+     * @param now the current time in millis
+     * @return true if the resource is open and has run longer than allowed
+     */
+    public boolean isOverdue(long now) {
+        return !isClosed && exceedsDuration(now);
+    }
+
+    private boolean exceedsDuration(long now) {
+        return allowedDuration > 0 && (now - started) > (allowedDuration * payloadCount);
+    }
+
     // test visibility
     void interruptAgent() {
         // don't grab the lock if we're done
@@ -21,14 +21,25 @@ public class TransformHistory implements Serializable {
 
     private static final long serialVersionUID = -7252497842562281631L;
 
-    private final List<History> history;
+    private List<History> history;
+
+    // True while the list is shared with a copy, it is copied before the next change
+    private transient boolean shared;
+
+    // Entries before this index may be shared with a copy, they are copied before being changed
+    private transient int sharedEntries;
 
     public TransformHistory() {
         history = new ArrayList<>();
     }
 
+    /**
+     * Copy a history. The copy shares the entries with the original until one of them changes.
+     *
+     * @param history to copy
+     */
     public TransformHistory(TransformHistory history) {
-        this.history = new ArrayList<>(history.history);
+        share(history);
     }
 
     /**
@@ -47,14 +58,27 @@ public class TransformHistory implements Serializable {
      * @param history of new history strings to use
      */
     public void set(TransformHistory history) {
-        clear();
-        addAll(history.history);
+        share(history);
+    }
+
+    private void share(TransformHistory other) {
+        this.history = other.history;
+        this.shared = other.shared = true;
+        this.sharedEntries = other.sharedEntries = other.history.size();
     }
 
     private void addAll(List<History> history) {
+        unshare();
         this.history.addAll(history);
     }
 
+    private void unshare() {
+        if (shared) {
+            history = new ArrayList<>(history);
+            shared = false;
+        }
+    }
+
     /**
      * Appends the new key to the transform history. This is called by MobileAgent before moving to the new place. It
      * usually adds the four-tuple of a place's key
@@ -80,9 +104,17 @@ public class TransformHistory implements Serializable {
         if (coordinated) {
             History last = lastVisit();
             if (last != null) {
+                unshare();
+                int index = history.size() - 1;
+                if (index < sharedEntries) {
+                    last = new History(last);
+                    history.set(index, last);
+                    sharedEntries = index;
+                }
                 last.addCoordinated(key);
             }
         } else {
+            unshare();
             history.add(new History(key));
         }
 
@@ -92,7 +124,13 @@ public class TransformHistory implements Serializable {
      * Clear the transformation history
      */
     public void clear() {
-        history.clear();
+        if (shared) {
+            history = new ArrayList<>();
+            shared = false;
+        } else {
+            history.clear();
+        }
+        sharedEntries = 0;
     }
 
     /**
@@ -260,6 +298,11 @@ public class TransformHistory implements Serializable {
             this.key = key;
         }
 
+        private History(History other) {
+            this.key = other.key;
+            this.coordinated = new ArrayList<>(other.coordinated);
+        }
+
         public String getKey() {
             return getKey(false);
         }
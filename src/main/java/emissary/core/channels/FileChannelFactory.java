@@ -1,15 +1,22 @@
 package emissary.core.channels;
 
 import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.lang.ref.Cleaner;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
 
 /**
  * Provide a file-backed implementation for streaming data to a consumer
@@ -33,9 +40,54 @@ public final class FileChannelFactory {
     }
 
     /**
-     * Private class to hide implementation details from callers
+     * <p>
+     * Create a new instance of the factory for a temporary file that is owned by the factory. The file is deleted as soon
+     * as the factory has been passed to {@link #release(SeekableByteChannelFactory)} and every channel created from it has
+     * been closed. Should the factory never be released, the file is deleted once the factory and its channels are no
+     * longer reachable.
+     * </p>
+     * <p>
+     * The channels are read only, so the factory is not wrapped by {@link ImmutableChannelFactory}.
+     * </p>
+     * 
+     * @param path containing a reference to the file
+     * @param onDelete called after the file has been deleted, may be null
+     * @return a new instance
+     */
+    public static SeekableByteChannelFactory createTemporary(final Path path, @Nullable final Runnable onDelete) {
+        return new TemporaryFileChannelFactoryImpl(path, onDelete);
+    }
+
+    /**
+     * Give up the owner's hold on a temporary file created by {@link #createTemporary(Path, Runnable)}. The file is
+     * deleted now if no channel is open, otherwise when the last one is closed. Channels created after the release cannot
+     * read the file.
+     * 
+     * @param sbcf the factory to release
+     * @return true if the factory is temporary and had not already been released
+     */
+    public static boolean release(@Nullable final SeekableByteChannelFactory sbcf) {
+        return sbcf instanceof TemporaryFileChannelFactoryImpl && ((TemporaryFileChannelFactoryImpl) sbcf).release();
+    }
+
+    /**
+     * Get the file behind a factory created by this class, so callers can copy or move the file rather than reading its
+     * content
+     * 
+     * @param sbcf the factory to check
+     * @return the path of the file, or null if the factory is not file-backed
+     */
+    @Nullable
+    public static Path getPath(@Nullable final SeekableByteChannelFactory sbcf) {
+        final SeekableByteChannelFactory unwrapped = sbcf == null ? null : ImmutableChannelFactory.unwrap(sbcf);
+        return unwrapped instanceof FileChannelFactoryImpl ? ((FileChannelFactoryImpl) unwrapped).path : null;
+    }
+
+    /**
+     * Private class to hide implementation details from callers. Channels are immutable as
+     * {@link AbstractSeekableByteChannel} blocks writes.
      */
-    private static final class FileChannelFactoryImpl implements SeekableByteChannelFactory {
+    private static class FileChannelFactoryImpl implements SeekableByteChannelFactory {
         private final Path path;
 
         private FileChannelFactoryImpl(final Path path) {
@@ -50,7 +102,80 @@ public final class FileChannelFactory {
          */
         @Override
         public SeekableByteChannel create() {
-            return new LazyFileChannelImpl(path);
+            return new LazyFileChannelImpl(path, this, null);
+        }
+    }
+
+    /**
+     * Deletes the file once it is released and its channels are closed, or when the factory and its channels become
+     * unreachable
+     */
+    private static final class TemporaryFileChannelFactoryImpl extends FileChannelFactoryImpl {
+        private final Cleaner.Cleanable cleanable;
+        private final AtomicBoolean released = new AtomicBoolean();
+        /** One hold for each open channel and one for the owner until it releases the file */
+        private final AtomicInteger holds = new AtomicInteger(1);
+
+        private TemporaryFileChannelFactoryImpl(final Path path, @Nullable final Runnable onDelete) {
+            super(path);
+            this.cleanable = CleanerHolder.CLEANER.register(this, new Deleter(path, onDelete));
+        }
+
+        @Override
+        public SeekableByteChannel create() {
+            // once every hold is gone the file is being deleted, so a new channel must not hold it
+            final boolean held = holds.getAndUpdate(h -> h == 0 ? 0 : h + 1) > 0;
+            return new LazyFileChannelImpl(super.path, this, held ? this::drop : null);
+        }
+
+        private boolean release() {
+            if (!released.compareAndSet(false, true)) {
+                return false;
+            }
+            drop();
+            return true;
+        }
+
+        private void drop() {
+            if (holds.decrementAndGet() == 0) {
+                // runs the deleter at most once and stops the cleaner from running it again
+                cleanable.clean();
+            }
+        }
+    }
+
+    /**
+     * Lazily starts the cleaner thread the first time a temporary factory is created
+     */
+    private static final class CleanerHolder {
+        private static final Cleaner CLEANER = Cleaner.create();
+    }
+
+    /**
+     * Cleanup action, which must not refer to the factory it is registered for
+     */
+    private static final class Deleter implements Runnable {
+        private static final Logger logger = LoggerFactory.getLogger(Deleter.class);
+
+        private final Path path;
+        @Nullable
+        private final Runnable onDelete;
+
+        private Deleter(final Path path, @Nullable final Runnable onDelete) {
+            this.path = path;
+            this.onDelete = onDelete;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                logger.warn("Cannot delete temporary file {}", path, e);
+            }
+            if (onDelete != null) {
+                onDelete.run();
+            }
         }
     }
 
@@ -60,10 +185,20 @@ public final class FileChannelFactory {
 
         private final Path path;
 
+        /** Keeps the factory reachable while the channel is in use, so a temporary file outlives its channels */
+        @SuppressWarnings({"unused", "UnusedVariable"})
+        private final SeekableByteChannelFactory owner;
+
+        /** Gives back this channel's hold on a temporary file */
+        @Nullable
+        private final Runnable onClose;
+
         private FileChannel channel;
 
-        private LazyFileChannelImpl(final Path path) {
+        private LazyFileChannelImpl(final Path path, final SeekableByteChannelFactory owner, @Nullable final Runnable onClose) {
             this.path = path;
+            this.owner = owner;
+            this.onClose = onClose;
         }
 
         void initialiseChannel() throws IOException {
@@ -74,8 +209,14 @@ public final class FileChannelFactory {
 
         @Override
         protected void closeImpl() throws IOException {
-            if (channel != null) {
-                channel.close();
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } finally {
+                if (onClose != null) {
+                    onClose.run();
+                }
             }
         }
 
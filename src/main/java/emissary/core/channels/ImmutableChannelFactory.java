@@ -29,6 +29,16 @@ public final class ImmutableChannelFactory {
         return new ImmutableChannelFactoryImpl(sbcf);
     }
 
+    /**
+     * Get the factory wrapped by {@link #create(SeekableByteChannelFactory)}
+     * 
+     * @param sbcf the possibly wrapped factory
+     * @return the wrapped factory, or sbcf itself if it is not wrapped
+     */
+    static SeekableByteChannelFactory unwrap(final SeekableByteChannelFactory sbcf) {
+        return sbcf instanceof ImmutableChannelFactoryImpl ? ((ImmutableChannelFactoryImpl) sbcf).sbcf : sbcf;
+    }
+
     /**
      * Wraps an existing channel factory in immutability.
      */
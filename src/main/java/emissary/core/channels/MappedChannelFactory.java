@@ -0,0 +1,193 @@
+package emissary.core.channels;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import javax.annotation.Nullable;
+
+/**
+ * Provide a memory-mapped file implementation for streaming data to a consumer. The file is mapped once, the first time
+ * any channel needs it, and every channel created afterwards is an independent position view over the same mapped
+ * pages. This avoids opening a new file descriptor per channel and lets the operating system share the page cache
+ * between all consumers of the payload.
+ * <p>
+ * The mapping is released when the factory and all channels created from it are garbage collected. The file must not be
+ * truncated while it is mapped.
+ */
+public final class MappedChannelFactory {
+
+    /**
+     * Largest region mapped in a single {@link MappedByteBuffer}, which is limited to {@link Integer#MAX_VALUE} bytes.
+     */
+    static final int DEFAULT_REGION_SIZE = 1 << 30;
+
+    private MappedChannelFactory() {}
+
+    /**
+     * Create a new instance of the factory using the provided file reference.
+     * 
+     * @param path containing a reference to the file
+     * @return a new instance
+     * @see SeekableByteChannelHelper#mapped(Path)
+     */
+    public static SeekableByteChannelFactory create(final Path path) {
+        return create(path, DEFAULT_REGION_SIZE);
+    }
+
+    /**
+     * Create a new instance of the factory using the provided file reference, mapping the file in regions of at most
+     * regionSize bytes.
+     * 
+     * @param path containing a reference to the file
+     * @param regionSize maximum number of bytes in each mapped region (regionSize &gt; 0)
+     * @return a new instance
+     */
+    static SeekableByteChannelFactory create(final Path path, final int regionSize) {
+        return ImmutableChannelFactory.create(new MappedChannelFactoryImpl(path, regionSize));
+    }
+
+    /**
+     * Private class to hide implementation details from callers
+     */
+    private static final class MappedChannelFactoryImpl implements SeekableByteChannelFactory {
+        private final Path path;
+        private final int regionSize;
+
+        /**
+         * The mapped regions of the file, populated on first use.
+         */
+        @Nullable
+        private volatile MappedByteBuffer[] regions;
+        /**
+         * The size of the file at the time it was mapped.
+         */
+        private long size;
+
+        private MappedChannelFactoryImpl(final Path path, final int regionSize) {
+            Validate.notNull(path, "Required: path not null");
+            Validate.isTrue(regionSize > 0, "Required: regionSize > 0");
+
+            this.path = path;
+            this.regionSize = regionSize;
+        }
+
+        /**
+         * Creates a channel with its own position over the shared mapping of the configured file.
+         * 
+         * @return the new channel instance
+         */
+        @Override
+        public SeekableByteChannel create() {
+            return new MappedSeekableByteChannel(this);
+        }
+
+        /**
+         * Map the file if that has not already happened and return the mapped regions.
+         * 
+         * @return the mapped regions
+         * @throws IOException if the file could not be mapped
+         */
+        MappedByteBuffer[] regions() throws IOException {
+            MappedByteBuffer[] r = regions;
+            if (r == null) {
+                synchronized (this) {
+                    r = regions;
+                    if (r == null) {
+                        r = map();
+                        regions = r;
+                    }
+                }
+            }
+            return r;
+        }
+
+        long size() throws IOException {
+            regions();
+            return size;
+        }
+
+        private MappedByteBuffer[] map() throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                final long fileSize = channel.size();
+                final int regionCount = (int) ((fileSize + regionSize - 1) / regionSize);
+                final MappedByteBuffer[] mapped = new MappedByteBuffer[regionCount];
+
+                for (int i = 0; i < regionCount; i++) {
+                    final long regionStart = (long) i * regionSize;
+
+                    mapped[i] = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, Math.min(regionSize, fileSize - regionStart));
+                }
+
+                size = fileSize;
+                return mapped;
+            }
+        }
+    }
+
+    /**
+     * A position view over the mapped regions. Each channel holds its own duplicates of the regions so that concurrent
+     * channels never share buffer positions.
+     */
+    private static final class MappedSeekableByteChannel extends AbstractSeekableByteChannel {
+        private final MappedChannelFactoryImpl factory;
+
+        /**
+         * Lazily created duplicates of the factory's regions, owned by this channel.
+         */
+        @Nullable
+        private ByteBuffer[] views;
+
+        private MappedSeekableByteChannel(final MappedChannelFactoryImpl factory) {
+            this.factory = factory;
+        }
+
+        @Override
+        protected void closeImpl() {
+            views = null;
+        }
+
+        @Override
+        protected int readImpl(final ByteBuffer byteBuffer) throws IOException {
+            final MappedByteBuffer[] regions = factory.regions();
+
+            if (views == null) {
+                views = new ByteBuffer[regions.length];
+            }
+
+            long position = position();
+            int bytesRead = 0;
+
+            // A read can span more than one region, so copy from each until the buffer is full
+            while (byteBuffer.hasRemaining()) {
+                final int regionIndex = (int) (position / factory.regionSize);
+                final int regionOffset = (int) (position % factory.regionSize);
+
+                if (views[regionIndex] == null) {
+                    views[regionIndex] = regions[regionIndex].duplicate();
+                }
+
+                final ByteBuffer view = views[regionIndex];
+                final int bytesToCopy = Math.min(byteBuffer.remaining(), view.capacity() - regionOffset);
+
+                view.limit(regionOffset + bytesToCopy).position(regionOffset);
+                byteBuffer.put(view);
+
+                position += bytesToCopy;
+                bytesRead += bytesToCopy;
+            }
+
+            return bytesRead;
+        }
+
+        @Override
+        protected long sizeImpl() throws IOException {
+            return factory.size();
+        }
+    }
+}
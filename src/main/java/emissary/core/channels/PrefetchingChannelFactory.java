@@ -0,0 +1,242 @@
+package emissary.core.channels;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+
+/**
+ * Creates a read-ahead SeekableByteChannel wrapper for sequential consumers. Like {@link BufferedChannelFactory} the
+ * wrapped channel is read in blocks of a fixed size, but as soon as a block is handed to the consumer the following
+ * block is read on a background thread so that the I/O overlaps with processing of the current block.
+ * <p>
+ * Random access is still supported; a read outside the current or prefetched block simply falls back to a synchronous
+ * block read.
+ */
+public final class PrefetchingChannelFactory {
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    /**
+     * Shared executor for background block reads. Threads are daemons so they never block application shutdown.
+     */
+    private static final ExecutorService PREFETCH_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        final Thread t = new Thread(runnable, "PrefetchingChannel-daemon-" + THREAD_COUNT.getAndIncrement());
+        t.setDaemon(true);
+        return t;
+    });
+
+    private PrefetchingChannelFactory() {}
+
+    /**
+     * Creates a SeekableByteChannelFactory that reads ahead of the consumer of the passed in SeekableByteChannelFactory.
+     * 
+     * @param seekableByteChannelFactory to be read ahead.
+     * @param blockSize size of each block read from the wrapped channel.
+     * @return the prefetching SeekableByteChannelFactory.
+     */
+    public static SeekableByteChannelFactory create(final SeekableByteChannelFactory seekableByteChannelFactory, final int blockSize) {
+        return create(seekableByteChannelFactory, blockSize, PREFETCH_EXECUTOR);
+    }
+
+    /**
+     * Creates a SeekableByteChannelFactory that reads ahead of the consumer of the passed in SeekableByteChannelFactory
+     * using the provided executor for the background reads.
+     * 
+     * @param seekableByteChannelFactory to be read ahead.
+     * @param blockSize size of each block read from the wrapped channel.
+     * @param executorService to run the background reads on.
+     * @return the prefetching SeekableByteChannelFactory.
+     */
+    public static SeekableByteChannelFactory create(final SeekableByteChannelFactory seekableByteChannelFactory, final int blockSize,
+            final ExecutorService executorService) {
+        return new PrefetchingChannelFactoryImpl(seekableByteChannelFactory, blockSize, executorService);
+    }
+
+    /**
+     * A SeekableByteChannelFactory that reads ahead of the consumer of the passed in SeekableByteChannelFactory.
+     */
+    private static class PrefetchingChannelFactoryImpl implements SeekableByteChannelFactory {
+        private final SeekableByteChannelFactory seekableByteChannelFactory;
+        private final int blockSize;
+        private final ExecutorService executorService;
+
+        private PrefetchingChannelFactoryImpl(final SeekableByteChannelFactory seekableByteChannelFactory, final int blockSize,
+                final ExecutorService executorService) {
+            Validate.notNull(seekableByteChannelFactory, "Required: seekableByteChannelFactory not null!");
+            Validate.isTrue(blockSize > 0, "Required: blockSize > 0");
+            Validate.notNull(executorService, "Required: executorService not null!");
+
+            this.seekableByteChannelFactory = seekableByteChannelFactory;
+            this.blockSize = blockSize;
+            this.executorService = executorService;
+        }
+
+        @Override
+        public SeekableByteChannel create() {
+            return new PrefetchingSeekableByteChannel(seekableByteChannelFactory.create(), blockSize, executorService);
+        }
+    }
+
+    /**
+     * SeekableByteChannel that double buffers the passed in SeekableByteChannel. The wrapped channel is only ever accessed
+     * by one thread at a time: a synchronous read always waits for any outstanding prefetch first.
+     */
+    private static class PrefetchingSeekableByteChannel extends AbstractSeekableByteChannel {
+        private final SeekableByteChannel seekableByteChannel;
+        private final int blockSize;
+        private final ExecutorService executorService;
+
+        /**
+         * The block currently being served to the consumer.
+         */
+        private ByteBuffer current;
+        /**
+         * The buffer the next block is prefetched into.
+         */
+        private ByteBuffer spare;
+        /**
+         * The size of the wrapped channel, cached so that it is never queried while a prefetch is using the channel.
+         */
+        private long size = -1;
+        /**
+         * The starting offset of the current block, or -1 if there is none.
+         */
+        private long currentStart = -1;
+        /**
+         * The starting offset of the block being prefetched, or -1 if there is none.
+         */
+        private long prefetchStart = -1;
+        /**
+         * The outstanding prefetch of the block starting at prefetchStart.
+         */
+        @Nullable
+        private Future<ByteBuffer> prefetch;
+
+        private PrefetchingSeekableByteChannel(final SeekableByteChannel seekableByteChannel, final int blockSize,
+                final ExecutorService executorService) {
+            this.seekableByteChannel = seekableByteChannel;
+            this.blockSize = blockSize;
+            this.executorService = executorService;
+            this.current = ByteBuffer.allocate(blockSize);
+            this.spare = ByteBuffer.allocate(blockSize);
+        }
+
+        @Override
+        protected void closeImpl() throws IOException {
+            try {
+                discardPrefetch();
+            } finally {
+                seekableByteChannel.close();
+            }
+        }
+
+        @Override
+        protected int readImpl(final ByteBuffer byteBuffer) throws IOException {
+            final long position = position();
+            final long blockStart = position / blockSize * blockSize;
+
+            if (blockStart != currentStart) {
+                if (blockStart == prefetchStart) {
+                    // Sequential access: promote the prefetched block
+                    final ByteBuffer prefetched = awaitPrefetch();
+                    spare = current;
+                    current = prefetched;
+                } else {
+                    // Random access: discard any prefetched block and read synchronously
+                    discardPrefetch();
+                    readBlock(current, blockStart);
+                }
+                currentStart = blockStart;
+                startPrefetch(blockStart + blockSize);
+            }
+
+            final int blockOffset = (int) (position - currentStart);
+            final int bytesToReturn = Math.min(byteBuffer.remaining(), current.limit() - blockOffset);
+
+            byteBuffer.put(current.array(), blockOffset, bytesToReturn);
+
+            return bytesToReturn;
+        }
+
+        @Override
+        protected long sizeImpl() throws IOException {
+            // The size is always requested before the first read, so no prefetch can be outstanding here
+            if (size < 0) {
+                size = seekableByteChannel.size();
+            }
+            return size;
+        }
+
+        /**
+         * Submit a background read of the block starting at blockStart, if there is one.
+         */
+        private void startPrefetch(final long blockStart) throws IOException {
+            if (blockStart < sizeImpl()) {
+                final ByteBuffer target = spare;
+
+                prefetchStart = blockStart;
+                prefetch = executorService.submit(() -> readBlock(target, blockStart));
+            }
+        }
+
+        /**
+         * Wait for the outstanding prefetch, if any, and return its buffer.
+         */
+        @Nullable
+        private ByteBuffer awaitPrefetch() throws IOException {
+            if (prefetch == null) {
+                return null;
+            }
+
+            final Future<ByteBuffer> pending = prefetch;
+            prefetch = null;
+            prefetchStart = -1;
+
+            try {
+                return pending.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for prefetch");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("Prefetch failed", e.getCause());
+            }
+        }
+
+        /**
+         * Wait for the outstanding prefetch, if any, ignoring its result as the block is no longer wanted.
+         */
+        private void discardPrefetch() throws InterruptedIOException {
+            try {
+                awaitPrefetch();
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException ignored) {
+                // The prefetched block is not needed, so neither is its failure
+            }
+        }
+
+        /**
+         * Fill the buffer with the block starting at blockStart, leaving it flipped for reading.
+         */
+        private ByteBuffer readBlock(final ByteBuffer buffer, final long blockStart) throws IOException {
+            buffer.clear();
+            seekableByteChannel.position(blockStart);
+            IOUtils.read(seekableByteChannel, buffer);
+            buffer.flip();
+            return buffer;
+        }
+    }
+}
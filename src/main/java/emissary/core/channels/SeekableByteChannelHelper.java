@@ -22,6 +22,9 @@ public final class SeekableByteChannelHelper {
     /** Channel factory backed by an empty byte array. Used for situations when a BDO should have its payload discarded. */
     public static final SeekableByteChannelFactory EMPTY_CHANNEL_FACTORY = memory(new byte[0]);
 
+    /** Size of the buffer used to count the bytes available in a stream. */
+    private static final int AVAILABLE_BUFFER_SIZE = 8192;
+
     private SeekableByteChannelHelper() {}
 
     /**
@@ -55,6 +58,27 @@ public final class SeekableByteChannelHelper {
         return FileChannelFactory.create(path);
     }
 
+    /**
+     * Create a memory-mapped file SBC factory. The file is mapped once and shared by every channel the factory creates.
+     * 
+     * @param path to the file.
+     * @return the factory
+     */
+    public static SeekableByteChannelFactory mapped(final Path path) {
+        return MappedChannelFactory.create(path);
+    }
+
+    /**
+     * Create a read-ahead SBC factory for sequential consumers of an existing factory.
+     * 
+     * @param sbcf to read ahead of
+     * @param blockSize of each read from the existing factory
+     * @return the factory
+     */
+    public static SeekableByteChannelFactory prefetching(final SeekableByteChannelFactory sbcf, final int blockSize) {
+        return PrefetchingChannelFactory.create(sbcf, blockSize);
+    }
+
     /**
      * Create a fill SBC factory.
      * 
@@ -126,14 +150,40 @@ public final class SeekableByteChannelHelper {
      * Don't wrap the provided stream with anything such as BufferedInputStream as this will cause read errors prematurely,
      * unless this is acceptable.
      * 
+     * The stream is read in bulk for speed, but the count is the same as reading a byte at a time: it stops at the last
+     * byte read before the first error. When a bulk read fails, a stream that supports {@link InputStream#mark(int)} is
+     * reset and the failed block is re-read a byte at a time to find where the error starts. Any other stream is trusted
+     * to return the bytes it did read before raising the error, as the {@link InputStream#read(byte[], int, int)} contract
+     * describes; one that discards them is counted only up to the end of its last successful read.
+     * 
      * @param inputStream to read - caller must handle closing this object
      * @return position of last successful read (which could be the size of the stream)
      */
     public static long available(final InputStream inputStream) {
+        final byte[] buffer = new byte[AVAILABLE_BUFFER_SIZE];
+        final boolean markSupported = inputStream.markSupported();
         long totalBytesRead = 0;
         try {
-            for (; inputStream.read() != -1; totalBytesRead++) {
-                // Do nothing.
+            while (true) {
+                if (markSupported) {
+                    inputStream.mark(AVAILABLE_BUFFER_SIZE);
+                }
+                final int bytesRead;
+                try {
+                    bytesRead = inputStream.read(buffer);
+                } catch (final IOException e) {
+                    if (markSupported) {
+                        inputStream.reset();
+                        while (inputStream.read() != -1) {
+                            totalBytesRead++;
+                        }
+                    }
+                    break;
+                }
+                if (bytesRead == -1) {
+                    break;
+                }
+                totalBytesRead += bytesRead;
             }
         } catch (final IOException ignored) {
             // Do nothing.
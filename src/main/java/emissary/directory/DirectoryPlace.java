@@ -148,6 +148,8 @@ public class DirectoryPlace extends ServiceProviderPlace implements IRemoteDirec
      * <li>HEARTBEAT_INTERVAL_SECONDS, default is 30</li>
      * <li>HEARTBEAT_FAILURE_THRESHOLD, set transient failure count, default owned by HeartbeatManager</li>
      * <li>HEARTBEAT_PERMANENT_FAILURE_THRESHOLD, set permanent failure count, default owned by HeartbeatManager</li>
+     * <li>HEARTBEAT_PHI_THRESHOLD, set suspicion level for failure, default owned by HeartbeatManager</li>
+     * <li>HEARTBEAT_MAX_IN_FLIGHT, how many heartbeats may be outstanding at once, default owned by HeartbeatManager</li>
      * </ul>
      */
     private void setupDirectory() {
@@ -156,7 +158,9 @@ public class DirectoryPlace extends ServiceProviderPlace implements IRemoteDirec
             final int initialSeconds = configG.findIntEntry("HEARTBEAT_DELAY_SECONDS", 30);
             final int intervalSeconds = configG.findIntEntry("HEARTBEAT_INTERVAL_SECONDS", 30);
 
-            this.heartbeat = new HeartbeatManager(myKey, initialSeconds, intervalSeconds);
+            final int maxInFlight = configG.findIntEntry("HEARTBEAT_MAX_IN_FLIGHT", HeartbeatManager.DEFAULT_MAX_IN_FLIGHT);
+
+            this.heartbeat = new HeartbeatManager(myKey, initialSeconds, intervalSeconds, maxInFlight);
 
             final int heartbeatFailureThreshold = configG.findIntEntry("HEARTBEAT_FAILURE_THRESHOLD", -1);
             if (heartbeatFailureThreshold > 0) {
@@ -167,6 +171,11 @@ public class DirectoryPlace extends ServiceProviderPlace implements IRemoteDirec
             if (heartbeatPermanentFailure > 0) {
                 this.heartbeat.setPermanentFailThreshold(heartbeatPermanentFailure);
             }
+
+            final double heartbeatPhiThreshold = configG.findDoubleEntry("HEARTBEAT_PHI_THRESHOLD", -1.0);
+            if (heartbeatPhiThreshold > 0) {
+                this.heartbeat.setPhiThreshold(heartbeatPhiThreshold);
+            }
         }
 
         // Set up deferred stuff from ServiceProviderPlace
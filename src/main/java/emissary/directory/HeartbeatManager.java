@@ -6,6 +6,7 @@ import emissary.core.Namespace;
 import emissary.core.NamespaceException;
 import emissary.server.mvc.adapters.HeartbeatAdapter;
 
+import org.apache.commons.lang3.Validate;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
 import org.apache.hc.client5.http.entity.UrlEncodedFormEntity;
 import org.apache.hc.core5.http.NameValuePair;
@@ -17,13 +18,28 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
 import javax.annotation.Nullable;
 
 /**
  * Facility for directory instances to check up on each other by sending a heartbeat message
+ * <p>
+ * Every remote directory is heartbeat on its own schedule, with the interval jittered so the peers are not all contacted
+ * at once, and the heartbeats run on a bounded pool so one peer that does not answer only delays itself. Health is
+ * judged by a {@link PhiAccrualFailureDetector} for each peer rather than by counting failures. A peer becomes unhealthy
+ * once its silence is suspicious given how regularly it has answered before, with the failure thresholds giving how many
+ * intervals of silence are tolerated on top of that, and health is checked on its own schedule so a heartbeat that hangs
+ * is still noticed.
  */
 public class HeartbeatManager {
     // Our logger
@@ -35,9 +51,11 @@ public class HeartbeatManager {
     public static final String BAD_RESPOSNE = "Bad request -> status: 500";
 
 
-    /** The timer drives the tasks and scheduling of heartbeat pings */
-    @Nullable
-    protected Timer timer = null;
+    /** The scheduler drives the heartbeat schedule of each directory and the health checks */
+    protected ScheduledThreadPoolExecutor scheduler;
+
+    /** The heartbeats themselves run here, the pool size bounds how many are in flight */
+    protected ExecutorService workers;
 
     /** Directory this instance acts on behalf of */
     protected String thisDirectory;
@@ -58,12 +76,21 @@ public class HeartbeatManager {
      */
     protected int intervalSeconds = DEFAULT_INTERVAL_SECONDS;
 
-    /** Number of consecutive failures to trigger notice */
+    /** Default number of heartbeats allowed in flight at once {@value} */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 16;
+
+    /** Default suspicion level at which a directory is considered failed {@value} */
+    public static final double DEFAULT_PHI_THRESHOLD = 8.0;
+
+    /** Number of heartbeat intervals of silence tolerated before failure notice */
     protected int failThreshold = 3;
 
-    /** Number of consecutive failures to trigger permanent failure notice */
+    /** Number of heartbeat intervals of silence tolerated before permanent failure notice */
     protected int permanentFailThreshold = 20;
 
+    /** Suspicion level at which a directory is considered failed */
+    protected double phiThreshold = DEFAULT_PHI_THRESHOLD;
+
     /** Status value for callers to use when setting initially healthy */
     public static final boolean IS_ALIVE = true;
 
@@ -73,6 +100,11 @@ public class HeartbeatManager {
     /** The remote directories we are checking on and their health */
     protected Map<String, Health> directories = new ConcurrentHashMap<>(100, 0.8f, 3);
 
+    private final long initialDelayMillis;
+    private final long intervalMillis;
+    private final EmissaryClient client;
+    private final LongSupplier clock;
+
     /**
      * Setup to manage heartbeats to remote directories
      *
@@ -101,16 +133,7 @@ public class HeartbeatManager {
      */
     public HeartbeatManager(final String directoryKey, final int initialDelaySeconds, final int intervalSeconds,
             @Nullable final List<String> dirList) {
-        this.initialDelaySeconds = initialDelaySeconds;
-        this.intervalSeconds = intervalSeconds;
-
-        logger.debug("Starting with initialDelay={}, interval={}", initialDelaySeconds, intervalSeconds);
-
-        // new daemon timer
-        this.timer = new Timer("HeartbeatManager", true);
-
-        // Save directory key
-        this.thisDirectory = directoryKey;
+        this(directoryKey, initialDelaySeconds, intervalSeconds, DEFAULT_MAX_IN_FLIGHT);
 
         // Save each directory in dirList along with good
         // starting health value
@@ -119,9 +142,44 @@ public class HeartbeatManager {
                 addRemoteDirectory(key);
             }
         }
+    }
 
-        // "smooth" execution every 30 seconds starting in 2 minutes
-        this.timer.schedule(new HeartbeatTask(), this.initialDelaySeconds * 1000L, this.intervalSeconds * 1000L);
+    /**
+     * Setup to manage heartbeats to remote directories
+     *
+     * @param directoryKey Key for directory I act on behalf of
+     * @param initialDelaySeconds seconds to wait before the first heartbeats
+     * @param intervalSeconds how often each directory is heartbeat
+     * @param maxInFlight how many heartbeats may be in flight at once
+     */
+    public HeartbeatManager(final String directoryKey, final int initialDelaySeconds, final int intervalSeconds, final int maxInFlight) {
+        this(directoryKey, TimeUnit.SECONDS.toMillis(initialDelaySeconds), TimeUnit.SECONDS.toMillis(intervalSeconds), maxInFlight,
+                new EmissaryClient(), () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+        this.initialDelaySeconds = initialDelaySeconds;
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    HeartbeatManager(final String directoryKey, final long initialDelayMillis, final long intervalMillis, final int maxInFlight,
+            final EmissaryClient client, final LongSupplier clock) {
+        Validate.isTrue(intervalMillis > 0, "Required: intervalMillis > 0!");
+        Validate.isTrue(maxInFlight > 0, "Required: maxInFlight > 0!");
+        this.initialDelayMillis = Math.max(initialDelayMillis, 0);
+        this.intervalMillis = intervalMillis;
+        this.client = client;
+        this.clock = clock;
+
+        logger.debug("Starting with initialDelay={}ms, interval={}ms, maxInFlight={}", initialDelayMillis, intervalMillis, maxInFlight);
+
+        // Save directory key
+        this.thisDirectory = directoryKey;
+
+        this.scheduler = new ScheduledThreadPoolExecutor(1, new HeartbeatThreadFactory("HeartbeatManager-scheduler-"));
+        this.scheduler.setRemoveOnCancelPolicy(true);
+        this.workers = Executors.newFixedThreadPool(maxInFlight, new HeartbeatThreadFactory("HeartbeatManager-worker-"));
+
+        // check health several times an interval so a hung heartbeat is noticed soon after it becomes suspicious
+        final long checkMillis = Math.max(intervalMillis / 4, 1);
+        var unused = this.scheduler.scheduleWithFixedDelay(this::checkHealth, this.initialDelayMillis, checkMillis, TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -140,11 +198,20 @@ public class HeartbeatManager {
         logger.debug("Set new permanent fail threshold to {}", t);
     }
 
+    /**
+     * Set the suspicion level at which a directory is considered failed
+     */
+    public void setPhiThreshold(final double t) {
+        this.phiThreshold = t;
+        logger.debug("Set new phi threshold to {}", t);
+    }
+
     /**
      * Shutdown processing
      */
     public void shutDown() {
-        this.timer.cancel();
+        this.scheduler.shutdownNow();
+        this.workers.shutdownNow();
     }
 
     /**
@@ -166,7 +233,13 @@ public class HeartbeatManager {
         // Skip if on same JVM
         if (!KeyManipulator.isLocalTo(this.thisDirectory, key)) {
             final String dkey = KeyManipulator.getDefaultDirectoryKey(key);
-            this.directories.put(dkey, new Health(isAlive, "Initial status"));
+            final Health health = new Health(isAlive, "Initial status");
+            final Health previous = this.directories.put(dkey, health);
+            if (previous != null) {
+                previous.cancel();
+            }
+            // spread the first heartbeats over an interval
+            schedule(dkey, health, this.initialDelayMillis + ThreadLocalRandom.current().nextLong(this.intervalMillis));
             logger.debug("Added remote {} with initial status {} now monitoring {} remote directories", dkey, isAlive, this.directories.size());
         } else {
             logger.debug("Skipping local directory {}, is not remote", key);
@@ -179,7 +252,10 @@ public class HeartbeatManager {
      * @param key four-tuple for the remote directory
      */
     public void removeRemoteDirectory(final String key) {
-        this.directories.remove(KeyManipulator.getDefaultDirectoryKey(key));
+        final Health health = this.directories.remove(KeyManipulator.getDefaultDirectoryKey(key));
+        if (health != null) {
+            health.cancel();
+        }
     }
 
     /**
@@ -231,7 +307,7 @@ public class HeartbeatManager {
     }
 
     /**
-     * Set health status and call the trigger on transition
+     * Record a heartbeat result and call the trigger on transition
      *
      * @param key key for directory
      * @param status new status
@@ -245,13 +321,35 @@ public class HeartbeatManager {
             return;
         }
 
-        final boolean wasAlive = v.isAlive();
-        final boolean wasHealthy = v.isHealthy();
-
         v.addReport(status, reason);
+        evaluate(key, v, status);
+    }
 
-        final boolean isAlive = v.isAlive();
-        final boolean isHealthy = v.isHealthy();
+    /**
+     * Judge the health of every directory now, calling the trigger on transitions
+     */
+    void checkHealth() {
+        try {
+            for (final Map.Entry<String, Health> entry : this.directories.entrySet()) {
+                evaluate(entry.getKey(), entry.getValue(), null);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Unexpected problem checking heartbeat health", e);
+        }
+    }
+
+    private void evaluate(final String key, final Health v, @Nullable final Boolean status) {
+        final boolean wasAlive;
+        final boolean wasHealthy;
+        final boolean isAlive;
+        final boolean isHealthy;
+        synchronized (v) {
+            wasAlive = v.isAlive();
+            wasHealthy = v.isHealthy();
+            v.update(this.clock.getAsLong());
+            isAlive = v.isAlive();
+            isHealthy = v.isHealthy();
+        }
 
         if (logger.isDebugEnabled()) {
             logger.debug("Reporting on {} status={}, wasAlive/Healthy={}/{}, isAlive/Healthy={}/{}", key, status, wasAlive, wasHealthy, isAlive,
@@ -308,26 +406,66 @@ public class HeartbeatManager {
 
 
     /**
-     * The Task thread, monitors all remote directories
+     * Queue the next heartbeat for a directory
      */
-    class HeartbeatTask extends TimerTask {
-        @Override
-        public void run() {
-            try {
-                logger.debug("Running timer task on {} directories", HeartbeatManager.this.directories.size());
-                for (final String dir : HeartbeatManager.this.directories.keySet()) {
-                    heartbeat(dir);
+    private void schedule(final String key, final Health health, final long delayMillis) {
+        try {
+            health.setNext(this.scheduler.schedule(() -> dispatch(key, health), delayMillis, TimeUnit.MILLISECONDS));
+        } catch (RejectedExecutionException e) {
+            logger.debug("Not scheduling heartbeat to {} after shutdown", key);
+        }
+    }
+
+    /**
+     * Hand the heartbeat to the workers and queue the next one once it is done, so each directory has at most one in flight
+     */
+    private void dispatch(final String key, final Health health) {
+        if (this.directories.get(key) != health) {
+            return;
+        }
+        health.start(this.clock.getAsLong());
+        try {
+            this.workers.execute(() -> {
+                try {
+                    heartbeat(key);
+                } finally {
+                    if (this.directories.get(key) == health) {
+                        schedule(key, health, nextDelayMillis());
+                    }
                 }
-                logger.debug("Ending the HeartbeatTask run method");
-            } catch (RuntimeException e) {
-                logger.error("Unexpected problem in heartbeat timer", e);
-            }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Not sending heartbeat to {} after shutdown", key);
+        }
+    }
+
+    /**
+     * @return the interval jittered by up to a tenth either way
+     */
+    private long nextDelayMillis() {
+        final long spread = this.intervalMillis / 10;
+        return spread > 0 ? this.intervalMillis + ThreadLocalRandom.current().nextLong(-spread, spread + 1) : this.intervalMillis;
+    }
+
+    private static final class HeartbeatThreadFactory implements ThreadFactory {
+        final AtomicInteger count = new AtomicInteger();
+        final String prefix;
+
+        HeartbeatThreadFactory(final String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread t = new Thread(r, prefix + count.getAndIncrement());
+            t.setDaemon(true);
+            return t;
         }
     }
 
     /**
      * Send a heartbeat message to the directory represented by key and take follow-on actions as appropriate Called from
-     * the timer task normally, but can be called externally by the impatient
+     * the heartbeat workers normally, but can be called externally by the impatient
      *
      * @see emissary.directory.DirectoryPlace#heartbeatRemoteDirectory(String)
      * @param key key representing the directory to heartbeat
@@ -337,7 +475,7 @@ public class HeartbeatManager {
         boolean isup = false;
         try {
             logger.debug("Sending heartbeat msg to {}", key);
-            EmissaryResponse response = getHeartbeat(this.thisDirectory, key);
+            EmissaryResponse response = getHeartbeat(this.thisDirectory, key, this.client);
             if (response.getStatus() == 200) {
                 healthReport(key, true, response.getContentString());
                 isup = true;
@@ -375,11 +513,21 @@ public class HeartbeatManager {
      * Holder class for the health information for a single remote directory
      */
     class Health {
-        // Count consecutive failures
-        private int failCounter = 0;
+        private final PhiAccrualFailureDetector detector = new PhiAccrualFailureDetector(PhiAccrualFailureDetector.DEFAULT_WINDOW,
+                HeartbeatManager.this.intervalMillis, Math.max(HeartbeatManager.this.intervalMillis / 10, 1));
+
+        private boolean healthy;
+
+        private boolean alive;
+
+        // set when the directory is known to be down, until it answers again
+        private boolean down;
 
         private String lastMessage;
 
+        @Nullable
+        private ScheduledFuture<?> next;
+
         /**
          * Create a new Health object with the specified status and msg
          *
@@ -387,7 +535,10 @@ public class HeartbeatManager {
          * @param msg the initial msg value
          */
         public Health(final boolean isAlive, final String msg) {
-            setStatus(isAlive, msg);
+            this.healthy = isAlive;
+            this.alive = isAlive;
+            this.down = !isAlive;
+            this.lastMessage = msg;
         }
 
         /**
@@ -396,12 +547,11 @@ public class HeartbeatManager {
          * @param v the most recent status
          * @param msg the most recent message
          */
-        public void addReport(final boolean v, final String msg) {
+        public synchronized void addReport(final boolean v, final String msg) {
             this.lastMessage = msg;
             if (v) {
-                this.failCounter = 0;
-            } else {
-                this.failCounter++;
+                this.detector.heartbeat(HeartbeatManager.this.clock.getAsLong());
+                this.down = false;
             }
         }
 
@@ -411,38 +561,72 @@ public class HeartbeatManager {
          * @param isAlive false means permanent failure indicated
          * @param message message to asocciate with this statsu
          */
-        void setStatus(final boolean isAlive, final String message) {
-            if (!isAlive) {
-                this.failCounter = HeartbeatManager.this.permanentFailThreshold;
-                this.lastMessage = message;
-            } else {
-                this.failCounter = 0;
-                this.lastMessage = message;
+        synchronized void setStatus(final boolean isAlive, final String message) {
+            this.lastMessage = message;
+            this.healthy = isAlive;
+            this.alive = isAlive;
+            this.down = !isAlive;
+            if (isAlive) {
+                this.detector.restart(HeartbeatManager.this.clock.getAsLong());
+            }
+        }
+
+        /**
+         * Judge the health from the silence since the last heartbeat
+         *
+         * @param now the current time
+         */
+        synchronized void update(final long now) {
+            if (this.down) {
+                this.healthy = false;
+                this.alive = false;
+                return;
+            }
+            this.healthy = this.detector.phi(now, pause(HeartbeatManager.this.failThreshold)) < HeartbeatManager.this.phiThreshold;
+            this.alive = this.detector.phi(now, pause(HeartbeatManager.this.permanentFailThreshold)) < HeartbeatManager.this.phiThreshold;
+        }
+
+        // extra silence tolerated beyond the usual interval, so threshold intervals in all
+        private long pause(final int threshold) {
+            return Math.max(threshold - 1, 0) * HeartbeatManager.this.intervalMillis;
+        }
+
+        void start(final long now) {
+            this.detector.start(now);
+        }
+
+        synchronized void setNext(final ScheduledFuture<?> next) {
+            this.next = next;
+        }
+
+        synchronized void cancel() {
+            if (this.next != null) {
+                this.next.cancel(false);
             }
         }
 
         /**
          * Report our health status
          *
-         * @return true if failed less than threshold times
+         * @return true if not yet suspected of failure
          */
-        public boolean isHealthy() {
-            return this.failCounter < HeartbeatManager.this.failThreshold;
+        public synchronized boolean isHealthy() {
+            return this.healthy;
         }
 
         /**
          * Report our aliveness status
          *
-         * @return true if failed less than permanent threshold times
+         * @return true if not yet suspected of permanent failure
          */
-        public boolean isAlive() {
-            return this.failCounter < HeartbeatManager.this.permanentFailThreshold;
+        public synchronized boolean isAlive() {
+            return this.alive;
         }
 
         /**
          * Access to the last saved message
          */
-        public String getLastMessage() {
+        public synchronized String getLastMessage() {
             return this.lastMessage;
         }
     }
@@ -0,0 +1,130 @@
+package emissary.directory;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Phi accrual failure detector for a single remote directory. Rather than counting failures it keeps the recent times
+ * between successful heartbeats and reports how suspicious the current silence is given that history. Phi is the
+ * negative base 10 logarithm of the probability that a heartbeat would still arrive after the time elapsed so far, so a
+ * phi of 1 means about a 10% chance of a false suspicion, 2 about 1% and so on. A peer whose heartbeats become irregular
+ * widens its own distribution and is suspected later, a peer that stops answering is suspected quickly.
+ * <p>
+ * The normal distribution is approximated with a logistic function as described by Hayashibara et al. in "The phi
+ * accrual failure detector". Times are in milliseconds.
+ */
+public class PhiAccrualFailureDetector {
+
+    /** Default number of intervals kept {@value} */
+    public static final int DEFAULT_WINDOW = 100;
+
+    private final long[] intervals;
+    private final long firstIntervalMillis;
+    private final long minStdDeviationMillis;
+    private int count = 0;
+    private int next = 0;
+    private double sum = 0;
+    private double sumOfSquares = 0;
+    private long lastArrival = -1;
+
+    /**
+     * Create a detector
+     *
+     * @param window how many intervals are kept
+     * @param firstIntervalMillis the interval expected before any have been seen
+     * @param minStdDeviationMillis the least deviation assumed, so very regular heartbeats do not make every small delay
+     *        suspicious
+     */
+    public PhiAccrualFailureDetector(final int window, final long firstIntervalMillis, final long minStdDeviationMillis) {
+        Validate.isTrue(window > 0, "Required: window > 0!");
+        Validate.isTrue(firstIntervalMillis > 0, "Required: firstIntervalMillis > 0!");
+        Validate.isTrue(minStdDeviationMillis > 0, "Required: minStdDeviationMillis > 0!");
+        this.intervals = new long[window];
+        this.firstIntervalMillis = firstIntervalMillis;
+        this.minStdDeviationMillis = minStdDeviationMillis;
+    }
+
+    /**
+     * Record a heartbeat arrival
+     *
+     * @param nowMillis the time of arrival
+     */
+    public synchronized void heartbeat(final long nowMillis) {
+        if (this.lastArrival >= 0) {
+            addInterval(Math.max(nowMillis - this.lastArrival, 0));
+        }
+        this.lastArrival = nowMillis;
+    }
+
+    /**
+     * Start measuring silence from now if no heartbeat has arrived yet, so a peer that never answers becomes suspicious
+     *
+     * @param nowMillis the time of the first attempt
+     */
+    public synchronized void start(final long nowMillis) {
+        if (this.lastArrival < 0) {
+            this.lastArrival = nowMillis;
+        }
+    }
+
+    /**
+     * Measure silence from now without forgetting the intervals seen so far
+     *
+     * @param nowMillis the time to measure from
+     */
+    public synchronized void restart(final long nowMillis) {
+        this.lastArrival = nowMillis;
+    }
+
+    /**
+     * Compute the suspicion level
+     *
+     * @param nowMillis the current time
+     * @param acceptablePauseMillis silence tolerated on top of the usual interval before suspicion starts to rise
+     * @return phi, 0 if measuring has not started
+     */
+    public synchronized double phi(final long nowMillis, final long acceptablePauseMillis) {
+        if (this.lastArrival < 0) {
+            return 0.0;
+        }
+        final double mean;
+        final double stdDeviation;
+        if (this.count == 0) {
+            mean = this.firstIntervalMillis;
+            stdDeviation = this.firstIntervalMillis / 4.0;
+        } else {
+            mean = this.sum / this.count;
+            stdDeviation = Math.sqrt(Math.max(this.sumOfSquares / this.count - mean * mean, 0.0));
+        }
+        return phi(nowMillis - this.lastArrival, mean + acceptablePauseMillis, Math.max(stdDeviation, this.minStdDeviationMillis));
+    }
+
+    /**
+     * @return number of intervals in the history
+     */
+    public synchronized int getSampleCount() {
+        return this.count;
+    }
+
+    static double phi(final long elapsedMillis, final double mean, final double stdDeviation) {
+        final double y = (elapsedMillis - mean) / stdDeviation;
+        final double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+        if (elapsedMillis > mean) {
+            return -Math.log10(e / (1.0 + e));
+        }
+        return -Math.log10(1.0 - 1.0 / (1.0 + e));
+    }
+
+    private void addInterval(final long interval) {
+        if (this.count == this.intervals.length) {
+            final long evicted = this.intervals[this.next];
+            this.sum -= evicted;
+            this.sumOfSquares -= (double) evicted * evicted;
+        } else {
+            this.count++;
+        }
+        this.intervals[this.next] = interval;
+        this.next = (this.next + 1) % this.intervals.length;
+        this.sum += interval;
+        this.sumOfSquares += (double) interval * interval;
+    }
+}
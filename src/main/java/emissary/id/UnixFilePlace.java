@@ -3,6 +3,8 @@ package emissary.id;
 import emissary.config.Configurator;
 import emissary.core.Form;
 import emissary.core.IBaseDataObject;
+import emissary.core.channels.SeekableByteChannelHelper;
+import emissary.util.TextStats;
 import emissary.util.UnixFile;
 
 import java.io.File;
@@ -13,6 +15,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.Nullable;
 
 /**
@@ -29,6 +32,21 @@ public class UnixFilePlace extends IdPlace {
     protected Set<String> chopAtTwo = new HashSet<>();
     protected Map<String, Integer> minSizeMap = new HashMap<>();
 
+    /**
+     * How many leading bytes of a payload the magic rules can look at
+     */
+    protected int magicSampleLength = 0;
+
+    /**
+     * Form for payloads the magic rules do not recognize whose leading bytes are indexable text, empty to leave them alone
+     */
+    protected String textForm = "";
+
+    private static final int MAX_CACHED_FORMS = 1024;
+
+    // current form for each magic description seen
+    private final Map<String, String> forms = new ConcurrentHashMap<>();
+
     /**
      * The {@link UnixFile} instance
      */
@@ -79,6 +97,8 @@ public class UnixFilePlace extends IdPlace {
         this.unixFileUtil = new UnixFile(magicPaths, this.swallowIgnorableExceptions);
         logger.debug(
                 "Created unixFile with {} magic files containing {} magic rules", magicPaths.size(), this.unixFileUtil.magicEntryCount());
+        this.magicSampleLength = this.unixFileUtil.magicSampleLength();
+        logger.debug("Magic rules look at the first {} bytes", this.magicSampleLength);
 
         this.chop = configG.findBooleanEntry("CHOP", this.chop);
         this.chopAtTwo = configG.findEntriesAsSet("CHOP_AT_TWO");
@@ -86,6 +106,8 @@ public class UnixFilePlace extends IdPlace {
         this.upcase = configG.findBooleanEntry("UPCASE", this.upcase);
         this.removeCommas = configG.findBooleanEntry("REMOVE_COMMAS", this.removeCommas);
         this.replaceFiletype = configG.findBooleanEntry("REPLACE_FILETYPE", this.replaceFiletype);
+        this.textForm = configG.findStringEntry("TEXT_FORM", this.textForm);
+        this.forms.clear();
         for (final Map.Entry<String, String> entry : configG.findStringMatchMap("MIN_SIZE_").entrySet()) {
             try {
                 this.minSizeMap.put(entry.getKey(), Integer.parseInt(entry.getValue()));
@@ -97,58 +119,35 @@ public class UnixFilePlace extends IdPlace {
     }
 
     /**
-     * Consume a DataObject, and return a transformed one.
+     * Consume a DataObject, and return a transformed one. Only the leading bytes the magic rules can look at are read from
+     * the payload, so large channel backed payloads are never loaded into memory.
      */
     @Override
     public void process(final IBaseDataObject d) {
-        final byte[] bytes = d.data();
-
-        // Bail out on empty data
-        if (bytes == null || bytes.length == 0) {
-            d.setCurrentForm(Form.EMPTY);
-            d.setFileType(Form.EMPTY);
-            return;
-        }
-
         try {
-            String currentForm = this.unixFileUtil.evaluateByMagicNumber(bytes);
-            if (currentForm != null && !currentForm.isEmpty()) {
-                if (this.chop && currentForm.indexOf(" ") > 0) {
-                    String firstSubstring = currentForm.substring(0, currentForm.indexOf(" "));
-                    // chop some things at 2
-                    if (this.chopAtTwo.contains(firstSubstring)) {
-                        String[] parts = currentForm.split(" ");
-                        currentForm = parts[0] + " " + parts[1];
-                    } else {
-                        currentForm = firstSubstring;
-                    }
-                }
+            final long size = d.getChannelSize();
 
-                if (this.replace && currentForm.contains(" ")) {
-                    currentForm = currentForm.replace(" ", "_");
-                }
+            // Bail out on empty data
+            if (size == 0) {
+                d.setCurrentForm(Form.EMPTY);
+                d.setFileType(Form.EMPTY);
+                return;
+            }
 
-                if (this.upcase && currentForm.length() > 0) {
-                    currentForm = currentForm.toUpperCase(Locale.getDefault());
-                }
+            final byte[] sample = SeekableByteChannelHelper.getByteArrayFromChannel(d.getChannelFactory(), this.magicSampleLength);
+            final String description = this.unixFileUtil.evaluateByMagicNumber(sample);
+            if (description != null && !description.isEmpty()) {
+                final String currentForm = toCurrentForm(description);
 
-                if (this.removeCommas && currentForm.indexOf(",") > 0) {
-                    currentForm = currentForm.replace("", "_");
-                }
-
-                if (this.minSizeMap.containsKey(currentForm) && (bytes.length < this.minSizeMap.get(currentForm))) {
+                if (this.minSizeMap.containsKey(currentForm) && (size < this.minSizeMap.get(currentForm))) {
                     if (logger.isDebugEnabled()) {
-                        logger.debug("Type {} does not meet min size requirement {} < {}", currentForm, this.minSizeMap.get(currentForm),
-                                bytes.length);
+                        logger.debug("Type {} does not meet min size requirement {} < {}", currentForm, this.minSizeMap.get(currentForm), size);
                     }
                 } else {
-                    d.setCurrentForm(currentForm);
-                    if (replaceFiletype) {
-                        d.setFileType(currentForm);
-                    } else {
-                        d.setFileTypeIfEmpty(currentForm);
-                    }
+                    setForm(d, currentForm);
                 }
+            } else if (!this.textForm.isEmpty() && isText(sample)) {
+                setForm(d, this.textForm);
             } else {
                 logger.debug("Unixfile result was null");
             }
@@ -158,4 +157,69 @@ public class UnixFilePlace extends IdPlace {
         }
     }
 
+    private void setForm(final IBaseDataObject d, final String currentForm) {
+        d.setCurrentForm(currentForm);
+        if (replaceFiletype) {
+            d.setFileType(currentForm);
+        } else {
+            d.setFileTypeIfEmpty(currentForm);
+        }
+    }
+
+    /**
+     * Check in a single pass whether the leading bytes of a payload are low entropy, valid UTF-8 and free of characters
+     * that are not indexable
+     *
+     * @param sample the leading bytes of the payload
+     * @return true if the sample is text
+     */
+    protected boolean isText(final byte[] sample) {
+        final TextStats stats = TextStats.of(sample);
+        return stats.isText() && stats.isUtf8() && !stats.containsNonIndexableBytes();
+    }
+
+    /**
+     * Turn a magic description into a current form using the CHOP, CHOP_AT_TWO, REPLACE, UPCASE and REMOVE_COMMAS
+     * settings. Results are remembered for each description.
+     *
+     * @param description the description from the magic rules
+     * @return the current form
+     */
+    protected String toCurrentForm(final String description) {
+        final String cached = this.forms.get(description);
+        if (cached != null) {
+            return cached;
+        }
+
+        String currentForm = description;
+        if (this.chop && currentForm.indexOf(" ") > 0) {
+            String firstSubstring = currentForm.substring(0, currentForm.indexOf(" "));
+            // chop some things at 2
+            if (this.chopAtTwo.contains(firstSubstring)) {
+                String[] parts = currentForm.split(" ");
+                currentForm = parts[0] + " " + parts[1];
+            } else {
+                currentForm = firstSubstring;
+            }
+        }
+
+        if (this.replace && currentForm.contains(" ")) {
+            currentForm = currentForm.replace(" ", "_");
+        }
+
+        if (this.upcase && currentForm.length() > 0) {
+            currentForm = currentForm.toUpperCase(Locale.getDefault());
+        }
+
+        if (this.removeCommas && currentForm.indexOf(",") > 0) {
+            currentForm = currentForm.replace("", "_");
+        }
+
+        // descriptions with substituted values can be endless, stop remembering new ones when full
+        if (this.forms.size() < MAX_CACHED_FORMS) {
+            this.forms.put(description, currentForm);
+        }
+        return currentForm;
+    }
+
 }
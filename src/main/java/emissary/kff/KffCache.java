@@ -0,0 +1,188 @@
+package emissary.kff;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import javax.annotation.Nullable;
+
+/**
+ * A size bounded, thread safe cache of known file lookups kept in front of a remote store. Positive entries remember the
+ * value found for a hash and negative entries remember that the hash was not found; each kind has its own time to live.
+ * <p>
+ * Keys are spread over a fixed number of segments, each a small access ordered map guarded by its own lock, so eviction
+ * is least recently used within a segment and concurrent lookups of different hashes rarely contend.
+ */
+public class KffCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long positiveTtlNanos;
+    private final long negativeTtlNanos;
+    private final LongSupplier clock;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * A cached lookup result
+     */
+    public static final class Entry {
+        @Nullable
+        private final String value;
+        private final long expires;
+
+        Entry(@Nullable final String value, final long expires) {
+            this.value = value;
+            this.expires = expires;
+        }
+
+        /**
+         * @return true if the hash was found in the store
+         */
+        public boolean isPositive() {
+            return value != null;
+        }
+
+        /**
+         * @return the value stored for the hash, or null for a negative entry
+         */
+        @Nullable
+        public String getValue() {
+            return value;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class Segment extends LinkedHashMap<String, Entry> {
+        private final int maxSize;
+
+        Segment(final int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+            return size() > maxSize;
+        }
+    }
+
+    /**
+     * Create a cache
+     *
+     * @param maxSize the most entries to hold, at least one per segment is kept
+     * @param positiveTtlMillis how long to remember a hash that was found
+     * @param negativeTtlMillis how long to remember a hash that was not found, 0 to not remember misses
+     */
+    public KffCache(final int maxSize, final long positiveTtlMillis, final long negativeTtlMillis) {
+        this(maxSize, positiveTtlMillis, negativeTtlMillis, System::nanoTime);
+    }
+
+    KffCache(final int maxSize, final long positiveTtlMillis, final long negativeTtlMillis, final LongSupplier clock) {
+        Validate.isTrue(maxSize > 0, "Required: maxSize > 0!");
+        Validate.isTrue(positiveTtlMillis > 0, "Required: positiveTtlMillis > 0!");
+        Validate.isTrue(negativeTtlMillis >= 0, "Required: negativeTtlMillis >= 0!");
+
+        final int segmentSize = Math.max(1, (maxSize + SEGMENTS - 1) / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+        this.positiveTtlNanos = TimeUnit.MILLISECONDS.toNanos(positiveTtlMillis);
+        this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMillis);
+        this.clock = clock;
+    }
+
+    private Segment segmentFor(final String key) {
+        final int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * Look up a hash
+     *
+     * @param key the hash
+     * @return the unexpired entry for the hash, or null if there is none
+     */
+    @Nullable
+    public Entry get(final String key) {
+        final Segment segment = segmentFor(key);
+        synchronized (segment) {
+            final Entry entry = segment.get(key);
+            if (entry != null) {
+                if (entry.expires - clock.getAsLong() > 0) {
+                    hits.incrementAndGet();
+                    return entry;
+                }
+                segment.remove(key);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Remember that a hash was found
+     *
+     * @param key the hash
+     * @param value the value stored for it
+     */
+    public void putPositive(final String key, final String value) {
+        Validate.notNull(value, "Required: value not null!");
+        put(key, new Entry(value, clock.getAsLong() + positiveTtlNanos));
+    }
+
+    /**
+     * Remember that a hash was not found, if misses are being remembered
+     *
+     * @param key the hash
+     */
+    public void putNegative(final String key) {
+        if (negativeTtlNanos > 0) {
+            put(key, new Entry(null, clock.getAsLong() + negativeTtlNanos));
+        }
+    }
+
+    private void put(final String key, final Entry entry) {
+        final Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, entry);
+        }
+    }
+
+    /**
+     * Forget a hash
+     *
+     * @param key the hash
+     */
+    public void invalidate(final String key) {
+        final Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.remove(key);
+        }
+    }
+
+    /**
+     * @return the number of entries held, including expired entries not yet removed
+     */
+    public int size() {
+        int size = 0;
+        for (final Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+}
@@ -2,6 +2,8 @@ package emissary.kff;
 
 import emissary.core.channels.SeekableByteChannelFactory;
 
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -11,6 +13,7 @@ import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.TimeoutException;
 import javax.annotation.Nullable;
 
 /**
@@ -176,6 +179,125 @@ public class KffChain {
         return answer;
     }
 
+    /**
+     * Check several items on our chain at once. Each filter is asked about all of the items it still has to decide in a
+     * single call, so filters backed by a remote store can look them up together. The results are the same as checking
+     * each item in turn with {@link #check(String, byte[])}, except that a filter timing out leaves every item of the
+     * batch with only its checksums.
+     *
+     * @param itemNames the names of the items
+     * @param contents the content of the items, in the same order
+     * @return the result for each item, in the same order
+     * @throws NoSuchAlgorithmException if a checksum can't be calculated
+     */
+    public List<KffResult> check(final List<String> itemNames, final List<byte[]> contents) throws NoSuchAlgorithmException {
+        Validate.isTrue(itemNames.size() == contents.size(), "Required: one name for each content!");
+
+        final List<ChecksumResults> sums = new ArrayList<>(contents.size());
+        final long[] sizes = new long[contents.size()];
+        for (int i = 0; i < contents.size(); i++) {
+            sums.add(computeSums(contents.get(i)));
+            sizes[i] = contents.get(i).length;
+        }
+        return checkBatch(itemNames, sums, sizes);
+    }
+
+    /**
+     * Check several items held in channel factories on our chain at once, as {@link #check(List, List)} does for byte
+     * arrays
+     *
+     * @param itemNames the names of the items
+     * @param sbcfs the content of the items, in the same order
+     * @return the result for each item, in the same order
+     * @throws NoSuchAlgorithmException if a checksum can't be calculated
+     * @throws IOException if an error occurred reading the data
+     */
+    public List<KffResult> checkChannels(final List<String> itemNames, final List<SeekableByteChannelFactory> sbcfs)
+            throws NoSuchAlgorithmException, IOException {
+        Validate.isTrue(itemNames.size() == sbcfs.size(), "Required: one name for each channel factory!");
+
+        final List<ChecksumResults> sums = new ArrayList<>(sbcfs.size());
+        final long[] sizes = new long[sbcfs.size()];
+        for (int i = 0; i < sbcfs.size(); i++) {
+            sums.add(computeSums(sbcfs.get(i)));
+            try (SeekableByteChannel sbc = sbcfs.get(i).create()) {
+                sizes[i] = sbc.size();
+            }
+        }
+        return checkBatch(itemNames, sums, sizes);
+    }
+
+    private List<KffResult> checkBatch(final List<String> itemNames, final List<ChecksumResults> sums, final long[] sizes) {
+        final List<KffResult> results = new ArrayList<>(itemNames.size());
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < itemNames.size(); i++) {
+            final KffResult answer = new KffResult(sums.get(i));
+            answer.setItemName(itemNames.get(i));
+            results.add(answer);
+            if (sizes[i] >= kffMinDataSize && !list.isEmpty()) {
+                pending.add(i);
+            }
+        }
+
+        for (final KffFilter k : list) {
+            if (pending.isEmpty()) {
+                break;
+            }
+            final List<String> pendingNames = new ArrayList<>(pending.size());
+            final List<ChecksumResults> pendingSums = new ArrayList<>(pending.size());
+            for (final int i : pending) {
+                pendingNames.add(itemNames.get(i));
+                pendingSums.add(sums.get(i));
+            }
+
+            final List<Integer> remaining = new ArrayList<>();
+            try {
+                final boolean[] hits = k.checkAll(pendingNames, pendingSums);
+                for (int j = 0; j < hits.length; j++) {
+                    if (hits[j]) {
+                        setHit(results.get(pending.get(j)), k);
+                    } else {
+                        remaining.add(pending.get(j));
+                    }
+                }
+            } catch (final Exception e) {
+                if (isTimeout(e)) {
+                    // Checking items one at a time would wait out the timeout again for each of them
+                    logger.debug("KffFilter {} timed out on a batch of {}.  Using only Checksums", k.getName(), pending.size(), e);
+                    return results;
+                }
+                // Fall back to one at a time so a single bad item only loses its own filter results
+                logger.debug("Problem running KffFilter {} on a batch, checking items individually", k.getName(), e);
+                for (final int i : pending) {
+                    try {
+                        if (k.check(itemNames.get(i), sums.get(i))) {
+                            setHit(results.get(i), k);
+                        } else {
+                            remaining.add(i);
+                        }
+                    } catch (final Exception ex) {
+                        if (isTimeout(ex)) {
+                            logger.debug("KffFilter {} timed out on {}.  Using only Checksums for the batch", k.getName(), itemNames.get(i), ex);
+                            return results;
+                        }
+                        logger.debug("Problem running KffFilter list.  Using only Checksums", ex);
+                    }
+                }
+            }
+            pending = remaining;
+        }
+        return results;
+    }
+
+    private static boolean isTimeout(final Exception e) {
+        return ExceptionUtils.indexOfType(e, TimeoutException.class) != -1;
+    }
+
+    private static void setHit(final KffResult r, final KffFilter k) {
+        r.setFilterName(k.getName());
+        r.setHitAndType(k.getFilterType());
+    }
+
     /**
      * Check content against one of our lists. Stop when we get a hit
      *
@@ -191,8 +313,7 @@ public class KffChain {
         for (KffFilter k : l) {
             boolean hit = k.check(itemName, csum);
             if (hit) {
-                r.setFilterName(k.getName());
-                r.setHitAndType(k.getFilterType());
+                setHit(r, k);
                 break;
             }
         }
@@ -12,7 +12,9 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.nio.channels.SeekableByteChannel;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
 
@@ -151,7 +153,7 @@ public class KffDataObjectHandler {
         return processKffResult(kffCheck, prefix);
     }
 
-    private static Map<String, String> processKffResult(KffResult result, String prefix) {
+    private static Map<String, String> processKffResult(@Nullable KffResult result, String prefix) {
         Map<String, String> results = new HashMap<>();
 
         if (result != null) {
@@ -214,6 +216,78 @@ public class KffDataObjectHandler {
             }
         }
 
+        applyKnownPolicy(d, useSbc);
+    }
+
+    /**
+     * Compute the hashes of several data objects' channel data, checking them against the KFF chain together. Each data
+     * object ends up as {@link #hash(IBaseDataObject, boolean)} with useSbc set would leave it.
+     *
+     * @param list the data objects
+     * @see KffChain#checkChannels(List, List)
+     */
+    public void hashAll(final List<IBaseDataObject> list) {
+        final List<IBaseDataObject> hashed = new ArrayList<>();
+        final List<String> originalMD5s = new ArrayList<>();
+        // like hash, the known policy is skipped for data objects without data
+        final List<Boolean> applyPolicy = new ArrayList<>();
+        final List<IBaseDataObject> batch = new ArrayList<>();
+        final List<String> names = new ArrayList<>();
+        final List<SeekableByteChannelFactory> factories = new ArrayList<>();
+        for (final IBaseDataObject d : list) {
+            if (d == null) {
+                continue;
+            }
+            originalMD5s.add(captureOriginalMD5BeforeRehashing(d));
+            removeHash(d);
+            hashed.add(d);
+            boolean hasData = true;
+            try {
+                hasData = d.getChannelSize() > 0;
+                if (hasData) {
+                    batch.add(d);
+                    names.add(d.shortName());
+                    factories.add(d.getChannelFactory());
+                }
+            } catch (IOException e) {
+                logger.error("Couldn't hash data {}", d.shortName());
+            }
+            applyPolicy.add(hasData);
+        }
+
+        List<KffResult> results = null;
+        if (!batch.isEmpty()) {
+            try {
+                results = kff.checkChannels(names, factories);
+            } catch (NoSuchAlgorithmException | IOException kffex) {
+                logger.warn("Unable to compute kff on a batch of {} items, hashing them one at a time", batch.size(), kffex);
+            }
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            final Map<String, String> params =
+                    results == null ? hashData(factories.get(i), names.get(i), "") : processKffResult(results.get(i), "");
+            batch.get(i).putParameters(params, MergePolicy.DROP_EXISTING);
+        }
+
+        for (int i = 0; i < hashed.size(); i++) {
+            final IBaseDataObject d = hashed.get(i);
+            // preserve the original MD5 only if 1) we hadn't already done so and 2) rehashing produced a new MD5 value
+            if (!d.hasParameter(MD5_ORIGINAL) && previouslyComputedMd5HasChanged(d, originalMD5s.get(i))) {
+                d.setParameter(MD5_ORIGINAL, originalMD5s.get(i));
+            }
+            if (applyPolicy.get(i)) {
+                applyKnownPolicy(d, true);
+            }
+        }
+    }
+
+    /**
+     * Set the file type and form and truncate the data of a known data object, as configured
+     *
+     * @param d the hashed data object
+     * @param useSbc true if the data is held in a channel factory
+     */
+    private void applyKnownPolicy(final IBaseDataObject d, final boolean useSbc) {
         // Set params if we have a hit
         if (d.hasParameter(KFF_PARAM_KNOWN_FILTER_NAME)) {
             if (setFileTypeOnKnown) {
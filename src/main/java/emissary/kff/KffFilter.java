@@ -1,5 +1,7 @@
 package emissary.kff;
 
+import java.util.List;
+
 /**
  * Interface for a KFF Implementation to follow
  */
@@ -18,4 +20,21 @@ public interface KffFilter {
 
     boolean check(String fname, ChecksumResults sums) throws Exception;
 
+    /**
+     * Check several items at once. Filters backed by a remote store override this to look them all up in one round trip;
+     * the default checks each item in turn.
+     *
+     * @param fnames the names of the items
+     * @param sums the checksums of the items, in the same order
+     * @return whether each item is a hit, in the same order
+     * @throws Exception if any item cannot be checked
+     */
+    default boolean[] checkAll(List<String> fnames, List<ChecksumResults> sums) throws Exception {
+        final boolean[] hits = new boolean[fnames.size()];
+        for (int i = 0; i < hits.length; i++) {
+            hits[i] = check(fnames.get(i), sums.get(i));
+        }
+        return hits;
+    }
+
 }
@@ -14,7 +14,11 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -39,7 +43,14 @@ import javax.annotation.Nullable;
  * memcached before expiring MEMCACHED_OP_TIMEOUT_MILLIS: how long to wait before timing out a memcached operation
  * MEMCACHED_IGNORE_VALUE_PATTERN: do not store values that contain this pattern (non-regexO MEMCACHED_FAILURE_MODE:
  * what to do in case of server failure MEMCACHED_STORE_ID_DUPE: boolean to store the id if it's hash is already
- * contained in memcached PREF_ALG: Which Emissary hash to use as the key stored in memcached
+ * contained in memcached PREF_ALG: Which Emissary hash to use as the key stored in memcached MEMCACHED_STORE_MISSES:
+ * whether hashes that are not found are stored, default true MEMCACHED_CACHE_SIZE: how many lookups to keep in a local
+ * cache, 0 for none MEMCACHED_CACHE_TTL_MILLIS: how long to keep a found hash in the local cache
+ * MEMCACHED_CACHE_NEGATIVE_TTL_MILLIS: how long to keep a hash that was not found in the local cache when misses are
+ * not stored
+ *
+ * Several hashes can be checked with {@link #checkAll(List, List)}, which fetches every one that is not in the local
+ * cache with a single multi-get.
  */
 public class KffMemcached implements KffFilter {
 
@@ -96,6 +107,17 @@ public class KffMemcached implements KffFilter {
      */
     protected boolean useBinaryProtocol = false;
 
+    /**
+     * If this is set to false, hashes that are not found are not added to memcached, making this a read only lookup
+     */
+    protected boolean storeMisses = true;
+
+    /**
+     * Local cache of recent lookups, or null if there is none
+     */
+    @Nullable
+    protected KffCache cache = null;
+
     /**
      * A handle to the set of servers
      */
@@ -172,6 +194,14 @@ public class KffMemcached implements KffFilter {
         // Set the operation timeout
         opTimeoutMillis = configG.findLongEntry("MEMCACHED_OP_TIMEOUT_MILLIS", opTimeoutMillis);
 
+        storeMisses = configG.findBooleanEntry("MEMCACHED_STORE_MISSES", storeMisses);
+
+        final int cacheSize = configG.findIntEntry("MEMCACHED_CACHE_SIZE", 10000);
+        if (cacheSize > 0) {
+            cache = new KffCache(cacheSize, configG.findLongEntry("MEMCACHED_CACHE_TTL_MILLIS", 300000L),
+                    configG.findLongEntry("MEMCACHED_CACHE_NEGATIVE_TTL_MILLIS", 30000L));
+        }
+
         String failModeAsString = configG.findStringEntry("MEMCACHED_FAILURE_MODE", "Cancel");
         if (failModeAsString.equalsIgnoreCase("cancel")) {
             failMode = FailureMode.Cancel;
@@ -207,7 +237,87 @@ public class KffMemcached implements KffFilter {
      */
     @Override
     public boolean check(String id, ChecksumResults sums) throws Exception {
+        String key = keyFor(id, sums);
+        if (key == null) {
+            return false;
+        }
+
+        KffCache.Entry cached = cache == null ? null : cache.get(key);
+        if (cached != null) {
+            return record(id, key, cached.getValue(), false);
+        }
+
+        // Send the query
+        Future<Object> future = client.asyncGet(key);
+
+        // Let the TimeoutException propagate up
+        Object result = future.get(opTimeoutMillis, TimeUnit.MILLISECONDS);
+        return record(id, key, (String) result, true);
+    }
+
+    /**
+     * Check several hashes, fetching all of those not in the local cache from memcached with one multi-get. Each is then
+     * handled exactly as {@link #check(String, ChecksumResults)} would in turn, so a hash repeated in the batch is stored
+     * by its first occurrence and found by the rest.
+     */
+    @Override
+    public boolean[] checkAll(List<String> ids, List<ChecksumResults> sums) throws Exception {
+        String[] keys = new String[ids.size()];
+        Map<String, KffCache.Entry> cached = new HashMap<>();
+        Set<String> toFetch = new LinkedHashSet<>();
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = keyFor(ids.get(i), sums.get(i));
+            if (keys[i] == null || cached.containsKey(keys[i]) || toFetch.contains(keys[i])) {
+                continue;
+            }
+            KffCache.Entry entry = cache == null ? null : cache.get(keys[i]);
+            if (entry != null) {
+                cached.put(keys[i], entry);
+            } else {
+                toFetch.add(keys[i]);
+            }
+        }
+
+        Map<String, Object> fetched = Collections.emptyMap();
+        if (!toFetch.isEmpty()) {
+            // Let the TimeoutException propagate up
+            fetched = client.asyncGetBulk(toFetch).get(opTimeoutMillis, TimeUnit.MILLISECONDS);
+        }
 
+        // What this batch has learned so far, so repeats see the effect of earlier items
+        Map<String, String> seen = new HashMap<>();
+        boolean[] hits = new boolean[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            String key = keys[i];
+            if (key == null) {
+                continue;
+            }
+            boolean fromServer = false;
+            String result;
+            if (seen.containsKey(key)) {
+                result = seen.get(key);
+            } else {
+                KffCache.Entry entry = cached.get(key);
+                if (entry != null) {
+                    result = entry.getValue();
+                } else {
+                    result = (String) fetched.get(key);
+                    fromServer = true;
+                }
+            }
+            hits[i] = record(ids.get(i), key, result, fromServer);
+            seen.put(key, hits[i] ? result : (storeMisses ? ids.get(i) : null));
+        }
+        return hits;
+    }
+
+    /**
+     * Validate the input and find the memcached key for it
+     *
+     * @return the key, or null if the id matches an ignore pattern
+     */
+    @Nullable
+    private String keyFor(String id, ChecksumResults sums) throws Exception {
         if (sums == null) {
             throw new Exception("Poorly formed input to check() in sums");
         }
@@ -221,7 +331,7 @@ public class KffMemcached implements KffFilter {
             // Loop through all patterns to see if any match
             for (String ignorePattern : ignorePatterns) {
                 if (id.contains(ignorePattern)) {
-                    return false;
+                    return null;
                 }
             }
         }
@@ -232,34 +342,55 @@ public class KffMemcached implements KffFilter {
             throw new Exception("Poorly formed input to check() in hash");
         }
 
-        String key = Hexl.toUnformattedHexString(hash);
-
-        // Send the query
-        Future<Object> future = client.asyncGet(key);
-
-
-        // Let the TimeoutException propagate up
-        Object result = future.get(opTimeoutMillis, TimeUnit.MILLISECONDS);
+        return Hexl.toUnformattedHexString(hash);
+    }
 
+    /**
+     * Act on the result of a lookup, storing the id or the hash in memcached as configured and remembering the result in
+     * the local cache
+     *
+     * @param id the id being checked
+     * @param key the memcached key for its hash
+     * @param result the value found for the key, or null if it was not found
+     * @param fromServer true if the result came from memcached rather than the local cache
+     * @return true if the key was found
+     */
+    private boolean record(String id, String key, @Nullable String result, boolean fromServer) {
         if (result != null) {
             if (storeIdDupe) {
-                if (!((String) result).equals(id)) {
+                if (!result.equals(id)) {
                     // As long as the id is not the same as what was already stored, then
                     // store it on its own
                     var unused = client.set(id, ageoff, key);
                     // logger.debug("Storing duplicate Id: {} with value (hash) {}", id, key);
                 }
             }
-            // logger.debug("Found key: {} with value {}", key, (String) result);
+            if (fromServer && cache != null) {
+                cache.putPositive(key, result);
+            }
+            // logger.debug("Found key: {} with value {}", key, result);
             // Found the key
             return true;
         }
         // logger.debug("Did not find key: {}", key);
-        // Did not find the key...store it and move on
-        var unused = client.set(key, ageoff, id);
+        if (storeMisses) {
+            // Did not find the key...store it and move on
+            var unused = client.set(key, ageoff, id);
+            if (cache != null) {
+                cache.putPositive(key, id);
+            }
+        } else if (fromServer && cache != null) {
+            cache.putNegative(key);
+        }
         return false;
+    }
 
-
+    /**
+     * @return the local lookup cache, or null if there is none
+     */
+    @Nullable
+    public KffCache getCache() {
+        return cache;
     }
 
     public String getPreferredAlgorithm() {
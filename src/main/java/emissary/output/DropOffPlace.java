@@ -7,6 +7,7 @@ import emissary.core.Form;
 import emissary.core.IBaseDataObject;
 import emissary.directory.DirectoryEntry;
 import emissary.output.filter.IDropOffFilter;
+import emissary.output.filter.MetadataBatch;
 import emissary.place.EmptyFormPlace;
 import emissary.place.ServiceProviderPlace;
 import emissary.util.DataUtil;
@@ -38,6 +39,7 @@ public class DropOffPlace extends ServiceProviderPlace implements EmptyFormPlace
     protected boolean failurePolicyTerminate = true;
     protected DropOffUtil dropOffUtil;
     private boolean outputCompletionPayloadSize = false;
+    protected boolean buildMetadataBatch = true;
 
     /**
      * Primary place constructor
@@ -87,6 +89,7 @@ public class DropOffPlace extends ServiceProviderPlace implements EmptyFormPlace
         this.doSynchronized = configG.findBooleanEntry("SYNCHRONIZED_PROCESS", false);
         this.failurePolicyTerminate = configG.findBooleanEntry("FAILURE_TERMINATES_CHAIN", true);
         this.outputCompletionPayloadSize = configG.findBooleanEntry("OUTPUT_COMPLETION_PAYLOAD_SIZE", false);
+        this.buildMetadataBatch = configG.findBooleanEntry("METADATA_BATCH", true);
         // Build and store all the filter that are desired IN THE ORDER SPECIFIED
         final List<String> filterClasses = configG.findEntries("OUTPUT_FILTER");
         initializeFilters(filterClasses);
@@ -294,6 +297,11 @@ public class DropOffPlace extends ServiceProviderPlace implements EmptyFormPlace
 
         // Prepare the metadata
         this.dropOffUtil.processMetadata(payloadList);
+
+        // Resolve the prepared metadata once for all the filters
+        if (this.buildMetadataBatch) {
+            filterParams.put(IDropOffFilter.METADATA_BATCH, new MetadataBatch(payloadList));
+        }
     }
 
     /**
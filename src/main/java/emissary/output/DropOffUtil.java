@@ -27,14 +27,18 @@ import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 
 import static emissary.core.Form.PREFIXES_LANG;
@@ -52,6 +56,11 @@ public class DropOffUtil {
     protected static final String SEPARATOR = FileSystems.getDefault().getSeparator();
     protected static final String OS_NAME = System.getProperty("os.name").toUpperCase(Locale.getDefault());
 
+    private static final Pattern REPEATED_DOTS = Pattern.compile("[.]+");
+
+    /** Most distinct specs kept compiled, specs past this are compiled on every use */
+    private static final int MAX_CACHED_SPECS = 256;
+
     protected String unixRoot;
 
     protected String placeOutputData;
@@ -68,6 +77,13 @@ public class DropOffUtil {
     /** Output directories */
     protected Map<String, File> outputDirectories = new HashMap<>();
 
+    /** Compiled path specs by spec */
+    private final Map<String, PathSpec> pathSpecs = new ConcurrentHashMap<>();
+
+    /** Most recently used directories known to exist and be writable */
+    protected int pathCacheSize = 1024;
+    private Map<String, Boolean> createdPaths = newPathCache(pathCacheSize);
+
     protected Executrix executrix;
 
     // Items for generating random filenames
@@ -114,6 +130,7 @@ public class DropOffUtil {
      * <li>OUTPUT_FILE_PREFIX: string to use when generating random filenames, default: TXT</li>
      * <li>UUID_IN_OUTPUT_FILENAMES: boolean [true]</li>
      * <li>AUTO_GENERATED_ID_PREFIX: prefix to use for an auto-generated id</li>
+     * <li>PATH_CACHE_SIZE: number of output directories remembered as set up, 0 to check every time, default: 1024</li>
      * </ul>
      */
     protected void configure(@Nullable final Configurator configG) {
@@ -153,6 +170,8 @@ public class DropOffUtil {
             if (this.maxFilextLen < 0) {
                 this.maxFilextLen = Integer.MAX_VALUE;
             }
+            this.pathCacheSize = Math.max(0, actualConfigG.findIntEntry("PATH_CACHE_SIZE", this.pathCacheSize));
+            this.createdPaths = newPathCache(this.pathCacheSize);
 
         } else {
             logger.debug("Configuration is null for DropOffUtil, using defaults");
@@ -217,13 +236,17 @@ public class DropOffUtil {
     }
 
     /**
-     * mkdir -p to a path and make sure it is writable
+     * mkdir -p to a path and make sure it is writable. Directories that were set up are remembered, up to PATH_CACHE_SIZE
+     * of them, and not checked again until they fall out of the cache or {@link #clearPathCache()} is called.
      *
      * @param fileName the file name, including directory and filename parts
      * @return true iff it works
      */
     public boolean setupPath(final String fileName) {
         final String pathName = fileName.substring(0, fileName.lastIndexOf(SEPARATOR));
+        if (this.createdPaths.containsKey(pathName)) {
+            return true;
+        }
         final Path thePath = Paths.get(pathName);
 
         // If the specified output directory doesn't exist try creating it
@@ -264,9 +287,28 @@ public class DropOffUtil {
             }
         }
 
+        this.createdPaths.put(pathName, Boolean.TRUE);
         return true;
     }
 
+    /**
+     * Forget the directories set up so far, for use when output directories may have been removed
+     */
+    public void clearPathCache() {
+        this.createdPaths.clear();
+    }
+
+    private static Map<String, Boolean> newPathCache(final int maxSize) {
+        return Collections.synchronizedMap(new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Boolean> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
     public String getOutputDirectory() {
         return this.placeOutputData;
     }
@@ -308,158 +350,28 @@ public class DropOffUtil {
      * %J% = Three digit ordinal day of the year
      * </pre>
      *
+     * Each spec is compiled to a {@link PathSpec} the first time it is seen and reused after that.
+     *
      * @param specArg the incoming specification
      * @param d the payload we are making a path for
      * @param tld the top level document in the d family, possibly null
      * @return string path name with correct separators for this OS
      */
     public String getPathFromSpec(final String specArg, @Nullable final IBaseDataObject d, @Nullable final IBaseDataObject tld) {
-        final StringBuilder sb = new StringBuilder(128);
-
-        // Provide a default spec, just like the old days...
-        String spec = specArg;
-        if (spec == null) {
-            spec = "%R%/@TLD{'TARGETBIN'}/%S%";
-        }
-
-        for (int i = 0; i < spec.length(); i++) {
-            final char c = spec.charAt(i);
-
-            if (c == '%' && i < spec.length() - 2) {
-                final char t = spec.charAt(i + 1);
-                final char x = spec.charAt(i + 2);
-
-                if (x == c) {
-                    switch (t) {
-                        case 'U':
-                            if (tld != null) {
-                                sb.append(nvl(tld.getParameter("UserName"), "no-userid"));
-                            } else if (d != null) {
-                                sb.append(nvl(d.getParameter("UserName"), "no-userid"));
-                            }
-                            break;
-                        case 'S':
-                            if (d != null) {
-                                sb.append(d.shortName());
-                            }
-                            break;
-                        case 'I':
-                            if (d != null) {
-                                sb.append(d.getFilename());
-                            }
-                            break;
-                        case 'i':
-                            if (d != null) {
-                                sb.append(d.getFilename().replaceAll("[/\\\\]", "_"));
-                            }
-                            break;
-                        case 'P':
-                            if (d != null) {
-                                sb.append(d.getFilename(), 0, d.getFilename().length() - d.shortName().length());
-                            }
-                            break;
-                        case 'p':
-                            if (d != null) {
-                                sb.append(d.getFilename().substring(0, d.getFilename().length() - d.shortName().length()).replaceAll("[/\\\\]", "_"));
-                            }
-                            break;
-                        case 'F':
-                            if (d != null) {
-                                sb.append(nvl(cleanSpecPath(d.getFileType()), "NONE"));
-                            }
-                            break;
-                        case 'L':
-                            if (d != null) {
-                                sb.append(nvl(d.getParameter("LANGUAGE"), "NONE"));
-                            }
-                            break;
-                        case 'G':
-                            if (tld != null) {
-                                sb.append(datePath(cleanSpecPath(tld.getStringParameter("DTG"))));
-                            } else if (d != null) {
-                                sb.append(datePath(cleanSpecPath(d.getStringParameter("DTG"))));
-                            }
-                            break;
-                        case 'R':
-                            sb.append(getRootPath());
-                            break;
-                        case 'B':
-                            if (tld != null) {
-                                sb.append(cleanSpecPath(getBestIdFrom(tld)));
-                            } else if (d != null) {
-                                sb.append(cleanSpecPath(getBestIdFrom(d)));
-                            }
-                            break;
-                        case 'b':
-                            sb.append(cleanSpecPath((tld != null) ? getBestIdFrom(tld) : getBestIdFrom(d)));
-                            final String sn = d.shortName();
-                            final int pos = sn.indexOf(Family.SEP);
-                            if (pos > 0) {
-                                sb.append(sn.substring(pos));
-                            }
-                            break;
-                        case 'Y':
-                            sb.append(TimeUtil.getDate("yyyy", "GMT"));
-                            break;
-                        case 'M':
-                            sb.append(TimeUtil.getDate("MM", "GMT"));
-                            break;
-                        case 'D':
-                            sb.append(TimeUtil.getDate("dd", "GMT"));
-                            break;
-                        case 'J':
-                            sb.append(TimeUtil.getDate("DDD", "GMT"));
-                            break;
-                        default:
-                            sb.append(c).append(t).append(x);
-                    }
-                    i += 2; // SUPPRESS CHECKSTYLE ModifiedControlVariable
-                } else {
-                    // No trailing % after character
-                    sb.append(c);
-                }
-
-            } else if (c == '@' && i < spec.length() - 8 && spec.charAt(i + 1) == 'M' && spec.charAt(i + 2) == 'E' && spec.charAt(i + 3) == 'T'
-                    && spec.charAt(i + 4) == 'A' && spec.charAt(i + 5) == '{' && spec.charAt(i + 6) == '\'') {
-
-                final int endpos = spec.indexOf("'", i + 7);
-                if (endpos > i + 7) {
-                    final String token = spec.substring(i + 7, endpos);
-                    final String value = cleanSpecPath(d.getStringParameter(token));
-                    sb.append(nvl(value, "NO-" + token));
-                    i += 8 + token.length(); // META{'token'} SUPPRESS CHECKSTYLE ModifiedControlVariable
-                } else {
-                    sb.append(c);
-                }
-            } else if (c == '@' && i < spec.length() - 7 && spec.charAt(i + 1) == 'T' && spec.charAt(i + 2) == 'L' && spec.charAt(i + 3) == 'D'
-                    && spec.charAt(i + 4) == '{' && spec.charAt(i + 5) == '\'' && tld != null) {
-                final int endpos = spec.indexOf("'", i + 6);
-                if (endpos > i + 6) {
-                    final String token = spec.substring(i + 6, endpos);
-                    final String value = cleanSpecPath(tld.getStringParameter(token));
-                    sb.append(nvl(value, "NO-" + token));
-                    i += 7 + token.length(); // TLD{'token'} SUPPRESS CHECKSTYLE ModifiedControlVariable
-                } else {
-                    sb.append(c);
-                }
-            } else {
-                sb.append(c);
+        final String spec = specArg == null ? PathSpec.DEFAULT_SPEC : specArg;
+        PathSpec compiled = this.pathSpecs.get(spec);
+        if (compiled == null) {
+            compiled = PathSpec.compile(spec);
+            if (this.pathSpecs.size() < MAX_CACHED_SPECS) {
+                this.pathSpecs.putIfAbsent(spec, compiled);
             }
-
         }
-
-        String answer = sb.toString();
-
-        // Set the proper path separator
-        answer = answer.replace('\\', '/');
-        answer = answer.replaceAll("\\.([/\\\\])", "_$1");
-
-        return answer;
+        return compiled.render(this, d, tld);
     }
 
     @Nullable
     protected String cleanSpecPath(@Nullable String token) {
-        return token == null ? null : token.replaceAll("[.]+", ".");
+        return token == null ? null : REPEATED_DOTS.matcher(token).replaceAll(".");
     }
 
     /**
@@ -0,0 +1,245 @@
+package emissary.output;
+
+import emissary.core.Family;
+import emissary.core.IBaseDataObject;
+import emissary.util.TimeUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * An output path specification compiled once into a list of segments, so rendering a path for each output file is a walk
+ * over the segments instead of parsing the spec again. The language is described on
+ * {@link DropOffUtil#getPathFromSpec(String, IBaseDataObject, IBaseDataObject)}.
+ * <p>
+ * <code>@TLD{'KEY'}</code> is only understood when there is a top level document, without one it is copied as text, so
+ * each spec is compiled both ways. Segments call back into the {@link DropOffUtil} doing the rendering so overridden
+ * methods are still used. Instances are immutable and may be shared between threads.
+ */
+public final class PathSpec {
+
+    /** The spec used when none is given {@value} */
+    public static final String DEFAULT_SPEC = "%R%/@TLD{'TARGETBIN'}/%S%";
+
+    private static final Pattern DOT_BEFORE_SEPARATOR = Pattern.compile("\\.([/\\\\])");
+
+    /**
+     * One piece of a rendered path
+     */
+    @FunctionalInterface
+    interface Segment {
+        void render(DropOffUtil util, @Nullable IBaseDataObject d, @Nullable IBaseDataObject tld, StringBuilder sb);
+    }
+
+    private final String spec;
+    private final List<Segment> withTld;
+    private final List<Segment> withoutTld;
+
+    private PathSpec(final String spec) {
+        this.spec = spec;
+        this.withTld = parse(spec, true);
+        this.withoutTld = parse(spec, false);
+    }
+
+    /**
+     * Compile a spec
+     *
+     * @param spec the spec, null for {@link #DEFAULT_SPEC}
+     * @return the compiled spec
+     */
+    public static PathSpec compile(@Nullable final String spec) {
+        return new PathSpec(spec == null ? DEFAULT_SPEC : spec);
+    }
+
+    /**
+     * @return the spec this was compiled from
+     */
+    public String getSpec() {
+        return spec;
+    }
+
+    /**
+     * Render the path for a payload
+     *
+     * @param util supplies the root path, ids and cleanup rules
+     * @param d the payload we are making a path for
+     * @param tld the top level document in the d family, possibly null
+     * @return string path name with forward slashes
+     */
+    public String render(final DropOffUtil util, @Nullable final IBaseDataObject d, @Nullable final IBaseDataObject tld) {
+        final StringBuilder sb = new StringBuilder(128);
+        for (final Segment segment : tld != null ? withTld : withoutTld) {
+            segment.render(util, d, tld, sb);
+        }
+        for (int i = 0; i < sb.length(); i++) {
+            if (sb.charAt(i) == '\\') {
+                sb.setCharAt(i, '/');
+            }
+        }
+        return DOT_BEFORE_SEPARATOR.matcher(sb).replaceAll("_$1");
+    }
+
+    private static List<Segment> parse(final String spec, final boolean tldPresent) {
+        final List<Segment> segments = new ArrayList<>();
+        final StringBuilder literal = new StringBuilder();
+        final int len = spec.length();
+
+        for (int i = 0; i < len; i++) {
+            final char c = spec.charAt(i);
+
+            if (c == '%' && i < len - 2) {
+                final char t = spec.charAt(i + 1);
+                final char x = spec.charAt(i + 2);
+                if (x == c) {
+                    final Segment token = token(t);
+                    if (token == null) {
+                        literal.append(c).append(t).append(x);
+                    } else {
+                        addLiteral(segments, literal);
+                        segments.add(token);
+                    }
+                    i += 2; // SUPPRESS CHECKSTYLE ModifiedControlVariable
+                } else {
+                    // No trailing % after character
+                    literal.append(c);
+                }
+            } else if (c == '@' && i < len - 8 && spec.startsWith("META{'", i + 1)) {
+                final int endpos = spec.indexOf("'", i + 7);
+                if (endpos > i + 7) {
+                    final String key = spec.substring(i + 7, endpos);
+                    addLiteral(segments, literal);
+                    segments.add((util, d, tld, sb) -> sb.append(util.nvl(util.cleanSpecPath(d.getStringParameter(key)), "NO-" + key)));
+                    i += 8 + key.length(); // META{'key'} SUPPRESS CHECKSTYLE ModifiedControlVariable
+                } else {
+                    literal.append(c);
+                }
+            } else if (c == '@' && i < len - 7 && spec.startsWith("TLD{'", i + 1) && tldPresent) {
+                final int endpos = spec.indexOf("'", i + 6);
+                if (endpos > i + 6) {
+                    final String key = spec.substring(i + 6, endpos);
+                    addLiteral(segments, literal);
+                    segments.add((util, d, tld, sb) -> sb.append(util.nvl(util.cleanSpecPath(tld.getStringParameter(key)), "NO-" + key)));
+                    i += 7 + key.length(); // TLD{'key'} SUPPRESS CHECKSTYLE ModifiedControlVariable
+                } else {
+                    literal.append(c);
+                }
+            } else {
+                literal.append(c);
+            }
+        }
+        addLiteral(segments, literal);
+        return Collections.unmodifiableList(segments);
+    }
+
+    private static void addLiteral(final List<Segment> segments, final StringBuilder literal) {
+        if (literal.length() > 0) {
+            final String text = literal.toString();
+            segments.add((util, d, tld, sb) -> sb.append(text));
+            literal.setLength(0);
+        }
+    }
+
+    @Nullable
+    private static Segment token(final char t) {
+        switch (t) {
+            case 'U':
+                return (util, d, tld, sb) -> {
+                    if (tld != null) {
+                        sb.append(util.nvl(tld.getParameter("UserName"), "no-userid"));
+                    } else if (d != null) {
+                        sb.append(util.nvl(d.getParameter("UserName"), "no-userid"));
+                    }
+                };
+            case 'S':
+                return (util, d, tld, sb) -> {
+                    if (d != null) {
+                        sb.append(d.shortName());
+                    }
+                };
+            case 'I':
+                return (util, d, tld, sb) -> {
+                    if (d != null) {
+                        sb.append(d.getFilename());
+                    }
+                };
+            case 'i':
+                return (util, d, tld, sb) -> {
+                    if (d != null) {
+                        appendUnderscored(sb, d.getFilename(), d.getFilename().length());
+                    }
+                };
+            case 'P':
+                return (util, d, tld, sb) -> {
+                    if (d != null) {
+                        sb.append(d.getFilename(), 0, d.getFilename().length() - d.shortName().length());
+                    }
+                };
+            case 'p':
+                return (util, d, tld, sb) -> {
+                    if (d != null) {
+                        appendUnderscored(sb, d.getFilename(), d.getFilename().length() - d.shortName().length());
+                    }
+                };
+            case 'F':
+                return (util, d, tld, sb) -> {
+                    if (d != null) {
+                        sb.append(util.nvl(util.cleanSpecPath(d.getFileType()), "NONE"));
+                    }
+                };
+            case 'L':
+                return (util, d, tld, sb) -> {
+                    if (d != null) {
+                        sb.append(util.nvl(d.getParameter("LANGUAGE"), "NONE"));
+                    }
+                };
+            case 'G':
+                return (util, d, tld, sb) -> {
+                    if (tld != null) {
+                        sb.append(util.datePath(util.cleanSpecPath(tld.getStringParameter("DTG"))));
+                    } else if (d != null) {
+                        sb.append(util.datePath(util.cleanSpecPath(d.getStringParameter("DTG"))));
+                    }
+                };
+            case 'R':
+                return (util, d, tld, sb) -> sb.append(util.getRootPath());
+            case 'B':
+                return (util, d, tld, sb) -> {
+                    if (tld != null) {
+                        sb.append(util.cleanSpecPath(util.getBestIdFrom(tld)));
+                    } else if (d != null) {
+                        sb.append(util.cleanSpecPath(util.getBestIdFrom(d)));
+                    }
+                };
+            case 'b':
+                return (util, d, tld, sb) -> {
+                    sb.append(util.cleanSpecPath((tld != null) ? util.getBestIdFrom(tld) : util.getBestIdFrom(d)));
+                    final String sn = d.shortName();
+                    final int pos = sn.indexOf(Family.SEP);
+                    if (pos > 0) {
+                        sb.append(sn, pos, sn.length());
+                    }
+                };
+            case 'Y':
+                return (util, d, tld, sb) -> sb.append(TimeUtil.getDate("yyyy", "GMT"));
+            case 'M':
+                return (util, d, tld, sb) -> sb.append(TimeUtil.getDate("MM", "GMT"));
+            case 'D':
+                return (util, d, tld, sb) -> sb.append(TimeUtil.getDate("dd", "GMT"));
+            case 'J':
+                return (util, d, tld, sb) -> sb.append(TimeUtil.getDate("DDD", "GMT"));
+            default:
+                return null;
+        }
+    }
+
+    // append the start of a name with both kinds of slash made underscores
+    private static void appendUnderscored(final StringBuilder sb, final String name, final int end) {
+        for (int i = 0; i < end; i++) {
+            final char c = name.charAt(i);
+            sb.append(c == '/' || c == '\\' ? '_' : c);
+        }
+    }
+}
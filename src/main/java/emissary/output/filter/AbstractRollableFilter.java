@@ -9,6 +9,7 @@ import emissary.output.roller.JournaledCoalescer;
 import emissary.output.roller.journal.KeyedOutput;
 import emissary.pool.AgentPool;
 import emissary.roll.RollManager;
+import emissary.roll.RollPolicy;
 import emissary.roll.Roller;
 import emissary.util.io.FileNameGenerator;
 
@@ -34,12 +35,18 @@ public abstract class AbstractRollableFilter extends AbstractFilter {
     public static final String OUTPUT_PATH = "OUTPUT_PATH";
     public static final String MAX_ROLL_FILE_SIZE = "MAX_FILE_SIZE";
     public static final String MAX_OUTPUT_APPENDERS = "MAX_OUTPUT_APPENDERS";
+    public static final String PREALLOCATED_OUTPUT_APPENDERS = "PREALLOCATED_OUTPUT_APPENDERS";
+    public static final String MAX_ROLL_RECORDS = "MAX_ROLL_RECORDS";
+    public static final String MIN_FREE_SPACE = "MIN_FREE_SPACE";
     public static final String ROLL_INTERVAL_UNIT = "ROLL_INTERVAL_UNIT";
 
     protected String defaultOutputPath = "./out";
     protected Path outputPath;
     protected int maxRollFileSize = 250 * 1024 * 1024;
+    protected long maxRollRecords = 0L;
+    protected long minFreeSpace = 0L;
     protected int maxOutputAppenders;
+    protected int preallocatedOutputAppenders = 0;
     protected long rollInterval = 10L;
     protected TimeUnit rollIntervalUnits = TimeUnit.MINUTES;
     protected Roller roller;
@@ -95,7 +102,10 @@ public abstract class AbstractRollableFilter extends AbstractFilter {
      */
     protected void initRollConfig() {
         this.maxRollFileSize = (int) this.filterConfig.findSizeEntry(MAX_ROLL_FILE_SIZE, maxRollFileSize);
+        this.maxRollRecords = this.filterConfig.findLongEntry(MAX_ROLL_RECORDS, maxRollRecords);
+        this.minFreeSpace = this.filterConfig.findSizeEntry(MIN_FREE_SPACE, minFreeSpace);
         this.maxOutputAppenders = this.filterConfig.findIntEntry(MAX_OUTPUT_APPENDERS, AgentPool.computePoolSize());
+        this.preallocatedOutputAppenders = this.filterConfig.findIntEntry(PREALLOCATED_OUTPUT_APPENDERS, preallocatedOutputAppenders);
         this.rollInterval = this.filterConfig.findLongEntry(CFG_ROLL_INTERVAL, rollInterval);
         this.rollIntervalUnits = TimeUnit.valueOf(this.filterConfig.findStringEntry(ROLL_INTERVAL_UNIT, rollIntervalUnits.toString()));
     }
@@ -144,7 +154,7 @@ public abstract class AbstractRollableFilter extends AbstractFilter {
      * @throws InterruptedException if the journal is interrupted
      */
     protected IJournaler createRollable() throws IOException, InterruptedException {
-        return new JournaledCoalescer(this.outputPath, this.fileNameGenerator, this.maxOutputAppenders);
+        return new JournaledCoalescer(this.outputPath, this.fileNameGenerator, this.maxOutputAppenders, this.preallocatedOutputAppenders);
     }
 
     /**
@@ -153,7 +163,11 @@ public abstract class AbstractRollableFilter extends AbstractFilter {
      * @return the roller object
      */
     protected Roller createRoller() {
-        return new Roller(this.maxRollFileSize, this.rollIntervalUnits, this.rollInterval, this.rollable);
+        Roller r = new Roller(this.maxRollFileSize, this.rollIntervalUnits, this.rollInterval, this.rollable);
+        r.setName(getClass().getSimpleName() + "-" + getFilterName());
+        r.setPolicy(RollPolicy.builder().maxBytes(this.maxRollFileSize).maxRecords(this.maxRollRecords)
+                .minFreeBytes(this.outputPath, this.minFreeSpace).build());
+        return r;
     }
 
     /**
@@ -179,9 +193,13 @@ public abstract class AbstractRollableFilter extends AbstractFilter {
         try (KeyedOutput ko = this.rollable.getOutput()) {
             params.put("CONTENT_URI_" + getFilterName(), "file://" + ko.getFinalDestination().toString());
             params.put("CONTENT_FORMAT_" + getFilterName(), getFilterName());
+            long start = ko.position();
             code = filter(payloadList, params, ko);
             if (code == STATUS_SUCCESS) {
                 ko.commit();
+                if (this.roller != null) {
+                    this.roller.recordWrite(ko.position() - start);
+                }
             }
         } catch (IOException e) {
             logger.error("IOException during dropoff.", e);
@@ -19,6 +19,14 @@ import javax.annotation.Nullable;
  */
 public class DataFilter extends AbstractFilter {
 
+    // Whether a DropOffUtil class reads the language its own way, so it cannot be taken from the metadata batch
+    private static final ClassValue<Boolean> CUSTOM_LANGUAGE = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(final Class<?> type) {
+            return MetadataBatch.overrides(type, DropOffUtil.class, "getLanguage", IBaseDataObject.class);
+        }
+    };
+
     /**
      * Initialize reads the configuration items for this filter
      * 
@@ -55,7 +63,7 @@ public class DataFilter extends AbstractFilter {
         final String fileType = DropOffUtil.getFileType(d);
         final String currentForm = d.currentForm();
         getCharset(d, StandardCharsets.UTF_8.name());
-        final String lang = dropOffUtil.getLanguage(d);
+        final String lang = getLanguage(d, params);
 
         int writeCount = 0;
 
@@ -96,7 +104,7 @@ public class DataFilter extends AbstractFilter {
         // Set up base location from configured spec
         final String fileType = DropOffUtil.getFileType(d);
         final String currentForm = d.currentForm();
-        final String lang = dropOffUtil.getLanguage(d);
+        final String lang = getLanguage(d, params);
 
         int writeCount = 0;
 
@@ -118,6 +126,24 @@ public class DataFilter extends AbstractFilter {
         return writeCount >= 0 ? IDropOffFilter.STATUS_SUCCESS : IDropOffFilter.STATUS_FAILURE;
     }
 
+    /**
+     * Get the language of the payload, from the metadata batch when there is one and the drop off util reads it the
+     * default way
+     *
+     * @param d the payload
+     * @param params the map of configuration items
+     */
+    protected String getLanguage(final IBaseDataObject d, final Map<String, Object> params) {
+        final MetadataBatch batch = MetadataBatch.from(params, d);
+        if (batch == null || CUSTOM_LANGUAGE.get(dropOffUtil.getClass())) {
+            return dropOffUtil.getLanguage(d);
+        }
+        final int record = batch.indexOf(d);
+        batch.refresh(record);
+        final String lang = batch.getStringValue(record, "LANGUAGE");
+        return lang == null ? "NONE" : lang;
+    }
+
     protected boolean isPrimaryViewOutputtable(final String lang, final String fileType, final String currentForm) {
         return isOutputtable(lang + AbstractFilter.LANGUAGE_VIEW) || isOutputtable(lang + AbstractFilter.LANGUAGE_VIEW + AbstractFilter.PRIMARY_VIEW)
                 || isOutputtable(fileType) || isOutputtable(fileType + AbstractFilter.PRIMARY_VIEW)
@@ -32,6 +32,11 @@ public interface IDropOffFilter {
      */
     String TLD_PARAM = "TLD";
 
+    /**
+     * Used in params to share the {@link MetadataBatch} of the records with every filter value is {@value}
+     */
+    String METADATA_BATCH = "METADATA_BATCH";
+
     /**
      * Return the name of this filter
      */
@@ -12,6 +12,8 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.fasterxml.jackson.databind.BeanDescription;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonSerializer;
@@ -30,6 +32,7 @@ import org.apache.commons.collections4.CollectionUtils;
 
 import java.io.IOException;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
@@ -93,7 +96,29 @@ public class JsonOutputFilter extends AbstractRollableFilter {
 
     @Override
     public byte[] convert(final List<IBaseDataObject> list, final Map<String, Object> params) throws IOException {
-        return jsonMapper.writeValueAsBytes(list);
+        final MetadataBatch batch = MetadataBatch.from(params, list);
+        if (batch == null) {
+            return jsonMapper.writeValueAsBytes(list);
+        }
+        return jsonMapper.writer().withAttribute(BatchFields.class, new BatchFields(batch)).writeValueAsBytes(list);
+    }
+
+    /**
+     * The metadata batch for one call to {@link #convert(List, Map)}, the record being written and the field name each
+     * batch key is written under by this filter
+     */
+    static final class BatchFields {
+        // marks keys this filter leaves out
+        private static final SerializableString EXCLUDED = new SerializedString("");
+
+        final MetadataBatch batch;
+        SerializableString[] names;
+        int record = -1;
+
+        BatchFields(final MetadataBatch batch) {
+            this.batch = batch;
+            this.names = new SerializableString[batch.getKeyCount()];
+        }
     }
 
     class IbdoParameterFilter extends SimpleBeanPropertyFilter {
@@ -103,6 +128,8 @@ public class JsonOutputFilter extends AbstractRollableFilter {
         protected final boolean denylistStar;
         protected final boolean emptyAllowlist;
         protected final boolean allowlistStar;
+        // the batch writes values as filter(String, Collection) does, so it is only used when that is not overridden
+        private final boolean batchable;
         private static final char KEY_REPLACEMENT = '_';
 
         public IbdoParameterFilter() {
@@ -112,12 +139,18 @@ public class JsonOutputFilter extends AbstractRollableFilter {
             this.emptyDenylist = CollectionUtils.isEmpty(denylistFields) && CollectionUtils.isEmpty(denylistPrefixes);
             this.emptyAllowlist = CollectionUtils.isEmpty(allowlistFields) && CollectionUtils.isEmpty(allowlistPrefixes);
             this.outputAll = emptyDenylist && (allowlistStar || emptyAllowlist);
+            this.batchable = !MetadataBatch.overrides(getClass(), IbdoParameterFilter.class, "filter", String.class, Collection.class);
         }
 
         @Override
         public void serializeAsField(Object pojo, JsonGenerator jgen, SerializerProvider provider, PropertyWriter writer) throws Exception {
 
             String key = writer.getName();
+            BatchFields fields = (BatchFields) provider.getAttribute(BatchFields.class);
+            if (batchable && fields != null && fields.record >= 0 && serializeFromBatch(fields, key, jgen, provider)) {
+                return;
+            }
+
             @SuppressWarnings("unchecked")
             Collection<Object> values = (Collection<Object>) ((Map<?, ?>) pojo).get(key);
 
@@ -134,6 +167,62 @@ public class JsonOutputFilter extends AbstractRollableFilter {
             }
         }
 
+        /**
+         * Write the field from the metadata batch, deciding whether to include the key and how to name it once per batch.
+         * Only called when {@link #filter(String, Collection)} is not overridden.
+         *
+         * @return false if the batch cannot supply the field
+         */
+        protected boolean serializeFromBatch(BatchFields fields, String key, JsonGenerator jgen, SerializerProvider provider) throws IOException {
+            final MetadataBatch batch = fields.batch;
+            final int k = batch.indexOf(key);
+            final int field = k < 0 ? -1 : batch.fieldOf(fields.record, k);
+            final Object[] values = field < 0 ? null : batch.getSortedValues(fields.record, field);
+            if (values == null) {
+                return false;
+            }
+
+            if (k >= fields.names.length) {
+                // a refresh found keys that were not in the batch when it was built
+                fields.names = Arrays.copyOf(fields.names, batch.getKeyCount());
+            }
+            if (fields.names[k] == null) {
+                fields.names[k] = includeParameter(key) ? new SerializedString(transform(key)) : BatchFields.EXCLUDED;
+            }
+            if (fields.names[k] == BatchFields.EXCLUDED) {
+                return true;
+            }
+
+            final Set<String> denied = denylistValues.get(key);
+            int kept = values.length;
+            if (denied != null) {
+                for (final Object value : values) {
+                    if (denied.contains(value.toString())) {
+                        kept--;
+                    }
+                }
+            }
+            if (kept == 0) {
+                return true;
+            }
+
+            final byte[][] utf8 = batch.getSortedUtf8(fields.record, field);
+            jgen.writeFieldName(fields.names[k]);
+            jgen.writeStartArray();
+            for (int i = 0; i < values.length; i++) {
+                if (denied != null && denied.contains(values[i].toString())) {
+                    continue;
+                }
+                if (utf8 != null && utf8[i] != null) {
+                    jgen.writeUTF8String(utf8[i], 0, utf8[i].length);
+                } else {
+                    provider.defaultSerializeValue(values[i], jgen);
+                }
+            }
+            jgen.writeEndArray();
+            return true;
+        }
+
         protected boolean includeParameter(String key) {
             if (outputAll) {
                 return true;
@@ -239,7 +328,23 @@ public class JsonOutputFilter extends AbstractRollableFilter {
             jgen.writeObjectField("id", dropOffUtil.getBestIdFrom(ibdo));
             jgen.writeObjectField("processedTimestamp", TimeUtil.getCurrentDateFullISO8601());
 
-            serializer.unwrappingSerializer(null).serialize(ibdo, jgen, provider);
+            // point the parameter filter at this record's metadata, extracted records nest inside so put it back after
+            BatchFields fields = (BatchFields) provider.getAttribute(BatchFields.class);
+            int outer = -1;
+            if (fields != null) {
+                outer = fields.record;
+                fields.record = fields.batch.indexOf(ibdo);
+                if (fields.record >= 0) {
+                    fields.batch.refresh(fields.record);
+                }
+            }
+            try {
+                serializer.unwrappingSerializer(null).serialize(ibdo, jgen, provider);
+            } finally {
+                if (fields != null) {
+                    fields.record = outer;
+                }
+            }
             jgen.writeEndObject();
         }
     }
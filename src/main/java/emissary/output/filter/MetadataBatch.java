@@ -0,0 +1,394 @@
+package emissary.output.filter;
+
+import emissary.core.IBaseDataObject;
+import emissary.output.DropOffUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import javax.annotation.Nullable;
+
+/**
+ * The metadata of a family of payloads resolved once so every output filter can share it. DropOffPlace builds one
+ * before the filters run and passes it in the filter params under {@link IDropOffFilter#METADATA_BATCH}.
+ * <p>
+ * Keys are interned into one table for the whole family and referred to by their index in it. Each record holds the
+ * key indexes it has, in its own order, along with the values for each. The joined string value, the sorted distinct
+ * values and their UTF-8 encoding are worked out the first time a filter asks for them and kept for the next filter.
+ * Equal values anywhere in the family share one encoding.
+ * <p>
+ * Filters can change metadata while they run, {@link DropOffUtil#getBestIdFrom(IBaseDataObject)} may generate an id
+ * for example. Call {@link #refresh(int)} before reading a record, it checks the record against what was resolved and
+ * only reads it again when something changed. A batch is meant to be used by one thread at a time.
+ */
+public class MetadataBatch {
+
+    private final List<IBaseDataObject> records;
+    private final Map<IBaseDataObject, Integer> recordIndex = new IdentityHashMap<>();
+    private final List<String> keys = new ArrayList<>();
+    private final Map<String, Integer> keyIndex = new HashMap<>();
+    private final Map<String, byte[]> encoded = new HashMap<>();
+    private final Row[] rows;
+
+    /**
+     * Resolve the metadata of each record
+     *
+     * @param records the family, in the order the filters will see it
+     */
+    public MetadataBatch(final List<IBaseDataObject> records) {
+        this.records = new ArrayList<>(records);
+        this.rows = new Row[this.records.size()];
+        for (int r = 0; r < this.rows.length; r++) {
+            this.recordIndex.putIfAbsent(this.records.get(r), r);
+            this.rows[r] = row(this.records.get(r));
+        }
+    }
+
+    /**
+     * Find the batch in the filter params if there is one for this list
+     *
+     * @param params the filter params
+     * @param list the records the filter was called with
+     * @return the batch or null if none was built for exactly these records
+     */
+    @Nullable
+    public static MetadataBatch from(final Map<String, Object> params, final List<IBaseDataObject> list) {
+        final Object batch = params.get(IDropOffFilter.METADATA_BATCH);
+        if (batch instanceof MetadataBatch && ((MetadataBatch) batch).covers(list)) {
+            return (MetadataBatch) batch;
+        }
+        return null;
+    }
+
+    /**
+     * Find the batch in the filter params if there is one holding this record
+     *
+     * @param params the filter params
+     * @param d the record the filter was called with
+     * @return the batch or null if none holds d
+     */
+    @Nullable
+    public static MetadataBatch from(final Map<String, Object> params, final IBaseDataObject d) {
+        final Object batch = params.get(IDropOffFilter.METADATA_BATCH);
+        if (batch instanceof MetadataBatch && ((MetadataBatch) batch).indexOf(d) >= 0) {
+            return (MetadataBatch) batch;
+        }
+        return null;
+    }
+
+    /**
+     * Check whether a class, or one of its superclasses below base, declares its own version of a method. Filters use this
+     * to leave the batch alone when a subclass changes how metadata is read or written.
+     *
+     * @param type the class to check
+     * @param base the class that declares the method the batch stands in for
+     * @param name the method name
+     * @param parameterTypes the method parameter types
+     * @return true if the method is overridden below base
+     */
+    public static boolean overrides(final Class<?> type, final Class<?> base, final String name, final Class<?>... parameterTypes) {
+        for (Class<?> c = type; c != null && c != base; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod(name, parameterTypes);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // keep looking up the hierarchy
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param list records a filter was called with
+     * @return true if list holds the same records, in the same order, as this batch
+     */
+    public boolean covers(final List<IBaseDataObject> list) {
+        if (list.size() != this.records.size()) {
+            return false;
+        }
+        for (int r = 0; r < this.rows.length; r++) {
+            if (list.get(r) != this.records.get(r)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Resolve the metadata of a record again if it has changed since it was resolved
+     *
+     * @param record the index of the record
+     * @return true if the record had changed
+     */
+    public boolean refresh(final int record) {
+        final IBaseDataObject d = this.records.get(record);
+        if (isCurrent(this.rows[record], d)) {
+            return false;
+        }
+        this.rows[record] = row(d);
+        return true;
+    }
+
+    /**
+     * @return the number of records
+     */
+    public int size() {
+        return this.rows.length;
+    }
+
+    /**
+     * @param record the index of the record
+     * @return the record
+     */
+    public IBaseDataObject getRecord(final int record) {
+        return this.records.get(record);
+    }
+
+    /**
+     * @param d a record
+     * @return the index of d or -1 if it is not in this batch
+     */
+    public int indexOf(final IBaseDataObject d) {
+        final Integer r = this.recordIndex.get(d);
+        return r == null ? -1 : r;
+    }
+
+    /**
+     * @return the number of distinct keys in the family
+     */
+    public int getKeyCount() {
+        return this.keys.size();
+    }
+
+    /**
+     * @param key the index of a key
+     * @return the key
+     */
+    public String getKey(final int key) {
+        return this.keys.get(key);
+    }
+
+    /**
+     * @param key a metadata key
+     * @return the index of the key or -1 if no record has it
+     */
+    public int indexOf(final String key) {
+        final Integer k = this.keyIndex.get(key);
+        return k == null ? -1 : k;
+    }
+
+    /**
+     * @param record the index of the record
+     * @return the number of keys the record has
+     */
+    public int getFieldCount(final int record) {
+        return this.rows[record].keys.length;
+    }
+
+    /**
+     * @param record the index of the record
+     * @param field the position of a key in the record, from 0 to {@link #getFieldCount(int)}
+     * @return the index of the key at that position
+     */
+    public int getFieldKey(final int record, final int field) {
+        return this.rows[record].keys[field];
+    }
+
+    /**
+     * @param record the index of the record
+     * @param field the position of a key in the record
+     * @return the values, as {@link IBaseDataObject#getParameter(String)} would give them
+     */
+    public List<Object> getValues(final int record, final int field) {
+        return Arrays.asList(this.rows[record].values[field]);
+    }
+
+    /**
+     * @param record the index of the record
+     * @param key the index of a key
+     * @return the position of the key in the record or -1 if the record does not have it
+     */
+    public int fieldOf(final int record, final int key) {
+        final int[] recordKeys = this.rows[record].keys;
+        for (int i = 0; i < recordKeys.length; i++) {
+            if (recordKeys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The values joined the way {@link IBaseDataObject#getStringParameter(String)} joins them
+     *
+     * @param record the index of the record
+     * @param field the position of a key in the record
+     * @return the joined value or null if there is none
+     */
+    @Nullable
+    public String getStringValue(final int record, final int field) {
+        final Row row = this.rows[record];
+        if (row.joined == null) {
+            row.joined = new String[row.keys.length];
+        }
+        if (row.joined[field] == null) {
+            row.joined[field] = join(row.values[field]);
+        }
+        return row.joined[field];
+    }
+
+    /**
+     * @param record the index of the record
+     * @param key a metadata key
+     * @return the joined value or null if the record does not have the key
+     */
+    @Nullable
+    public String getStringValue(final int record, final String key) {
+        final int k = indexOf(key);
+        final int field = k < 0 ? -1 : fieldOf(record, k);
+        return field < 0 ? null : getStringValue(record, field);
+    }
+
+    /**
+     * The distinct values in their natural order
+     *
+     * @param record the index of the record
+     * @param field the position of a key in the record
+     * @return the sorted values or null if they cannot be sorted
+     */
+    @Nullable
+    Object[] getSortedValues(final int record, final int field) {
+        final Row row = this.rows[record];
+        if (row.sorted == null) {
+            row.sorted = new Object[row.keys.length][];
+        }
+        if (row.sorted[field] == null) {
+            try {
+                row.sorted[field] = new TreeSet<>(Arrays.asList(row.values[field])).toArray();
+            } catch (ClassCastException | NullPointerException e) {
+                // mixed or null values, leave it to the filter to cope as it always has
+                return null;
+            }
+        }
+        return row.sorted[field];
+    }
+
+    /**
+     * The UTF-8 encoding of each sorted value, null for values that are not strings
+     *
+     * @param record the index of the record
+     * @param field the position of a key in the record
+     * @return the encoded values lined up with {@link #getSortedValues(int, int)} or null if they cannot be sorted
+     */
+    @Nullable
+    byte[][] getSortedUtf8(final int record, final int field) {
+        final Object[] sorted = getSortedValues(record, field);
+        if (sorted == null) {
+            return null;
+        }
+        final Row row = this.rows[record];
+        if (row.utf8 == null) {
+            row.utf8 = new byte[row.keys.length][][];
+        }
+        if (row.utf8[field] == null) {
+            final byte[][] bytes = new byte[sorted.length][];
+            for (int i = 0; i < sorted.length; i++) {
+                if (sorted[i] instanceof String) {
+                    bytes[i] = this.encoded.computeIfAbsent((String) sorted[i], s -> s.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            row.utf8[field] = bytes;
+        }
+        return row.utf8[field];
+    }
+
+    private Row row(final IBaseDataObject d) {
+        final Map<String, Collection<Object>> parameters = d.getParameters();
+        final int[] recordKeys = new int[parameters.size()];
+        final Object[][] values = new Object[recordKeys.length][];
+        int i = 0;
+        for (final Map.Entry<String, Collection<Object>> entry : parameters.entrySet()) {
+            recordKeys[i] = intern(entry.getKey());
+            values[i] = entry.getValue().toArray();
+            i++;
+        }
+        return new Row(recordKeys, values);
+    }
+
+    /**
+     * Check the keys and values of the record are still the ones in the row, values are compared by identity
+     */
+    private boolean isCurrent(final Row row, final IBaseDataObject d) {
+        final Map<String, Collection<Object>> parameters = d.getParameters();
+        if (parameters.size() != row.keys.length) {
+            return false;
+        }
+        int i = 0;
+        for (final Map.Entry<String, Collection<Object>> entry : parameters.entrySet()) {
+            final Object[] values = row.values[i];
+            if (!entry.getKey().equals(this.keys.get(row.keys[i])) || entry.getValue().size() != values.length) {
+                return false;
+            }
+            int j = 0;
+            for (final Object value : entry.getValue()) {
+                if (value != values[j++]) {
+                    return false;
+                }
+            }
+            i++;
+        }
+        return true;
+    }
+
+    private int intern(final String key) {
+        final Integer k = this.keyIndex.get(key);
+        if (k != null) {
+            return k;
+        }
+        this.keys.add(key);
+        this.keyIndex.put(key, this.keys.size() - 1);
+        return this.keys.size() - 1;
+    }
+
+    @Nullable
+    private static String join(final Object[] values) {
+        if (values.length == 0) {
+            return null;
+        } else if (values.length == 1 && (values[0] instanceof String || values[0] == null)) {
+            return (String) values[0];
+        }
+        final StringBuilder sb = new StringBuilder();
+        for (final Object item : values) {
+            if (sb.length() > 0) {
+                sb.append(IBaseDataObject.DEFAULT_PARAM_SEPARATOR);
+            }
+            sb.append(item);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The metadata of one record
+     */
+    private static final class Row {
+        final int[] keys;
+        final Object[][] values;
+        @Nullable
+        String[] joined;
+        @Nullable
+        Object[][] sorted;
+        @Nullable
+        byte[][][] utf8;
+
+        Row(final int[] keys, final Object[][] values) {
+            this.keys = keys;
+            this.values = values;
+        }
+    }
+}
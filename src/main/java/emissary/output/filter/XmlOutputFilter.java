@@ -5,6 +5,10 @@ import emissary.config.Configurator;
 import emissary.core.IBaseDataObject;
 import emissary.output.DropOffPlace;
 import emissary.util.PayloadUtil;
+import emissary.util.xml.JDOMUtil;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
 
 import java.io.IOException;
 import java.util.List;
@@ -34,7 +38,22 @@ public class XmlOutputFilter extends AbstractRollableFilter {
 
     @Override
     public byte[] convert(final List<IBaseDataObject> list, final Map<String, Object> params) throws IOException {
-        return PayloadUtil.toXmlString(list).getBytes();
+        final MetadataBatch batch = MetadataBatch.from(params, list);
+        if (batch == null) {
+            return PayloadUtil.toXmlString(list).getBytes();
+        }
+
+        // Same document as PayloadUtil builds, with the metadata values already resolved
+        final Element root = new Element("payload-list");
+        for (int r = 0; r < batch.size(); r++) {
+            batch.refresh(r);
+            final Element meta = new Element("metadata");
+            for (int field = 0; field < batch.getFieldCount(r); field++) {
+                meta.addContent(PayloadUtil.toXml(batch.getKey(batch.getFieldKey(r, field)), batch.getStringValue(r, field)));
+            }
+            root.addContent(PayloadUtil.toXml(batch.getRecord(r), meta).detachRootElement());
+        }
+        return JDOMUtil.toString(new Document(root)).getBytes();
     }
 
     /**
@@ -71,6 +71,10 @@ public class JournaledCoalescer implements IJournaler, ICoalescer {
      * Max number of pooled outputs to create *
      */
     private final int poolsize;
+    /**
+     * Number of pooled outputs to create ahead of demand *
+     */
+    private final int preallocate;
     /**
      * File extension used while coalescing part files
      */
@@ -106,9 +110,23 @@ public class JournaledCoalescer implements IJournaler, ICoalescer {
      * @param poolsize The max number of outputs for the pool.
      */
     public JournaledCoalescer(final Path outPath, final FileNameGenerator fileNameGenerator, int poolsize) throws IOException, InterruptedException {
+        this(outPath, fileNameGenerator, poolsize, 0);
+    }
+
+    /**
+     * The Rollable with take all files in a Path and combine them into a single destination file on each roll.
+     *
+     * @param outPath The Path to use for reading input and writing combined output
+     * @param fileNameGenerator The FileNameGenerator to use for unique destination file names
+     * @param poolsize The max number of outputs for the pool.
+     * @param preallocate The number of outputs each pool creates ahead of demand.
+     */
+    public JournaledCoalescer(final Path outPath, final FileNameGenerator fileNameGenerator, int poolsize, int preallocate)
+            throws IOException, InterruptedException {
         this.outputPath = outPath.toAbsolutePath();
         this.fileNameGenerator = fileNameGenerator;
         this.poolsize = poolsize;
+        this.preallocate = preallocate;
         validateOutputPath();
         cleanupOrphanedRolledFiles();
         initializeNextPool();
@@ -158,7 +176,7 @@ public class JournaledCoalescer implements IJournaler, ICoalescer {
                 this.journaledPool.close();
             }
             Collection<Path> journals = JournalReader.getJournalPaths(outputPath);
-            this.journaledPool = new JournaledChannelPool(outputPath, this.fileNameGenerator.nextFileName(), poolsize);
+            this.journaledPool = new JournaledChannelPool(outputPath, this.fileNameGenerator.nextFileName(), poolsize, preallocate);
             LOG.debug("Generated new Journal file name: {}", this.journaledPool);
             return journals;
         } finally {
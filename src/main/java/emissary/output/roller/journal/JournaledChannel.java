@@ -10,6 +10,7 @@ import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nullable;
 
 /**
@@ -29,6 +30,8 @@ public class JournaledChannel extends OutputStream implements SeekableByteChanne
     final JournalWriter journal;
     @Nullable
     ByteBuffer directBuff;
+    // set while the channel is on its pool's free queue, so it is queued at most once
+    final AtomicBoolean pooled = new AtomicBoolean();
 
     JournaledChannel(final Path path, final String key, final int index) throws IOException {
         this.fc = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
@@ -1,5 +1,12 @@
 package emissary.output.roller.journal;
 
+import emissary.core.MetricsManager;
+import emissary.core.NamespaceException;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.codahale.metrics.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -7,38 +14,101 @@ import java.io.IOException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.Queue;
 import java.util.UUID;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nullable;
 
 /**
  * Pool implementation that utilizes a Journal to durably track state out written data. The implementation will create
  * up to the maximum configured output channels. Channels are lazily initialized to minimize resource utilization. The
  * Journal is only updated when files are created and committed.
+ * <p>
+ * Free channels are kept on a non-blocking queue and leases are counted with a semaphore, so obtaining and returning a
+ * channel does not take a lock once the channels exist. A pool may also be asked to keep a number of channels created
+ * ahead of demand, in which case a background thread creates them so writers rarely pay for file creation. The time
+ * spent waiting for a channel and how often a channel was ready are reported through the {@link MetricsManager}.
  */
 public class JournaledChannelPool implements AutoCloseable {
     public static final String EXTENSION = ".bgpart";
     private static final Logger LOG = LoggerFactory.getLogger(JournaledChannelPool.class);
     public static final int DEFAULT_MAX = 10;
-    private final ReentrantLock lock = new ReentrantLock();
-    private final Condition freeCondition = this.lock.newCondition();
+    // shared by all pools, creating a channel is short and pools are replaced on every roll
+    private static final ExecutorService ALLOCATOR = Executors.newSingleThreadExecutor(r -> {
+        final Thread t = new Thread(r, "JournaledChannelPool-allocator");
+        t.setDaemon(true);
+        return t;
+    });
     final int max;
     final Path directory;
     final String key;
-    private final Deque<JournaledChannel> free = new ArrayDeque<>();
-    private int created;
-    @Nullable
-    private JournaledChannel[] allchannels;
+    final int preallocate;
+    private final Queue<JournaledChannel> free = new ConcurrentLinkedQueue<>();
+    // one permit for each channel that is not leased
+    private final Semaphore available;
+    // guards creating channels and closing the pool
+    private final Object allocationLock = new Object();
+    private final AtomicBoolean allocating = new AtomicBoolean();
+    private volatile int created;
+    private volatile boolean closed;
+    private final JournaledChannel[] allchannels;
+    private final Timer waitTimer;
+    private final Meter readyMeter;
+    private final Meter createdMeter;
 
-    @SuppressWarnings("CheckedExceptionNotThrown")
     public JournaledChannelPool(final Path directory, final String key, final int max) throws IOException {
+        this(directory, key, max, 0);
+    }
+
+    /**
+     * Create a pool that keeps channels created ahead of demand
+     *
+     * @param directory where channels and journals are written
+     * @param key the key identifying the pool
+     * @param max the most channels to create
+     * @param preallocate how many free channels to keep created ahead of demand, 0 to create channels only when needed
+     * @throws IOException If there is some I/O problem.
+     */
+    @SuppressWarnings("CheckedExceptionNotThrown")
+    public JournaledChannelPool(final Path directory, final String key, final int max, final int preallocate) throws IOException {
         this.max = max;
         this.directory = directory;
         this.key = key;
+        this.preallocate = Math.min(Math.max(preallocate, 0), max);
+        this.available = new Semaphore(max);
         this.allchannels = new JournaledChannel[max];
+
+        final MetricRegistry metrics = metricRegistry();
+        this.waitTimer = metrics.timer(MetricRegistry.name(JournaledChannelPool.class, "wait"));
+        this.readyMeter = metrics.meter(MetricRegistry.name(JournaledChannelPool.class, "ready"));
+        this.createdMeter = metrics.meter(MetricRegistry.name(JournaledChannelPool.class, "created"));
+        metrics.gauge(MetricRegistry.name(JournaledChannelPool.class, "preallocationHitRate"), () -> hitRate(this.readyMeter, this.createdMeter));
+
+        schedulePreallocation();
+    }
+
+    // the fraction of leases that found a channel ready, built statically so the registry does not hold on to the pool
+    private static RatioGauge hitRate(final Meter ready, final Meter created) {
+        return new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(ready.getCount(), (double) ready.getCount() + created.getCount());
+            }
+        };
+    }
+
+    private static MetricRegistry metricRegistry() {
+        try {
+            return MetricsManager.lookup().getMetricRegistry();
+        } catch (NamespaceException e) {
+            LOG.debug("No MetricsManager found, pool metrics are not reported");
+            return new MetricRegistry();
+        }
     }
 
     int getFreeSize() {
@@ -51,7 +121,7 @@ public class JournaledChannelPool implements AutoCloseable {
 
     /**
      * Supplied key to identify the pool.
-     * 
+     *
      * @return key
      */
     public String getKey() {
@@ -61,99 +131,159 @@ public class JournaledChannelPool implements AutoCloseable {
     /**
      * Returns an available output from the pool. This method will block if there are no free objects available and the max
      * number of outputs has been created.
-     * 
+     *
      * @return an available KeyedOutput from the pool
      * @throws IOException If there is some I/O problem.
      * @throws InterruptedException If interrupted.
      */
     public KeyedOutput getFree() throws InterruptedException, IOException {
+        checkClosed();
+        final long start = System.nanoTime();
+        this.available.acquire();
+        this.waitTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
         JournaledChannel jc = null;
-        this.lock.lock();
         try {
             checkClosed();
             jc = findFree();
             jc.setPosition();
+            schedulePreallocation();
             return new KeyedOutput(this, jc);
         } catch (Throwable t) {
             if (jc != null) {
                 LOG.debug("Throwable occurred while obtaining channel. Returning to the pool. {}", jc.path, t);
                 free(jc);
+            } else {
+                this.available.release();
             }
             throw t;
-        } finally {
-            this.lock.unlock();
         }
     }
 
     /**
-     * Flushes underlying channel and writes journal entry, updating current position.
-     * 
+     * Flushes underlying channel and writes journal entry, updating current position. A channel that is already free is
+     * not queued again.
+     *
      * @param jc the JournaledChannel to flush
      */
     void free(final JournaledChannel jc) {
         if (jc == null) {
             throw new IllegalArgumentException("Cannot return a null JournaledChannel.");
         }
-        this.lock.lock();
-        try {
-            if (this.free.contains(jc) || !this.free.offer(jc)) {
-                LOG.warn("Could not return the channel to the pool {}", this.key);
-            }
-            // signal everyone since close and find may be waiting
-            this.freeCondition.signalAll();
-        } finally {
-            this.lock.unlock();
+        if (!jc.pooled.compareAndSet(false, true)) {
+            LOG.warn("Channel was already returned to the pool {}", this.key);
+            return;
+        }
+        if (!this.free.offer(jc)) {
+            jc.pooled.set(false);
+            LOG.warn("Could not return the channel to the pool {}", this.key);
+            return;
         }
+        this.available.release();
     }
 
     /**
      * Closes the underlying pool. This method will block if any resources have not been returned.
-     * 
+     *
      * @throws InterruptedException If interrupted.
      * @throws IOException If there is some I/O problem.
      */
     @Override
     public void close() throws InterruptedException, IOException {
-        this.lock.lock();
+        this.closed = true;
+        LOG.debug("Waiting for leased {} objects.", this.max - this.available.availablePermits());
+        this.available.acquire(this.max);
         try {
-            while (this.free.size() < this.created) {
-                LOG.debug("Waiting for leased {} objects.", this.created - this.free.size());
-                this.freeCondition.await();
-            }
-            for (final JournaledChannel fc : this.free) {
-                this.allchannels[fc.index].close();
+            synchronized (this.allocationLock) {
+                for (int i = 0; i < this.created; i++) {
+                    this.allchannels[i].close();
+                    this.allchannels[i] = null;
+                }
+                this.free.clear();
             }
-            this.allchannels = null;
         } finally {
-            this.lock.unlock();
+            // wake anyone still waiting so they see the pool is closed
+            this.available.release(this.max);
         }
     }
 
     private void checkClosed() throws ClosedChannelException {
-        if (this.allchannels == null) {
+        if (this.closed) {
             throw new ClosedChannelException();
         }
     }
 
-    private JournaledChannel findFree() throws InterruptedException, IOException {
-        // if nothing is available, and we can create additional channels, do it
-        // could get closed when we await
-        while (this.free.isEmpty()) {
-            if (this.created < this.max) {
-                createChannel();
-            } else {
-                this.freeCondition.await();
+    /**
+     * Take a free channel, creating one if none is ready. The caller holds a permit, so either a channel is free, one can
+     * still be created, or one is on its way back to the queue.
+     */
+    private JournaledChannel findFree() throws IOException {
+        JournaledChannel jc = pollFree();
+        if (jc != null) {
+            this.readyMeter.mark();
+            return jc;
+        }
+        while (jc == null) {
+            synchronized (this.allocationLock) {
                 checkClosed();
+                jc = pollFree();
+                if (jc == null && this.created < this.max) {
+                    jc = createChannel();
+                    this.createdMeter.mark();
+                    return jc;
+                }
+            }
+            if (jc == null) {
+                Thread.yield();
+                jc = pollFree();
             }
         }
-        return this.free.poll();
+        this.readyMeter.mark();
+        return jc;
+    }
+
+    @Nullable
+    private JournaledChannel pollFree() {
+        final JournaledChannel jc = this.free.poll();
+        if (jc != null) {
+            jc.pooled.set(false);
+        }
+        return jc;
+    }
+
+    /**
+     * Create a channel in the background if fewer than the preallocated number are free and more may be created
+     */
+    private void schedulePreallocation() {
+        if (this.preallocate > 0 && this.created < this.max && this.free.size() < this.preallocate && this.allocating.compareAndSet(false, true)) {
+            ALLOCATOR.execute(this::preallocate);
+        }
+    }
+
+    private void preallocate() {
+        try {
+            synchronized (this.allocationLock) {
+                while (!this.closed && this.created < this.max && this.free.size() < this.preallocate) {
+                    final JournaledChannel jc = createChannel();
+                    jc.pooled.set(true);
+                    this.free.offer(jc);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Could not create a channel ahead of demand for {}", this.key, e);
+        } finally {
+            this.allocating.set(false);
+        }
     }
 
-    private void createChannel() throws IOException {
+    // must hold the allocation lock
+    @SuppressWarnings("NonAtomicVolatileUpdate")
+    private JournaledChannel createChannel() throws IOException {
         final Path p = Paths.get(this.directory.toString(), this.key + "_" + UUID.randomUUID().toString() + EXTENSION);
         final JournaledChannel ko = new JournaledChannel(p, this.key, this.created);
-        this.allchannels[this.created++] = ko;
-        this.free.add(ko);
+        this.allchannels[this.created] = ko;
+        this.created++;
+        return ko;
     }
 
     Path getDirectory() {
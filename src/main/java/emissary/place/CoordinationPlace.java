@@ -1,7 +1,9 @@
 package emissary.place;
 
 import emissary.admin.PlaceStarter;
+import emissary.config.ConfigEntry;
 import emissary.core.EmissaryException;
+import emissary.core.Family;
 import emissary.core.Form;
 import emissary.core.IBaseDataObject;
 import emissary.core.Namespace;
@@ -13,13 +15,27 @@ import emissary.directory.DirectoryEntry;
 import emissary.directory.KeyManipulator;
 
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 
 import static emissary.core.constants.Configurations.OUTPUT_FORM;
@@ -33,6 +49,17 @@ import static emissary.core.constants.Configurations.OUTPUT_FORM;
  *
  * We only coordinate among places in the local Namespace. If the place specified is not initially in the local
  * namespace we attempt to create it. If it cannot be created it is not used.
+ *
+ * By default the places run one after another in the configured order. When COORDINATION_THREADS is greater than one,
+ * the places named by METADATA_ONLY entries are instead grouped into waves using their DEPENDS_ON_&lt;placeName&gt; entries:
+ * a place runs in the wave after the last place it depends on, and places without dependencies run in the first wave.
+ * Places in the same wave run concurrently, each on its own copy of the payload, and once the wave completes the
+ * parameter changes, processing errors, children and error form of each copy are merged back in configured order, so a
+ * later place wins when two places set the same parameter. Any other change a metadata-only place makes, such as to the
+ * data, current forms or file type, is dropped with a warning. Every other place runs alone on the payload itself, after
+ * all of the places configured before it and before all of the places configured after it. The shouldContinue and
+ * shouldSkip checks still see each place in configured order with the results of the places before it merged, and the
+ * work of a place they turn away is discarded.
  */
 public class CoordinationPlace extends ServiceProviderPlace {
 
@@ -51,6 +78,19 @@ public class CoordinationPlace extends ServiceProviderPlace {
     // set of coordination places that failed to be created/did not exist
     protected static final Set<String> failedCoordPlaceCreation = new LinkedHashSet<>();
 
+    // Prefix of the config entries naming the places a place must run after
+    protected static final String DEPENDS_ON_PREFIX = "DEPENDS_ON_";
+
+    // Place names mapped to the names of the places they depend on
+    protected Map<String, Set<String>> placeDependencies = new HashMap<>();
+
+    // Names of the places that only change parameters, which are the only places that can run concurrently
+    protected Set<String> metadataOnlyPlaces = new HashSet<>();
+
+    // Runs the places of a wave concurrently, null when coordinating serially
+    @Nullable
+    protected ExecutorService coordinationExecutor = null;
+
     /**
      * Create the place using the supplied configuration and location
      * 
@@ -100,6 +140,12 @@ public class CoordinationPlace extends ServiceProviderPlace {
      * <li>PUSH_OUTPUT_FORM: default=true, calls pushOutputForm when true, setOutputForm otherwise</li>
      * <li>SERVICE_COORDINATION: place entries to use for this coordination place, an ordered list of places that must
      * already be constructed</li>
+     * <li>COORDINATION_THREADS: default=1, when greater than one independent places run concurrently on this many
+     * threads</li>
+     * <li>DEPENDS_ON_&lt;placeName&gt;: name of a place coordinated earlier that the named place must run after, may be
+     * repeated</li>
+     * <li>METADATA_ONLY: name of a place that changes nothing but parameters, processing errors, the child count and an
+     * error form, which may run concurrently with other such places, may be repeated</li>
      * </ul>
      */
     protected void configurePlace() {
@@ -107,6 +153,19 @@ public class CoordinationPlace extends ServiceProviderPlace {
         pushForm = configG.findBooleanEntry("PUSH_OUTPUT_FORM", true);
         updateTransformHistory = configG.findBooleanEntry("UPDATE_TRANSFORM_HISTORY", false);
 
+        placeDependencies = new HashMap<>();
+        for (ConfigEntry entry : configG.findStringMatchEntries(DEPENDS_ON_PREFIX)) {
+            placeDependencies.computeIfAbsent(entry.getKey().substring(DEPENDS_ON_PREFIX.length()), k -> new LinkedHashSet<>())
+                    .add(entry.getValue());
+        }
+        metadataOnlyPlaces = new HashSet<>(configG.findEntries("METADATA_ONLY"));
+
+        shutDownCoordinationExecutor();
+        int threads = configG.findIntEntry("COORDINATION_THREADS", 1);
+        if (threads > 1) {
+            coordinationExecutor = Executors.newFixedThreadPool(threads, new CoordinationThreadFactory(getPlaceName()));
+        }
+
         placeKeys = configG.findEntries("SERVICE_COORDINATION");
         logger.debug("We got {} entries to coordinate", placeKeys.size());
 
@@ -207,6 +266,10 @@ public class CoordinationPlace extends ServiceProviderPlace {
      * @return the list of sprouted data objects
      */
     protected List<IBaseDataObject> coordinate(IBaseDataObject d, boolean hd) {
+        if (coordinationExecutor != null) {
+            return coordinateInWaves(d, hd);
+        }
+
         List<IBaseDataObject> sproutCollection = new ArrayList<>();
 
         boolean errorOccurred = false;
@@ -265,6 +328,434 @@ public class CoordinationPlace extends ServiceProviderPlace {
         return sproutCollection;
     }
 
+    /**
+     * Coordinate the places wave by wave, running the places of each wave concurrently. Every place of a wave is started
+     * at once, but {@link #shouldContinue(IBaseDataObject, IServiceProviderPlace)} and
+     * {@link #shouldSkip(IBaseDataObject, IServiceProviderPlace)} are still asked about each place in configured order,
+     * after the results of the places before it in the wave are merged. A place that is skipped or stopped that way has its
+     * work discarded, so a place that sets the stop condition stops the places after it in its own wave too.
+     *
+     * @param d the payload to process
+     * @param hd true if doing heavy-duty processing
+     * @return the list of sprouted data objects
+     */
+    private List<IBaseDataObject> coordinateInWaves(IBaseDataObject d, boolean hd) {
+        List<IBaseDataObject> sproutCollection = new ArrayList<>();
+
+        boolean errorOccurred = false;
+        boolean stopped = false;
+
+        for (List<IServiceProviderPlace> wave : planWaves(placeRefs)) {
+            // Start a wave of several places together, each on a copy that remembers what it started from
+            List<IBaseDataObject> copies = wave.size() > 1 ? copyPayload(d, wave) : null;
+            PayloadState base = copies != null ? new PayloadState(d) : null;
+            ConcurrentWave running = copies != null ? new ConcurrentWave(wave, copies, hd) : null;
+            int lastChild = base != null ? base.numChildren : 0;
+
+            try {
+                // Decide whether each place runs once the places before it are merged, as if they had run one at a time
+                for (int i = 0; i < wave.size(); i++) {
+                    IServiceProviderPlace p = wave.get(i);
+                    if (!shouldContinue(d, p)) {
+                        stopped = true;
+                        break;
+                    } else if (shouldSkip(d, p)) {
+                        if (running != null) {
+                            running.discard(i);
+                        }
+                        continue;
+                    }
+
+                    updateTransformHistory(d, p);
+
+                    PlaceOutcome outcome;
+                    if (running != null) {
+                        outcome = running.await(i);
+                        // number the children as if the places before it in the wave had run first
+                        lastChild = renumberChildren(d, outcome.sprouts, base.numChildren, Math.max(lastChild, d.getNumChildren()));
+                        mergeCopy(d, copies.get(i), p, base);
+                    } else {
+                        outcome = runInline(d, p, hd);
+                    }
+                    errorOccurred = outcome.errorOccurred;
+
+                    if (!shouldContinue(p, errorOccurred)) {
+                        stopped = true;
+                        break;
+                    }
+
+                    if (CollectionUtils.isNotEmpty(outcome.sprouts)) {
+                        sproutCollection.addAll(outcome.sprouts);
+                    }
+                }
+            } finally {
+                if (running != null) {
+                    running.close();
+                }
+            }
+
+            if (stopped) {
+                break;
+            }
+        }
+
+        applyForm(d, errorOccurred);
+
+        sproutHook(sproutCollection, d, hd);
+
+        // Allow derived classes a shot to clean up the parent
+        cleanUpHook(d);
+
+        return sproutCollection;
+    }
+
+    /**
+     * Group places into waves that can run concurrently. Each metadata-only place goes in the wave after the latest wave
+     * holding a place it depends on, and the places of a wave keep their configured order. Dependencies on places that
+     * are not coordinated before the dependent place are ignored. Every other place gets a wave of its own after all of
+     * the waves before it, and the places configured after it run in later waves.
+     *
+     * @param places the places in configured order
+     * @return the waves in the order they run
+     */
+    protected List<List<IServiceProviderPlace>> planWaves(List<IServiceProviderPlace> places) {
+        Map<String, Integer> waveByName = new HashMap<>();
+        List<List<IServiceProviderPlace>> waves = new ArrayList<>();
+        // the first wave places configured after a place that is not metadata-only can run in
+        int firstWave = 0;
+        for (IServiceProviderPlace p : places) {
+            int wave = firstWave;
+            if (metadataOnlyPlaces.contains(p.getPlaceName())) {
+                for (String dependency : placeDependencies.getOrDefault(p.getPlaceName(), Set.of())) {
+                    Integer dependencyWave = waveByName.get(dependency);
+                    if (dependencyWave != null) {
+                        wave = Math.max(wave, dependencyWave + 1);
+                    } else {
+                        logger.debug("Place {} depends on {} which is not coordinated before it", p.getPlaceName(), dependency);
+                    }
+                }
+            } else {
+                wave = waves.size();
+                firstWave = wave + 1;
+            }
+            waveByName.put(p.getPlaceName(), wave);
+            while (waves.size() <= wave) {
+                waves.add(new ArrayList<>());
+            }
+            waves.get(wave).add(p);
+        }
+        return waves;
+    }
+
+    private static final class PlaceOutcome {
+        @Nullable
+        final List<IBaseDataObject> sprouts;
+        final boolean errorOccurred;
+
+        PlaceOutcome(@Nullable List<IBaseDataObject> sprouts, boolean errorOccurred) {
+            this.sprouts = sprouts;
+            this.errorOccurred = errorOccurred;
+        }
+    }
+
+    private PlaceOutcome runInline(IBaseDataObject d, IServiceProviderPlace p, boolean hd) {
+        try (TimedResource tr = resourceWatcherStart(p)) {
+            assert tr != null; // to silence an unused resource warning
+            return runPlace(d, p, hd);
+        } finally {
+            if (Thread.interrupted()) {
+                logger.warn("Place {} was interrupted during execution.", p);
+            }
+        }
+    }
+
+    private PlaceOutcome runPlace(IBaseDataObject d, IServiceProviderPlace p, boolean hd) {
+        List<IBaseDataObject> sprouts = null;
+        boolean errorOccurred;
+        try {
+            if (hd) {
+                sprouts = p.agentProcessHeavyDuty(d);
+            } else {
+                p.agentProcessCall(d);
+            }
+            errorOccurred = d.currentForm().equals(Form.ERROR);
+        } catch (Exception ex) {
+            errorOccurred = handlePlaceException(p, hd, ex);
+        }
+        return new PlaceOutcome(sprouts, errorOccurred);
+    }
+
+    /**
+     * The places of a wave, each running on its own copy of the payload. The resources are timed from the coordinating
+     * thread, so a place that runs too long interrupts the wait for its outcome. Only the places past their own time limit
+     * are then cancelled and the others keep running, while an interrupt with no place past its limit cancels every place
+     * still running.
+     */
+    private final class ConcurrentWave {
+        private final List<IServiceProviderPlace> places;
+        private final boolean hd;
+        private final List<TimedResource> resources = new ArrayList<>();
+        private final List<Future<PlaceOutcome>> futures = new ArrayList<>();
+        private final PlaceOutcome[] outcomes;
+        // places whose work is not wanted, which are not reported when cancelling interrupts them
+        private final Set<Integer> discarded = ConcurrentHashMap.newKeySet();
+
+        ConcurrentWave(List<IServiceProviderPlace> places, List<IBaseDataObject> copies, boolean hd) {
+            this.places = places;
+            this.hd = hd;
+            this.outcomes = new PlaceOutcome[places.size()];
+            try {
+                for (int i = 0; i < places.size(); i++) {
+                    final int index = i;
+                    IServiceProviderPlace p = places.get(i);
+                    IBaseDataObject copy = copies.get(i);
+                    TimedResource tr = resourceWatcherStart(p);
+                    resources.add(tr);
+                    futures.add(coordinationExecutor.submit(() -> {
+                        try {
+                            return runPlace(copy, p, hd);
+                        } finally {
+                            tr.close();
+                            if (Thread.interrupted() && !discarded.contains(index)) {
+                                logger.warn("Place {} was interrupted during execution.", p);
+                            }
+                        }
+                    }));
+                }
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        /**
+         * Wait for a place to finish
+         *
+         * @param i the position of the place in the wave
+         * @return what the place did
+         */
+        PlaceOutcome await(int i) {
+            while (outcomes[i] == null) {
+                try {
+                    outcomes[i] = futures.get(i).get();
+                } catch (InterruptedException ex) {
+                    cancelOverdue(ex);
+                } catch (ExecutionException ex) {
+                    outcomes[i] = new PlaceOutcome(null, handlePlaceException(places.get(i), hd, ex));
+                }
+            }
+            return outcomes[i];
+        }
+
+        /**
+         * Stop a place whose work will not be used
+         *
+         * @param i the position of the place in the wave
+         */
+        void discard(int i) {
+            discarded.add(i);
+            futures.get(i).cancel(true);
+            resources.get(i).close();
+        }
+
+        /**
+         * Stop the places whose outcomes were not collected and stop timing them all
+         */
+        void close() {
+            for (int i = 0; i < futures.size(); i++) {
+                if (outcomes[i] == null) {
+                    discard(i);
+                }
+            }
+            for (TimedResource tr : resources) {
+                tr.close();
+            }
+        }
+
+        private void cancelOverdue(InterruptedException ex) {
+            long now = System.currentTimeMillis();
+            List<Integer> running = new ArrayList<>();
+            List<Integer> overdue = new ArrayList<>();
+            for (int i = 0; i < places.size(); i++) {
+                if (outcomes[i] == null && !discarded.contains(i) && !futures.get(i).isDone()) {
+                    running.add(i);
+                    if (resources.get(i).isOverdue(now)) {
+                        overdue.add(i);
+                    }
+                }
+            }
+            for (int i : overdue.isEmpty() ? running : overdue) {
+                IServiceProviderPlace p = places.get(i);
+                logger.warn("Place {} was interrupted during execution.", p);
+                futures.get(i).cancel(true);
+                // stops the resource watcher interrupting this thread again for the place
+                resources.get(i).close();
+                outcomes[i] = new PlaceOutcome(null, handlePlaceException(p, hd, ex));
+            }
+        }
+    }
+
+    /**
+     * Copy the payload for each place of a wave, recording the visit in the transform history of the copy the way it is
+     * recorded on the payload before a place runs alone
+     */
+    @Nullable
+    private List<IBaseDataObject> copyPayload(IBaseDataObject d, List<IServiceProviderPlace> places) {
+        List<IBaseDataObject> copies = new ArrayList<>(places.size());
+        try {
+            for (IServiceProviderPlace p : places) {
+                IBaseDataObject copy = d.clone();
+                updateTransformHistory(copy, p);
+                copies.add(copy);
+            }
+            return copies;
+        } catch (CloneNotSupportedException ex) {
+            logger.warn("Cannot copy {}, running the places one at a time", d.shortName(), ex);
+            return null;
+        }
+    }
+
+    /**
+     * What a payload held when it was copied for a wave
+     */
+    private static final class PayloadState {
+        final Map<String, List<Object>> parameters = new LinkedHashMap<>();
+        @Nullable
+        final String processingErrors;
+        final int numChildren;
+        final List<String> currentForms;
+        @Nullable
+        final String fileType;
+        final int dataLength;
+        final Set<String> alternateViewNames;
+        final int extractedRecordCount;
+        final int historySize;
+
+        PayloadState(IBaseDataObject d) {
+            for (Map.Entry<String, Collection<Object>> entry : d.getParameters().entrySet()) {
+                parameters.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            }
+            processingErrors = d.getProcessingError();
+            numChildren = d.getNumChildren();
+            currentForms = new ArrayList<>(d.getAllCurrentForms());
+            fileType = d.getFileType();
+            dataLength = d.dataLength();
+            alternateViewNames = new HashSet<>(d.getAlternateViewNames());
+            extractedRecordCount = d.getExtractedRecordCount();
+            historySize = d.getTransformHistory().size(true);
+        }
+    }
+
+    /**
+     * Give the children a place sprouted on its copy of the payload the numbers that follow those already used in the wave,
+     * so that names from different places do not collide. Children are named after the payload followed by
+     * {@link Family#SEP} and their number, and their own descendants share that prefix.
+     *
+     * @param d the payload
+     * @param sprouts the children sprouted from the copy
+     * @param numChildren the payload child count when the copy was made
+     * @param lastChild the highest child number used so far in the wave
+     * @return the highest child number used once the children are renumbered
+     */
+    private static int renumberChildren(IBaseDataObject d, @Nullable List<IBaseDataObject> sprouts, int numChildren, int lastChild) {
+        int offset = lastChild - numChildren;
+        if (CollectionUtils.isEmpty(sprouts) || d.getFilename() == null) {
+            return lastChild;
+        }
+        String prefix = d.getFilename() + Family.SEP;
+        int highest = lastChild;
+        for (IBaseDataObject sprout : sprouts) {
+            String name = sprout.getFilename();
+            if (name == null || !name.startsWith(prefix)) {
+                continue;
+            }
+            int end = prefix.length();
+            while (end < name.length() && Character.isDigit(name.charAt(end))) {
+                end++;
+            }
+            String rest = name.substring(end);
+            int number = NumberUtils.toInt(name.substring(prefix.length(), end), -1);
+            if (number <= numChildren || !(rest.isEmpty() || rest.startsWith(Family.SEP))) {
+                continue;
+            }
+            if (offset > 0) {
+                sprout.setFilename(prefix + (number + offset) + rest);
+                if (sprout.getBirthOrder() == number) {
+                    sprout.setBirthOrder(number + offset);
+                }
+            }
+            highest = Math.max(highest, number + offset);
+        }
+        return highest;
+    }
+
+    /**
+     * Apply what a metadata-only place changed on its copy of the payload to the payload, warning about changes that
+     * cannot be merged
+     *
+     * @param d the payload
+     * @param copy the copy the place processed
+     * @param p the place
+     * @param base the payload when the copy was made
+     */
+    private void mergeCopy(IBaseDataObject d, IBaseDataObject copy, IServiceProviderPlace p, PayloadState base) {
+        Map<String, Collection<Object>> changed = copy.getParameters();
+        for (Map.Entry<String, Collection<Object>> entry : changed.entrySet()) {
+            List<Object> values = new ArrayList<>(entry.getValue());
+            if (!values.equals(base.parameters.get(entry.getKey()))) {
+                d.putParameter(entry.getKey(), values);
+            }
+        }
+        for (String key : base.parameters.keySet()) {
+            if (!changed.containsKey(key)) {
+                d.deleteParameter(key);
+            }
+        }
+
+        String errors = copy.getProcessingError();
+        int known = base.processingErrors == null ? 0 : base.processingErrors.length();
+        if (errors != null && errors.length() > known) {
+            for (String error : errors.substring(known).split("\n")) {
+                if (!error.isEmpty()) {
+                    d.addProcessingError(error);
+                }
+            }
+        }
+
+        if (copy.getNumChildren() > base.numChildren) {
+            d.setNumChildren(d.getNumChildren() + copy.getNumChildren() - base.numChildren);
+        }
+
+        boolean error = Form.ERROR.equals(copy.currentForm());
+        if (error && !Form.ERROR.equals(d.currentForm())) {
+            d.replaceCurrentForm(Form.ERROR);
+        }
+
+        List<String> dropped = new ArrayList<>();
+        if (!error && !base.currentForms.equals(copy.getAllCurrentForms())) {
+            dropped.add("current forms");
+        }
+        if (!Objects.equals(base.fileType, copy.getFileType())) {
+            dropped.add("file type");
+        }
+        if (base.dataLength != copy.dataLength()) {
+            dropped.add("data");
+        }
+        if (!base.alternateViewNames.equals(copy.getAlternateViewNames())) {
+            dropped.add("alternate views");
+        }
+        if (base.extractedRecordCount != copy.getExtractedRecordCount()) {
+            dropped.add("extracted records");
+        }
+        if (base.historySize + (updateTransformHistory ? 1 : 0) != copy.getTransformHistory().size(true)) {
+            dropped.add("transform history");
+        }
+        if (!dropped.isEmpty()) {
+            logger.warn("Metadata-only place {} changed the {} of {}, which cannot be merged and was dropped", p.getPlaceName(), dropped,
+                    d.shortName());
+        }
+    }
+
     /**
      * Allow derived classes a shot to handle a place exception
      *
@@ -374,6 +865,35 @@ public class CoordinationPlace extends ServiceProviderPlace {
         return coordinate(d, true);
     }
 
+    @Override
+    public void shutDown() {
+        shutDownCoordinationExecutor();
+        super.shutDown();
+    }
+
+    private void shutDownCoordinationExecutor() {
+        if (coordinationExecutor != null) {
+            coordinationExecutor.shutdownNow();
+            coordinationExecutor = null;
+        }
+    }
+
+    private static final class CoordinationThreadFactory implements ThreadFactory {
+        final String prefix;
+        final AtomicInteger count = new AtomicInteger();
+
+        CoordinationThreadFactory(String placeName) {
+            this.prefix = placeName + "-coordination-";
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, prefix + count.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
     /**
      * Get method for the set of failed coordination places
      * 
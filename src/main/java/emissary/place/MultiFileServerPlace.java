@@ -68,6 +68,15 @@ public abstract class MultiFileServerPlace extends PickUpPlace implements IMulti
      */
     protected abstract void configurePlace() throws IOException;
 
+    /**
+     * Stop watching the type engine files before shutting down
+     */
+    @Override
+    public void shutDown() {
+        typeEngine.stopWatching();
+        super.shutDown();
+    }
+
     /**
      * Validate that we should process this data. Will reject null data or empty objects. Generally, all
      * MultiFileServerPlaces should invoke this method before executing {@link #process(IBaseDataObject)} or
@@ -5,16 +5,22 @@ import emissary.core.Family;
 import emissary.core.Form;
 import emissary.core.IBaseDataObject;
 import emissary.core.ResourceException;
+import emissary.core.channels.FileChannelFactory;
+import emissary.core.channels.SeekableByteChannelFactory;
 import emissary.directory.KeyManipulator;
 import emissary.kff.KffDataObjectHandler;
 import emissary.util.shell.Executrix;
 import emissary.util.shell.TempFileNames;
+import emissary.util.shell.TempWorkArea;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -58,6 +64,9 @@ public class MultiFileUnixCommandPlace extends MultiFileServerPlace implements I
     protected String charset = StandardCharsets.UTF_8.name();
     protected boolean singleOutputAsChild = false;
     protected boolean preserveParentData = false;
+    protected boolean zeroCopy = false;
+    @Nullable
+    protected TempWorkArea workArea = null;
 
     String placeDisplayName = "Some Place";
 
@@ -115,6 +124,15 @@ public class MultiFileUnixCommandPlace extends MultiFileServerPlace implements I
      * <li>OUTPUT_CHARSET: charset of the process output, default UTF-8</li>
      * <li>SINGLE_OUTPUT_AS_CHILD: If only one output file keep it as a child and do not replace the parent.</li>
      * <li>PRESERVE_PARENT_DATA: Stops the parent from getting replaced by output data</li>
+     * <li>ZERO_COPY: copy file-backed input file to file instead of reading it into memory, and attach output files to
+     * children as file-backed channels instead of reading them into memory, default false</li>
+     * <li>WORK_ROOT: directory to run commands in, such as a tmpfs like /dev/shm, default is the Executrix TEMP_DIR</li>
+     * <li>WORK_QUOTA_BYTES: most bytes of input and retained output this place keeps under WORK_ROOT, payloads that would
+     * exceed it run in TEMP_DIR instead, default 0 for no limit</li>
+     * <li>SWEEP_ORPHANS: remove temp directories and outputs of this place left in WORK_ROOT, or TEMP_DIR when WORK_ROOT is
+     * not set, by a previous run at startup, default false. Only enable it when no other process runs this place over the
+     * same directory</li>
+     * <li>ORPHAN_MIN_AGE_MILLIS: how old a temp directory must be to be swept, default 3600000 (1 hour)</li>
      * </ul>
      */
     @Override
@@ -156,6 +174,16 @@ public class MultiFileUnixCommandPlace extends MultiFileServerPlace implements I
             }
             fileTypesByExtension.put(tmp, name);
         }
+
+        zeroCopy = configG.findBooleanEntry("ZERO_COPY", zeroCopy);
+        String workRoot = configG.findStringEntry("WORK_ROOT", null);
+        if (workRoot != null) {
+            workArea = new TempWorkArea(Paths.get(workRoot), executrix.getPlaceName(), configG.findLongEntry("WORK_QUOTA_BYTES", 0L));
+        }
+        if (!keepFilesDebug && configG.findBooleanEntry("SWEEP_ORPHANS", false)) {
+            TempWorkArea sweepArea = workArea != null ? workArea : new TempWorkArea(Paths.get(executrix.getTmpDir()), executrix.getPlaceName(), 0L);
+            sweepArea.sweepOrphans(configG.findLongEntry("ORPHAN_MIN_AGE_MILLIS", 3600000L));
+        }
     }
 
 
@@ -341,16 +369,27 @@ public class MultiFileUnixCommandPlace extends MultiFileServerPlace implements I
                 continue;
             }
 
-            byte[] theData = Executrix.readDataFromFile(f.getAbsolutePath());
-            if (theData == null) {
-                logger.debug("Cannot read data from {}", f.getAbsolutePath());
-                continue;
+            byte[] theData = null;
+            if (!zeroCopy) {
+                theData = Executrix.readDataFromFile(f.getAbsolutePath());
+                if (theData == null) {
+                    logger.debug("Cannot read data from {}", f.getAbsolutePath());
+                    continue;
+                }
             }
 
             if (!preSprout(theData, parent, f, birthOrder, fileCount, newData)) {
                 continue;
             }
 
+            SeekableByteChannelFactory sbcf = null;
+            if (zeroCopy) {
+                sbcf = adoptOutputFile(f, tempDirName);
+                if (sbcf == null) {
+                    continue;
+                }
+            }
+
             Map<String, Object> metaData = new HashMap<>();
             if (setTitleToFile) {
                 metaData.put(DOCUMENT_TITLE, f.getName());
@@ -358,7 +397,19 @@ public class MultiFileUnixCommandPlace extends MultiFileServerPlace implements I
 
             List<String> tmpForms = getFormsFromFile(f);
 
-            IBaseDataObject dObj = DataObjectFactory.getInstance(theData, parent.getFilename() + Family.SEP + birthOrder, tmpForms.get(0));
+            IBaseDataObject dObj;
+            if (sbcf != null) {
+                try {
+                    dObj = DataObjectFactory.getInstance(new byte[0], parent.getFilename() + Family.SEP + birthOrder, tmpForms.get(0));
+                    dObj.setChannelFactory(sbcf);
+                } catch (RuntimeException e) {
+                    // nothing holds the adopted file, so remove it now
+                    FileChannelFactory.release(sbcf);
+                    throw e;
+                }
+            } else {
+                dObj = DataObjectFactory.getInstance(theData, parent.getFilename() + Family.SEP + birthOrder, tmpForms.get(0));
+            }
 
             dObj.putParameters(metaData);
             sprouts.add(dObj);
@@ -382,6 +433,43 @@ public class MultiFileUnixCommandPlace extends MultiFileServerPlace implements I
     }
 
 
+    /**
+     * Get the work area that owns entries of this place in a directory
+     *
+     * @param dir the directory, WORK_ROOT or TEMP_DIR
+     * @return the configured work area if it is over dir, otherwise one without a quota
+     */
+    private TempWorkArea getWorkArea(Path dir) {
+        if (workArea != null && workArea.getRoot().toAbsolutePath().equals(dir.toAbsolutePath())) {
+            return workArea;
+        }
+        return new TempWorkArea(dir, executrix.getPlaceName(), 0L);
+    }
+
+    /**
+     * Move an output file out of the temp directory so it can back a child without being read into memory. The file is
+     * deleted when the factory is passed to {@link FileChannelFactory#release} and its channels are closed, or once the
+     * child is no longer referenced.
+     *
+     * @param f the output file
+     * @param tempDirName the temp directory the command ran in
+     * @return a file-backed factory, or null if the file could not be moved
+     */
+    @Nullable
+    protected SeekableByteChannelFactory adoptOutputFile(File f, String tempDirName) {
+        // move next to the temp dir, on the same file system, so the file survives the temp dir cleanup
+        Path workDir = Paths.get(tempDirName).toAbsolutePath().getParent();
+        if (workDir == null) {
+            return null;
+        }
+        try {
+            return getWorkArea(workDir).adopt(f.toPath(), workDir);
+        } catch (IOException e) {
+            logger.warn("Cannot retain output file {}", f.getAbsolutePath(), e);
+            return null;
+        }
+    }
+
     /**
      * Determines the initial forms for a new data object based on the configuration settings and the file name. This method
      * may be customized in sub-classes, but at least one form value must be returned!
@@ -438,7 +526,7 @@ public class MultiFileUnixCommandPlace extends MultiFileServerPlace implements I
     /**
      * Override hook when an attachment begins processing
      * 
-     * @param data the bytes of content for the attachment
+     * @param data the bytes of content for the attachment, null when ZERO_COPY is set
      * @param parent the original payload
      * @param f the file the content comes from
      * @param birthOrder for this attachment
@@ -446,7 +534,7 @@ public class MultiFileUnixCommandPlace extends MultiFileServerPlace implements I
      * @param newParentData accumulator for replacement parent data
      * @return true to continue, false to skip this attachment
      */
-    protected boolean preSprout(byte[] data, IBaseDataObject parent, File f, int birthOrder, int numSubParts, StringBuilder newParentData) {
+    protected boolean preSprout(@Nullable byte[] data, IBaseDataObject parent, File f, int birthOrder, int numSubParts, StringBuilder newParentData) {
         logger.debug("preSprout hook on {} order={}", f.getName(), birthOrder);
         return true;
     }
@@ -454,7 +542,7 @@ public class MultiFileUnixCommandPlace extends MultiFileServerPlace implements I
     /**
      * Override hook when an attachment finished processing
      * 
-     * @param data the bytes of content for the attachment
+     * @param data the bytes of content for the attachment, null when ZERO_COPY is set
      * @param parent the original payload
      * @param f the file the content comes from
      * @param birthOrder for this attachment
@@ -463,7 +551,7 @@ public class MultiFileUnixCommandPlace extends MultiFileServerPlace implements I
      * @param newParentData accumulator for replacement parent data
      * @param theSprout the new data object
      */
-    protected void postSprout(byte[] data, IBaseDataObject parent, File f, int birthOrder, int numSubParts, int actualFileCount,
+    protected void postSprout(@Nullable byte[] data, IBaseDataObject parent, File f, int birthOrder, int numSubParts, int actualFileCount,
             StringBuilder newParentData, IBaseDataObject theSprout) {
         logger.debug("postSprout hook on {} order={}", f.getName(), birthOrder);
     }
@@ -564,7 +652,11 @@ public class MultiFileUnixCommandPlace extends MultiFileServerPlace implements I
         // Replace parent if single child and singleOutputAsChild is false
         if (executrix.getOutput().equals("FILE") && entries.size() == 1 && contentFile == null && !singleOutputAsChild) {
             IBaseDataObject d = entries.get(0);
-            tData.setData(d.data());
+            if (zeroCopy) {
+                tData.setChannelFactory(d.getChannelFactory());
+            } else {
+                tData.setData(d.data());
+            }
             if (keepParentHashesForSingleChild) {
                 KffDataObjectHandler.removeHash(d);
             }
@@ -615,8 +707,9 @@ public class MultiFileUnixCommandPlace extends MultiFileServerPlace implements I
             return sprouts;
         }
 
-        // Validate data
-        if (tData.data() == null) {
+        // Validate data, file-backed input in zero copy mode is linked rather than read
+        Path inputPath = zeroCopy ? FileChannelFactory.getPath(tData.getChannelFactory()) : null;
+        if (inputPath == null && tData.data() == null) {
             logger.debug("Received null data: {}", tData);
             tData.addProcessingError("NULL data in " + placeName + ".process");
             tData.pushCurrentForm(newErrorForm);
@@ -633,10 +726,21 @@ public class MultiFileUnixCommandPlace extends MultiFileServerPlace implements I
 
         File f = null;
         int result = -1;
+        long reserved = 0;
         try {
-            // make the directory and write the input file.
-            TempFileNames names = executrix.writeInputDataToNewTempDir(tData.data(), start, len);
+            // make the directory and write the input file, in the work root if the quota allows
+            TempFileNames names;
+            if (workArea != null && workArea.reserve(len)) {
+                reserved = len;
+                names = executrix.createTempFilenames(workArea.getRoot().toString(), workArea.getOwnerToken());
+            } else {
+                if (workArea != null) {
+                    logger.debug("Work quota of {} bytes exceeded, using {}", workArea.getQuotaBytes(), executrix.getTmpDir());
+                }
+                names = executrix.createTempFilenames(executrix.getTmpDir(), getWorkArea(Paths.get(executrix.getTmpDir())).getOwnerToken());
+            }
             f = new File(names.getInputFilename());
+            writeInputFile(tData, start, len, inputPath, f);
             logger.debug("Wrote file out to {}", f.getPath());
 
             // Create the command string and run it
@@ -668,13 +772,16 @@ public class MultiFileUnixCommandPlace extends MultiFileServerPlace implements I
             if (files != null && !files.isEmpty()) {
                 sprouts = sproutResults(tData, files, f.getParent(), parentData);
             }
-        } catch (RuntimeException ex) {
+        } catch (RuntimeException | IOException ex) {
             logger.error("Problem in command execution", ex);
         } finally {
             // Delete the temporary directory and all of its contents.
             if (f != null) {
                 cleanupFiles(f.getParentFile());
             }
+            if (workArea != null) {
+                workArea.release(reserved);
+            }
         }
 
         // If there was no result, then report it in 2 places.
@@ -686,6 +793,26 @@ public class MultiFileUnixCommandPlace extends MultiFileServerPlace implements I
         return sprouts;
     }
 
+    /**
+     * Write the input file for the command, copying the file when the whole payload is already in one. The input is never
+     * linked, so a command that changes its input cannot change the payload.
+     *
+     * @param tData the payload to process
+     * @param start offset in data to start
+     * @param len length of data to use
+     * @param inputPath the file backing the payload or null
+     * @param f the input file to create
+     */
+    protected void writeInputFile(IBaseDataObject tData, int start, int len, @Nullable Path inputPath, File f) throws IOException {
+        if (inputPath != null && start == 0 && len == Files.size(inputPath)) {
+            Files.createDirectories(f.toPath().getParent());
+            Files.copy(inputPath, f.toPath());
+            logger.debug("Copied input {} to {}", inputPath, f.getPath());
+        } else {
+            Executrix.writeDataToFile(tData.data(), start, len, f.getPath(), false);
+        }
+    }
+
     /**
      * Execute the command and args in the array
      * 
@@ -4,9 +4,11 @@ import emissary.core.Form;
 import emissary.core.IBaseDataObject;
 import emissary.core.ResourceException;
 import emissary.directory.KeyManipulator;
+import emissary.util.shell.CoProcessPool;
 import emissary.util.shell.Executrix;
 import emissary.util.shell.TempFileNames;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -36,6 +38,8 @@ public class UnixCommandPlace extends ServiceProviderPlace {
     protected String logfilename;
 
     protected Executrix executrix;
+    @Nullable
+    protected CoProcessPool coProcessPool = null;
 
     /**
      * Create the place from the specified config file or resource
@@ -94,8 +98,17 @@ public class UnixCommandPlace extends ServiceProviderPlace {
      * <li>OUTPUT_CHARSET: charset of the process output, default 8859_1</li>
      * <li>KEEP_FILES_DEBUG: when true don't clean up after exec is finished, default false</li>
      * <li>LOG_FILE_NAME: name of output file to translate into logger commands, default: [servicename].log from key</li>
+     * <li>CO_PROCESS_COMMAND: when set, payloads are sent to a pool of long-lived workers started with /bin/sh -c and this
+     * command instead of forking EXEC_COMMAND for each payload, see {@link CoProcessPool} for the framing</li>
+     * <li>CO_PROCESS_POOL_SIZE: number of co-process workers, default 1</li>
+     * <li>CO_PROCESS_MAX_PAYLOADS: payloads after which a worker is replaced, default 10000, 0 for no limit</li>
+     * <li>CO_PROCESS_MAX_MILLIS: lifetime after which a worker is replaced, default 0 for no limit</li>
+     * <li>CO_PROCESS_MAX_RETRIES: times a payload whose worker fails is retried on another worker, default 1</li>
+     * <li>CO_PROCESS_HEALTH_CHECK_MILLIS: how often idle workers are checked and replaced if unhealthy, default 60000, 0
+     * to disable</li>
      * </ul>
-     * Also all of the config values read by emissary.util.shell.Executrix are needed here
+     * Also all of the config values read by emissary.util.shell.Executrix are needed here. The Executrix
+     * PROCESS_MAX_MILLIS also limits each co-process request.
      */
     protected void configurePlace() {
         doSynchronized = configG.findBooleanEntry("SYNCHRONIZED_PROCESS", false);
@@ -119,6 +132,25 @@ public class UnixCommandPlace extends ServiceProviderPlace {
         executrix = new Executrix(configG);
         logfilename = configG.findStringEntry("LOG_FILE_NAME", KeyManipulator.getServiceName(keys.get(0)) + ".log");
         logger.debug("Configured {} type process with charset {}", executrix.getOutput(), charset);
+
+        final String coProcessCommand = configG.findStringEntry("CO_PROCESS_COMMAND", null);
+        if (coProcessCommand != null) {
+            try {
+                final CoProcessPool pool = new CoProcessPool(new String[] {"/bin/sh", "-c", coProcessCommand},
+                        configG.findIntEntry("CO_PROCESS_POOL_SIZE", 1),
+                        configG.findLongEntry("CO_PROCESS_MAX_PAYLOADS", 10000L),
+                        configG.findLongEntry("CO_PROCESS_MAX_MILLIS", 0L),
+                        executrix.getProcessMaxMillis());
+                pool.setMaxRetries(configG.findIntEntry("CO_PROCESS_MAX_RETRIES", 1));
+                final long healthCheckMillis = configG.findLongEntry("CO_PROCESS_HEALTH_CHECK_MILLIS", 60000L);
+                if (healthCheckMillis > 0) {
+                    pool.startHealthChecks(healthCheckMillis);
+                }
+                setCoProcessPool(pool);
+            } catch (IOException e) {
+                logger.error("Cannot start co-process pool, falling back to a process per payload: {}", coProcessCommand, e);
+            }
+        }
     }
 
     /**
@@ -130,6 +162,19 @@ public class UnixCommandPlace extends ServiceProviderPlace {
         executrix = e;
     }
 
+    /**
+     * Set a pool of co-process workers to send payloads to instead of forking a process for each, closing any previous
+     * pool
+     * 
+     * @param pool the new pool or null to fork a process per payload
+     */
+    public void setCoProcessPool(@Nullable CoProcessPool pool) {
+        if (coProcessPool != null && coProcessPool != pool) {
+            coProcessPool.close();
+        }
+        coProcessPool = pool;
+    }
+
     /**
      * Set the output type programatically
      */
@@ -279,6 +324,10 @@ public class UnixCommandPlace extends ServiceProviderPlace {
      */
     @SuppressWarnings("CatchingUnchecked")
     protected byte[] runCommandOn(byte[] data) throws ResourceException {
+        if (coProcessPool != null) {
+            return coProcess(coProcessPool, data);
+        }
+
         TempFileNames names = executrix.createTempFilenames();
         String tempDirName = names.getTempDir();
         String inputFileName = names.getInputFilename();
@@ -324,6 +373,42 @@ public class UnixCommandPlace extends ServiceProviderPlace {
 
     }
 
+    /**
+     * Send the data to a pooled co-process worker, no temp files are used
+     * 
+     * @param pool the workers to use
+     * @param data the bytes to run the command on
+     * @return byte array of output or null on error
+     */
+    @Nullable
+    protected byte[] coProcess(CoProcessPool pool, @Nullable byte[] data) throws ResourceException {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int result;
+        try {
+            result = pool.execute(data, out);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceException(e); // framework notification to stop
+        }
+        if (result != 0) {
+            logger.warn("co-process error: status {}", result);
+            return null;
+        }
+
+        byte[] outputData = out.toByteArray();
+        int length = outputData.length;
+        if (perlChop) {
+            while (length > 0 && (outputData[length - 1] == '\n' || outputData[length - 1] == '\r')) {
+                length--;
+            }
+        }
+        return length == outputData.length ? outputData : Arrays.copyOf(outputData, length);
+    }
+
     /**
      * Hook to add command ouput as an alternate view
      * 
@@ -437,6 +522,15 @@ public class UnixCommandPlace extends ServiceProviderPlace {
 
     }
 
+    /**
+     * Stop any co-process workers along with the normal shutdown
+     */
+    @Override
+    public void shutDown() {
+        setCoProcessPool(null);
+        super.shutDown();
+    }
+
     /**
      * Get data to process
      *
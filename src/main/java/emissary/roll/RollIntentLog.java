@@ -0,0 +1,105 @@
+package emissary.roll;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Records which rolls are in progress so a roll interrupted by a crash can be finished when the process restarts. Before
+ * a roll starts a marker named for its roller is written and synced to disk, and the marker is removed once the roll
+ * completes. A marker found at startup means the last roll never completed. Markers are found again after a restart by
+ * name, so each tracked roller must have a name of its own.
+ */
+public class RollIntentLog {
+    static final Logger log = LoggerFactory.getLogger(RollIntentLog.class);
+
+    public static final String EXTENSION = ".rollintent";
+
+    private final Path directory;
+
+    /**
+     * Create a log keeping its markers in a directory
+     *
+     * @param directory where markers are kept, created if needed
+     * @throws IOException if the directory cannot be created
+     */
+    public RollIntentLog(final Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Record that a roll is starting
+     *
+     * @param name the roller name
+     * @return true if the marker was written
+     */
+    public boolean begin(final String name) {
+        final Path marker = marker(name);
+        final Path tmp = directory.resolve(marker.getFileName() + ".tmp");
+        try {
+            try (FileChannel fc = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                final ByteBuffer content = ByteBuffer.wrap((name + "\n" + System.currentTimeMillis() + "\n").getBytes(StandardCharsets.UTF_8));
+                while (content.hasRemaining()) {
+                    fc.write(content);
+                }
+                fc.force(true);
+            }
+            Files.move(tmp, marker, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory();
+            return true;
+        } catch (IOException e) {
+            log.warn("Unable to record roll intent for {} in {}", name, directory, e);
+            return false;
+        }
+    }
+
+    /**
+     * Record that a roll completed
+     *
+     * @param name the roller name
+     * @return true if a marker was removed
+     */
+    public boolean complete(final String name) {
+        try {
+            final boolean removed = Files.deleteIfExists(marker(name));
+            syncDirectory();
+            return removed;
+        } catch (IOException e) {
+            log.warn("Unable to clear roll intent for {} in {}", name, directory, e);
+            return false;
+        }
+    }
+
+    /**
+     * @param name the roller name
+     * @return true if a roll was started and never completed
+     */
+    public boolean isPending(final String name) {
+        return Files.exists(marker(name));
+    }
+
+    Path marker(final String name) {
+        return directory.resolve(name.replaceAll("[^A-Za-z0-9._-]", "_") + EXTENSION);
+    }
+
+    // make the rename or delete itself durable, not every platform allows opening a directory
+    private void syncDirectory() {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            log.debug("Unable to sync directory {}", directory, e);
+        }
+    }
+}
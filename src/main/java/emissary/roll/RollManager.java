@@ -9,24 +9,44 @@ import org.slf4j.LoggerFactory;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 
 /**
  * RollManager handles all incremental rolls for configured objects within the framework
+ * <p>
+ * The scheduler only decides when a roll is due, from each Roller's schedule, progress and {@link RollPolicy}, and the
+ * rolls themselves run on a separate bounded pool of workers so one slow roll does not hold up the others. A Roller is
+ * queued at most once at a time. When a roll intent directory is configured, every roll is recorded there while it runs
+ * so a roll interrupted by a crash is recovered when the Roller is added again.
  */
 public class RollManager implements PropertyChangeListener {
     static final Logger log = LoggerFactory.getLogger(RollManager.class);
     public static final String CFG_ROLL_MANAGER_THREADS = "ROLL_MANAGER_THREADS";
+    public static final String CFG_ROLL_MANAGER_WORKERS = "ROLL_MANAGER_WORKERS";
+    public static final String CFG_ROLL_INTENT_DIRECTORY = "ROLL_INTENT_DIRECTORY";
+    public static final String CFG_ROLL_POLICY_CHECK_MILLIS = "ROLL_POLICY_CHECK_MILLIS";
     int executorThreadCount = 10;
+    int workerThreadCount = 10;
+    long policyCheckMillis = 1000L;
     ScheduledThreadPoolExecutor exec;
+    ExecutorService workers;
+    @Nullable
+    RollIntentLog intentLog;
 
-    final HashSet<Roller> rollers = new HashSet<>();
+    final Set<Roller> rollers = ConcurrentHashMap.newKeySet();
     // SINGLETON
     @Nullable
     @SuppressWarnings("NonFinalStaticField")
@@ -61,16 +81,32 @@ public class RollManager implements PropertyChangeListener {
     protected void init(Configurator configG) {
         ArrayList<Roller> cfgRollers = new ArrayList<>();
         executorThreadCount = configG.findIntEntry(CFG_ROLL_MANAGER_THREADS, executorThreadCount);
+        workerThreadCount = configG.findIntEntry(CFG_ROLL_MANAGER_WORKERS, executorThreadCount);
+        policyCheckMillis = configG.findLongEntry(CFG_ROLL_POLICY_CHECK_MILLIS, policyCheckMillis);
+        String intentDirectory = configG.findStringEntry(CFG_ROLL_INTENT_DIRECTORY, null);
+        if (intentDirectory != null) {
+            try {
+                intentLog = new RollIntentLog(Paths.get(intentDirectory));
+            } catch (IOException e) {
+                log.warn("Unable to use roll intent directory {}, interrupted rolls will not be recovered", intentDirectory, e);
+            }
+        }
         for (String roller : configG.findEntries("ROLLABLE")) {
             try {
                 Map<String, String> map = configG.findStringMatchMap(roller + "_");
-                cfgRollers.add(RollUtil.buildRoller(map));
+                Roller r = RollUtil.buildRoller(map);
+                r.setName(roller);
+                cfgRollers.add(r);
             } catch (RuntimeException e) {
                 log.warn("Unable to configure Rollable for: {}", roller);
             }
         }
 
-        exec = new RollScheduledExecutor(executorThreadCount, new RMThreadFactory());
+        exec = new RollScheduledExecutor(executorThreadCount, new RMThreadFactory("RollManager-daemon-"));
+        workers = Executors.newFixedThreadPool(workerThreadCount, new RMThreadFactory("RollManager-worker-"));
+        if (policyCheckMillis > 0) {
+            var unused = exec.scheduleWithFixedDelay(this::checkPolicies, policyCheckMillis, policyCheckMillis, TimeUnit.MILLISECONDS);
+        }
         for (Roller r : cfgRollers) {
             addRoller(r);
         }
@@ -79,32 +115,90 @@ public class RollManager implements PropertyChangeListener {
     public final void addRoller(Roller r) {
         boolean time = r.getTimeUnit() != null && r.getPeriod() > 0L;
         boolean progress = r.getMax() > 0;
+        boolean policy = r.getPolicy() != null;
         if (time) {
             if (log.isInfoEnabled()) {
                 log.info("Scheduling Rollable {} at {} {}", r.getRollable().getClass(), r.getPeriod(), r.getTimeUnit().name());
             }
-            var unused = exec.scheduleAtFixedRate(r, r.getPeriod(), r.getPeriod(), r.getTimeUnit());
+            var unused = exec.scheduleAtFixedRate(() -> dispatch(r), r.getPeriod(), r.getPeriod(), r.getTimeUnit());
         }
-        if (progress) {
+        if (progress || policy) {
             r.addPropertyChangeListener(this);
         }
-        if (time || progress) {
+        if (time || progress || policy) {
             rollers.add(r);
+            if (intentLog != null) {
+                trackRolls(r, intentLog);
+            }
+            if (r.isRecoveryPending()) {
+                dispatch(r);
+            }
         } else {
-            log.error("Roller not scheduled. Time or progress must be set: Class={} Max={} Interval={} {}", r.getClass().getName(), r.getMax(),
-                    r.getPeriod(), r.getTimeUnit());
+            log.error("Roller not scheduled. Time, progress or a policy must be set: Class={} Max={} Interval={} {}", r.getClass().getName(),
+                    r.getMax(), r.getPeriod(), r.getTimeUnit());
+        }
+    }
+
+    /**
+     * Record the rolls of a Roller in the intent log unless another Roller already uses its marker
+     */
+    private void trackRolls(Roller r, RollIntentLog intents) {
+        synchronized (rollers) {
+            Path marker = intents.marker(r.getName());
+            for (Roller other : rollers) {
+                if (other != r && other.getIntentLog() != null && intents.marker(other.getName()).equals(marker)) {
+                    log.warn("Rolls of {} are not tracked, another roller is already named {}", r.getRollable().getClass().getName(), r.getName());
+                    return;
+                }
+            }
+            r.setIntentLog(intents);
         }
     }
 
     @Override
     public void propertyChange(PropertyChangeEvent evt) {
         if (rollers.contains((Roller) evt.getNewValue())) {
-            Roller r = (Roller) evt.getNewValue();
-            // only schedule one time when we're notified
-            if (r.setProgressScheduled()) {
-                exec.execute((Roller) evt.getNewValue());
-            }
+            dispatch((Roller) evt.getNewValue());
+        }
+    }
 
+    /**
+     * Queue a roll on the workers unless the Roller is already queued or rolling
+     *
+     * @param r the Roller to run
+     */
+    void dispatch(Roller r) {
+        // only schedule one time when we're notified
+        if (!r.setProgressScheduled()) {
+            return;
+        }
+        try {
+            workers.execute(() -> roll(r));
+        } catch (RejectedExecutionException e) {
+            r.clearProgressScheduled();
+            log.debug("Roll of {} not queued, the RollManager is shutting down", r.getName());
+        }
+    }
+
+    private static void roll(Roller r) {
+        try {
+            r.run();
+        } catch (RuntimeException ex) {
+            Rollable rollable = r.getRollable();
+            log.error("Unhandled Throwable in Rollable, {}. To String: {}", rollable.getClass(), rollable.toString(), ex);
+        }
+    }
+
+    /**
+     * Roll anything whose policy limits on age or usable space are reached
+     */
+    void checkPolicies() {
+        long now = System.currentTimeMillis();
+        for (Roller r : rollers) {
+            RollPolicy policy = r.getPolicy();
+            if (policy != null && policy.hasTimedLimits() && r.isPolicyDue(now)) {
+                dispatch(r);
+            }
         }
     }
 
@@ -132,11 +226,27 @@ public class RollManager implements PropertyChangeListener {
 
     public static void shutdown() {
         rollManager.exec.shutdown();
+        rollManager.workers.shutdown();
+        try {
+            if (!rollManager.workers.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.warn("Rolls still running at shutdown");
+            }
+        } catch (InterruptedException ex) {
+            log.warn("Interrupted waiting for running rolls", ex);
+            Thread.currentThread().interrupt();
+        }
         log.info("Closing all rollers ({})", rollManager.rollers.size());
         for (Roller roller : rollManager.rollers) {
             Rollable r = roller.getRollable();
+            RollIntentLog intents = roller.getIntentLog();
             try {
+                if (intents != null) {
+                    intents.begin(roller.getName());
+                }
                 r.roll();
+                if (intents != null) {
+                    intents.complete(roller.getName());
+                }
                 r.close();
             } catch (IOException ex) {
                 log.warn("Error while closing Rollable: {}", r.getClass(), ex);
@@ -147,10 +257,15 @@ public class RollManager implements PropertyChangeListener {
 
     private static final class RMThreadFactory implements ThreadFactory {
         final AtomicInteger count = new AtomicInteger();
+        final String prefix;
+
+        RMThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
 
         @Override
         public Thread newThread(Runnable r) {
-            Thread t = new Thread(r, "RollManager-daemon-" + count.getAndIncrement());
+            Thread t = new Thread(r, prefix + count.getAndIncrement());
             t.setDaemon(true);
             return t;
         }
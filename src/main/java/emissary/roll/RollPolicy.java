@@ -0,0 +1,160 @@
+package emissary.roll;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.annotation.Nullable;
+
+/**
+ * Limits that make a {@link Roller} roll its {@link Rollable} before its scheduled time. A roll is due as soon as any
+ * configured limit is reached: the bytes or records written since the last roll, the age of that output, or the usable
+ * space left where it is written. A limit of 0 is not checked, and the age and space limits only apply once something
+ * has been written.
+ */
+public final class RollPolicy {
+    static final Logger log = LoggerFactory.getLogger(RollPolicy.class);
+
+    private final long maxBytes;
+    private final long maxRecords;
+    private final long maxAgeMillis;
+    private final long minFreeBytes;
+    @Nullable
+    private final Path freeSpacePath;
+
+    private RollPolicy(final Builder builder) {
+        this.maxBytes = builder.maxBytes;
+        this.maxRecords = builder.maxRecords;
+        this.maxAgeMillis = builder.maxAgeMillis;
+        this.minFreeBytes = builder.minFreeBytes;
+        this.freeSpacePath = builder.freeSpacePath;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Check the limits that can be reached by writing
+     *
+     * @param bytes bytes written since the last roll
+     * @param records records written since the last roll
+     * @return true if the bytes or records limit is reached
+     */
+    public boolean isSizeDue(final long bytes, final long records) {
+        return (maxBytes > 0 && bytes >= maxBytes) || (maxRecords > 0 && records >= maxRecords);
+    }
+
+    /**
+     * Check every limit
+     *
+     * @param bytes bytes written since the last roll
+     * @param records records written since the last roll
+     * @param ageMillis time since the last roll
+     * @return true if any limit is reached
+     */
+    public boolean isDue(final long bytes, final long records, final long ageMillis) {
+        if (isSizeDue(bytes, records)) {
+            return true;
+        }
+        if (bytes <= 0 && records <= 0) {
+            return false;
+        }
+        return (maxAgeMillis > 0 && ageMillis >= maxAgeMillis) || isLowOnSpace();
+    }
+
+    /**
+     * @return true if the usable space where output is written is below the minimum
+     */
+    public boolean isLowOnSpace() {
+        if (minFreeBytes <= 0 || freeSpacePath == null) {
+            return false;
+        }
+        try {
+            return Files.getFileStore(freeSpacePath).getUsableSpace() < minFreeBytes;
+        } catch (IOException e) {
+            log.warn("Unable to check usable space for {}", freeSpacePath, e);
+            return false;
+        }
+    }
+
+    /**
+     * @return true if a limit that needs periodic checking is set
+     */
+    public boolean hasTimedLimits() {
+        return maxAgeMillis > 0 || (minFreeBytes > 0 && freeSpacePath != null);
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getMaxRecords() {
+        return maxRecords;
+    }
+
+    public long getMaxAgeMillis() {
+        return maxAgeMillis;
+    }
+
+    public long getMinFreeBytes() {
+        return minFreeBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "RollPolicy[maxBytes=" + maxBytes + ", maxRecords=" + maxRecords + ", maxAgeMillis=" + maxAgeMillis + ", minFreeBytes=" + minFreeBytes
+                + ", freeSpacePath=" + freeSpacePath + "]";
+    }
+
+    public static final class Builder {
+        private long maxBytes;
+        private long maxRecords;
+        private long maxAgeMillis;
+        private long minFreeBytes;
+        @Nullable
+        private Path freeSpacePath;
+
+        private Builder() {}
+
+        /**
+         * @param maxBytes roll once this many bytes are written, 0 to not limit
+         */
+        public Builder maxBytes(final long maxBytes) {
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        /**
+         * @param maxRecords roll once this many records are written, 0 to not limit
+         */
+        public Builder maxRecords(final long maxRecords) {
+            this.maxRecords = maxRecords;
+            return this;
+        }
+
+        /**
+         * @param maxAgeMillis roll once output is this old, 0 to not limit
+         */
+        public Builder maxAgeMillis(final long maxAgeMillis) {
+            this.maxAgeMillis = maxAgeMillis;
+            return this;
+        }
+
+        /**
+         * @param path where output is written
+         * @param minFreeBytes roll when less than this many bytes are usable at the path, 0 to not check
+         */
+        public Builder minFreeBytes(final Path path, final long minFreeBytes) {
+            this.freeSpacePath = path;
+            this.minFreeBytes = minFreeBytes;
+            return this;
+        }
+
+        public RollPolicy build() {
+            return new RollPolicy(this);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package emissary.roll;
 import emissary.config.Configurator;
 import emissary.core.Factory;
 
+import java.nio.file.Paths;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
@@ -35,7 +36,9 @@ public class RollUtil {
      * CLASS - the fully qualified Rollable class name to instantiate <br>
      * TIME_UNIT - The time unit to roll on (MINUTES, SECONDS, etc) <br>
      * TIME_PERIOD - A long value for the TimeUnit multiplier. <br>
-     * PROGRESS_MAX - A long value for progress based rolls
+     * PROGRESS_MAX - A long value for progress based rolls <br>
+     * MAX_BYTES, MAX_RECORDS, MAX_AGE_MILLIS - Optional {@link RollPolicy} limits on bytes, records and age <br>
+     * MIN_FREE_BYTES, FREE_SPACE_PATH - Optional {@link RollPolicy} limit on usable space at a path
      * 
      * @param config a map containing expected configuration values
      * @return a newly configured Roller
@@ -47,7 +50,32 @@ public class RollUtil {
         TimeUnit t = getUnit(config.get("TIME_UNIT"));
         long period = getLong(config.get("TIME_PERIOD"));
         long max = getLong(config.get("PROGRESS_MAX"));
-        return new Roller(max, t, period, r);
+        Roller roller = new Roller(max, t, period, r);
+        roller.setPolicy(buildPolicy(config));
+        return roller;
+    }
+
+    /**
+     * Builds a RollPolicy from a map of options using the keys described in {@link #buildRoller(Map)}
+     *
+     * @param config a map containing expected configuration values
+     * @return the policy, or null if no limits are configured
+     */
+    @Nullable
+    public static RollPolicy buildPolicy(Map<String, String> config) {
+        long maxBytes = getLong(config.get("MAX_BYTES"));
+        long maxRecords = getLong(config.get("MAX_RECORDS"));
+        long maxAgeMillis = getLong(config.get("MAX_AGE_MILLIS"));
+        long minFreeBytes = getLong(config.get("MIN_FREE_BYTES"));
+        String freeSpacePath = config.get("FREE_SPACE_PATH");
+        if (maxBytes <= 0 && maxRecords <= 0 && maxAgeMillis <= 0 && (minFreeBytes <= 0 || freeSpacePath == null)) {
+            return null;
+        }
+        RollPolicy.Builder builder = RollPolicy.builder().maxBytes(maxBytes).maxRecords(maxRecords).maxAgeMillis(maxAgeMillis);
+        if (freeSpacePath != null) {
+            builder.minFreeBytes(Paths.get(freeSpacePath), minFreeBytes);
+        }
+        return builder.build();
     }
 
     // convert a long from a string or return 0
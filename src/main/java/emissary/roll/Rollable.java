@@ -18,4 +18,12 @@ public interface Rollable extends Closeable {
      * @return true if this object is currently rolling; false otherwise
      */
     boolean isRolling();
+
+    /**
+     * Called before any other roll when the last roll of this object was interrupted, for example by a crash.
+     * Implementations may complete or undo the interrupted roll; by default it is simply rolled again.
+     */
+    default void recover() {
+        roll();
+    }
 }
@@ -9,6 +9,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.Nullable;
 
 /**
  * Stateful object for the RollManager to track progress of a provided Rollable.
@@ -30,6 +31,17 @@ public class Roller implements Runnable {
     private final ReentrantLock lock = new ReentrantLock();
     private long lastRun;
     private final AtomicBoolean progressSchedule = new AtomicBoolean(false);
+    // bytes and records written and when writing started, since the last roll
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong records = new AtomicLong();
+    private volatile long windowStart = System.currentTimeMillis();
+    @Nullable
+    private volatile RollPolicy policy;
+    @Nullable
+    private volatile String name;
+    @Nullable
+    private volatile RollIntentLog intentLog;
+    private volatile boolean recoveryPending;
 
     @Deprecated
     @SuppressWarnings("InconsistentOverloads")
@@ -78,6 +90,99 @@ public class Roller implements Runnable {
         }
     }
 
+    /**
+     * Record a write to the Rollable, firing a roll if the policy size limits are reached
+     *
+     * @param byteCount the number of bytes written
+     */
+    public final void recordWrite(long byteCount) {
+        long b = bytes.addAndGet(byteCount);
+        long n = records.incrementAndGet();
+        RollPolicy p = policy;
+        if (p != null && p.isSizeDue(b, n)) {
+            support.firePropertyChange("roll", null, this);
+        }
+    }
+
+    public final long getBytes() {
+        return bytes.get();
+    }
+
+    public final long getRecords() {
+        return records.get();
+    }
+
+    /**
+     * @param now the current time in millis
+     * @return true if the policy says a roll is due
+     */
+    public final boolean isPolicyDue(long now) {
+        RollPolicy p = policy;
+        return p != null && p.isDue(bytes.get(), records.get(), now - windowStart);
+    }
+
+    @Nullable
+    public final RollPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Set limits that roll before the scheduled time
+     *
+     * @param policy the limits, null for none
+     */
+    public final void setPolicy(@Nullable RollPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * @return the name used to track rolls of this Rollable, the Rollable class name unless set
+     */
+    public final String getName() {
+        String n = name;
+        return n == null ? r.getClass().getName() : n;
+    }
+
+    public final void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return true if a name was set, which rolls must have to be tracked
+     */
+    public final boolean hasName() {
+        return name != null;
+    }
+
+    /**
+     * Track the rolls of this Rollable, recovering first if its last roll never completed. Only a roller with a name set
+     * can be tracked, because several rollers of the same Rollable class would otherwise share one intent.
+     *
+     * @param intentLog where roll intents are recorded, null to not track
+     */
+    public final void setIntentLog(@Nullable RollIntentLog intentLog) {
+        if (intentLog != null && !hasName()) {
+            log.warn("Rolls of {} are not tracked, the roller has no name", r.getClass().getName());
+            this.intentLog = null;
+            this.recoveryPending = false;
+            return;
+        }
+        this.intentLog = intentLog;
+        this.recoveryPending = intentLog != null && intentLog.isPending(getName());
+        if (recoveryPending) {
+            log.warn("Last roll of {} did not complete and will be recovered", getName());
+        }
+    }
+
+    @Nullable
+    public final RollIntentLog getIntentLog() {
+        return intentLog;
+    }
+
+    public final boolean isRecoveryPending() {
+        return recoveryPending;
+    }
+
     public final long getMax() {
         return max;
     }
@@ -106,7 +211,10 @@ public class Roller implements Runnable {
         lock.lock();
         try {
             progress = new AtomicLong();
+            bytes.set(0L);
+            records.set(0L);
             lastRun = start;
+            windowStart = start;
         } finally {
             lock.unlock();
         }
@@ -121,6 +229,11 @@ public class Roller implements Runnable {
         return progressSchedule.compareAndSet(false, true);
     }
 
+    /* clears the flag when a scheduled execution will not run */
+    protected void clearProgressScheduled() {
+        progressSchedule.set(false);
+    }
+
     @Override
     public void run() {
         try {
@@ -129,11 +242,25 @@ public class Roller implements Runnable {
                 log.debug("Rollable target {} already rolling", r.getClass());
                 return;
             }
-            if (!shouldRoll(start)) {
+            boolean recovering = recoveryPending;
+            if (!recovering && !shouldRoll(start)) {
                 return;
             }
-            log.debug("Beginning roll for {}", r.getClass());
-            r.roll();
+            RollIntentLog intents = intentLog;
+            if (intents != null) {
+                intents.begin(getName());
+            }
+            if (recovering) {
+                log.info("Recovering interrupted roll for {}", r.getClass());
+                r.recover();
+                recoveryPending = false;
+            } else {
+                log.debug("Beginning roll for {}", r.getClass());
+                r.roll();
+            }
+            if (intents != null) {
+                intents.complete(getName());
+            }
             long time = (System.currentTimeMillis() - start) / 1000L;
             resetProgress(start);
             log.info("Completed roll for {} in {} seconds", r.getClass(), time);
@@ -152,6 +279,10 @@ public class Roller implements Runnable {
      * configured: - Time based roll happened and a progress run is scheduled - Progress roll happened between schduled runs
      */
     private boolean shouldRoll(long start) {
+        // policy limits roll regardless of the schedule
+        if (isPolicyDue(start)) {
+            return true;
+        }
         // verify both time and progress are set
         // if we're below max we'll check the interval
         if (period > 0 && max > 0 && progress.get() < max) {
@@ -28,13 +28,19 @@ import emissary.spi.SPILoader;
 import ch.qos.logback.classic.ViewStatusMessagesServlet;
 import com.google.common.annotations.VisibleForTesting;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.eclipse.jetty.alpn.server.ALPNServerConnectionFactory;
+import org.eclipse.jetty.http.HttpMethod;
 import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http2.HTTP2Cipher;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.http2.server.HTTP2ServerConnectionFactory;
 import org.eclipse.jetty.security.ConstraintMapping;
 import org.eclipse.jetty.security.ConstraintSecurityHandler;
 import org.eclipse.jetty.security.HashLoginService;
 import org.eclipse.jetty.security.LoginService;
 import org.eclipse.jetty.security.authentication.DigestAuthenticator;
 import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Handler;
 import org.eclipse.jetty.server.HttpConfiguration;
 import org.eclipse.jetty.server.HttpConnectionFactory;
 import org.eclipse.jetty.server.SecureRequestCustomizer;
@@ -43,6 +49,7 @@ import org.eclipse.jetty.server.ServerConnector;
 import org.eclipse.jetty.server.SslConnectionFactory;
 import org.eclipse.jetty.server.handler.ContextHandler;
 import org.eclipse.jetty.server.handler.HandlerList;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
 import org.eclipse.jetty.servlet.DefaultServlet;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
@@ -168,7 +175,7 @@ public class EmissaryServer {
             // secure some of the contexts
             final HandlerList securedHandlers = new HandlerList();
             securedHandlers.addHandler(lbConfigHandler);
-            securedHandlers.addHandler(apiHandler);
+            securedHandlers.addHandler(cmd.isGzipEnabled() ? buildGzipHandler(apiHandler) : apiHandler);
             securedHandlers.addHandler(mvcHandler);
             securedHandlers.addHandler(staticHandler);
             security.setHandler(securedHandlers);
@@ -726,8 +733,25 @@ public class EmissaryServer {
      * @param server the Jetty HTTP Servlet Server
      * @return server connector that is the primary connector for the Jetty server over TCP/IP
      */
-    private static ServerConnector createHttpConnector(Server server) {
-        return new ServerConnector(server);
+    private ServerConnector createHttpConnector(Server server) {
+        return createHttpConnector(server, cmd.isHttp2Enabled());
+    }
+
+    /**
+     * Create an insecure http connector. With HTTP/2 enabled the connector also accepts h2c, either as an upgrade from
+     * HTTP/1.1 or from clients that start with HTTP/2, and still serves HTTP/1.1 clients.
+     *
+     * @param server the Jetty HTTP Servlet Server
+     * @param http2 true to accept h2c as well as HTTP/1.1
+     * @return server connector that is the primary connector for the Jetty server over TCP/IP
+     */
+    @VisibleForTesting
+    static ServerConnector createHttpConnector(Server server, boolean http2) {
+        if (!http2) {
+            return new ServerConnector(server);
+        }
+        HttpConfiguration httpConfig = new HttpConfiguration();
+        return new ServerConnector(server, new HttpConnectionFactory(httpConfig), new HTTP2CServerConnectionFactory(httpConfig));
     }
 
     /**
@@ -745,11 +769,39 @@ public class EmissaryServer {
         HttpConfiguration httpsConfig = new HttpConfiguration(httpConfig);
         httpsConfig.addCustomizer(createSecureRequestCustomizer());
 
+        SslContextFactory.Server sslContextFactory = getSslContextFactory();
+        if (!cmd.isHttp2Enabled()) {
+            return new ServerConnector(server,
+                    new SslConnectionFactory(sslContextFactory, HttpVersion.HTTP_1_1.asString()),
+                    new HttpConnectionFactory(httpsConfig));
+        }
+
+        // clients pick h2 or http/1.1 during the TLS handshake, those that do not ask get http/1.1
+        sslContextFactory.setCipherComparator(HTTP2Cipher.COMPARATOR);
+        ALPNServerConnectionFactory alpn = new ALPNServerConnectionFactory();
+        alpn.setDefaultProtocol(HttpVersion.HTTP_1_1.asString());
         return new ServerConnector(server,
-                new SslConnectionFactory(getSslContextFactory(), HttpVersion.HTTP_1_1.asString()),
+                new SslConnectionFactory(sslContextFactory, alpn.getProtocol()),
+                alpn,
+                new HTTP2ServerConnectionFactory(httpsConfig),
                 new HttpConnectionFactory(httpsConfig));
     }
 
+    /**
+     * Compress responses for clients that accept gzip. The API answers with XML and JSON, which shrink a lot, and the
+     * {@link EmissaryClient} accepts gzip and decompresses transparently.
+     *
+     * @param handler the handler whose responses are compressed
+     * @return a handler wrapping the given handler
+     */
+    @VisibleForTesting
+    static GzipHandler buildGzipHandler(Handler handler) {
+        GzipHandler gzipHandler = new GzipHandler();
+        gzipHandler.setIncludedMethods(HttpMethod.GET.asString(), HttpMethod.POST.asString());
+        gzipHandler.setHandler(handler);
+        return gzipHandler;
+    }
+
     /**
      * SecureRequestCustomizer extracts the attribute from an SSLContext and sets them on the request according to Servlet
      * Specification Requirements. Jetty defaults for the SecureRequestCustomizer are:
@@ -0,0 +1,205 @@
+package emissary.server.api;
+
+import emissary.client.EmissaryClient;
+import emissary.client.EmissaryResponse;
+import emissary.client.response.BaseEntity;
+import emissary.config.ConfigUtil;
+import emissary.config.Configurator;
+import emissary.config.ServiceConfigGuide;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.core5.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+import static emissary.server.api.ApiUtils.stripPeerString;
+
+/**
+ * Sends the same request to every peer in the cluster at once and gathers the answers. Each cluster call waits at most
+ * the peer timeout, no matter how many peers there are. A peer that fails or does not answer in time is reported as an
+ * error in the result instead of failing or stalling the whole call.
+ * <p>
+ * Requests are sent with {@link EmissaryClient#sendAsync}, so every peer is asked at once without holding a thread per
+ * peer. Successful answers are cached for a short time, and calls made while a request to the same peer is in flight
+ * share it, so a dashboard polling several cluster endpoints does not multiply the load on every peer. This object can
+ * be configured by providing a ClusterFanOut.cfg with the following:
+ *
+ * <pre>
+ * PEER_TIMEOUT_MILLIS = "[How long to wait for each peer, default 10000]"
+ * CACHE_TTL_MILLIS = "[How long an answer is reused, 0 to always ask, default 2000]"
+ * </pre>
+ */
+public class ClusterFanOut {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterFanOut.class);
+
+    static final String CFG_PEER_TIMEOUT = "PEER_TIMEOUT_MILLIS";
+    static final String CFG_CACHE_TTL = "CACHE_TTL_MILLIS";
+    static final long DFLT_PEER_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+    static final long DFLT_CACHE_TTL = TimeUnit.SECONDS.toMillis(2);
+
+    private final EmissaryClient client;
+    private final long peerTimeoutMillis;
+    private final long cacheTtlMillis;
+    private final LongSupplier clock;
+    private final Map<String, Request> requests = new ConcurrentHashMap<>();
+
+    private static final class Holder {
+        // created on first use so the client and its config are only loaded by servers that use the cluster api
+        static final ClusterFanOut INSTANCE = new ClusterFanOut();
+    }
+
+    /**
+     * Get the shared instance, configured from ClusterFanOut.cfg
+     */
+    public static ClusterFanOut getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private ClusterFanOut() {
+        this(loadConfig());
+    }
+
+    private ClusterFanOut(final Configurator config) {
+        this(new EmissaryClient(), config.findLongEntry(CFG_PEER_TIMEOUT, DFLT_PEER_TIMEOUT), config.findLongEntry(CFG_CACHE_TTL, DFLT_CACHE_TTL),
+                () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+    }
+
+    ClusterFanOut(final EmissaryClient client, final long peerTimeoutMillis, final long cacheTtlMillis, final LongSupplier clock) {
+        Validate.isTrue(peerTimeoutMillis > 0, "Required: peerTimeoutMillis > 0!");
+        this.client = client;
+        this.peerTimeoutMillis = peerTimeoutMillis;
+        this.cacheTtlMillis = Math.max(cacheTtlMillis, 0);
+        this.clock = clock;
+        // a peer that stops answering should not hold a connection much longer than the callers wait for it
+        this.client.setResponseTimeout((int) Math.min(peerTimeoutMillis, Integer.MAX_VALUE));
+    }
+
+    private static Configurator loadConfig() {
+        try {
+            return ConfigUtil.getConfigInfo(ClusterFanOut.class);
+        } catch (IOException e) {
+            logger.warn("Cannot read ClusterFanOut config, using defaults: {}", e.getMessage());
+            return new ServiceConfigGuide();
+        }
+    }
+
+    /**
+     * Ask every peer for an endpoint and append their answers to an entity
+     *
+     * @param peers directory keys of the peers, as returned by {@link ApiUtils#lookupPeers()}
+     * @param endpoint the endpoint to ask for, relative to the peer, e.g. api/agents
+     * @param type the entity type the endpoint answers with
+     * @param entity the local answer, which the peer answers and errors are appended to
+     * @return the entity
+     */
+    public <T extends BaseEntity> T gather(final Collection<String> peers, final String endpoint, final Class<T> type, final T entity) {
+        final long start = clock.getAsLong();
+        final long deadline = start + peerTimeoutMillis;
+        removeExpired(start);
+
+        final List<String> urls = new ArrayList<>(peers.size());
+        final List<CompletableFuture<EmissaryResponse>> answers = new ArrayList<>(peers.size());
+        for (final String peer : peers) {
+            final String url = stripPeerString(peer) + endpoint;
+            urls.add(url);
+            answers.add(request(url, start));
+        }
+
+        for (int i = 0; i < urls.size(); i++) {
+            final String url = urls.get(i);
+            try {
+                final EmissaryResponse response = answers.get(i).get(Math.max(deadline - clock.getAsLong(), 0), TimeUnit.MILLISECONDS);
+                if (response.getStatus() == HttpStatus.SC_OK) {
+                    final T remote = response.getContent(type);
+                    if (remote != null) {
+                        entity.append(remote);
+                    }
+                } else {
+                    entity.addError(url + ": " + response.getContentString());
+                }
+            } catch (TimeoutException e) {
+                logger.debug("No answer from {} in {}ms", url, peerTimeoutMillis);
+                entity.addError(url + ": no answer in " + peerTimeoutMillis + "ms");
+            } catch (ExecutionException e) {
+                logger.debug("Request to {} failed", url, e.getCause());
+                entity.addError(url + ": " + e.getCause());
+            } catch (CancellationException e) {
+                entity.addError(url + ": cancelled");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                entity.addError(url + ": interrupted");
+            }
+        }
+        return entity;
+    }
+
+    /**
+     * Forget all cached answers
+     */
+    public void clearCache() {
+        requests.clear();
+    }
+
+    /**
+     * Abandon the requests in flight and forget all cached answers
+     */
+    public void shutDown() {
+        requests.values().forEach(r -> r.response.cancel(false));
+        requests.clear();
+    }
+
+    private CompletableFuture<EmissaryResponse> request(final String url, final long now) {
+        final Request request =
+                requests.compute(url, (k, current) -> current != null && current.expires > now ? current : new Request(now + cacheTtlMillis));
+        if (request.started.compareAndSet(false, true)) {
+            try {
+                client.sendAsync(SimpleRequestBuilder.get(url).build()).whenComplete((response, t) -> {
+                    if (t == null) {
+                        request.response.complete(response);
+                    } else {
+                        request.response.completeExceptionally(t);
+                    }
+                });
+            } catch (RuntimeException e) {
+                request.response.completeExceptionally(e);
+            }
+            // only successful answers are kept
+            request.response.whenComplete((response, t) -> {
+                if (t != null || response.getStatus() != HttpStatus.SC_OK || cacheTtlMillis == 0) {
+                    requests.remove(url, request);
+                }
+            });
+        }
+        return request.response;
+    }
+
+    private void removeExpired(final long now) {
+        requests.values().removeIf(r -> r.expires <= now && r.response.isDone());
+    }
+
+    private static final class Request {
+        final long expires;
+        final CompletableFuture<EmissaryResponse> response = new CompletableFuture<>();
+        final AtomicBoolean started = new AtomicBoolean();
+
+        Request(final long expires) {
+            this.expires = expires;
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package emissary.server.api;
 
-import emissary.client.EmissaryClient;
 import emissary.client.response.PlaceList;
 import emissary.client.response.PlacesResponseEntity;
 import emissary.core.EmissaryException;
@@ -13,14 +12,10 @@ import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
-import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Set;
-
 import static emissary.server.api.ApiUtils.lookupPeers;
-import static emissary.server.api.ApiUtils.stripPeerString;
 
 /**
  * The agents Emissary API endpoint. Currently contains the local (/api/places) call and cluster (/api/clusterPlaces)
@@ -51,13 +46,7 @@ public class Places {
             entity.setLocal(lookupPlaces().getLocal());
 
             // Get all of our peers
-            Set<String> peers = lookupPeers();
-            EmissaryClient client = new EmissaryClient();
-            for (String peer : peers) {
-                String remoteEndPoint = stripPeerString(peer) + PLACES_ENDPOINT;
-                PlacesResponseEntity remoteEntity = client.send(new HttpGet(remoteEndPoint)).getContent(PlacesResponseEntity.class);
-                entity.append(remoteEntity);
-            }
+            ClusterFanOut.getInstance().gather(lookupPeers(), PLACES_ENDPOINT, PlacesResponseEntity.class, entity);
             return Response.ok().entity(entity).build();
         } catch (EmissaryException e) {
             // This should never happen since we already saw if it exists
@@ -1,6 +1,5 @@
 package emissary.server.api;
 
-import emissary.client.EmissaryClient;
 import emissary.client.response.MapResponseEntity;
 import emissary.core.EmissaryException;
 import emissary.core.Namespace;
@@ -13,14 +12,10 @@ import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
-import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Set;
-
 import static emissary.server.api.ApiUtils.lookupPeers;
-import static emissary.server.api.ApiUtils.stripPeerString;
 
 /**
  * The version Emissary API endpoint. Currently, contains the local (/api/version) call and cluster
@@ -31,6 +26,8 @@ import static emissary.server.api.ApiUtils.stripPeerString;
 public class Version {
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
+    public static final String VERSION_ENDPOINT = "api/version";
+
     private static final emissary.util.Version version = new emissary.util.Version();
 
     @GET
@@ -50,13 +47,7 @@ public class Version {
             entity.append(lookupVersion());
 
             // Get all of our peers
-            Set<String> peers = lookupPeers();
-            EmissaryClient client = new EmissaryClient();
-            for (String peer : peers) {
-                String remoteEndPoint = stripPeerString(peer) + "api/version";
-                MapResponseEntity remoteEntity = client.send(new HttpGet(remoteEndPoint)).getContent(MapResponseEntity.class);
-                entity.append(remoteEntity);
-            }
+            ClusterFanOut.getInstance().gather(lookupPeers(), VERSION_ENDPOINT, MapResponseEntity.class, entity);
             return Response.ok().entity(entity).build();
         } catch (EmissaryException e) {
             // This should never happen since we already saw if it exists
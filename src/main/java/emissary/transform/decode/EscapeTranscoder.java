@@ -0,0 +1,295 @@
+package emissary.transform.decode;
+
+import emissary.util.CharacterCounterSet;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import javax.annotation.Nullable;
+
+/**
+ * Base for transcoders that replace escape sequences starting with a marker byte. Bytes between escapes are copied in
+ * runs, decoded characters are written as UTF-8 directly into the output buffer. An escape that may continue past the
+ * end of the buffered input is held back until more input arrives or the input ends, so escapes split across reads are
+ * decoded the same as escapes read whole.
+ */
+public abstract class EscapeTranscoder extends Transcoder {
+
+    /** Smallest buffer allowed, larger than any escape {@value} */
+    public static final int MIN_BUFFER_SIZE = 64;
+
+    private final byte marker;
+    private final int window;
+    private final int bufferSize;
+
+    /**
+     * @param marker the byte every escape starts with
+     * @param window the most bytes an escape needs to see, starting with the marker, to be decoded
+     * @param bufferSize size of the input and output buffers
+     */
+    protected EscapeTranscoder(final byte marker, final int window, final int bufferSize) {
+        Validate.isTrue(window > 0 && window <= MIN_BUFFER_SIZE, "Required: 0 < window <= MIN_BUFFER_SIZE!");
+        Validate.isTrue(bufferSize >= MIN_BUFFER_SIZE, "Required: bufferSize >= MIN_BUFFER_SIZE!");
+        this.marker = marker;
+        this.window = window;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Decode the escape starting at a marker byte
+     *
+     * @param in the buffered input
+     * @param pos position of the marker
+     * @param len end of the buffered input, at least window bytes past pos unless the input has ended
+     * @param out where decoded bytes are written
+     * @return the position after the escape, or after the marker if it was written unchanged
+     * @throws IOException if the output cannot be written
+     */
+    protected abstract int decode(byte[] in, int pos, int len, Output out) throws IOException;
+
+    @Override
+    public WritableByteChannel wrap(final WritableByteChannel out, @Nullable final CharacterCounterSet counters) {
+        return new Session(out, counters, bufferSize);
+    }
+
+    @Override
+    public byte[] transcode(final byte[] data, @Nullable final CharacterCounterSet counters) {
+        // decode straight from the array, there is no need to buffer the input
+        final ByteArrayOutputStream result = new ByteArrayOutputStream(data.length);
+        try (Session session = new Session(Channels.newChannel(result), counters, Math.min(bufferSize, data.length + MIN_BUFFER_SIZE))) {
+            decodeAll(data, 0, data.length, true, session);
+        } catch (IOException e) {
+            // only memory is involved
+            throw new UncheckedIOException(e);
+        }
+        return result.toByteArray();
+    }
+
+    private int decodeAll(final byte[] in, final int start, final int end, final boolean endOfInput, final Output out) throws IOException {
+        int pos = start;
+        while (pos < end) {
+            int run = pos;
+            while (run < end && in[run] != marker) {
+                run++;
+            }
+            out.write(in, pos, run - pos);
+            pos = run;
+            if (pos == end || (!endOfInput && end - pos < window)) {
+                break;
+            }
+            pos = decode(in, pos, end, out);
+        }
+        return pos;
+    }
+
+    /**
+     * Parse digits from bytes
+     *
+     * @param in the bytes
+     * @param start first digit
+     * @param end after the last digit
+     * @param radix 8, 10 or 16
+     * @return the value or -1 if there are no digits or one is not valid in the radix
+     */
+    protected static int parse(final byte[] in, final int start, final int end, final int radix) {
+        if (start >= end) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            final int b = in[i];
+            final int digit;
+            if (b >= '0' && b <= '9') {
+                digit = b - '0';
+            } else if (b >= 'a' && b <= 'f') {
+                digit = b - 'a' + 10;
+            } else if (b >= 'A' && b <= 'F') {
+                digit = b - 'A' + 10;
+            } else {
+                return -1;
+            }
+            if (digit >= radix) {
+                return -1;
+            }
+            value = value * radix + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Buffered output of a decoding session
+     */
+    protected abstract static class Output {
+        /**
+         * Write bytes unchanged
+         *
+         * @param b the byte
+         * @throws IOException if the output cannot be written
+         */
+        public abstract void write(int b) throws IOException;
+
+        /**
+         * Write bytes unchanged
+         *
+         * @param b the bytes
+         * @param off the first byte
+         * @param len how many bytes
+         * @throws IOException if the output cannot be written
+         */
+        public abstract void write(byte[] b, int off, int len) throws IOException;
+
+        /**
+         * Write a decoded character as UTF-8, a surrogate cannot be encoded and is written as a question mark
+         *
+         * @param codePoint the character
+         * @throws IOException if the output cannot be written
+         */
+        public abstract void writeCodePoint(int codePoint) throws IOException;
+
+        /**
+         * Write a decoded value already encoded as UTF-8
+         *
+         * @param utf8 the encoded value
+         * @param value the value, used for counting
+         * @throws IOException if the output cannot be written
+         */
+        public abstract void writeDecoded(ByteBuffer utf8, String value) throws IOException;
+    }
+
+    private final class Session extends Output implements WritableByteChannel {
+        private final WritableByteChannel sink;
+        @Nullable
+        private final CharacterCounterSet counters;
+        private final ByteBuffer out;
+        private final byte[] in;
+        private int start = 0;
+        private int limit = 0;
+        private boolean open = true;
+
+        Session(final WritableByteChannel sink, @Nullable final CharacterCounterSet counters, final int size) {
+            this.sink = sink;
+            this.counters = counters;
+            this.out = ByteBuffer.allocate(size);
+            this.in = new byte[size];
+        }
+
+        @Override
+        public int write(final ByteBuffer src) throws IOException {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+            final int count = src.remaining();
+            while (src.hasRemaining()) {
+                if (limit == in.length) {
+                    System.arraycopy(in, start, in, 0, limit - start);
+                    limit -= start;
+                    start = 0;
+                }
+                final int len = Math.min(src.remaining(), in.length - limit);
+                src.get(in, limit, len);
+                limit += len;
+                start = decodeAll(in, start, limit, false, this);
+            }
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!open) {
+                return;
+            }
+            open = false;
+            try {
+                start = decodeAll(in, start, limit, true, this);
+                flush();
+            } finally {
+                sink.close();
+            }
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            if (!out.hasRemaining()) {
+                flush();
+            }
+            out.put((byte) b);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            int pos = off;
+            final int end = off + len;
+            while (pos < end) {
+                if (!out.hasRemaining()) {
+                    flush();
+                }
+                final int n = Math.min(end - pos, out.remaining());
+                out.put(b, pos, n);
+                pos += n;
+            }
+        }
+
+        @Override
+        public void writeCodePoint(final int codePoint) throws IOException {
+            if (counters != null) {
+                counters.count(codePoint);
+            }
+            if (out.remaining() < 4) {
+                flush();
+            }
+            if (codePoint < 0x80) {
+                out.put((byte) codePoint);
+            } else if (codePoint < 0x800) {
+                out.put((byte) (0xc0 | (codePoint >> 6)));
+                out.put((byte) (0x80 | (codePoint & 0x3f)));
+            } else if (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE) {
+                out.put((byte) '?');
+            } else if (codePoint < 0x10000) {
+                out.put((byte) (0xe0 | (codePoint >> 12)));
+                out.put((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+                out.put((byte) (0x80 | (codePoint & 0x3f)));
+            } else {
+                out.put((byte) (0xf0 | (codePoint >> 18)));
+                out.put((byte) (0x80 | ((codePoint >> 12) & 0x3f)));
+                out.put((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+                out.put((byte) (0x80 | (codePoint & 0x3f)));
+            }
+        }
+
+        @Override
+        public void writeDecoded(final ByteBuffer utf8, final String value) throws IOException {
+            if (counters != null) {
+                counters.count(value);
+            }
+            while (utf8.hasRemaining()) {
+                if (!out.hasRemaining()) {
+                    flush();
+                }
+                final int n = Math.min(utf8.remaining(), out.remaining());
+                final int lim = utf8.limit();
+                utf8.limit(utf8.position() + n);
+                out.put(utf8);
+                utf8.limit(lim);
+            }
+        }
+
+        private void flush() throws IOException {
+            out.flip();
+            while (out.hasRemaining()) {
+                sink.write(out);
+            }
+            out.clear();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package emissary.transform.decode;
+
+import emissary.util.HtmlEntityMap;
+
+import java.io.IOException;
+
+/**
+ * Decode named HTML entities like <code>&amp;nbsp;</code>. Broken entities with an extra semicolon, <code>&amp;;nbsp;</code>,
+ * or ended by a space instead of a semicolon are decoded too, a space that ends an entity is kept.
+ */
+public class HtmlEntityTranscoder extends EscapeTranscoder {
+
+    /** Longest entity name plus the ampersand and semicolon */
+    static final int LONGEST_ENTITY_NAME = 33; // &CounterClockwiseContourIntegral;
+
+    // an extra semicolon moves the end one byte further
+    private static final int WINDOW = LONGEST_ENTITY_NAME + 2;
+
+    private final HtmlEntityMap entities;
+
+    /**
+     * @param entities the entities to decode
+     */
+    public HtmlEntityTranscoder(final HtmlEntityMap entities) {
+        this(entities, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param entities the entities to decode
+     * @param bufferSize size of the input and output buffers
+     */
+    public HtmlEntityTranscoder(final HtmlEntityMap entities, final int bufferSize) {
+        super((byte) '&', WINDOW, bufferSize);
+        this.entities = entities;
+    }
+
+    @Override
+    protected int decode(final byte[] in, final int pos, final int len, final Output out) throws IOException {
+        if (pos + 4 < len) {
+            int start = pos;
+            int end = nameEnd(in, start, len);
+            if (end == start + 1) {
+                // broken case with extra semi-colon
+                start++;
+                end = nameEnd(in, start, len);
+            }
+            final int index = entities.indexOfHtmlEntity(in, start + 1, end - (start + 1));
+            if (index >= 0) {
+                out.writeDecoded(entities.getUtf8Value(index), entities.getValue(index));
+                if (end >= len) {
+                    return len;
+                }
+                // a space used as the terminator stays in the output
+                return in[end] == ' ' ? end : end + 1;
+            }
+        }
+        out.write(in[pos]);
+        return pos + 1;
+    }
+
+    private static int nameEnd(final byte[] in, final int start, final int len) {
+        int end = start + 1;
+        while (end < len && end < start + LONGEST_ENTITY_NAME && in[end] != ';' && in[end] != ' ') {
+            end++;
+        }
+        return end;
+    }
+}
@@ -1,6 +1,5 @@
 package emissary.transform.decode;
 
-import emissary.util.ByteUtil;
 import emissary.util.CharacterCounterSet;
 import emissary.util.HtmlEntityMap;
 import emissary.util.shell.Executrix;
@@ -8,8 +7,6 @@ import emissary.util.shell.Executrix;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.annotation.Nullable;
@@ -28,6 +25,12 @@ public class HtmlEscape {
      */
     private final static HtmlEntityMap HTML_ENTITY_MAP = new HtmlEntityMap();
 
+    /**
+     * Decoders for the byte forms
+     */
+    private final static Transcoder HTML_TRANSCODER = new HtmlTranscoder();
+    private final static Transcoder ENTITY_TRANSCODER = new HtmlEntityTranscoder(HTML_ENTITY_MAP);
+
     /**
      * Pattern for HTML escaped char finding in strings
      */
@@ -54,62 +57,10 @@ public class HtmlEscape {
      * @return modified byte array
      */
     public static byte[] unescapeHtml(@Nullable byte[] data, @Nullable CharacterCounterSet counters) {
-
-        ByteArrayOutputStream baos = null;
-        byte[] returnBytes = null;
         if (data == null || data.length == 0) {
             return new byte[0];
         }
-
-        try {
-            baos = new ByteArrayOutputStream();
-            for (int i = 0; i < data.length; i++) {
-                // Grab one encoded character
-                if (data[i] == '&' && i + 3 < data.length && data[i + 1] == '#') {
-                    int j = i + 2;
-                    boolean isHex = false;
-
-                    // Determine if &#xnnnn; or &#nnnn;
-                    if (data[j] == 'X' || data[j] == 'x') {
-                        j++;
-                        isHex = true;
-                    }
-
-                    int startPos = j;
-
-                    // Jump to end of digits, find a semi-colon
-                    while (j < data.length && ByteUtil.isHexadecimal(data[j]) && j < startPos + 5) {
-                        j++;
-                    }
-
-                    if (j < data.length && data[j] == ';') {
-                        // Try to convert it
-                        char[] c = unescapeHtmlChar(new String(data, startPos, j - startPos), isHex);
-                        if (c != null) {
-                            // write a codepoint
-                            String s = new String(c);
-                            baos.write(s.getBytes());
-                            if (counters != null) {
-                                counters.count(s);
-                            }
-                            i = j;
-                        } else {
-                            // Do no harm if the conversion fails
-                            baos.write(data[i]);
-                        }
-                    } else {
-                        baos.write(data[i]);
-                    }
-                } else {
-                    baos.write(data[i]);
-                }
-            }
-            returnBytes = baos.toByteArray();
-            baos.close();
-        } catch (IOException e) {
-            logger.debug("Cannot decode HTML bytes", e);
-        }
-        return returnBytes;
+        return HTML_TRANSCODER.transcode(data, counters);
     }
 
     /**
@@ -280,52 +231,7 @@ public class HtmlEscape {
      * &amp;nbsp (extra semi-colon and missing semi-colon respectively)
      */
     public static byte[] unescapeEntities(byte[] s, @Nullable CharacterCounterSet counters) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        int slen = s.length;
-
-        for (int i = 0; i < slen; i++) {
-            if (i + 4 < slen && s[i] == '&') {
-                int spos = i;
-                int epos = spos + 1;
-                while (epos < slen && epos < spos + LONGEST_ENTITY_NAME && s[epos] != ';' && s[epos] != ' ') {
-                    epos++;
-                }
-
-                if (epos == spos + 1) // broken case with extra semi-colon
-                {
-                    spos++;
-                    epos = spos + 1;
-                    while (epos < slen && epos < spos + LONGEST_ENTITY_NAME && s[epos] != ';' && s[epos] != ' ') {
-                        epos++;
-                    }
-                }
-
-                String val = HTML_ENTITY_MAP.getValueForHtmlEntity(new String(s, spos + 1, epos - (spos + 1)));
-                if (val != null) {
-                    try {
-                        baos.write(val.getBytes());
-                        if (counters != null) {
-                            counters.count(val);
-                        }
-                        // if we used the space as a terminator, keep the
-                        // space in the output, even though we consumed it
-                        if (epos < slen) {
-                            i = s[epos] == ' ' ? (epos - 1) : epos;
-                        } else {
-                            i = slen;
-                        }
-                    } catch (IOException iox) {
-                        logger.debug("Error writing unescaped bytes", iox);
-                        baos.write(s[i]);
-                    }
-                } else {
-                    baos.write(s[i]);
-                }
-            } else {
-                baos.write(s[i]);
-            }
-        }
-        return baos.toByteArray();
+        return ENTITY_TRANSCODER.transcode(s, counters);
     }
 
     @Nullable
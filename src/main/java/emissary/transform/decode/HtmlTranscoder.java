@@ -0,0 +1,51 @@
+package emissary.transform.decode;
+
+import emissary.util.ByteUtil;
+
+import java.io.IOException;
+
+/**
+ * Decode HTML numeric character references like <code>&amp;#nnnn;</code> and <code>&amp;#xhhhh;</code> with up to five
+ * digits. References that cannot be decoded are left as they are.
+ */
+public class HtmlTranscoder extends EscapeTranscoder {
+
+    // &#x plus five digits plus the semicolon
+    private static final int WINDOW = 9;
+
+    public HtmlTranscoder() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param bufferSize size of the input and output buffers
+     */
+    public HtmlTranscoder(final int bufferSize) {
+        super((byte) '&', WINDOW, bufferSize);
+    }
+
+    @Override
+    protected int decode(final byte[] in, final int pos, final int len, final Output out) throws IOException {
+        if (pos + 3 < len && in[pos + 1] == '#') {
+            int j = pos + 2;
+            boolean isHex = false;
+            if (in[j] == 'X' || in[j] == 'x') {
+                j++;
+                isHex = true;
+            }
+            final int start = j;
+            while (j < len && ByteUtil.isHexadecimal(in[j]) && j < start + 5) {
+                j++;
+            }
+            if (j < len && in[j] == ';') {
+                final int codePoint = parse(in, start, j, isHex ? 16 : 10);
+                if (codePoint >= 0) {
+                    out.writeCodePoint(codePoint);
+                    return j + 1;
+                }
+            }
+        }
+        out.write(in[pos]);
+        return pos + 1;
+    }
+}
@@ -0,0 +1,40 @@
+package emissary.transform.decode;
+
+import java.io.IOException;
+
+/**
+ * Decode javascript unicode escapes in the form backslash-u-nnnn and the newline and carriage return escapes, both of
+ * which become a newline. Browser tests show that only lowercase "u" and only four digits work.
+ */
+public class JavascriptTranscoder extends EscapeTranscoder {
+
+    // backslash, u and four digits
+    private static final int WINDOW = 6;
+
+    public JavascriptTranscoder() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param bufferSize size of the input and output buffers
+     */
+    public JavascriptTranscoder(final int bufferSize) {
+        super((byte) '\\', WINDOW, bufferSize);
+    }
+
+    @Override
+    protected int decode(final byte[] in, final int pos, final int len, final Output out) throws IOException {
+        if (pos + 5 < len && in[pos + 1] == 'u') {
+            final int codePoint = JsonTranscoder.parseUnicode(in, pos + 2);
+            if (codePoint >= 0) {
+                out.writeCodePoint(codePoint);
+                return pos + 6;
+            }
+        } else if (pos + 1 < len && (in[pos + 1] == 'n' || in[pos + 1] == 'r')) {
+            out.writeCodePoint('\n');
+            return pos + 2;
+        }
+        out.write(in[pos]);
+        return pos + 1;
+    }
+}
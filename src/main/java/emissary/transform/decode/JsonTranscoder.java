@@ -0,0 +1,91 @@
+package emissary.transform.decode;
+
+import java.io.IOException;
+
+/**
+ * Decode JSON escapes: <code>\\uhhhh</code> with a lower or upper case u, octal escapes of up to three digits and the
+ * single character escapes for newline, tab, carriage return, quotes, slash and backslash.
+ */
+public class JsonTranscoder extends EscapeTranscoder {
+
+    private static final String ESCAPES = "ntr\"'/\\";
+
+    // backslash, u and four digits
+    private static final int WINDOW = 6;
+
+    public JsonTranscoder() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param bufferSize size of the input and output buffers
+     */
+    public JsonTranscoder(final int bufferSize) {
+        super((byte) '\\', WINDOW, bufferSize);
+    }
+
+    @Override
+    protected int decode(final byte[] in, final int pos, final int len, final Output out) throws IOException {
+        if (pos + 5 < len && (in[pos + 1] == 'u' || in[pos + 1] == 'U')) {
+            final int codePoint = parseUnicode(in, pos + 2);
+            if (codePoint >= 0) {
+                out.writeCodePoint(codePoint);
+                return pos + 6;
+            }
+        } else if (pos + 1 < len && isOctalDigit(in[pos + 1])) {
+            // digits counted up to three, a gap in them fails the parse
+            int digits = 1;
+            if (pos + 2 < len && isOctalDigit(in[pos + 2])) {
+                digits++;
+            }
+            if (pos + 3 < len && isOctalDigit(in[pos + 3])) {
+                digits++;
+            }
+            final int codePoint = parse(in, pos + 1, pos + 1 + digits, 8);
+            if (codePoint >= 0) {
+                out.writeCodePoint(codePoint);
+                return pos + 1 + digits;
+            }
+        } else if (pos + 1 < len && ESCAPES.indexOf(in[pos + 1]) != -1) {
+            final byte b = in[pos + 1];
+            if (b == 'n') {
+                out.writeCodePoint('\n');
+            } else if (b == 't') {
+                out.writeCodePoint('\t');
+            } else if (b == 'r') {
+                out.writeCodePoint('\r');
+            } else {
+                out.writeCodePoint(b);
+            }
+            return pos + 2;
+        }
+        out.write(in[pos]);
+        return pos + 1;
+    }
+
+    /**
+     * Parse four hex digits the way {@link Integer#parseInt(String, int)} does, which allows a sign in place of the first
+     * digit
+     *
+     * @param in the bytes
+     * @param start the first of the four bytes
+     * @return the value or -1 if it is not valid
+     */
+    static int parseUnicode(final byte[] in, final int start) {
+        int first = start;
+        boolean negative = false;
+        if (in[first] == '-' || in[first] == '+') {
+            negative = in[first] == '-';
+            first++;
+        }
+        final int value = parse(in, first, start + 4, 16);
+        if (negative && value != 0) {
+            return -1;
+        }
+        return value;
+    }
+
+    static boolean isOctalDigit(final byte b) {
+        return b >= '0' && b <= '7';
+    }
+}
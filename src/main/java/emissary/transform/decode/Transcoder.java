@@ -0,0 +1,165 @@
+package emissary.transform.decode;
+
+import emissary.util.CharacterCounterSet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Streaming decoder from one channel of bytes to another. Data is decoded a buffer at a time, so content of any size is
+ * decoded in constant memory. Transcoders hold no state of their own and may be shared between threads, each call gets
+ * its own buffers.
+ */
+public abstract class Transcoder {
+
+    /** Default size of the read and write buffers {@value} */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Create a channel that decodes the bytes written to it and writes the result to another channel. The result is only
+     * complete once the returned channel is closed, which also closes the output channel.
+     *
+     * @param out where decoded bytes are written
+     * @param counters to measure the characters decoded, may be null
+     * @return the channel to write encoded bytes to
+     */
+    public abstract WritableByteChannel wrap(WritableByteChannel out, @Nullable CharacterCounterSet counters);
+
+    /**
+     * Create a channel like {@link #wrap(WritableByteChannel, CharacterCounterSet)} that measures each stage of a chain with
+     * its own counters. A character decoded by one stage and again by a later one is counted once in the counters of each
+     * stage instead of twice in one set.
+     *
+     * @param out where decoded bytes are written
+     * @param counters the counters for each stage in order, any of which may be null
+     * @return the channel to write encoded bytes to
+     * @throws IllegalArgumentException if there is not one entry in counters for each of the {@link #stages()}
+     */
+    public WritableByteChannel wrapStages(final WritableByteChannel out, final List<CharacterCounterSet> counters) {
+        checkStages(counters);
+        return wrap(out, counters.get(0));
+    }
+
+    /**
+     * Get the number of transcoders run one after another by this one
+     *
+     * @return the number of stages, 1 unless this is a chain made by {@link #then(Transcoder)}
+     */
+    public int stages() {
+        return 1;
+    }
+
+    void checkStages(final List<CharacterCounterSet> counters) {
+        if (counters.size() != stages()) {
+            throw new IllegalArgumentException("Expected counters for " + stages() + " stages, got " + counters.size());
+        }
+    }
+
+    /**
+     * Decode everything remaining in one channel into another. Neither channel is closed.
+     *
+     * @param in the encoded bytes
+     * @param out where decoded bytes are written
+     * @param counters to measure the characters decoded, may be null
+     * @throws IOException if either channel fails
+     */
+    public void transcode(final ReadableByteChannel in, final WritableByteChannel out, @Nullable final CharacterCounterSet counters)
+            throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+        try (WritableByteChannel decoder = wrap(new KeepOpen(out), counters)) {
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    decoder.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+    }
+
+    /**
+     * Decode an array of bytes
+     *
+     * @param data the encoded bytes
+     * @param counters to measure the characters decoded, may be null
+     * @return the decoded bytes
+     */
+    public byte[] transcode(final byte[] data, @Nullable final CharacterCounterSet counters) {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream(data.length);
+        try (WritableByteChannel decoder = wrap(Channels.newChannel(result), counters)) {
+            decoder.write(ByteBuffer.wrap(data));
+        } catch (IOException e) {
+            // only memory is involved
+            throw new UncheckedIOException(e);
+        }
+        return result.toByteArray();
+    }
+
+    /**
+     * Run the output of this transcoder through another one without holding either result in memory. Counters given to
+     * {@link #wrap(WritableByteChannel, CharacterCounterSet)} are shared by the stages, use
+     * {@link #wrapStages(WritableByteChannel, List)} to measure them apart.
+     *
+     * @param next the transcoder that decodes the output of this one
+     * @return a transcoder doing both
+     */
+    public Transcoder then(final Transcoder next) {
+        return new Chain(this, next);
+    }
+
+    private static final class Chain extends Transcoder {
+        private final Transcoder first;
+        private final Transcoder second;
+
+        Chain(final Transcoder first, final Transcoder second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public WritableByteChannel wrap(final WritableByteChannel out, @Nullable final CharacterCounterSet counters) {
+            return first.wrap(second.wrap(out, counters), counters);
+        }
+
+        @Override
+        public WritableByteChannel wrapStages(final WritableByteChannel out, final List<CharacterCounterSet> counters) {
+            checkStages(counters);
+            final int split = first.stages();
+            return first.wrapStages(second.wrapStages(out, counters.subList(split, counters.size())), counters.subList(0, split));
+        }
+
+        @Override
+        public int stages() {
+            return first.stages() + second.stages();
+        }
+    }
+
+    // lets transcode finish the decoder without closing the caller's channel
+    private static final class KeepOpen implements WritableByteChannel {
+        private final WritableByteChannel out;
+
+        KeepOpen(final WritableByteChannel out) {
+            this.out = out;
+        }
+
+        @Override
+        public int write(final ByteBuffer src) throws IOException {
+            return out.write(src);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return out.isOpen();
+        }
+
+        @Override
+        public void close() {}
+    }
+}
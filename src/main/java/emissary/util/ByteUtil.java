@@ -1,6 +1,5 @@
 package emissary.util;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -9,6 +8,7 @@ import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import javax.annotation.Nullable;
 
@@ -346,9 +346,8 @@ public class ByteUtil {
      * @return whether there were non-indexable characters
      */
     public static boolean containsNonIndexableBytes(final byte[] utf8Bytes) {
-        // Wrap the byte array in a ByteArrayInputStream
-        final InputStream inputStream = new ByteArrayInputStream(utf8Bytes);
-        return containsNonIndexableBytes(inputStream);
+        // Decode in place rather than through a reader, see TextStats
+        return TextStats.of(utf8Bytes).containsNonIndexableBytes();
     }
 
     /**
@@ -376,27 +375,36 @@ public class ByteUtil {
     }
 
     /**
-     * Check if the code point is a control character or surrogate pair
+     * Code points in the Basic Multilingual Plane that are not indexable, set from the ranges of the Unicode blocks
      * <a href="https://en.wikipedia.org/wiki/Unicode_block">Unicode Block</a>
      * <a href="https://www.unicode.org/charts/PDF/U0000.pdf">U0000</a>
      * <a href="https://www.unicode.org/charts/PDF/U2000.pdf">U2000</a>
      * <a href="https://www.unicode.org/charts/PDF/U3000.pdf">U3000</a>
      * <a href="https://www.unicode.org/charts/PDF/UFE70.pdf">UFE70</a>
      * <a href="https://www.unicode.org/charts/PDF/UFFF0.pdf">UFFF0</a>
+     */
+    private static final BitSet NOT_INDEXABLE = new BitSet(0x10000);
+
+    static {
+        NOT_INDEXABLE.set('\u0000', '\u0008' + 1);
+        NOT_INDEXABLE.set('\u000E', '\u001F' + 1);
+        NOT_INDEXABLE.set('\u007F', '\u009F' + 1);
+        NOT_INDEXABLE.set('\u2000', '\u200F' + 1);
+        NOT_INDEXABLE.set('\u2028', '\u202F' + 1);
+        NOT_INDEXABLE.set('\u205F', '\u206F' + 1);
+        NOT_INDEXABLE.set('\u3000');
+        NOT_INDEXABLE.set('\uFEFF');
+        NOT_INDEXABLE.set('\uFFFD');
+    }
+
+    /**
+     * Check if the code point is a control character or surrogate pair. Shared with {@link TextStats}.
      *
      * @param codepoint numerical value that maps to a specific character to check
      * @return if code-point is a valid text character
      */
-    private static boolean isNotIndexable(final int codepoint) {
-        return ('\u0000' <= codepoint && codepoint <= '\u0008')
-                || ('\u000E' <= codepoint && codepoint <= '\u001F')
-                || ('\u007F' <= codepoint && codepoint <= '\u009F')
-                || ('\u2000' <= codepoint && codepoint <= '\u200F')
-                || ('\u2028' <= codepoint && codepoint <= '\u202F')
-                || ('\u205F' <= codepoint && codepoint <= '\u206F')
-                || codepoint == '\u3000'
-                || codepoint == '\uFEFF'
-                || codepoint == '\uFFFD';
+    static boolean isNotIndexable(final int codepoint) {
+        return codepoint >= 0 && codepoint < 0x10000 && NOT_INDEXABLE.get(codepoint);
     }
 
     /** This class is not meant to be instantiated. */
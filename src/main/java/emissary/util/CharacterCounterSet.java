@@ -97,26 +97,48 @@ public class CharacterCounterSet extends CounterSet {
      * @param s the string to perform the count on
      */
     public void count(String s) {
-        int cpc = s.codePointCount(0, s.length());
-        for (int i = 0; i < cpc; i++) {
-            int offset = s.offsetByCodePoints(0, i);
-            int cp = s.codePointAt(offset);
-            int[] cpa = {cp};
-            String scp = new String(cpa, 0, 1);
-            if (Character.isLetter(cp)) {
-                increment("CHARACTER_LETTER");
-            } else if (Character.isDigit(cp)) {
-                increment("CHARACTER_DIGIT");
-            } else if (Character.isSpaceChar(cp)) {
-                increment("CHARACTER_BLANK_SPACE");
-            } else if (Character.isISOControl(cp)) {
-                increment("CHARACTER_ISO_CONTROL");
-            } else if (scp
-                    .matches("[\\p{Punct}\\p{InGeneralPunctuation}\\u00a1-\\u00bf\\uff01-\\uff0f\\uff1a-\\uff20\\uff38-\\uff40\\uff5b-\\uff60]")) {
-                increment("CHARACTER_PUNCTUATION");
-            } else {
-                increment("CHARACTER_OTHER");
-            }
+        for (int i = 0; i < s.length();) {
+            int cp = s.codePointAt(i);
+            count(cp);
+            i += Character.charCount(cp);
         }
     }
+
+    /**
+     * Count one character by class
+     *
+     * @param cp the codepoint to count
+     */
+    public void count(int cp) {
+        if (Character.isLetter(cp)) {
+            increment("CHARACTER_LETTER");
+        } else if (Character.isDigit(cp)) {
+            increment("CHARACTER_DIGIT");
+        } else if (Character.isSpaceChar(cp)) {
+            increment("CHARACTER_BLANK_SPACE");
+        } else if (Character.isISOControl(cp)) {
+            increment("CHARACTER_ISO_CONTROL");
+        } else if (isPunctuation(cp)) {
+            increment("CHARACTER_PUNCTUATION");
+        } else {
+            increment("CHARACTER_OTHER");
+        }
+    }
+
+    /**
+     * ASCII punctuation, the General Punctuation block, Latin-1 punctuation and symbols and the fullwidth forms of ASCII
+     * punctuation
+     */
+    private static boolean isPunctuation(int cp) {
+        return (cp >= '!' && cp <= '/')
+                || (cp >= ':' && cp <= '@')
+                || (cp >= '[' && cp <= '`')
+                || (cp >= '{' && cp <= '~')
+                || (cp >= 0x2000 && cp <= 0x206f)
+                || (cp >= 0xa1 && cp <= 0xbf)
+                || (cp >= 0xff01 && cp <= 0xff0f)
+                || (cp >= 0xff1a && cp <= 0xff20)
+                || (cp >= 0xff38 && cp <= 0xff40)
+                || (cp >= 0xff5b && cp <= 0xff60);
+    }
 }
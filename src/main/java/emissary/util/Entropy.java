@@ -10,35 +10,7 @@ public class Entropy {
     }
 
     public static boolean checkText(final byte[] data, int length) {
-        int bytes = 0;
-        double entropy = 0;
-        double relativeFreq;
-        int size = Math.min(length, data.length);
-        int[] histogramArray = new int[256];
-
-
-        // ******************************************************************
-        // ****************** scan the document ******************
-        // ******************************************************************
-        for (int curPos = 0; curPos < size; ++curPos) {
-            ++histogramArray[data[curPos] & 0xff];
-            ++bytes;
-        }
-
-        // ***********************************************************************
-        // ***** Use relative freqs. to estimate the entropy of the file. ******
-        // ***********************************************************************
-
-        for (int i = 0; i < 256; ++i) {
-            if (histogramArray[i] != 0 && bytes > 0) {
-                relativeFreq = (double) histogramArray[i] / (double) bytes;
-                entropy = entropy + (relativeFreq * Math.log(1 / relativeFreq));
-            }
-        }
-
-        entropy = entropy / Math.log(2);
-
-        return entropy < 6.0;
+        return TextStats.of(data, 0, Math.max(0, Math.min(length, data.length))).isText();
     }
 
     /** This class is not meant to be instantiated. */
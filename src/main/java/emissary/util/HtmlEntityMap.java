@@ -8,11 +8,21 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
 /**
  * Map HTML entities
+ * <p>
+ * Besides the map by name, the entities are compiled into a perfect hash over the UTF-8 bytes of their names so
+ * decoders can look up an entity directly from a byte buffer, without making a String for each candidate name. Keys are
+ * grouped into buckets by one hash and each bucket is given a seed for a second hash that sends all of its keys to
+ * otherwise unused slots, so a lookup is two hashes and one comparison.
  */
 public class HtmlEntityMap {
 
@@ -20,8 +30,16 @@ public class HtmlEntityMap {
 
     protected Map<String, String> entityMap = new TreeMap<>();
 
+    // the perfect hash, built from entityMap once configured
+    private byte[][] names = new byte[0][];
+    private String[] values = new String[0];
+    private ByteBuffer[] utf8Values = new ByteBuffer[0];
+    private int[] seeds = new int[1];
+    private int[] slots = new int[0];
+
     public HtmlEntityMap() {
         configure();
+        compile();
     }
 
     protected void configure() {
@@ -51,6 +69,125 @@ public class HtmlEntityMap {
         return entityMap.get(entity);
     }
 
+    /**
+     * Find an entity named by some bytes, following the same rules as {@link #getValueForHtmlEntity(String)}
+     *
+     * @param data the bytes holding the name
+     * @param offset start of the name
+     * @param length length of the name
+     * @return the index of the entity, or -1 if unknown
+     */
+    public int indexOfHtmlEntity(byte[] data, int offset, int length) {
+        if (length > 0 && data[offset] == '&') {
+            offset++;
+            length--;
+            if (length > 0 && data[offset + length - 1] == ';') {
+                length--;
+            }
+        }
+        if (slots.length == 0) {
+            return -1;
+        }
+        int bucket = hash(data, offset, length, 0) % seeds.length;
+        int index = slots[hash(data, offset, length, seeds[bucket]) & (slots.length - 1)];
+        if (index < 0 || !Arrays.equals(names[index], 0, names[index].length, data, offset, offset + length)) {
+            return -1;
+        }
+        return index;
+    }
+
+    /**
+     * @param index an index from {@link #indexOfHtmlEntity(byte[], int, int)}
+     * @return the value of the entity
+     */
+    public String getValue(int index) {
+        return values[index];
+    }
+
+    /**
+     * @param index an index from {@link #indexOfHtmlEntity(byte[], int, int)}
+     * @return a read only buffer holding the value of the entity as UTF-8
+     */
+    public ByteBuffer getUtf8Value(int index) {
+        return utf8Values[index].duplicate();
+    }
+
+    /**
+     * Build the perfect hash from the configured entities
+     */
+    private void compile() {
+        int n = entityMap.size();
+        names = new byte[n][];
+        values = new String[n];
+        utf8Values = new ByteBuffer[n];
+        int i = 0;
+        for (Map.Entry<String, String> e : entityMap.entrySet()) {
+            names[i] = e.getKey().getBytes(StandardCharsets.UTF_8);
+            values[i] = e.getValue();
+            utf8Values[i] = ByteBuffer.wrap(e.getValue().getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+            i++;
+        }
+        if (n == 0) {
+            seeds = new int[1];
+            slots = new int[0];
+            return;
+        }
+
+        // about four keys to a bucket and twice as many slots as keys keeps the seed search short
+        seeds = new int[Math.max(1, n / 4)];
+        slots = new int[Integer.highestOneBit(n) << 2];
+        Arrays.fill(slots, -1);
+        List<List<Integer>> buckets = new ArrayList<>(seeds.length);
+        for (int b = 0; b < seeds.length; b++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (int k = 0; k < n; k++) {
+            buckets.get(hash(names[k], 0, names[k].length, 0) % seeds.length).add(k);
+        }
+        Integer[] order = new Integer[seeds.length];
+        for (int b = 0; b < order.length; b++) {
+            order[b] = b;
+        }
+        Arrays.sort(order, (a, b) -> buckets.get(b).size() - buckets.get(a).size());
+
+        int[] placed = new int[n];
+        for (int b : order) {
+            List<Integer> keys = buckets.get(b);
+            if (keys.isEmpty()) {
+                break;
+            }
+            for (int seed = 1;; seed++) {
+                int count = 0;
+                for (int k : keys) {
+                    int slot = hash(names[k], 0, names[k].length, seed) & (slots.length - 1);
+                    if (slots[slot] >= 0) {
+                        break;
+                    }
+                    slots[slot] = k;
+                    placed[count++] = slot;
+                }
+                if (count == keys.size()) {
+                    seeds[b] = seed;
+                    break;
+                }
+                for (int c = 0; c < count; c++) {
+                    slots[placed[c]] = -1;
+                }
+            }
+        }
+    }
+
+    private static int hash(byte[] data, int offset, int length, int seed) {
+        int h = 0x811c9dc5 ^ (seed * 0x9e3779b9);
+        for (int i = offset; i < offset + length; i++) {
+            h = (h ^ (data[i] & 0xff)) * 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h & 0x7fffffff;
+    }
+
     public void dumpTestPage(PrintStream out) {
         out.println("<!DOCTYPE html PUBLIC \"-//W3C//DTD XHTML 1.0 Strict//EN\" \"http://www.w3.org/TR/xhtml1/DTD/xhtml11-strict.dtd\">");
         out.println("<html lang='en'>");
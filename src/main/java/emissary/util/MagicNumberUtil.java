@@ -306,6 +306,19 @@ public final class MagicNumberUtil {
         return this.magicNumbers.size();
     }
 
+    /**
+     * The number of leading bytes of a sample the loaded magic numbers can look at
+     *
+     * @return the longest {@link MagicNumber#sampleLength()} of the loaded entries, 0 if none are loaded
+     */
+    public int sampleLength() {
+        int length = 0;
+        for (final MagicNumber item : this.magicNumbers) {
+            length = Math.max(length, item.sampleLength());
+        }
+        return length;
+    }
+
     public String getErrorLog() {
         if (!this.logErrors) {
             return "";
@@ -202,6 +202,20 @@ public class PayloadUtil {
      * @param d the payload
      */
     public static Document toXml(final IBaseDataObject d) {
+        final Element meta = new Element("metadata");
+        for (final String key : d.getParameters().keySet()) {
+            meta.addContent(toXml(key, d.getStringParameter(key)));
+        }
+        return toXml(d, meta);
+    }
+
+    /**
+     * Turn the payload into an xml jdom document using metadata that is already built
+     *
+     * @param d the payload
+     * @param meta the metadata element for d, see {@link #toXml(String, String)}
+     */
+    public static Document toXml(final IBaseDataObject d, final Element meta) {
         final Element root = new Element("payload");
         root.addContent(JDOMUtil.protectedElement("name", d.getFilename()));
         final Element cf = new Element("current-forms");
@@ -220,12 +234,6 @@ public class PayloadUtil {
         if (d.getProcessingError() != null) {
             root.addContent(JDOMUtil.simpleElement("processing-error", d.getProcessingError()));
         }
-        final Element meta = new Element("metadata");
-        for (final String key : d.getParameters().keySet()) {
-            final Element m = JDOMUtil.protectedElement("param", d.getStringParameter(key));
-            m.setAttribute("name", key);
-            meta.addContent(m);
-        }
         root.addContent(meta);
 
         if (d.header() != null) {
@@ -253,6 +261,18 @@ public class PayloadUtil {
         return new Document(root);
     }
 
+    /**
+     * Turn one metadata entry into an xml jdom element
+     *
+     * @param key the name of the metadata
+     * @param value the value as a string
+     */
+    public static Element toXml(final String key, final String value) {
+        final Element m = JDOMUtil.protectedElement("param", value);
+        m.setAttribute("name", key);
+        return m;
+    }
+
     /**
      * Turn a list of payload into an xml jdom ocument
      * 
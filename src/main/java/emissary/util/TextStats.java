@@ -0,0 +1,298 @@
+package emissary.util;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * Text statistics gathered in a single pass over some bytes. Identification code that needs to know whether data is
+ * UTF-8, ASCII, low entropy or indexable can compute all of it at once instead of running {@link CharsetUtil},
+ * {@link Entropy} and {@link ByteUtil} over the same bytes one after the other.
+ * <p>
+ * Every check is a small state machine advanced one byte at a time, so data may be fed in pieces with
+ * {@link #update(byte[], int, int)} and sequences that span two pieces are handled correctly. The results agree with the
+ * older utilities:
+ * <ul>
+ * <li>{@link #isUtf8()} with {@link CharsetUtil#isUtf8(byte[])}</li>
+ * <li>{@link #isText()} with {@link Entropy#checkText(byte[])}</li>
+ * <li>{@link #containsNonIndexableBytes()} with {@link ByteUtil#containsNonIndexableBytes(java.io.InputStream)}</li>
+ * </ul>
+ * Instances are not thread safe.
+ */
+public class TextStats {
+
+    /** Entropy in bits per byte below which data is considered text {@value} */
+    public static final double TEXT_ENTROPY_THRESHOLD = 6.0;
+
+    /** Size of the buffer used to read channels {@value} */
+    public static final int CHANNEL_BUFFER_SIZE = 64 * 1024;
+
+    private static final int VALID = 0;
+    private static final int INVALID = -1;
+
+    private final long[] histogram = new long[256];
+    private long length = 0;
+    private long highBytes = 0;
+    private long controlBytes = 0;
+    private long nonIndexable = 0;
+
+    // CharsetUtil.isUtf8 rules, trailing bytes still expected or INVALID
+    private int lenientRemaining = VALID;
+    private int lenientLead = 0;
+
+    // well formed UTF-8 as the JDK decoder sees it
+    private int strictRemaining = 0;
+    private int strictCodePoint = 0;
+    private int strictLower = 0x80;
+    private int strictUpper = 0xbf;
+    private boolean malformed = false;
+
+    /**
+     * Gather statistics for a byte array
+     *
+     * @param data the bytes to examine
+     * @return the statistics
+     */
+    public static TextStats of(final byte[] data) {
+        return of(data, 0, data.length);
+    }
+
+    /**
+     * Gather statistics for part of a byte array
+     *
+     * @param data the bytes to examine
+     * @param offset where to start
+     * @param length how many bytes to examine
+     * @return the statistics
+     */
+    public static TextStats of(final byte[] data, final int offset, final int length) {
+        return new TextStats().update(data, offset, length);
+    }
+
+    /**
+     * Gather statistics for the bytes from the current position of a channel to its end
+     *
+     * @param channel the channel to read, left positioned at the end
+     * @return the statistics
+     * @throws IOException if the channel cannot be read
+     */
+    public static TextStats of(final SeekableByteChannel channel) throws IOException {
+        final TextStats stats = new TextStats();
+        final ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(1, Math.min(CHANNEL_BUFFER_SIZE, channel.size())));
+        final byte[] chunk = buffer.array();
+        int bytesRead;
+        while ((bytesRead = channel.read(buffer)) >= 0) {
+            stats.update(chunk, 0, bytesRead);
+            buffer.clear();
+        }
+        return stats;
+    }
+
+    /**
+     * Add more bytes, continuing from the end of the bytes already added
+     *
+     * @param data the bytes to add
+     * @param offset where to start
+     * @param len how many bytes to add
+     * @return this object
+     */
+    public TextStats update(final byte[] data, final int offset, final int len) {
+        Validate.isTrue(offset >= 0 && len >= 0 && offset + len <= data.length, "Required: offset and len within data!");
+        final int end = offset + len;
+        for (int i = offset; i < end; i++) {
+            final int b = data[i] & 0xff;
+            histogram[b]++;
+            if (b >= 0x80) {
+                highBytes++;
+            } else if (isControl(b)) {
+                controlBytes++;
+            }
+            if (b < 0x80 && lenientRemaining <= VALID && strictRemaining == 0) {
+                // ascii outside of any sequence needs no state
+                codePoint(b);
+                continue;
+            }
+            lenient(b);
+            strict(b);
+        }
+        length += len;
+        return this;
+    }
+
+    /**
+     * @return number of bytes examined
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * @param b the byte value
+     * @return how many times the byte was seen
+     */
+    public long getCount(final int b) {
+        return histogram[b & 0xff];
+    }
+
+    /**
+     * @return a copy of the count of each byte value
+     */
+    public long[] getHistogram() {
+        return histogram.clone();
+    }
+
+    /**
+     * @return true if no byte has the high bit set
+     */
+    public boolean isAscii() {
+        return highBytes == 0;
+    }
+
+    /**
+     * Validity using the rules of {@link CharsetUtil#isUtf8(byte[])}, which rejects four byte sequences
+     *
+     * @return true if the bytes are utf8
+     */
+    public boolean isUtf8() {
+        return lenientRemaining == VALID;
+    }
+
+    /**
+     * Validity using the rules of the JDK decoder, which rejects overlong forms and surrogates
+     *
+     * @return true if the bytes are well formed utf8
+     */
+    public boolean isWellFormedUtf8() {
+        return !malformed && strictRemaining == 0;
+    }
+
+    /**
+     * @return Shannon entropy in bits per byte, between 0 and 8
+     */
+    public double getEntropy() {
+        double entropy = 0;
+        if (length > 0) {
+            for (int i = 0; i < 256; ++i) {
+                if (histogram[i] != 0) {
+                    final double relativeFreq = (double) histogram[i] / (double) length;
+                    entropy = entropy + (relativeFreq * Math.log(1 / relativeFreq));
+                }
+            }
+        }
+        return entropy / Math.log(2);
+    }
+
+    /**
+     * @return true if the entropy is low enough for the bytes to be text
+     */
+    public boolean isText() {
+        return getEntropy() < TEXT_ENTROPY_THRESHOLD;
+    }
+
+    /**
+     * @return number of C0 control bytes and DEL, not counting tab, newline, carriage return and form feed
+     */
+    public long getControlCount() {
+        return controlBytes;
+    }
+
+    /**
+     * @return number of well formed characters that are not indexable, such as control, format and separator characters
+     */
+    public long getNonIndexableCount() {
+        return nonIndexable;
+    }
+
+    /**
+     * @return true if there is a character that is not indexable or the bytes are not well formed utf8
+     */
+    public boolean containsNonIndexableBytes() {
+        return nonIndexable > 0 || !isWellFormedUtf8();
+    }
+
+    // The trailing byte checks of CharsetUtil.isUtf8 applied as bytes arrive
+    private void lenient(final int b) {
+        if (lenientRemaining == INVALID) {
+            return;
+        }
+        if (lenientRemaining == VALID) {
+            if (b < 0x80) {
+                return;
+            }
+            if (b >= 0xc0 && b < 0xe0) {
+                lenientRemaining = 1;
+            } else if (b >= 0xe0 && b < 0xf0) {
+                lenientRemaining = 2;
+            } else {
+                // stray trailing byte or a lead byte of four or more
+                lenientRemaining = INVALID;
+                return;
+            }
+            lenientLead = b;
+            return;
+        }
+        final boolean first = (lenientLead < 0xe0 && lenientRemaining == 1) || lenientRemaining == 2;
+        final int lower = first && lenientLead == 0xe0 ? 0xa0 : 0x80;
+        if (b < lower || b > 0xbf) {
+            lenientRemaining = INVALID;
+            return;
+        }
+        lenientRemaining--;
+    }
+
+    // Well formed utf8 per the Unicode standard, reporting each character decoded
+    private void strict(final int b) {
+        if (strictRemaining > 0) {
+            if (b >= strictLower && b <= strictUpper) {
+                strictCodePoint = (strictCodePoint << 6) | (b & 0x3f);
+                strictLower = 0x80;
+                strictUpper = 0xbf;
+                if (--strictRemaining == 0) {
+                    codePoint(strictCodePoint);
+                }
+                return;
+            }
+            // the sequence is cut short, the byte starts over as a lead byte like the decoder does
+            malformed = true;
+            strictRemaining = 0;
+            strictLower = 0x80;
+            strictUpper = 0xbf;
+        }
+        if (b < 0x80) {
+            codePoint(b);
+        } else if (b >= 0xc2 && b <= 0xdf) {
+            strictRemaining = 1;
+            strictCodePoint = b & 0x1f;
+        } else if (b >= 0xe0 && b <= 0xef) {
+            strictRemaining = 2;
+            strictCodePoint = b & 0x0f;
+            if (b == 0xe0) {
+                strictLower = 0xa0;
+            } else if (b == 0xed) {
+                strictUpper = 0x9f;
+            }
+        } else if (b >= 0xf0 && b <= 0xf4) {
+            strictRemaining = 3;
+            strictCodePoint = b & 0x07;
+            if (b == 0xf0) {
+                strictLower = 0x90;
+            } else if (b == 0xf4) {
+                strictUpper = 0x8f;
+            }
+        } else {
+            malformed = true;
+        }
+    }
+
+    private static boolean isControl(final int b) {
+        return (b < 0x20 || b == 0x7f) && b != '\t' && b != '\n' && b != '\r' && b != '\f';
+    }
+
+    private void codePoint(final int codePoint) {
+        if (ByteUtil.isNotIndexable(codePoint)) {
+            nonIndexable++;
+        }
+    }
+}
@@ -4,38 +4,84 @@ import emissary.config.ConfigUtil;
 import emissary.config.Configurator;
 
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
 /**
  * Help determine type of data from various data file mappings The name of the file gives some context to the mappings
  * it provides.
+ * <p>
+ * Lookups run against an immutable snapshot of the mappings with labels already upper cased. Loading, reloading and
+ * adding types build a new snapshot and swap it in, so a lookup sees either the old mappings or the new ones and never
+ * a mix. When TYPE_ENGINE_RELOAD_INTERVAL is set the configured files are checked on that interval and reloaded when
+ * they change.
  */
 public class TypeEngine {
     // Private logger
     private static final Logger logger = LoggerFactory.getLogger(TypeEngine.class);
 
-    // Map of name to Configurator
+    // The config files loaded so far, in order
+    private final List<String> configFiles = new ArrayList<>();
+
+    /**
+     * Map of engine name to the Configurator it was loaded from
+     *
+     * @deprecated lookups no longer read this map, changes made to it directly are only seen after {@link #reload()}
+     */
+    @Deprecated
     protected Map<String, Configurator> contextMapping = new HashMap<>();
 
-    // Map of name to Map for extra mappings
+    /**
+     * Map of name to Map for extra mappings
+     *
+     * @deprecated use {@link #addType(String, String, String)}, changes made to this map directly are only seen after
+     *             {@link #reload()}
+     */
+    @Deprecated
     protected Map<String, Map<String, String>> extraMapping = new HashMap<>();
 
+    // What lookups run against, replaced whole on every change
+    private volatile Map<String, Engine> engines = Collections.emptyMap();
+
+    // Checks the config files for changes while watching
+    @Nullable
+    private ScheduledExecutorService watcher;
+
+    // What the config files looked like when last loaded
+    private String fingerprint = "";
+
     /**
-     * Configure from a Configurator of the delegating class
+     * Configure from a Configurator of the delegating class. When TYPE_ENGINE_RELOAD_INTERVAL is set this starts
+     * watching the config files, which the owner should end with {@link #stopWatching()} when it shuts down. A watcher
+     * that is never stopped ends on its own once the engine is no longer reachable.
      */
     public TypeEngine(Configurator configG) {
         List<String> l = configG.findEntries("TYPE_ENGINE_FILE");
         if (CollectionUtils.isNotEmpty(l)) {
             configure(l);
         }
+        long interval = configG.findLongEntry("TYPE_ENGINE_RELOAD_INTERVAL", 0L);
+        if (interval > 0) {
+            startWatching(interval);
+        }
     }
 
     /**
@@ -53,28 +99,200 @@ public class TypeEngine {
     /**
      * Configure it
      */
-    public void configure(@Nullable List<String> configFiles) {
+    public synchronized void configure(@Nullable List<String> configFiles) {
 
         if (configFiles == null) {
             logger.info("No files specified for type engine");
             return;
         }
 
-        for (String name : configFiles) {
+        this.configFiles.addAll(configFiles);
+        load(configFiles, contextMapping);
+        swap();
+        if (watcher != null) {
+            fingerprint = fingerprint(this.configFiles);
+        }
+    }
+
+    /**
+     * Read all the configured files again and swap in the new mappings. Extra mappings added with
+     * {@link #addType(String, String, String)} are kept, as are the mappings from any file that cannot be read.
+     */
+    public synchronized void reload() {
+        String current = fingerprint(configFiles);
+        load(configFiles, contextMapping);
+        swap();
+        fingerprint = current;
+        logger.info("TypeEngine reloaded {}", configFiles);
+    }
+
+    /**
+     * Check the configured files every interval and reload when one of them, or one of its flavors, changes. Only
+     * config files on the file system can change, those read from the classpath are left alone.
+     * <p>
+     * The checks run on a daemon thread until {@link #stopWatching()} is called. The thread only holds a weak reference
+     * to this engine and ends on its own once the engine is no longer reachable.
+     *
+     * @param intervalMillis how often to check
+     */
+    public synchronized void startWatching(long intervalMillis) {
+        Validate.isTrue(intervalMillis > 0, "Required: intervalMillis > 0!");
+        stopWatching();
+        fingerprint = fingerprint(configFiles);
+        ScheduledExecutorService exec = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "TypeEngineWatcher");
+            t.setDaemon(true);
+            return t;
+        });
+        WeakReference<TypeEngine> ref = new WeakReference<>(this);
+        var unused = exec.scheduleWithFixedDelay(() -> {
+            TypeEngine engine = ref.get();
+            if (engine == null) {
+                exec.shutdown();
+            } else {
+                engine.reloadIfChanged();
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        watcher = exec;
+    }
+
+    /**
+     * Check whether the config files are being watched
+     *
+     * @return true between {@link #startWatching(long)} and {@link #stopWatching()}
+     */
+    public synchronized boolean isWatching() {
+        return watcher != null;
+    }
+
+    /**
+     * Stop checking the configured files for changes
+     */
+    public synchronized void stopWatching() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+            watcher = null;
+        }
+    }
+
+    /**
+     * Reload when the configured files are not what was last loaded
+     */
+    private void reloadIfChanged() {
+        try {
+            List<String> names;
+            String last;
+            synchronized (this) {
+                names = new ArrayList<>(configFiles);
+                last = fingerprint;
+            }
+            if (!fingerprint(names).equals(last)) {
+                reload();
+            }
+        } catch (RuntimeException e) {
+            logger.error("TypeEngine unable to reload {}", configFiles, e);
+        }
+    }
+
+    /**
+     * Describe where each config file and its flavors are and when they last changed
+     */
+    private static String fingerprint(List<String> names) {
+        StringBuilder sb = new StringBuilder();
+        for (String name : names) {
+            fingerprint(name, sb);
+            for (String flavored : ConfigUtil.addFlavors(name)) {
+                fingerprint(flavored, sb);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void fingerprint(String name, StringBuilder sb) {
+        sb.append(name).append('=');
+        try {
+            URL url = ConfigUtil.getConfigLocation(name);
+            sb.append(url);
+            if ("file".equals(url.getProtocol())) {
+                File f = new File(url.toURI());
+                sb.append('@').append(f.lastModified()).append(':').append(f.length());
+            }
+        } catch (IOException | URISyntaxException e) {
+            sb.append("<none>");
+        }
+        sb.append(';');
+    }
+
+    /**
+     * Read the named config files, later files replace earlier ones for the same engine
+     */
+    private static void load(List<String> names, Map<String, Configurator> loaded) {
+        for (String name : names) {
             try {
                 Configurator c = ConfigUtil.getConfigInfo(name);
                 String engineName = c.findStringEntry("ENGINE_TYPE", name);
                 logger.debug("TypeEngine loaded {} as {}", name, engineName);
-                contextMapping.put(engineName, c);
+                loaded.put(engineName, c);
             } catch (IOException e) {
                 logger.error("TypeEngine unable to read {}", name, e);
             }
         }
     }
 
+    /**
+     * Upper case the labels once here so lookups do not have to. A label already in upper case wins over one that only
+     * folds to it, as it did when lookups went to the config directly.
+     */
+    private static Map<String, String> mappings(Configurator c) {
+        Map<String, String> folded = new HashMap<>();
+        List<String> mixed = new ArrayList<>();
+        for (String key : c.entryKeys()) {
+            String upper = fold(key);
+            if (upper.equals(key)) {
+                String value = c.findStringEntry(key, null);
+                if (value != null) {
+                    folded.put(key, value);
+                }
+            } else {
+                mixed.add(key);
+            }
+        }
+        for (String key : mixed) {
+            String value = c.findStringEntry(key, null);
+            if (value != null) {
+                folded.putIfAbsent(fold(key), value);
+            }
+        }
+        return folded;
+    }
+
+    /**
+     * Build new engines from the loaded and extra mappings and make them the ones lookups use
+     */
+    private void swap() {
+        Map<String, Engine> e = new HashMap<>();
+        for (String name : contextMapping.keySet()) {
+            e.put(name, engine(name));
+        }
+        for (String name : extraMapping.keySet()) {
+            e.computeIfAbsent(name, this::engine);
+        }
+        engines = Collections.unmodifiableMap(e);
+    }
+
+    /**
+     * Build the named engine, extra mappings override the loaded ones
+     */
+    private Engine engine(String name) {
+        Configurator c = contextMapping.get(name);
+        Map<String, String> forms = c == null ? new LinkedHashMap<>() : new LinkedHashMap<>(mappings(c));
+        extraMapping.getOrDefault(name, Collections.emptyMap()).forEach((label, form) -> forms.put(fold(label), form));
+        return new Engine(forms);
+    }
+
     /**
      * Look up label in specified engine
-     * 
+     *
      * @param engine name of the engine to use
      * @param label LHS part of equation to lookup
      * @return RHS part of mapping or null if none found
@@ -88,50 +306,103 @@ public class TypeEngine {
             return null;
         }
 
-        String ret = null;
-
-        // Look up an override mapping
-        Map<String, String> extra = extraMapping.get(engine);
-        if (extra != null) {
-            ret = extra.get(label.toUpperCase(Locale.getDefault()));
+        Engine e = engines.get(engine);
+        if (e == null) {
+            return null;
         }
 
-        // Grab the specified engine and do the default lookup
+        // Most labels are already upper case, only fold the ones that miss
+        String ret = e.forms.get(label);
         if (ret == null) {
-            Configurator c = contextMapping.get(engine);
-            if (c != null) {
-                ret = c.findStringEntry(label.toUpperCase(Locale.getDefault()), null);
-                if (logger.isDebugEnabled() && ret != null) {
-                    logger.debug("Found {} while looking up type for {}", ret, label.toUpperCase(Locale.getDefault()));
-                }
+            String upper = fold(label);
+            if (!upper.equals(label)) {
+                ret = e.forms.get(upper);
             }
         }
-
+        if (logger.isDebugEnabled() && ret != null) {
+            logger.debug("Found {} while looking up type for {}", ret, label);
+        }
         return ret;
     }
 
     /**
      * Add an extra mapping into the specified engine
      */
-    public void addType(String engine, String label, String value) {
-        Map<String, String> extra = extraMapping.computeIfAbsent(engine, k -> new HashMap<>());
-        extra.put(label, value);
+    public synchronized void addType(String engine, String label, String value) {
+        extraMapping.computeIfAbsent(engine, k -> new HashMap<>()).put(fold(label), value);
+        Map<String, Engine> e = new HashMap<>(engines);
+        e.put(engine, engine(engine));
+        engines = Collections.unmodifiableMap(e);
     }
 
 
     /**
-     * Chop down to file extension and look it up in specified engine
+     * Look up the file extension in specified engine. The longest mapped extension wins, so a mapping for
+     * <code>TAR.GZ</code> is used for <code>file.tar.gz</code> before one for <code>GZ</code>. A name with no extension
+     * is looked up whole.
      */
     @Nullable
-    public String getFormByExtension(String engine, @Nullable String fn) {
-        if (fn == null) {
+    public String getFormByExtension(@Nullable String engine, @Nullable String fn) {
+        if (engine == null || fn == null) {
             return null;
         }
 
-        int idx = fn.lastIndexOf('.');
-        if (idx != -1) {
-            return getForm(engine, fn.substring(idx + 1));
+        if (fn.indexOf('.') == -1) {
+            return getForm(engine, fn);
+        }
+
+        Engine e = engines.get(engine);
+        return e == null ? null : e.extensions.longestExtension(fn);
+    }
+
+    private static String fold(String label) {
+        return label.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * The mappings for one engine, never changed once built
+     */
+    private static final class Engine {
+        final Map<String, String> forms;
+        final SuffixNode extensions = new SuffixNode();
+
+        Engine(Map<String, String> forms) {
+            this.forms = forms;
+            forms.forEach(extensions::add);
+        }
+    }
+
+    /**
+     * A trie of labels read from the last character back, so the extensions of a file name are found walking in from
+     * its end
+     */
+    private static final class SuffixNode {
+        final Map<Character, SuffixNode> children = new HashMap<>();
+        @Nullable
+        String value;
+
+        void add(String label, String form) {
+            SuffixNode node = this;
+            for (int i = label.length() - 1; i >= 0; i--) {
+                node = node.children.computeIfAbsent(label.charAt(i), k -> new SuffixNode());
+            }
+            node.value = form;
+        }
+
+        @Nullable
+        String longestExtension(String fn) {
+            String found = null;
+            SuffixNode node = this;
+            for (int i = fn.length() - 1; i > 0; i--) {
+                node = node.children.get(Character.toUpperCase(fn.charAt(i)));
+                if (node == null) {
+                    break;
+                }
+                if (node.value != null && fn.charAt(i - 1) == '.') {
+                    found = node.value;
+                }
+            }
+            return found;
         }
-        return getForm(engine, fn);
     }
 }
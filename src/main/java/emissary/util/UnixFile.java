@@ -88,6 +88,14 @@ public class UnixFile {
         return util.size();
     }
 
+    /**
+     * The number of leading bytes {@link #evaluateByMagicNumber(byte[])} can look at. A sample of this many bytes gets
+     * the same answer as the whole data.
+     */
+    public int magicSampleLength() {
+        return util.sampleLength();
+    }
+
     /**
      * Behaves just like the UNIX file command. First performs a magic number test, then an ascii or binary file test. This
      * is also the same as calling <code>evaluateByMagicNumber (bytes :
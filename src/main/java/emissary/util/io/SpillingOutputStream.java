@@ -0,0 +1,177 @@
+package emissary.util.io;
+
+import emissary.core.channels.FileChannelFactory;
+import emissary.core.channels.InMemoryChannelFactory;
+import emissary.core.channels.SeekableByteChannelFactory;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import javax.annotation.Nullable;
+
+/**
+ * An output stream that keeps up to a fixed number of bytes in memory and moves everything to a temp file once that is
+ * exceeded. The content is made available as a {@link SeekableByteChannelFactory} so large outputs can be handed to a
+ * data object without ever being held in a single array.
+ * <p>
+ * When the content spilled, the temp file belongs to the caller until {@link #delete()} is called; it is not removed on
+ * close since the channel factory reads from it. Instances are not thread safe.
+ */
+public class SpillingOutputStream extends OutputStream {
+    private static final Logger logger = LoggerFactory.getLogger(SpillingOutputStream.class);
+
+    private final int memoryLimit;
+    private final Path tempDir;
+    private byte[] buffer;
+    private int count = 0;
+    private long size = 0;
+    @Nullable
+    private Path file = null;
+    @Nullable
+    private OutputStream fileStream = null;
+    private boolean closed = false;
+
+    /**
+     * Create a stream that spills to the default temp directory
+     *
+     * @param memoryLimit the most bytes held in memory before spilling
+     */
+    public SpillingOutputStream(final int memoryLimit) {
+        this(memoryLimit, Path.of(System.getProperty("java.io.tmpdir", "/tmp")));
+    }
+
+    /**
+     * Create a stream
+     *
+     * @param memoryLimit the most bytes held in memory before spilling
+     * @param tempDir the directory to create the spill file in
+     */
+    public SpillingOutputStream(final int memoryLimit, final Path tempDir) {
+        Validate.isTrue(memoryLimit >= 0, "Required: memoryLimit >= 0!");
+        Validate.notNull(tempDir, "Required: tempDir not null!");
+
+        this.memoryLimit = memoryLimit;
+        this.tempDir = tempDir;
+        this.buffer = new byte[Math.min(memoryLimit, 8192)];
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        Validate.isTrue(!closed, "Stream is closed");
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        if (fileStream == null && count + len > memoryLimit) {
+            spill();
+        }
+        if (fileStream != null) {
+            fileStream.write(b, off, len);
+        } else {
+            if (count + len > buffer.length) {
+                buffer = Arrays.copyOf(buffer, (int) Math.min(memoryLimit, Math.max(2L * buffer.length, (long) count + len)));
+            }
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+        }
+        size += len;
+    }
+
+    private void spill() throws IOException {
+        file = Files.createTempFile(tempDir, "spill", ".tmp");
+        logger.debug("Spilling output beyond {} bytes to {}", memoryLimit, file);
+        fileStream = new BufferedOutputStream(Files.newOutputStream(file));
+        fileStream.write(buffer, 0, count);
+        buffer = new byte[0];
+        count = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (fileStream != null) {
+            fileStream.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            if (fileStream != null) {
+                fileStream.close();
+            }
+        }
+    }
+
+    /**
+     * @return the total number of bytes written
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return true if the content has moved to a temp file
+     */
+    public boolean isSpilled() {
+        return file != null;
+    }
+
+    /**
+     * @return the temp file holding the content, or null if it is still in memory
+     */
+    @Nullable
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Get the content written to the stream, which must be closed first
+     *
+     * @return a factory over the temp file if the content spilled, otherwise over the bytes in memory
+     */
+    public SeekableByteChannelFactory getChannelFactory() {
+        Validate.isTrue(closed, "Stream must be closed before reading");
+        if (file != null) {
+            return FileChannelFactory.create(file);
+        }
+        return InMemoryChannelFactory.create(count == buffer.length ? buffer : Arrays.copyOf(buffer, count));
+    }
+
+    /**
+     * Close the stream, discard its content and remove any temp file
+     *
+     * @return true if there was no temp file or it was removed
+     */
+    public boolean delete() {
+        try {
+            close();
+        } catch (IOException e) {
+            logger.debug("Error closing spill file {}", file, e);
+        }
+        buffer = new byte[0];
+        count = 0;
+        if (file == null) {
+            return true;
+        }
+        try {
+            Files.deleteIfExists(file);
+            return true;
+        } catch (IOException e) {
+            logger.warn("Cannot delete spill file {}", file, e);
+            return false;
+        }
+    }
+}
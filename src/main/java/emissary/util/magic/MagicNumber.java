@@ -349,6 +349,28 @@ public class MagicNumber {
         return subject;
     }
 
+    /**
+     * The number of leading bytes of a sample this entry and its continuations can look at. Bytes past this point never
+     * change the description, so a sample cut to this length describes the same as the whole data.
+     *
+     * @return the sample length
+     */
+    public int sampleLength() {
+        long length = Math.max(0L, (long) offset + Math.max(dataTypeLength, 1));
+        if (substitute && dataType == TYPE_STRING) {
+            // format only substitutes a string when the sample runs two bytes past the offset
+            length = Math.max(length, (long) offset + 3);
+        }
+        if (dependencies != null) {
+            for (MagicNumber[] layer : dependencies) {
+                for (MagicNumber item : layer) {
+                    length = Math.max(length, item.sampleLength());
+                }
+            }
+        }
+        return (int) Math.min(length, Integer.MAX_VALUE);
+    }
+
     /**
      * Add child continuations
      */
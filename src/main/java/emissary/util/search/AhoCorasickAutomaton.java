@@ -0,0 +1,292 @@
+package emissary.util.search;
+
+import emissary.core.channels.SeekableByteChannelFactory;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Immutable Aho-Corasick automaton that finds every occurrence of a set of keywords in a single forward pass over the
+ * data. The automaton is built once per keyword set and, since it holds no mutable state, may be shared by any number of
+ * threads.
+ * <p>
+ * The goto and failure functions are compiled into a single deterministic transition table stored in an int array, one
+ * row per state. To keep the table small, bytes are first mapped to equivalence classes: each distinct byte that appears
+ * in a keyword gets its own column and every other byte shares column zero.
+ * <p>
+ * Scanning state is a single int, so a scan may be suspended at the end of one buffer and resumed at the start of the
+ * next. This allows a channel to be scanned chunk by chunk while still finding keywords that span chunk boundaries.
+ */
+@SuppressWarnings("AvoidObjectArrays")
+public final class AhoCorasickAutomaton {
+
+    /** The state every scan starts in. */
+    public static final int INITIAL_STATE = 0;
+
+    /** Size of the chunks read when scanning a channel. */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    private final int[] keywordLengths;
+    /** Maps each unsigned byte value to its column in the transition table. */
+    private final int[] byteClasses = new int[256];
+    /** Number of columns in the transition table. */
+    private final int alphabetSize;
+    /** Complete transition function: transitions[state * alphabetSize + byteClass] is the next state. */
+    private final int[] transitions;
+    /** The nearest state on the failure chain (including the state itself) that completes a keyword, or -1. */
+    private final int[] matchLinks;
+    /** The next state after this one on the failure chain that completes a keyword, or -1. */
+    private final int[] dictionaryLinks;
+    /** The ids of the keywords completed by state s are outputIds[outputStarts[s]] to outputIds[outputStarts[s + 1] - 1]. */
+    private final int[] outputStarts;
+    private final int[] outputIds;
+
+    /**
+     * Build an automaton for the UTF-8 encoding of the keywords.
+     *
+     * @param keywords to search for. A keyword's id is its index in this array.
+     */
+    public AhoCorasickAutomaton(final String[] keywords) {
+        this(toBytes(keywords));
+    }
+
+    /**
+     * Build an automaton for the keywords.
+     *
+     * @param keywords to search for. A keyword's id is its index in this array.
+     */
+    public AhoCorasickAutomaton(final byte[][] keywords) {
+        Validate.notNull(keywords, "Required: keywords not null!");
+
+        keywordLengths = new int[keywords.length];
+
+        // Assign a column to every byte used by a keyword and size the trie
+        int columns = 1;
+        long maxStates = 1;
+        for (int id = 0; id < keywords.length; id++) {
+            final byte[] keyword = keywords[id];
+
+            Validate.isTrue(keyword != null && keyword.length > 0, "Required: keywords not null or empty!");
+
+            keywordLengths[id] = keyword.length;
+            maxStates += keyword.length;
+            for (final byte b : keyword) {
+                if (byteClasses[b & 0xff] == 0) {
+                    byteClasses[b & 0xff] = columns++;
+                }
+            }
+        }
+        alphabetSize = columns;
+
+        // Build the trie. Zero is used for "no child" as the initial state is never a child.
+        final int[] table = new int[Math.multiplyExact(Math.toIntExact(maxStates), alphabetSize)];
+        final int[] terminalStates = new int[keywords.length];
+        int stateCount = 1;
+        for (int id = 0; id < keywords.length; id++) {
+            int state = INITIAL_STATE;
+            for (final byte b : keywords[id]) {
+                final int index = state * alphabetSize + byteClasses[b & 0xff];
+                if (table[index] == 0) {
+                    table[index] = stateCount++;
+                }
+                state = table[index];
+            }
+            terminalStates[id] = state;
+        }
+
+        // Group the keyword ids by terminal state, keeping ids in ascending order within each state
+        outputStarts = new int[stateCount + 1];
+        for (final int state : terminalStates) {
+            outputStarts[state + 1]++;
+        }
+        for (int state = 0; state < stateCount; state++) {
+            outputStarts[state + 1] += outputStarts[state];
+        }
+        outputIds = new int[keywords.length];
+        final int[] fill = new int[stateCount];
+        for (int id = 0; id < keywords.length; id++) {
+            final int state = terminalStates[id];
+            outputIds[outputStarts[state] + fill[state]++] = id;
+        }
+
+        // Breadth first, compute failure links and replace missing transitions with the failure state's transition
+        final int[] failures = new int[stateCount];
+        final int[] queue = new int[stateCount];
+        matchLinks = new int[stateCount];
+        dictionaryLinks = new int[stateCount];
+        matchLinks[INITIAL_STATE] = -1;
+        dictionaryLinks[INITIAL_STATE] = -1;
+
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = INITIAL_STATE;
+        while (head < tail) {
+            final int state = queue[head++];
+            final int row = state * alphabetSize;
+            final int failureRow = failures[state] * alphabetSize;
+
+            if (state != INITIAL_STATE) {
+                dictionaryLinks[state] = matchLinks[failures[state]];
+                matchLinks[state] = hasOutput(state) ? state : dictionaryLinks[state];
+            }
+
+            for (int column = 0; column < alphabetSize; column++) {
+                final int child = table[row + column];
+                if (child != 0) {
+                    failures[child] = state == INITIAL_STATE ? INITIAL_STATE : table[failureRow + column];
+                    queue[tail++] = child;
+                } else if (state != INITIAL_STATE) {
+                    table[row + column] = table[failureRow + column];
+                }
+            }
+        }
+
+        transitions = table.length == stateCount * alphabetSize ? table : Arrays.copyOf(table, stateCount * alphabetSize);
+    }
+
+    private static byte[][] toBytes(final String[] keywords) {
+        Validate.notNull(keywords, "Required: keywords not null!");
+
+        final byte[][] bytes = new byte[keywords.length][];
+        for (int i = 0; i < keywords.length; i++) {
+            Validate.notNull(keywords[i], "Required: keywords not null or empty!");
+            bytes[i] = keywords[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return bytes;
+    }
+
+    private boolean hasOutput(final int state) {
+        return outputStarts[state + 1] > outputStarts[state];
+    }
+
+    public int getKeywordCount() {
+        return keywordLengths.length;
+    }
+
+    public int getKeywordLength(final int id) {
+        return keywordLengths[id];
+    }
+
+    public int getStateCount() {
+        return matchLinks.length;
+    }
+
+    /**
+     * Advance the automaton by a single byte.
+     *
+     * @param state the current state.
+     * @param b the next byte of data.
+     * @return the new state.
+     */
+    public int nextState(final int state, final byte b) {
+        return transitions[state * alphabetSize + byteClasses[b & 0xff]];
+    }
+
+    /**
+     * Whether any keyword ends at the last byte consumed to reach this state.
+     *
+     * @param state the current state.
+     * @return true if {@link #collectMatches(int, long, HitBuffer)} would add at least one hit.
+     */
+    public boolean isMatch(final int state) {
+        return matchLinks[state] >= 0;
+    }
+
+    /**
+     * Add a hit for every keyword that ends at the last byte consumed to reach this state. Longer keywords are reported
+     * before shorter ones.
+     *
+     * @param state the current state.
+     * @param endOffset the offset of the last byte consumed.
+     * @param hits to add the hits to.
+     */
+    public void collectMatches(final int state, final long endOffset, final HitBuffer hits) {
+        for (int match = matchLinks[state]; match >= 0; match = dictionaryLinks[match]) {
+            for (int i = outputStarts[match]; i < outputStarts[match + 1]; i++) {
+                final int id = outputIds[i];
+                hits.add(endOffset - keywordLengths[id] + 1, id, keywordLengths[id]);
+            }
+        }
+    }
+
+    /**
+     * Scan data[start] to data[stop - 1], continuing from the given state.
+     *
+     * @param data to scan.
+     * @param start index of the first byte to scan.
+     * @param stop index after the last byte to scan.
+     * @param state to continue from; {@link #INITIAL_STATE} for a new scan.
+     * @param baseOffset the offset reported for a keyword starting at data[0].
+     * @param hits to add every keyword found to.
+     * @return the state after consuming the last byte, to be passed to the scan of the following data.
+     */
+    public int scan(final byte[] data, final int start, final int stop, final int state, final long baseOffset, final HitBuffer hits) {
+        final int[] table = transitions;
+        final int[] classes = byteClasses;
+        final int[] links = matchLinks;
+        final int columns = alphabetSize;
+        int current = state;
+
+        for (int i = start; i < stop; i++) {
+            current = table[current * columns + classes[data[i] & 0xff]];
+            if (links[current] >= 0) {
+                collectMatches(current, baseOffset + i, hits);
+            }
+        }
+
+        return current;
+    }
+
+    /**
+     * Scan all of the data for keywords.
+     *
+     * @param data to scan.
+     * @param hits to add every keyword found to.
+     */
+    public void scan(final byte[] data, final HitBuffer hits) {
+        scan(data, 0, data.length, INITIAL_STATE, 0, hits);
+    }
+
+    /**
+     * Scan the channel from its current position to its end, reading it in chunks. Reported offsets are positions in the
+     * channel.
+     *
+     * @param channel to scan.
+     * @param chunkSize the number of bytes to read at a time.
+     * @param hits to add every keyword found to.
+     * @throws IOException if the channel cannot be read.
+     */
+    public void scan(final SeekableByteChannel channel, final int chunkSize, final HitBuffer hits) throws IOException {
+        Validate.isTrue(chunkSize > 0, "Required: chunkSize > 0");
+
+        final ByteBuffer buffer = ByteBuffer.allocate(chunkSize);
+        final byte[] chunk = buffer.array();
+        long chunkOffset = channel.position();
+        int state = INITIAL_STATE;
+        int bytesRead;
+
+        while ((bytesRead = channel.read(buffer)) >= 0) {
+            state = scan(chunk, 0, bytesRead, state, chunkOffset, hits);
+            chunkOffset += bytesRead;
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Scan an entire channel for keywords.
+     *
+     * @param seekableByteChannelFactory to create the channel to scan.
+     * @param hits to add every keyword found to.
+     * @throws IOException if the channel cannot be read.
+     */
+    public void scan(final SeekableByteChannelFactory seekableByteChannelFactory, final HitBuffer hits) throws IOException {
+        try (SeekableByteChannel channel = seekableByteChannelFactory.create()) {
+            scan(channel, DEFAULT_CHUNK_SIZE, hits);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package emissary.util.search;
+
+import javax.annotation.Nullable;
+
+/**
+ * {@link IMultiKeywordScanner} backed by an {@link AhoCorasickAutomaton}. Every occurrence of every keyword is found,
+ * including overlapping occurrences, in a single forward pass over the data.
+ * <p>
+ * The automaton is immutable and may be shared: build it once per keyword set and hand it to a scanner per thread with
+ * {@link #AhoCorasickScanner(AhoCorasickAutomaton)}. The scanner itself only holds the position used by
+ * {@link #findNext()} and is not thread safe.
+ * <p>
+ * Hits are reported in order of the offset at which the keyword ends, with the offset of each hit being the offset of
+ * the first byte of the keyword. Only keywords lying entirely within the requested range are reported.
+ */
+@SuppressWarnings("AvoidObjectArrays")
+public class AhoCorasickScanner implements IMultiKeywordScanner {
+
+    @Nullable
+    private AhoCorasickAutomaton automaton = null;
+    private final HitBuffer hitBuffer = new HitBuffer();
+
+    @Nullable
+    private byte[] data = null;
+    private int lastPosition = -1;
+    private int lastState = AhoCorasickAutomaton.INITIAL_STATE;
+
+    public AhoCorasickScanner() {}
+
+    /**
+     * Create a scanner that uses an already built, possibly shared, automaton.
+     *
+     * @param automaton to scan with.
+     */
+    public AhoCorasickScanner(final AhoCorasickAutomaton automaton) {
+        this.automaton = automaton;
+    }
+
+    @Override
+    public void loadKeywords(final String[] keywords) {
+        this.automaton = new AhoCorasickAutomaton(keywords);
+        this.data = null;
+        this.lastPosition = -1;
+        this.lastState = AhoCorasickAutomaton.INITIAL_STATE;
+    }
+
+    @Nullable
+    public AhoCorasickAutomaton getAutomaton() {
+        return this.automaton;
+    }
+
+    @Override
+    public HitList findAll(@Nullable final byte[] dataArg) {
+        if (dataArg != null) {
+            return this.findAll(dataArg, 0, dataArg.length);
+        }
+        return new HitList();
+    }
+
+    @Override
+    public HitList findAll(@Nullable final byte[] dataArg, final int start) {
+        if (dataArg != null) {
+            return this.findAll(dataArg, start, dataArg.length);
+        }
+        return new HitList();
+    }
+
+    @Override
+    public HitList findAll(@Nullable final byte[] dataArg, final int start, final int stop) {
+        if (dataArg == null || this.automaton == null) {
+            return new HitList();
+        }
+
+        this.data = dataArg;
+        this.hitBuffer.clear();
+        this.automaton.scan(dataArg, start, stop, AhoCorasickAutomaton.INITIAL_STATE, 0, this.hitBuffer);
+        this.lastPosition = stop;
+        this.lastState = AhoCorasickAutomaton.INITIAL_STATE;
+
+        return this.hitBuffer.toHitList();
+    }
+
+    @Override
+    public HitList findNext() {
+        if (this.data != null) {
+            return this.findNext(this.data);
+        }
+        return new HitList();
+    }
+
+    /**
+     * Find the keywords ending at the next position with any hits, starting after the position of the previous hits. When
+     * called with the same data as the previous call the automaton state is resumed as well, so keywords overlapping the
+     * previous hits are still found.
+     */
+    @Override
+    public HitList findNext(@Nullable final byte[] dataArg) {
+        if (dataArg == null) {
+            return new HitList();
+        }
+        final int state = dataArg == this.data ? this.lastState : AhoCorasickAutomaton.INITIAL_STATE;
+        return this.findNext(dataArg, this.lastPosition + 1, dataArg.length, state);
+    }
+
+    @Override
+    public HitList findNext(@Nullable final byte[] dataArg, final int start) {
+        if (dataArg != null) {
+            return this.findNext(dataArg, start, dataArg.length);
+        }
+        return new HitList();
+    }
+
+    @Override
+    public HitList findNext(@Nullable final byte[] dataArg, final int start, final int stop) {
+        if (dataArg != null) {
+            return this.findNext(dataArg, start, stop, AhoCorasickAutomaton.INITIAL_STATE);
+        }
+        return new HitList();
+    }
+
+    private HitList findNext(final byte[] dataArg, final int start, final int stop, final int initialState) {
+        if (this.automaton == null) {
+            return new HitList();
+        }
+
+        this.data = dataArg;
+        this.hitBuffer.clear();
+
+        int state = initialState;
+        int position;
+        for (position = start; position < stop; position++) {
+            state = this.automaton.nextState(state, dataArg[position]);
+            if (this.automaton.isMatch(state)) {
+                this.automaton.collectMatches(state, position, this.hitBuffer);
+                break;
+            }
+        }
+
+        this.lastPosition = position;
+        this.lastState = state;
+
+        return this.hitBuffer.toHitList();
+    }
+}
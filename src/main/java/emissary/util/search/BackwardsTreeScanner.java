@@ -13,6 +13,10 @@ import javax.annotation.Nullable;
  * This class implements a tree state machine scanner that searches text backwards starting from the end. A list of
  * strings is provided as the keywords to be searched. This class is useful for a relatively small set of keywords.
  * Larger keyword lists can be used if you have memory!
+ * <p>
+ * The keywords are compiled into an immutable {@link BackwardsTrie}. Scanning keeps no state in the scanner, so a single
+ * instance may be used by many threads at once without locking; {@link #resetKeywords(String[])} atomically replaces the
+ * trie used by subsequent scans.
  *
  * @author ce
  * @version 1.0
@@ -20,11 +24,9 @@ import javax.annotation.Nullable;
 @SuppressWarnings("AvoidObjectArrays")
 public class BackwardsTreeScanner {
 
-    // The internal structure of the offset-keyword id array
-    // contained in the hit vectors
-
-    /** Root node of tree state diagram. Always start a search from here! */
-    private State root = new State((byte) 0);
+    /** The compiled keywords. Always start a search from here! */
+    @Nullable
+    private volatile BackwardsTrie trie = null;
 
     /**
      * Optional empty constructor
@@ -49,56 +51,58 @@ public class BackwardsTreeScanner {
      * @param keywordStrings - String of keywords to learn
      * @throws Exception - if problem encountered while learning
      */
-    public synchronized void resetKeywords(String[] keywordStrings) throws Exception {
-        // make byte arrays
-        // Original list of keywords stored in byte array form.
-        byte[][] keywords = new byte[keywordStrings.length][];
-        root = new State((byte) 0); // reset state
-        // and learn them
-        for (int i = 0; i < keywords.length; i++) {
-            keywords[i] = keywordStrings[i].getBytes();
-            root.learn(keywordStrings[i].getBytes(), i);
-        }
-        // root.print(System.out);
+    public void resetKeywords(String[] keywordStrings) throws Exception {
+        trie = BackwardsTrie.compile(keywordStrings);
+    }
+
+    /**
+     * Get the compiled keywords, for sharing with other scanners.
+     *
+     * @return the trie, or null if no keywords have been learned
+     */
+    @Nullable
+    public BackwardsTrie getTrie() {
+        return trie;
     }
 
     /**
      * This scans the byte array backwards from the offset. Each hit is added to the result vector. We stop when all
      * possibilities are found
      */
-    public synchronized int scan(byte[] data, int offset, HitList result) throws Exception {
+    public int scan(byte[] data, int offset, HitList result) throws Exception {
         if (result == null) {
             throw new Exception("Null result vector in 3rd parameter of scan()");
         }
-        // reset the state machine
-        State state = root;
-        int curPos = offset;
-        while (state != null && curPos >= 0) {
-            // Save any matches for this state.
-            // get the next character
-            byte ch = data[curPos];
-            // move to the next state. Really complicated, right?
-            if (ch < 0) {
-                state = state.nextStates[256 + (int) ch];
-            } else {
-                state = state.nextStates[ch];
-            }
-            // move the the previous character
-            if (state != null && state.matches != null) {
-                for (int i = 0; i < state.matches.length; i++) {
-                    int id = state.matches[i];
-                    Hit tmp = new Hit(curPos, id);
-                    result.add(tmp);
-                }
-            }
-            curPos--;
+        final HitBuffer hits = HitBuffer.scratch();
+        final int curPos = scan(data, offset, hits);
+        for (int i = 0; i < hits.size(); i++) {
+            result.add(new Hit((int) hits.getOffset(i), hits.getId(i)));
         }
         return curPos;
     }
 
-    /*
+    /**
+     * This scans the byte array backwards from the offset, adding each hit to a reusable buffer without allocating.
+     *
+     * @param data to scan
+     * @param offset of the last byte of any keyword to report
+     * @param hits to add the hits to
+     * @return the offset before the last byte examined
+     */
+    public int scan(byte[] data, int offset, HitBuffer hits) {
+        final BackwardsTrie current = trie;
+        if (current == null) {
+            return offset - 1;
+        }
+        return current.scan(data, offset, hits);
+    }
+
+    /**
      * This class implements a state machine that can learn character sequences.
+     *
+     * @deprecated scanning uses an immutable {@link BackwardsTrie}, see {@link #getTrie()}
      */
+    @Deprecated
     public class State {
         // Each state has 256 transitions leaving it to new states based
         // on a single ascii character. If there is no next state for a
@@ -147,10 +151,10 @@ public class BackwardsTreeScanner {
                 // Get the next character in the word
                 byte nextChar = word[wordLoc];
                 // See if the state already exists
-                State nextState = nextStates[nextChar];
+                State nextState = nextStates[nextChar & 0xff];
                 if (nextState == null) {
                     // Make a new state because it isn't there yet.
-                    nextState = nextStates[nextChar] = new State(nextChar);
+                    nextState = nextStates[nextChar & 0xff] = new State(nextChar);
                 }
                 // Learn the rest of the keyword in the new state.
                 nextState.learn(word, wordLoc - 1, id);
@@ -0,0 +1,205 @@
+package emissary.util.search;
+
+import org.apache.commons.lang3.Validate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import javax.annotation.Nullable;
+
+/**
+ * Immutable, compiled form of the reversed keyword trie used by {@link BackwardsTreeScanner} and {@link FastBoyerMoore}.
+ * The data is walked backwards from an offset and every keyword that ends at that offset is reported.
+ * <p>
+ * The trie is flattened into int arrays: bytes are mapped to equivalence classes (one per distinct keyword byte, with
+ * every other byte sharing class zero) and the transitions are stored as one row of classes per state. As no scan state
+ * is kept in the trie it can be shared by any number of threads without locking, and scanning into a reused
+ * {@link HitBuffer} does not allocate.
+ */
+@SuppressWarnings("AvoidObjectArrays")
+public final class BackwardsTrie {
+
+    /** The state every scan starts in. */
+    private static final int ROOT = 0;
+
+    /** Maps each unsigned byte value to its column in the transition table. */
+    private final int[] byteClasses = new int[256];
+    /** Number of columns in the transition table. */
+    private final int alphabetSize;
+    /** transitions[state * alphabetSize + byteClass] is the next state, or ROOT if there is none. */
+    private final int[] transitions;
+    /** The ids matched at state s are matchIds[matchStarts[s]] to matchIds[matchStarts[s + 1] - 1]. */
+    private final int[] matchStarts;
+    private final int[] matchIds;
+    private final int minKeywordLength;
+    private final int maxKeywordLength;
+
+    /**
+     * Compile a trie where the id of each keyword is its index in the array.
+     *
+     * @param keywords to learn, encoded as UTF-8.
+     * @return the compiled trie.
+     */
+    public static BackwardsTrie compile(final String[] keywords) {
+        Validate.notNull(keywords, "Required: keywords not null!");
+
+        final byte[][] bytes = new byte[keywords.length][];
+        final int[] ids = new int[keywords.length];
+        for (int i = 0; i < keywords.length; i++) {
+            Validate.notNull(keywords[i], "Required: keywords not null or empty!");
+            bytes[i] = keywords[i].getBytes(StandardCharsets.UTF_8);
+            ids[i] = i;
+        }
+        return new BackwardsTrie(bytes, ids);
+    }
+
+    /**
+     * Compile a trie from groups of keywords where the id of each keyword is the index of its group.
+     *
+     * @param keywordGroups to learn.
+     * @return the compiled trie.
+     */
+    public static BackwardsTrie compile(final String[][] keywordGroups) {
+        Validate.notNull(keywordGroups, "Required: keywordGroups not null!");
+
+        final int count = Arrays.stream(keywordGroups).mapToInt(group -> group.length).sum();
+        final byte[][] bytes = new byte[count][];
+        final int[] ids = new int[count];
+        int index = 0;
+        for (int group = 0; group < keywordGroups.length; group++) {
+            for (final String keyword : keywordGroups[group]) {
+                Validate.notNull(keyword, "Required: keywords not null or empty!");
+                bytes[index] = keyword.getBytes(StandardCharsets.UTF_8);
+                ids[index++] = group;
+            }
+        }
+        return new BackwardsTrie(bytes, ids);
+    }
+
+    /**
+     * Compile a trie for the keywords.
+     *
+     * @param keywords to learn.
+     * @param ids the id reported for each keyword.
+     */
+    public BackwardsTrie(final byte[][] keywords, final int[] ids) {
+        Validate.notNull(keywords, "Required: keywords not null!");
+        Validate.notNull(ids, "Required: ids not null!");
+        Validate.isTrue(keywords.length == ids.length, "Required: an id for every keyword");
+
+        int columns = 1;
+        long maxStates = 1;
+        int min = keywords.length == 0 ? 0 : Integer.MAX_VALUE;
+        int max = 0;
+        for (final byte[] keyword : keywords) {
+            Validate.isTrue(keyword != null && keyword.length > 0, "Required: keywords not null or empty!");
+
+            maxStates += keyword.length;
+            min = Math.min(min, keyword.length);
+            max = Math.max(max, keyword.length);
+            for (final byte b : keyword) {
+                if (byteClasses[b & 0xff] == 0) {
+                    byteClasses[b & 0xff] = columns++;
+                }
+            }
+        }
+        alphabetSize = columns;
+        minKeywordLength = min;
+        maxKeywordLength = max;
+
+        // Learn each keyword from its last byte to its first
+        final int[] table = new int[Math.multiplyExact(Math.toIntExact(maxStates), alphabetSize)];
+        final int[] terminalStates = new int[keywords.length];
+        int stateCount = 1;
+        for (int i = 0; i < keywords.length; i++) {
+            int state = ROOT;
+            for (int j = keywords[i].length - 1; j >= 0; j--) {
+                final int index = state * alphabetSize + byteClasses[keywords[i][j] & 0xff];
+                if (table[index] == ROOT) {
+                    table[index] = stateCount++;
+                }
+                state = table[index];
+            }
+            terminalStates[i] = state;
+        }
+        transitions = Arrays.copyOf(table, stateCount * alphabetSize);
+
+        // Group the ids by terminal state, keeping the order the keywords were learned in
+        matchStarts = new int[stateCount + 1];
+        for (final int state : terminalStates) {
+            matchStarts[state + 1]++;
+        }
+        for (int state = 0; state < stateCount; state++) {
+            matchStarts[state + 1] += matchStarts[state];
+        }
+        matchIds = new int[keywords.length];
+        final int[] fill = new int[stateCount];
+        for (int i = 0; i < keywords.length; i++) {
+            final int state = terminalStates[i];
+            matchIds[matchStarts[state] + fill[state]++] = ids[i];
+        }
+    }
+
+    public int getMinKeywordLength() {
+        return minKeywordLength;
+    }
+
+    public int getMaxKeywordLength() {
+        return maxKeywordLength;
+    }
+
+    public int getStateCount() {
+        return matchStarts.length - 1;
+    }
+
+    /**
+     * Get the state reached from a state by walking back over a byte, for building the legacy state trees.
+     *
+     * @param state to walk from, zero being the state every scan starts in.
+     * @param b the unsigned byte value.
+     * @return the next state, or -1 if there is none.
+     */
+    int next(final int state, final int b) {
+        final int next = transitions[state * alphabetSize + byteClasses[b]];
+        return next == ROOT ? -1 : next;
+    }
+
+    /**
+     * Get the ids of the keywords matched at a state, for building the legacy state trees.
+     *
+     * @param state to get the matches of.
+     * @return the ids, or null if no keyword ends at the state.
+     */
+    @Nullable
+    int[] matches(final int state) {
+        return matchStarts[state] == matchStarts[state + 1] ? null : Arrays.copyOfRange(matchIds, matchStarts[state], matchStarts[state + 1]);
+    }
+
+    /**
+     * Scan the data backwards from the offset, adding a hit for every keyword that ends at the offset. Shorter keywords
+     * are reported before longer ones. The offset of each hit is the offset of the first byte of the keyword.
+     *
+     * @param data to scan.
+     * @param offset of the last byte of any keyword to report.
+     * @param hits to add the hits to.
+     * @return the offset before the last byte examined, -1 if the walk reached the start of the data.
+     */
+    public int scan(final byte[] data, final int offset, final HitBuffer hits) {
+        final int[] table = transitions;
+        final int[] classes = byteClasses;
+        final int columns = alphabetSize;
+        int state = ROOT;
+        int position = offset;
+
+        while (position >= 0) {
+            state = table[state * columns + classes[data[position] & 0xff]];
+            if (state == ROOT) {
+                return position - 1;
+            }
+            for (int i = matchStarts[state]; i < matchStarts[state + 1]; i++) {
+                hits.add(position, matchIds[i], offset - position + 1);
+            }
+            position--;
+        }
+        return position;
+    }
+}
@@ -19,6 +19,8 @@ public class ByteMatcher {
 
     public static final int NOTFOUND = -1;
 
+    private static final BytePattern NEWLINE = BytePattern.compile(new byte[] {'\n'});
+
     public ByteMatcher() {
         this(new byte[0]);
     }
@@ -150,6 +152,27 @@ public class ByteMatcher {
 
     }
 
+    /**
+     * This method finds a precompiled pattern in the text from {@code beginIndex} to {@code endIndex} and returns the
+     * offset. The case sensitivity of the pattern is used.
+     *
+     * @param pattern compiled pattern to find
+     * @param beginIndex start index
+     * @param endIndex the index to stop searching at, exclusive
+     *
+     * @return position
+     */
+    public int indexOf(BytePattern pattern, int beginIndex, int endIndex) {
+
+        // Impossible to find under these conditions
+        if (mydata == null || beginIndex > (mydata.length - pattern.length()) || endIndex > mydata.length) {
+            return NOTFOUND;
+        }
+
+        return scanner.indexOfPattern(pattern, beginIndex, endIndex);
+
+    }
+
     /**
      * Match pattern in the text
      *
@@ -232,6 +255,48 @@ public class ByteMatcher {
         return listIndexOf(pattern.getBytes(), beginIndex, endIndex);
     }
 
+    /**
+     * This method finds a pattern in the text from {@code beginIndex} to {@code endIndex} and adds the offsets to a
+     * reusable list instead of allocating a boxed one
+     *
+     * @param pattern bytes to find
+     * @param beginIndex start index
+     * @param endIndex the index to stop searching at, exclusive
+     * @param offsets list to add the positions to
+     *
+     * @return number of positions added
+     */
+    public int listIndexOf(byte[] pattern, int beginIndex, int endIndex, IntList offsets) {
+
+        // Impossible to find under these conditions
+        if (mydata == null || beginIndex > (mydata.length - pattern.length) || endIndex > mydata.length) {
+            return 0;
+        }
+
+        return scanner.listIndexOf(pattern, beginIndex, endIndex, offsets);
+    }
+
+    /**
+     * This method finds a precompiled pattern in the text from {@code beginIndex} to {@code endIndex} and adds the offsets
+     * to a reusable list. The case sensitivity of the pattern is used.
+     *
+     * @param pattern compiled pattern to find
+     * @param beginIndex start index
+     * @param endIndex the index to stop searching at, exclusive
+     * @param offsets list to add the positions to
+     *
+     * @return number of positions added
+     */
+    public int listIndexOf(BytePattern pattern, int beginIndex, int endIndex, IntList offsets) {
+
+        // Impossible to find under these conditions
+        if (mydata == null || beginIndex > (mydata.length - pattern.length()) || endIndex > mydata.length) {
+            return 0;
+        }
+
+        return scanner.listIndexOf(pattern, beginIndex, endIndex, offsets);
+    }
+
     /**
      * Sort of like libc's strcmp, find if pattern matches this at offset
      */
@@ -409,6 +474,33 @@ public class ByteMatcher {
         return matchPosList;
     }
 
+    /**
+     * This method finds a pattern in the text from {@code beginIndex} to {@code endIndex} and adds the offsets, ignoring
+     * upper/lower case, to a reusable list instead of allocating a boxed one
+     *
+     * @param pattern bytes to find
+     * @param beginIndex start index
+     * @param endIndex the index to stop searching at, exclusive
+     * @param offsets list to add the positions to
+     *
+     * @return number of positions added
+     */
+    public int indexListIgnoreCase(byte[] pattern, int beginIndex, int endIndex, IntList offsets) {
+
+        // Impossible to find under these conditions
+        if (mydata == null || beginIndex > (mydata.length - pattern.length) || endIndex > mydata.length) {
+            return 0;
+        }
+
+        scanner.setCaseSensitive(false);
+        int count = scanner.listIndexOf(pattern, beginIndex, endIndex, offsets);
+
+        // Reset scanner to default state.
+        scanner.setCaseSensitive(true);
+
+        return count;
+    }
+
     /**
      * This method finds a pattern in the text and returns the offset list ignoring upper/lower case
      *
@@ -527,7 +619,7 @@ public class ByteMatcher {
         if (keypos == -1 || keypos > limit) {
             return null;
         }
-        int valpos = this.indexOf("\n", keypos);
+        int valpos = this.indexOf(NEWLINE, keypos, mydata.length);
         if (valpos > limit) {
             return null;
         }
@@ -0,0 +1,247 @@
+package emissary.util.search;
+
+import org.apache.commons.lang3.Validate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Immutable, precompiled single pattern search. The shift table, the case folded pattern and the first and last bytes
+ * used to filter candidates are computed once, so a pattern can be compiled up front and shared by every thread that
+ * searches for it.
+ * <p>
+ * Short patterns, the common case for header sniffing and field extraction, are found with a simple counted loop that
+ * compares the first and last byte of each candidate and only calls {@code middleMatches} to verify the bytes between
+ * them when both agree. The verification is at most one byte long and small enough for the JIT to inline, so most
+ * candidates cost two compares. Longer patterns use Boyer-Moore-Horspool.
+ * <p>
+ * Case insensitive patterns fold ASCII {@code A-Z} to {@code a-z} only, as {@link KeywordScanner} always has.
+ */
+public final class BytePattern {
+
+    /** Patterns shorter than this are found with the first and last byte filter rather than with skipping. */
+    static final int FILTER_THRESHOLD = 4;
+
+    /** Maps each unsigned byte to itself with ASCII upper case folded to lower case. */
+    private static final byte[] FOLD = new byte[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            FOLD[i] = (byte) ((i >= 'A' && i <= 'Z') ? i + ('a' - 'A') : i);
+        }
+    }
+
+    private final byte[] pattern;
+    private final boolean caseSensitive;
+    /** The pattern, case folded if the pattern is case insensitive. */
+    private final byte[] folded;
+    /** Horspool shift for each unsigned data byte; both cases are populated for case insensitive patterns. */
+    private final int[] skip = new int[256];
+    private final byte first;
+    private final byte last;
+
+    private BytePattern(final byte[] pattern, final boolean caseSensitive) {
+        Validate.notNull(pattern, "Required: pattern not null!");
+        Validate.isTrue(pattern.length > 0, "Required: pattern not empty!");
+
+        this.pattern = pattern.clone();
+        this.caseSensitive = caseSensitive;
+        this.folded = caseSensitive ? this.pattern : fold(this.pattern);
+        this.first = folded[0];
+        this.last = folded[folded.length - 1];
+
+        final int length = folded.length;
+        Arrays.fill(skip, length);
+        for (int i = 0; i < length - 1; i++) {
+            final int shift = length - i - 1;
+            skip[folded[i] & 0xff] = shift;
+            if (!caseSensitive && folded[i] >= 'a' && folded[i] <= 'z') {
+                skip[folded[i] - ('a' - 'A')] = shift;
+            }
+        }
+    }
+
+    /**
+     * Compile a case sensitive pattern.
+     *
+     * @param pattern the bytes to find, which are copied
+     * @return the compiled pattern
+     */
+    public static BytePattern compile(final byte[] pattern) {
+        return new BytePattern(pattern, true);
+    }
+
+    /**
+     * Compile a pattern.
+     *
+     * @param pattern the bytes to find, which are copied
+     * @param caseSensitive false to ignore ASCII case
+     * @return the compiled pattern
+     */
+    public static BytePattern compile(final byte[] pattern, final boolean caseSensitive) {
+        return new BytePattern(pattern, caseSensitive);
+    }
+
+    /**
+     * Compile the UTF-8 encoding of a pattern.
+     *
+     * @param pattern the string to find
+     * @param caseSensitive false to ignore ASCII case
+     * @return the compiled pattern
+     */
+    public static BytePattern compile(final String pattern, final boolean caseSensitive) {
+        return new BytePattern(pattern.getBytes(StandardCharsets.UTF_8), caseSensitive);
+    }
+
+    private static byte[] fold(final byte[] bytes) {
+        final byte[] result = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            result[i] = FOLD[bytes[i] & 0xff];
+        }
+        return result;
+    }
+
+    public int length() {
+        return pattern.length;
+    }
+
+    public boolean isCaseSensitive() {
+        return caseSensitive;
+    }
+
+    /**
+     * Whether this pattern searches for the given bytes with the given case sensitivity.
+     *
+     * @param bytes to compare with
+     * @param caseSensitivity to compare with
+     * @return true if compiling bytes with caseSensitivity would produce an equivalent pattern
+     */
+    public boolean matches(final byte[] bytes, final boolean caseSensitivity) {
+        return caseSensitive == caseSensitivity && Arrays.equals(pattern, bytes);
+    }
+
+    /**
+     * Find the first occurrence of the pattern in the data.
+     *
+     * @param data to search
+     * @return the offset of the first occurrence, or -1 if not found
+     */
+    public int indexOf(final byte[] data) {
+        return indexOf(data, 0, data.length);
+    }
+
+    /**
+     * Find the first occurrence of the pattern that starts at or after start and ends before stop.
+     *
+     * @param data to search
+     * @param start the first offset at which the pattern may start, negative values treated as 0
+     * @param stop the offset before which the pattern must end, exclusive; values beyond the data are treated as its
+     *        length
+     * @return the offset of the first occurrence, or -1 if not found
+     */
+    public int indexOf(final byte[] data, final int start, final int stop) {
+        final int from = Math.max(start, 0);
+        final int to = Math.min(stop, data.length);
+
+        if (to - from < folded.length) {
+            return -1;
+        }
+        if (folded.length < FILTER_THRESHOLD) {
+            return caseSensitive ? filter(data, from, to) : filterIgnoreCase(data, from, to);
+        }
+        return caseSensitive ? horspool(data, from, to) : horspoolIgnoreCase(data, from, to);
+    }
+
+    /**
+     * Find every non-overlapping occurrence of the pattern that starts at or after start and ends before stop.
+     *
+     * @param data to search
+     * @param start the first offset at which the pattern may start, negative values treated as 0
+     * @param stop the offset before which the pattern must end, exclusive
+     * @param offsets to add the offset of each occurrence to
+     * @return the number of occurrences added
+     */
+    public int indexAll(final byte[] data, final int start, final int stop, final IntList offsets) {
+        int count = 0;
+        int position = indexOf(data, start, stop);
+        while (position >= 0) {
+            offsets.add(position);
+            count++;
+            position = indexOf(data, position + folded.length, stop);
+        }
+        return count;
+    }
+
+    private int filter(final byte[] data, final int from, final int to) {
+        final byte[] p = folded;
+        final int lastOffset = p.length - 1;
+        final byte f = first;
+        final byte l = last;
+        final int end = to - p.length;
+
+        for (int i = from; i <= end; i++) {
+            if (data[i] == f && data[i + lastOffset] == l && middleMatches(data, i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int filterIgnoreCase(final byte[] data, final int from, final int to) {
+        final byte[] p = folded;
+        final int lastOffset = p.length - 1;
+        final byte f = first;
+        final byte l = last;
+        final int end = to - p.length;
+
+        for (int i = from; i <= end; i++) {
+            if (FOLD[data[i] & 0xff] == f && FOLD[data[i + lastOffset] & 0xff] == l && middleMatchesIgnoreCase(data, i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int horspool(final byte[] data, final int from, final int to) {
+        final int lastOffset = folded.length - 1;
+        final byte l = last;
+
+        for (int position = from + lastOffset; position < to; position += skip[data[position] & 0xff]) {
+            if (data[position] == l && data[position - lastOffset] == first && middleMatches(data, position - lastOffset)) {
+                return position - lastOffset;
+            }
+        }
+        return -1;
+    }
+
+    private int horspoolIgnoreCase(final byte[] data, final int from, final int to) {
+        final int lastOffset = folded.length - 1;
+        final byte l = last;
+
+        for (int position = from + lastOffset; position < to; position += skip[data[position] & 0xff]) {
+            if (FOLD[data[position] & 0xff] == l && FOLD[data[position - lastOffset] & 0xff] == first
+                    && middleMatchesIgnoreCase(data, position - lastOffset)) {
+                return position - lastOffset;
+            }
+        }
+        return -1;
+    }
+
+    private boolean middleMatches(final byte[] data, final int offset) {
+        for (int i = 1; i < folded.length - 1; i++) {
+            if (data[offset + i] != folded[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean middleMatchesIgnoreCase(final byte[] data, final int offset) {
+        for (int i = 1; i < folded.length - 1; i++) {
+            if (FOLD[data[offset + i] & 0xff] != folded[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -4,170 +4,188 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import javax.annotation.Nullable;
 
+/**
+ * Multiple keyword Boyer-Moore-Horspool scanner. Candidate keyword end positions are skipped through using a shift
+ * table built from all the keywords, and each candidate is verified by walking a {@link BackwardsTrie} backwards.
+ * <p>
+ * The compiled keywords and shift table are immutable, so one instance may be shared by many threads. Use
+ * {@link #scan(byte[], int, int, HitBuffer)} or a {@link Cursor} per payload to scan without locking or allocating.
+ * Only {@link #setData(byte[])} and {@link #scan(int, int, Collection)} keep state on the scanner and must not be used
+ * from more than one thread at a time.
+ * <p>
+ * Keywords are encoded as UTF-8 and every byte of the data is matched exactly. Earlier versions masked data bytes to
+ * seven bits, so a byte with the high bit set matched the ASCII keyword byte below it and keywords with non-ASCII bytes
+ * never matched; now each only matches its own byte.
+ */
 @SuppressWarnings("AvoidObjectArrays")
 public class FastBoyerMoore {
     private static final Logger logger = LoggerFactory.getLogger(FastBoyerMoore.class);
     public byte[][] keywords;
-    int minKeywordLength;
-    int[] lookup = new int[259];
-    transient BackwardsTreeScanner scanner;
+    final int[] lookup;
+    final BackwardsTrie trie;
     @Nullable
     byte[] data = null;
-    BackwardsTreeScanner.State root;
 
     // copy constructor
 
-    private FastBoyerMoore() {}
-
     public FastBoyerMoore(final FastBoyerMoore original) {
-        this();
         this.keywords = original.keywords;
-        this.minKeywordLength = original.minKeywordLength;
         this.lookup = original.lookup;
-        this.root = original.root;
-        this.scanner = new BackwardsTreeScanner(original.scanner);
+        this.trie = original.trie;
     }
 
     public FastBoyerMoore(final String[] keywordStrings) throws Exception {
-        this.keywords = new byte[keywordStrings.length][];
-        this.minKeywordLength = Integer.MAX_VALUE;
-        for (int i = 0; i < this.keywords.length; i++) {
-            this.keywords[i] = keywordStrings[i].getBytes();
-            this.minKeywordLength = Math.min(this.minKeywordLength, this.keywords[i].length);
-        }
-        for (int i = 0; i < this.lookup.length; i++) {
-            this.lookup[i] = this.minKeywordLength;
-        }
-        // each keyword
-        for (int i = 0; i < this.keywords.length; i++) {
-            final byte[] kw = this.keywords[i];
-            // each keyword character
-            for (int j = 0; j < kw.length - 1; j++) {
-                this.lookup[kw[j]] = Math.min(this.lookup[kw[j]], kw.length - j - 1);
-            }
-        }
-        this.data = null;
-        this.scanner = new BackwardsTreeScanner(keywordStrings);
-        this.root = this.scanner.getRoot();
+        this(BackwardsTrie.compile(keywordStrings), toBytes(new String[][] {keywordStrings}));
     }
 
     public FastBoyerMoore(final String[][] keywordStrings) throws Exception {
-        this.minKeywordLength = Integer.MAX_VALUE;
-        for (int i = 0; i < keywordStrings.length; i++) {
-            for (int j = 0; j < keywordStrings[i].length; j++) {
-                this.minKeywordLength = Math.min(this.minKeywordLength, keywordStrings[i][j].length());
+        this(BackwardsTrie.compile(keywordStrings), toBytes(keywordStrings));
+    }
+
+    private FastBoyerMoore(final BackwardsTrie trie, final byte[][] keywords) {
+        this.keywords = keywords;
+        this.trie = trie;
+        this.lookup = buildLookup(keywords, Math.max(1, trie.getMinKeywordLength()));
+    }
+
+    private static byte[][] toBytes(final String[][] keywordStrings) {
+        final List<byte[]> bytes = new ArrayList<>();
+        for (final String[] group : keywordStrings) {
+            for (final String keyword : group) {
+                bytes.add(keyword.getBytes(StandardCharsets.UTF_8));
             }
         }
-        for (int i = 0; i < this.lookup.length; i++) {
-            this.lookup[i] = this.minKeywordLength;
-        }
+        return bytes.toArray(new byte[0][]);
+    }
+
+    /**
+     * Build the shift table: for each byte, how far the next candidate end position can be from the current one.
+     */
+    private static int[] buildLookup(final byte[][] keywords, final int minKeywordLength) {
+        final int[] lookup = new int[256];
+
+        Arrays.fill(lookup, minKeywordLength);
         // each keyword
-        for (int i = 0; i < keywordStrings.length; i++) {
-            for (int j = 0; j < keywordStrings[i].length; j++) {
-                final byte[] kw = keywordStrings[i][j].getBytes();
-                // each keyword character
-                for (int k = 0; k < kw.length - 1; k++) {
-                    this.lookup[kw[k]] = Math.min(this.lookup[kw[k]], kw.length - k - 1);
-                }
+        for (final byte[] kw : keywords) {
+            // each keyword character
+            for (int j = 0; j < kw.length - 1; j++) {
+                final int ch = kw[j] & 0xff;
+                lookup[ch] = Math.min(lookup[ch], kw.length - j - 1);
             }
         }
-        this.data = null;
-        this.scanner = new BackwardsTreeScanner(keywordStrings);
-        this.root = this.scanner.getRoot();
+        return lookup;
     }
 
     public void setData(final byte[] dataArg) {
-        this.scanner.setData(dataArg);
         this.data = dataArg;
     }
 
     public void scan(final byte[] dataArg, final int start, final int end, final Collection<int[]> result) {
-        this.data = dataArg;
-        this.scanner.setData(dataArg);
-        scan(start, end, result);
+        final HitBuffer hits = HitBuffer.scratch();
+        scan(dataArg, start, end, hits);
+        addResults(hits, result);
     }
 
     public void scan(final int start, final int end, final Collection<int[]> result) {
-        final int actualEnd = Math.min(end, this.data.length);
+        scan(this.data, start, end, result);
+    }
+
+    /**
+     * Scan the data between start and end, adding every hit to the buffer. This neither locks nor allocates, other than
+     * to grow the buffer.
+     *
+     * @param dataArg to scan
+     * @param start the first candidate keyword end position
+     * @param end the position after the last byte to scan
+     * @param hits to add the hits to
+     */
+    public void scan(final byte[] dataArg, final int start, final int end, final HitBuffer hits) {
+        final int actualEnd = Math.min(end, dataArg.length);
         int pos = start;
         while (pos < actualEnd) {
-            final int ch = this.data[pos] & 0x7f;
-            final int jump = this.lookup[ch];
-            BackwardsTreeScanner.State state = this.root.nextStates[ch];
-            int curPos = pos - 1;
-            while ((state != null) && (curPos >= 0)) {
-                if (state.matches != null) {
-                    for (int i = 0; i < state.matches.length; i++) {
-                        final int id = state.matches[i];
-                        final int[] tmp = new int[3];
-                        tmp[0] = curPos + 1;
-                        tmp[1] = id;
-                        tmp[2] = pos - curPos;
-                        result.add(tmp);
-                    }
-                }
-                final int ch2 = this.data[curPos] & 0x7f;
-                state = state.nextStates[ch2];
-                curPos--;
-            }
-            if ((state != null) && (curPos == -1)) {
-                for (int i = 0; i < state.matches.length; i++) {
-                    final int id = state.matches[i];
-                    final int[] tmp = new int[3];
-                    tmp[0] = curPos + 1;
-                    tmp[1] = id;
-                    tmp[2] = pos - curPos;
-                    result.add(tmp);
-                }
-            }
-            pos += jump;
+            this.trie.scan(dataArg, pos, hits);
+            pos += this.lookup[dataArg[pos] & 0xff];
         }
     }
 
     public int staticSingleScan(final byte[] dataArg, final int start, final int end, final Collection<int[]> result) {
-        final int actualEnd = Math.min(end, dataArg.length);
-        boolean found = false;
-        int pos = start;
-        while ((pos < actualEnd) && !found) {
-            final int ch = dataArg[pos] & 0x7f;
-            final int jump = this.lookup[ch];
-            BackwardsTreeScanner.State state = this.root.nextStates[ch];
-            int curPos = pos - 1;
-            while ((state != null) && (curPos >= 0)) {
-                if (state.matches != null) {
-                    for (int i = 0; i < state.matches.length; i++) {
-                        final int id = state.matches[i];
-                        final int[] tmp = new int[3];
-                        tmp[0] = curPos + 1;
-                        tmp[1] = id;
-                        tmp[2] = pos - curPos;
-                        result.add(tmp);
-                        found = true;
-                    }
-                }
-                final int ch2 = dataArg[curPos] & 0x7f;
-                state = state.nextStates[ch2];
-                curPos--;
-            }
-            if ((state != null) && (state.matches != null) && (curPos == -1)) {
-                for (int i = 0; i < state.matches.length; i++) {
-                    final int id = state.matches[i];
-                    final int[] tmp = new int[3];
-                    tmp[0] = curPos + 1;
-                    tmp[1] = id;
-                    tmp[2] = pos - curPos;
-                    result.add(tmp);
-                    found = true;
+        final Cursor cursor = cursor(dataArg, start, end);
+        final HitBuffer hits = HitBuffer.scratch();
+        cursor.next(hits);
+        addResults(hits, result);
+        return cursor.getPosition();
+    }
+
+    /**
+     * Create a cursor over the data. Each thread scanning a payload should use its own cursor.
+     *
+     * @param dataArg to scan
+     * @param start the first candidate keyword end position
+     * @param end the position after the last byte to scan
+     * @return a new cursor positioned at start
+     */
+    public Cursor cursor(final byte[] dataArg, final int start, final int end) {
+        return new Cursor(dataArg, start, end);
+    }
+
+    private static void addResults(final HitBuffer hits, final Collection<int[]> result) {
+        for (int i = 0; i < hits.size(); i++) {
+            final int[] tmp = new int[3];
+            tmp[LOC] = (int) hits.getOffset(i);
+            tmp[ID] = hits.getId(i);
+            tmp[LENGTH] = hits.getLength(i);
+            result.add(tmp);
+        }
+    }
+
+    /**
+     * The per-call scanning state over one payload for a shared {@link FastBoyerMoore}.
+     */
+    public final class Cursor {
+        private final byte[] cursorData;
+        private final int end;
+        private int position;
+
+        private Cursor(final byte[] cursorData, final int start, final int end) {
+            this.cursorData = cursorData;
+            this.end = Math.min(end, cursorData.length);
+            this.position = start;
+        }
+
+        /**
+         * Advance to the next candidate position with at least one hit and add its hits to the buffer.
+         *
+         * @param hits to add the hits to
+         * @return true if any hits were found, false if the end of the data was reached
+         */
+        public boolean next(final HitBuffer hits) {
+            final int initialSize = hits.size();
+            while (this.position < this.end) {
+                final int pos = this.position;
+                FastBoyerMoore.this.trie.scan(this.cursorData, pos, hits);
+                this.position += FastBoyerMoore.this.lookup[this.cursorData[pos] & 0xff];
+                if (hits.size() > initialSize) {
+                    return true;
                 }
             }
-            pos += jump;
+            return false;
+        }
+
+        /**
+         * Get the next candidate position to be examined.
+         *
+         * @return the position
+         */
+        public int getPosition() {
+            return this.position;
         }
-        return pos;
     }
 
     public static final int ID = 1;
@@ -196,7 +214,7 @@ public class FastBoyerMoore {
             }
             // for (int i = 0;i<keys.length;i++)dataString +=keys[i].toString().substring(0,2);
             // A byte array version of the data.
-            final byte[] dataBytes = dataString.toString().getBytes();
+            final byte[] dataBytes = dataString.toString().getBytes(StandardCharsets.UTF_8);
 
             // A vector for holding the results.
             final List<int[]> result = new ArrayList<>();
@@ -215,40 +233,32 @@ public class FastBoyerMoore {
      * This class implements a tree state machine scanner that searches text backwards starting from the end. A list of
      * strings is provided as the keywords to be searched. This class is usefull for a relatively small set of keywords.
      * Larger keyword lists can be used if you have memory!
+     * <p>
+     * The keywords are compiled into an immutable {@link BackwardsTrie}, so {@link #scan(byte[], int, Collection)} may be
+     * called from many threads at once. Only {@link #setData(byte[])} and {@link #scan(int, Collection)} keep state on the
+     * scanner.
      *
      * @author ce
      * @version 1.0
      */
     public static class BackwardsTreeScanner {
-        /** Original list of keywords storred in byte array form. */
-        // byte[][] keywords;
-        /** Root node of tree state diagram. Always start a search from here! */
-        State root = new State((byte) 0);
+        /** The compiled keywords. Always start a search from here! */
+        final BackwardsTrie trie;
         @Nullable
         byte[] data = null;
+        @Nullable
+        private volatile State root = null;
 
         public BackwardsTreeScanner(final BackwardsTreeScanner o) {
-            this.root = o.root;
+            this.trie = o.trie;
         }
 
         public BackwardsTreeScanner(final String[][] keywordStrings) throws Exception {
-            for (int i = 0; i < keywordStrings.length; i++) {
-                for (int j = 0; j < keywordStrings[i].length; j++) {
-                    this.root.learn(keywordStrings[i][j].getBytes(), i);
-                }
-            }
-            // this.root.print(System.out);
+            this.trie = BackwardsTrie.compile(keywordStrings);
         }
 
         public BackwardsTreeScanner(final String[] keywordStrings) throws Exception {
-            // make byte arrays
-            final byte[][] keywords = new byte[keywordStrings.length][];
-            // and learn them
-            for (int i = 0; i < keywords.length; i++) {
-                keywords[i] = keywordStrings[i].getBytes();
-                this.root.learn(keywordStrings[i].getBytes(), i);
-            }
-            // this.root.print(System.out);
+            this.trie = BackwardsTrie.compile(keywordStrings);
         }
 
         public static void main(final String[] args) {
@@ -268,7 +278,7 @@ public class FastBoyerMoore {
                 }
                 // for (int i = 0;i<keys.length;i++)dataString +=keys[i].toString().substring(0,2);
                 // A byte array version of the data.
-                final byte[] dataBytes = dataString.toString().getBytes();
+                final byte[] dataBytes = dataString.toString().getBytes(StandardCharsets.UTF_8);
 
                 // A vector for holding the results.
                 final List<int[]> hits = new ArrayList<>();
@@ -303,7 +313,7 @@ public class FastBoyerMoore {
                 }
                 // for (int i = 0;i<keys.length;i++)dataString +=keys[i].toString().substring(0,2);
                 // A byte array version of the data.
-                final byte[] dataBytes = dataString.toString().getBytes();
+                final byte[] dataBytes = dataString.toString().getBytes(StandardCharsets.UTF_8);
 
                 // A vector for holding the results.
                 final List<int[]> hits = new ArrayList<>();
@@ -324,11 +334,39 @@ public class FastBoyerMoore {
             }
         }
 
-        public synchronized State getRoot() {
-            return this.root;
+        public BackwardsTrie getTrie() {
+            return this.trie;
         }
 
-        public synchronized void setData(final byte[] dataArg) {
+        /**
+         * Get the root of a state tree built from the compiled keywords on first use. Scanning does not use the tree, so
+         * changes made to it are not seen by scans.
+         *
+         * @deprecated the keywords are compiled into an immutable trie, use {@link #getTrie()}
+         */
+        @Deprecated
+        public State getRoot() {
+            State result = this.root;
+            if (result == null) {
+                result = toState(0, 0);
+                this.root = result;
+            }
+            return result;
+        }
+
+        private State toState(final int trieState, final int gotHereBy) {
+            final State state = new State(gotHereBy);
+            state.matches = this.trie.matches(trieState);
+            for (int b = 0; b < state.nextStates.length; b++) {
+                final int next = this.trie.next(trieState, b);
+                if (next >= 0) {
+                    state.nextStates[b] = toState(next, b);
+                }
+            }
+            return state;
+        }
+
+        public void setData(final byte[] dataArg) {
             this.data = dataArg;
         }
 
@@ -336,46 +374,26 @@ public class FastBoyerMoore {
          * This scans the byte array backwards from the offset. Each hit is added to the result vector. We stop when all
          * posibilities are found
          */
-        public synchronized int scan(final byte[] dataArg, final int offset, final Collection<int[]> result) {
-            this.data = dataArg;
-            return scan(offset, result);
-        }
-
-        public synchronized int scan(final int curPosArg, final Collection<int[]> result) {
-            if (!(curPosArg < this.data.length)) {
-                return curPosArg;
-            }
-            State state = this.root;
-            int length = 0;
-            int curPos = curPosArg;
-            while ((state != null) && (curPos >= 0)) {
-                if (curPos > this.data.length || curPos < 0) {
-                    return curPos;
-                }
-                int ch = this.data[curPos];
-                if (ch < 0) {
-                    ch += Byte.MAX_VALUE - Byte.MIN_VALUE;
-                }
-                state = state.nextStates[ch];
-                length++;
-                if (state != null && state.matches != null) {
-                    for (int i = 0; i < state.matches.length; i++) {
-                        final int id = state.matches[i];
-                        final int[] tmp = new int[3];
-                        tmp[0] = curPos;
-                        tmp[1] = id;
-                        tmp[2] = length;
-                        result.add(tmp);
-                    }
-                }
-                curPos--;
+        public int scan(final byte[] dataArg, final int offset, final Collection<int[]> result) {
+            if (!(offset < dataArg.length)) {
+                return offset;
             }
+            final HitBuffer hits = HitBuffer.scratch();
+            final int curPos = this.trie.scan(dataArg, offset, hits);
+            addResults(hits, result);
             return curPos;
         }
 
-        /*
+        public int scan(final int curPosArg, final Collection<int[]> result) {
+            return scan(this.data, curPosArg, result);
+        }
+
+        /**
          * This class implements a state machine that can learn character sequences.
+         *
+         * @deprecated scanning uses an immutable {@link BackwardsTrie}, these states are only built for {@link #getRoot()}
          */
+        @Deprecated
         public class State {
 
             // Each state has 256 transitions leaving it to new states based
@@ -425,10 +443,7 @@ public class FastBoyerMoore {
                     this.matches[this.matches.length - 1] = id;
                 } else {
                     // Get the next character in the word
-                    int nextChar = word[wordLoc];
-                    if (nextChar < 0) {
-                        nextChar += Byte.MAX_VALUE - Byte.MIN_VALUE;
-                    }
+                    final int nextChar = word[wordLoc] & 0xff;
 
                     // See if the state already exists
                     State nextState = this.nextStates[nextChar];
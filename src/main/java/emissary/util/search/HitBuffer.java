@@ -0,0 +1,121 @@
+package emissary.util.search;
+
+import java.util.Arrays;
+
+/**
+ * Reusable, growable buffer of keyword hits backed by primitive arrays. Unlike {@link HitList} no object is allocated
+ * per hit, so a single buffer can be cleared and refilled for every payload scanned by a thread.
+ * <p>
+ * Offsets are longs so that hits found while scanning a channel larger than 2GB can be reported. Instances are not
+ * thread safe.
+ */
+public final class HitBuffer {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // one buffer per thread for the scanners that copy their hits out to a collection, so they do not allocate one a call
+    private static final ThreadLocal<HitBuffer> SCRATCH = ThreadLocal.withInitial(HitBuffer::new);
+
+    private long[] offsets;
+    private int[] ids;
+    private int[] lengths;
+    private int size = 0;
+
+    public HitBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public HitBuffer(final int initialCapacity) {
+        final int capacity = Math.max(1, initialCapacity);
+
+        offsets = new long[capacity];
+        ids = new int[capacity];
+        lengths = new int[capacity];
+    }
+
+    /**
+     * Get the buffer of the calling thread, cleared. It is only good until the next call on the same thread, so the hits
+     * must be copied out before anything else scans.
+     *
+     * @return the cleared buffer
+     */
+    static HitBuffer scratch() {
+        final HitBuffer buffer = SCRATCH.get();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Append a hit to the buffer.
+     *
+     * @param offset of the first byte of the keyword.
+     * @param id of the keyword.
+     * @param length of the matched keyword in bytes.
+     */
+    public void add(final long offset, final int id, final int length) {
+        if (size == offsets.length) {
+            final int capacity = offsets.length * 2;
+
+            offsets = Arrays.copyOf(offsets, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+
+        offsets[size] = offset;
+        ids[size] = id;
+        lengths[size] = length;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove all hits while keeping the allocated capacity.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public long getOffset(final int index) {
+        checkIndex(index);
+        return offsets[index];
+    }
+
+    public int getId(final int index) {
+        checkIndex(index);
+        return ids[index];
+    }
+
+    public int getLength(final int index) {
+        checkIndex(index);
+        return lengths[index];
+    }
+
+    /**
+     * Copy the buffered hits into a {@link HitList} for callers of the {@link IMultiKeywordScanner} API.
+     *
+     * @return a new HitList containing every buffered hit in order.
+     * @throws ArithmeticException if an offset does not fit in an int.
+     */
+    public HitList toHitList() {
+        final HitList hitList = new HitList();
+
+        hitList.ensureCapacity(size);
+        for (int i = 0; i < size; i++) {
+            hitList.add(new Hit(Math.toIntExact(offsets[i]), ids[i]));
+        }
+
+        return hitList;
+    }
+
+    private void checkIndex(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+    }
+}
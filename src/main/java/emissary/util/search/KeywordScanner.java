@@ -2,20 +2,21 @@ package emissary.util.search;
 
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.List;
 import javax.annotation.Nullable;
 
 /**
  * Provides the ability to find specified {@code byte[]} patterns inside a larger {@code byte[]}.
+ * <p>
+ * Patterns are compiled into a {@link BytePattern}, and the most recently compiled pattern is reused while the same
+ * pattern is searched for. Callers searching repeatedly for a fixed pattern can compile it once and use the
+ * {@link BytePattern} overloads, and can collect offsets into a reusable {@link IntList} rather than a boxed list.
  */
 public class KeywordScanner {
-    private final int[] skip = new int[256];
     private int dataLength = -1;
     private byte[] data;
-    private byte[] pattern;
-    private int patternLength = -1;
-    private int lastByte = 0;
+    @Nullable
+    private BytePattern pattern;
     private int lastPosition = 0;
     private boolean caseSensitive = true;
 
@@ -103,12 +104,26 @@ public class KeywordScanner {
         if ((start >= this.dataLength) || (stop > this.dataLength) || (patternArg == null)) {
             return -1;
         }
-        // Adjust the actual start index to 0 if a negative value is provided.
-        final int actualStart = Math.max(start, 0);
+        return indexOfPattern(compile(patternArg), start, stop);
+    }
+
+    /**
+     * Returns the first occurrence of the precompiled pattern in the data, starting from the specified index and stopping
+     * at the specified index. The case sensitivity of the pattern is used rather than that of the scanner.
+     *
+     * @param patternArg the compiled pattern to scan for
+     * @param start the index to start searching from, negative values treated as 0
+     * @param stop the index to stop searching at, exclusive, negative value returns -1
+     * @return the index in the data where the pattern begins, -1 if not found
+     * @see #indexOf(byte[], int, int)
+     */
+    public int indexOfPattern(final BytePattern patternArg, final int start, final int stop) {
+        if ((start >= this.dataLength) || (stop > this.dataLength)) {
+            return -1;
+        }
         this.pattern = patternArg;
-        this.patternLength = patternArg.length;
-        analyze();
-        final int position = match(actualStart, stop);
+        // Negative start values are treated as 0 by the pattern
+        final int position = patternArg.indexOf(this.data, start, stop);
         this.lastPosition = position;
         return position;
     }
@@ -155,30 +170,52 @@ public class KeywordScanner {
      * @return index list of positions in the data where the pattern begins, empty list if not found
      */
     public List<Integer> listIndexOf(@Nullable final byte[] patternArg, final int start, final int stop) {
-        List<Integer> matches = new ArrayList<>();
         if ((start >= this.dataLength) || (stop > this.dataLength) || (patternArg == null)) {
             return List.of();
         }
-        int newStart = start;
-        int actualStart;
-        int position = 0;
-        this.pattern = patternArg;
-        this.patternLength = patternArg.length;
+        final IntList matches = new IntList();
+        listIndexOf(compile(patternArg), start, stop, matches);
+        return matches.toList();
+    }
 
-        while (position > -1) {
-            actualStart = Math.max(newStart, 0);
-            analyze();
-            position = match(actualStart, stop);
-            this.lastPosition = position;
-            if (position == -1) {
-                break;
-            } else {
-                matches.add(position);
-                newStart = position + this.patternLength;
-            }
+    /**
+     * Adds the occurrences of the provided pattern in the data, starting from the specified index and stopping at the
+     * specified index, to a reusable list.
+     *
+     * @param patternArg the byte pattern to scan for, null adds nothing
+     * @param start the index to start searching from, negative values treated as 0
+     * @param stop the index to stop searching at, exclusive, negative value adds nothing
+     * @param matches the list to add the position of each occurrence to
+     * @return the number of positions added
+     * @see #listIndexOf(byte[], int, int)
+     */
+    public int listIndexOf(@Nullable final byte[] patternArg, final int start, final int stop, final IntList matches) {
+        if (patternArg == null) {
+            return 0;
         }
+        return listIndexOf(compile(patternArg), start, stop, matches);
+    }
 
-        return matches;
+    /**
+     * Adds the occurrences of the precompiled pattern in the data, starting from the specified index and stopping at the
+     * specified index, to a reusable list. The case sensitivity of the pattern is used rather than that of the scanner.
+     *
+     * @param patternArg the compiled pattern to scan for
+     * @param start the index to start searching from, negative values treated as 0
+     * @param stop the index to stop searching at, exclusive, negative value adds nothing
+     * @param matches the list to add the position of each occurrence to
+     * @return the number of positions added
+     * @see #listIndexOf(byte[], int, int)
+     */
+    public int listIndexOf(final BytePattern patternArg, final int start, final int stop, final IntList matches) {
+        if ((start >= this.dataLength) || (stop > this.dataLength)) {
+            return 0;
+        }
+        this.pattern = patternArg;
+        final int count = patternArg.indexAll(this.data, start, stop, matches);
+        // The search continued until no further occurrence was found
+        this.lastPosition = -1;
+        return count;
     }
 
     /**
@@ -205,7 +242,7 @@ public class KeywordScanner {
         if (this.pattern == null) {
             return -1;
         }
-        final int position = match(this.lastPosition + 1, stop);
+        final int position = this.pattern.indexOf(this.data, this.lastPosition + 1, stop);
         this.lastPosition = position;
         return position;
     }
@@ -241,57 +278,14 @@ public class KeywordScanner {
         return this.caseSensitive;
     }
 
-    private int get256Value(final byte b) {
-        return caseSensitive ? Byte.toUnsignedInt(b) : lowercase(Byte.toUnsignedInt(b));
-    }
-
-    private void analyze() {
-        for (int i = 0; i < 256; i++) {
-            this.skip[i] = this.patternLength;
-        }
-        for (int i = 0; i < this.patternLength - 1; i++) {
-            this.skip[get256Value(this.pattern[i])] = this.patternLength - i - 1;
-        }
-        this.lastByte = get256Value(this.pattern[this.patternLength - 1]);
-    }
-
-    private int match(final int start, final int stop) {
-
-        int matchIndex = -1;
-        int position = start + this.patternLength - 1;
-        while (position < stop) {
-            int currentByte = get256Value(this.data[position]);
-            if (currentByte == this.lastByte && isSame(position)) {
-                matchIndex = position + 1 - this.patternLength;
-                break;
-
-            }
-            position += this.skip[currentByte];
-        }
-
-        return matchIndex;
-    }
-
-    private static int lowercase(final int i) {
-        if ((i >= 'A') && (i <= 'Z')) {
-            return i + 32;
-        } else {
-            return i;
-        }
-    }
-
-    private boolean isSame(final int pos) {
-        for (int i = 0; i < this.patternLength; i++) {
-            int patternByte = this.pattern[i];
-            int dataByte = this.data[pos - this.patternLength + 1 + i];
-            if (!this.caseSensitive) {
-                patternByte = lowercase(patternByte);
-                dataByte = lowercase(dataByte);
-            }
-            if (patternByte != dataByte) {
-                return false;
-            }
+    /**
+     * Compile the pattern with the current case sensitivity, reusing the last pattern if it is the same.
+     */
+    private BytePattern compile(final byte[] patternArg) {
+        final BytePattern current = this.pattern;
+        if (current != null && current.matches(patternArg, this.caseSensitive)) {
+            return current;
         }
-        return true;
+        return BytePattern.compile(patternArg, this.caseSensitive);
     }
 }
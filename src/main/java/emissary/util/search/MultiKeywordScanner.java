@@ -3,6 +3,7 @@ package emissary.util.search;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
 import javax.annotation.Nullable;
 
 public class MultiKeywordScanner implements IMultiKeywordScanner {
@@ -14,6 +15,7 @@ public class MultiKeywordScanner implements IMultiKeywordScanner {
     private final int[] skipTable = new int[256];
     private int standardSkip = 0;
     private BackwardsTreeScanner treeScanner;
+    private final HitBuffer hitBuffer = new HitBuffer();
     private String[] keywords;
     private int lastPosition = -1;
 
@@ -40,7 +42,7 @@ public class MultiKeywordScanner implements IMultiKeywordScanner {
         final int numKeywords = this.keywords.length;
 
         for (int i = 0; i < numKeywords; i++) {
-            final byte[] keyword = this.keywords[i].getBytes();
+            final byte[] keyword = this.keywords[i].getBytes(StandardCharsets.UTF_8);
             final int keywordLength = keyword.length;
             if (i == 0) {
                 this.standardSkip = keywordLength;
@@ -54,7 +56,7 @@ public class MultiKeywordScanner implements IMultiKeywordScanner {
         }
 
         for (int i = 0; i < numKeywords; i++) {
-            final byte[] keyword = this.keywords[i].getBytes();
+            final byte[] keyword = this.keywords[i].getBytes(StandardCharsets.UTF_8);
             final int keywordLength = keyword.length;
             for (int j = 0; j < (keywordLength - 1); j++) {
                 final int byteValue = get256Value(keyword[j]);
@@ -90,11 +92,11 @@ public class MultiKeywordScanner implements IMultiKeywordScanner {
     public HitList findAll(final byte[] dataArg, final int start, final int stop) {
         this.data = dataArg;
         int position;
-        final HitList hits = new HitList();
+        this.hitBuffer.clear();
 
         for (position = start + this.standardSkip - 1; position < stop; position += this.skipTable[get256Value(dataArg[position])]) {
             try {
-                this.treeScanner.scan(dataArg, position, hits);
+                this.treeScanner.scan(dataArg, position, this.hitBuffer);
             } catch (Exception e) {
                 logger.error("Error scanning keywords in the BackwardsTreeScanner.", e);
                 break;
@@ -103,7 +105,7 @@ public class MultiKeywordScanner implements IMultiKeywordScanner {
 
         this.lastPosition = position;
 
-        return hits;
+        return this.hitBuffer.toHitList();
     }
 
     @Override
@@ -134,12 +136,12 @@ public class MultiKeywordScanner implements IMultiKeywordScanner {
     public HitList findNext(final byte[] dataArg, final int start, final int stop) {
         this.data = dataArg;
         int position;
-        final HitList hits = new HitList();
+        this.hitBuffer.clear();
 
         for (position = start + this.standardSkip - 1; position < stop; position += this.skipTable[get256Value(dataArg[position])]) {
             try {
-                this.treeScanner.scan(dataArg, position, hits);
-                if (!hits.isEmpty()) {
+                this.treeScanner.scan(dataArg, position, this.hitBuffer);
+                if (!this.hitBuffer.isEmpty()) {
                     break;
                 }
             } catch (Exception e) {
@@ -150,6 +152,6 @@ public class MultiKeywordScanner implements IMultiKeywordScanner {
 
         this.lastPosition = position;
 
-        return hits;
+        return this.hitBuffer.toHitList();
     }
 }
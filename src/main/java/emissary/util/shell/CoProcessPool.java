@@ -0,0 +1,457 @@
+package emissary.util.shell;
+
+import org.apache.commons.exec.ExecuteWatchdog;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+/**
+ * A pool of long-lived external worker processes. Rather than forking a process and starting reader threads for every
+ * payload as {@link Executrix} does, each worker is started once and handles many payloads over its stdin and stdout.
+ * <p>
+ * Payloads are framed in both directions. A request is a 4 byte big endian length followed by that many bytes. A
+ * response is a 4 byte big endian status, a 4 byte big endian length and then that many bytes. A status of zero means
+ * success. An empty request is a health check, to which a healthy worker replies with status zero.
+ * <p>
+ * Each request is guarded by an {@link ExecuteWatchdog}. A worker that times out, fails to frame its response or exits
+ * is destroyed and replaced. Workers are also recycled after a configurable number of payloads or wall-clock lifetime so
+ * that leaks in the external program do not accumulate. Anything a worker writes to stderr is drained and discarded.
+ * <p>
+ * A payload whose worker fails is retried on another worker up to {@link #setMaxRetries(int)} times, but never after
+ * a timeout, so a payload that kills its worker can take down at most that many more. Idle workers can be checked on a
+ * schedule with {@link #startHealthChecks(long)}.
+ * <p>
+ * If a replacement cannot be started the pool runs with fewer workers and tries again the next time a worker is needed.
+ * When no workers are left and none can be started, {@link #execute(byte[], ByteArrayOutputStream)} fails straight away
+ * rather than waiting.
+ */
+public class CoProcessPool implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(CoProcessPool.class);
+
+    /** Upper bound on the length of a response accepted from a worker */
+    public static final int MAX_RESPONSE_LENGTH = Integer.MAX_VALUE - 8;
+
+    private final String[] cmd;
+    private final int size;
+    private final long maxPayloads;
+    private final long maxLifetimeMillis;
+    private final long timeoutMillis;
+    private final BlockingQueue<Worker> idle;
+    private final AtomicInteger live = new AtomicInteger();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong recycled = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile int maxRetries = 1;
+    @Nullable
+    private ScheduledExecutorService healthChecker;
+    private volatile boolean closed = false;
+
+    /**
+     * Start a pool of workers
+     *
+     * @param cmd the command and arguments that start a worker
+     * @param size the number of workers
+     * @param maxPayloads the number of payloads after which a worker is replaced, 0 for no limit
+     * @param maxLifetimeMillis the wall-clock time after which a worker is replaced, 0 for no limit
+     * @param timeoutMillis the time allowed for each request before the worker is killed, 0 to disable the watchdog
+     * @throws IOException if a worker cannot be started
+     */
+    public CoProcessPool(final String[] cmd, final int size, final long maxPayloads, final long maxLifetimeMillis, final long timeoutMillis)
+            throws IOException {
+        Validate.notEmpty(cmd, "Required: cmd not empty!");
+        Validate.isTrue(size > 0, "Required: size > 0!");
+        Validate.isTrue(maxPayloads >= 0, "Required: maxPayloads >= 0!");
+        Validate.isTrue(maxLifetimeMillis >= 0, "Required: maxLifetimeMillis >= 0!");
+        Validate.isTrue(timeoutMillis >= 0, "Required: timeoutMillis >= 0!");
+
+        this.cmd = cmd.clone();
+        this.size = size;
+        this.maxPayloads = maxPayloads;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.timeoutMillis = timeoutMillis;
+        this.idle = new ArrayBlockingQueue<>(size);
+
+        try {
+            for (int i = 0; i < size; i++) {
+                idle.add(startWorker());
+                live.incrementAndGet();
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Send a payload to the next available worker, waiting for one if all are busy
+     *
+     * @param data the payload, which must not be empty
+     * @param out receives the bytes of the response
+     * @return the status returned by the worker, or -1 if the worker failed, timed out, no worker could be started or the
+     *         pool is closed
+     * @throws InterruptedException if interrupted while waiting for a worker
+     */
+    public int execute(final byte[] data, final ByteArrayOutputStream out) throws InterruptedException {
+        Validate.isTrue(data != null && data.length > 0, "Required: data not empty!");
+        Validate.notNull(out, "Required: out not null!");
+
+        // A worker may exit between requests, so a payload is retried on a fresh worker unless it timed out
+        for (int attempt = 0; attempt <= maxRetries; attempt++) {
+            final Worker worker = borrow();
+            if (worker == null) {
+                return -1;
+            }
+
+            boolean healthy = false;
+            try {
+                final int status = worker.send(data, out);
+                healthy = true;
+                return status;
+            } catch (IOException e) {
+                failed.incrementAndGet();
+                logger.warn("Co-process failed during execution attempt {}: {}, external command={}", attempt + 1, e, Arrays.asList(cmd));
+                if (worker.timedOut) {
+                    return -1;
+                }
+                out.reset();
+            } finally {
+                giveBack(worker, healthy);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Send a health check to every idle worker, replacing any that do not answer. Busy workers are not checked.
+     *
+     * @return the number of workers replaced
+     */
+    public int checkHealth() {
+        final List<Worker> workers = new ArrayList<>(size);
+        idle.drainTo(workers);
+
+        int replaced = 0;
+        for (final Worker worker : workers) {
+            boolean healthy = false;
+            try {
+                healthy = worker.isAlive() && worker.send(new byte[0], new ByteArrayOutputStream()) == 0;
+            } catch (IOException e) {
+                logger.debug("Co-process failed health check", e);
+            }
+            if (!healthy) {
+                failed.incrementAndGet();
+                replaced++;
+            }
+            giveBack(worker, healthy);
+        }
+        return replaced;
+    }
+
+    /**
+     * Check the idle workers every interval, replacing any that do not answer, until the pool is closed
+     *
+     * @param intervalMillis how often to check
+     */
+    public synchronized void startHealthChecks(final long intervalMillis) {
+        Validate.isTrue(intervalMillis > 0, "Required: intervalMillis > 0!");
+        stopHealthChecks();
+        if (closed) {
+            return;
+        }
+        healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread t = new Thread(r, "CoProcessPoolHealth");
+            t.setDaemon(true);
+            return t;
+        });
+        var unused = healthChecker.scheduleWithFixedDelay(this::scheduledHealthCheck, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop any scheduled health checks
+     */
+    public synchronized void stopHealthChecks() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+            healthChecker = null;
+        }
+    }
+
+    private void scheduledHealthCheck() {
+        try {
+            final int replaced = checkHealth();
+            if (replaced > 0) {
+                logger.warn("Replaced {} unhealthy co-processes, external command={}", replaced, Arrays.asList(cmd));
+            }
+        } catch (RuntimeException e) {
+            // keep checking on the next interval
+            logger.error("Co-process health check failed", e);
+        }
+    }
+
+    /**
+     * Set how many times a payload whose worker fails is retried on another worker
+     *
+     * @param maxRetries the number of retries, 0 to never retry
+     */
+    public void setMaxRetries(final int maxRetries) {
+        Validate.isTrue(maxRetries >= 0, "Required: maxRetries >= 0!");
+        this.maxRetries = maxRetries;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * @return the number of workers started over the life of the pool, including replacements
+     */
+    public long getStartedCount() {
+        return started.get();
+    }
+
+    /**
+     * @return the number of workers replaced because they reached their payload or lifetime limit
+     */
+    public long getRecycledCount() {
+        return recycled.get();
+    }
+
+    /**
+     * @return the number of workers replaced because they failed, timed out or exited
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * @return the number of workers currently running, busy or idle, which is less than the size while replacements
+     *         cannot be started
+     */
+    public int getLiveCount() {
+        return live.get();
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Stop all idle workers. Workers busy with a request are stopped when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        stopHealthChecks();
+        final List<Worker> workers = new ArrayList<>(size);
+        idle.drainTo(workers);
+        for (final Worker worker : workers) {
+            live.decrementAndGet();
+            worker.stop();
+        }
+    }
+
+    @Nullable
+    private Worker borrow() throws InterruptedException {
+        while (!closed) {
+            final Worker worker = idle.poll(100, TimeUnit.MILLISECONDS);
+            if (worker == null) {
+                final Worker replacement = startMissingWorker();
+                if (replacement != null) {
+                    return replacement;
+                }
+                if (live.get() == 0) {
+                    return null;
+                }
+                continue;
+            }
+            if (worker.isAlive()) {
+                return worker;
+            }
+            failed.incrementAndGet();
+            giveBack(worker, false);
+        }
+        return null;
+    }
+
+    /**
+     * Return a worker to the pool, replacing it if it is unhealthy or has reached one of its limits
+     */
+    private void giveBack(final Worker worker, final boolean healthy) {
+        if (closed) {
+            live.decrementAndGet();
+            worker.stop();
+            return;
+        }
+
+        Worker next = worker;
+        if (!healthy || !worker.isAlive() || worker.isExpired()) {
+            if (healthy && worker.isAlive()) {
+                recycled.incrementAndGet();
+            }
+            worker.stop();
+            try {
+                next = startWorker();
+            } catch (IOException e) {
+                live.decrementAndGet();
+                logger.error("Unable to replace co-process, pool is now smaller: external command={}", Arrays.asList(cmd), e);
+                return;
+            }
+        }
+
+        if (!idle.offer(next)) {
+            live.decrementAndGet();
+            next.stop();
+        }
+    }
+
+    /**
+     * Start a worker in place of one that could not be replaced earlier
+     *
+     * @return the new worker, or null if the pool is full or the worker could not be started
+     */
+    @Nullable
+    private Worker startMissingWorker() {
+        int count;
+        do {
+            count = live.get();
+            if (count >= size) {
+                return null;
+            }
+        } while (!live.compareAndSet(count, count + 1));
+
+        try {
+            return startWorker();
+        } catch (IOException e) {
+            live.decrementAndGet();
+            logger.error("Unable to start co-process, {} of {} running: external command={}", live.get(), size, Arrays.asList(cmd), e);
+            return null;
+        }
+    }
+
+    private Worker startWorker() throws IOException {
+        logger.debug("Starting co-process: {}", Arrays.asList(cmd));
+        final Process process = new ProcessBuilder(cmd).start();
+        started.incrementAndGet();
+        return new Worker(process);
+    }
+
+    private boolean limitReached(final Worker worker) {
+        return (maxPayloads > 0 && worker.payloads >= maxPayloads)
+                || (maxLifetimeMillis > 0 && System.currentTimeMillis() - worker.startMillis >= maxLifetimeMillis);
+    }
+
+    /**
+     * One external process and its framed streams. A worker is only ever used by the thread that borrowed it.
+     */
+    private final class Worker {
+        final Process process;
+        final DataOutputStream stdin;
+        final DataInputStream stdout;
+        final ProcessReader stderr;
+        final long startMillis = System.currentTimeMillis();
+        long payloads = 0;
+        boolean timedOut = false;
+
+        Worker(final Process process) {
+            this.process = process;
+            this.stdin = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            this.stdout = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+            this.stderr = new ReadOutputLogger("stdErr", process.getErrorStream());
+            this.stderr.setContextMap(MDC.getCopyOfContextMap());
+            this.stderr.setDaemon(true);
+            this.stderr.start();
+        }
+
+        boolean isAlive() {
+            return process.isAlive();
+        }
+
+        boolean isExpired() {
+            return limitReached(this);
+        }
+
+        int send(final byte[] data, final ByteArrayOutputStream out) throws IOException {
+            ExecuteWatchdog dog = null;
+            if (timeoutMillis >= 1) {
+                dog = new ExecuteWatchdog(timeoutMillis);
+                dog.start(process);
+            }
+            try {
+                stdin.writeInt(data.length);
+                stdin.write(data);
+                stdin.flush();
+
+                final int status = stdout.readInt();
+                final int length = stdout.readInt();
+                if (length < 0 || length > MAX_RESPONSE_LENGTH) {
+                    throw new IOException("Invalid co-process response length " + length);
+                }
+                final byte[] buffer = new byte[Math.min(length, 64 * 1024)];
+                int remaining = length;
+                while (remaining > 0) {
+                    final int count = stdout.read(buffer, 0, Math.min(remaining, buffer.length));
+                    if (count < 0) {
+                        throw new IOException("Co-process closed stdout with " + remaining + " bytes of response outstanding");
+                    }
+                    out.write(buffer, 0, count);
+                    remaining -= count;
+                }
+                if (data.length > 0) {
+                    payloads++;
+                }
+                return status;
+            } catch (IOException e) {
+                if (dog != null && dog.killedProcess()) {
+                    timedOut = true;
+                    throw new IOException("Co-process killed after " + timeoutMillis + "ms", e);
+                }
+                throw e;
+            } finally {
+                if (dog != null) {
+                    dog.stop();
+                }
+            }
+        }
+
+        void stop() {
+            try {
+                stdin.close();
+            } catch (IOException ignore) {
+                // the process may already be gone
+            }
+            try {
+                if (!process.waitFor(1, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+            stderr.finish();
+        }
+    }
+}
@@ -2,8 +2,10 @@ package emissary.util.shell;
 
 import emissary.config.Configurator;
 import emissary.config.ServiceConfigGuide;
+import emissary.core.channels.SeekableByteChannelFactory;
 import emissary.directory.KeyManipulator;
 import emissary.util.io.FileManipulator;
+import emissary.util.io.SpillingOutputStream;
 
 import com.google.common.primitives.Ints;
 import org.apache.commons.exec.ExecuteWatchdog;
@@ -25,6 +27,7 @@ import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.util.Arrays;
@@ -44,6 +47,7 @@ public class Executrix {
     private static final int DEFAULT_VM_SIZE_LIMIT = 200000;
     private static final int DEFAULT_CPU_TIME_LIMIT = 300;
     private static final long DEFAULT_PROCESS_MAX_MILLIS = 300 * 1000L; // 5 min
+    private static final int DEFAULT_SPILL_MEMORY_LIMIT = 1024 * 1024;
 
     public enum OUTPUT_TYPE {
         STD, FILE
@@ -63,6 +67,7 @@ public class Executrix {
     protected int vmSizeLimit;
     protected int cpuTimeLimit;
     protected long processMaxMillis;
+    protected int spillMemoryLimit;
 
     // Pieces and parts of file and path names
     public static final int DIR = 0;
@@ -106,6 +111,8 @@ public class Executrix {
      * <li>VM_SIZE_LIMIT: default is 200000 for ulimit argument</li>
      * <li>CPU_TIME_LIMIT: default is 300 seconds for ulimit argument</li>
      * <li>PROCESS_MAX_MILLIS: default is 300000 (5 Min) for process Watchdog. Set to 0 to disable watchdog use</li>
+     * <li>SPILL_MEMORY_LIMIT: default is 1048576, bytes of output held in memory by {@link #createSpillingOutputStream()}
+     * before spilling to TEMP_DIR</li>
      * </ul>
      * 
      * @param configGArg the configuration stream
@@ -133,6 +140,7 @@ public class Executrix {
         this.cpuTimeLimit = configG.findIntEntry("CPU_TIME_LIMIT", DEFAULT_CPU_TIME_LIMIT);
         // Set to 0 to disable watchdog monitoring
         this.processMaxMillis = configG.findLongEntry("PROCESS_MAX_MILLIS", DEFAULT_PROCESS_MAX_MILLIS);
+        this.spillMemoryLimit = configG.findIntEntry("SPILL_MEMORY_LIMIT", DEFAULT_SPILL_MEMORY_LIMIT);
     }
 
     /**
@@ -141,7 +149,30 @@ public class Executrix {
      * @return new {@link TempFileNames} instance
      */
     public TempFileNames createTempFilenames() {
-        return new TempFileNames(this.tmpDir, this.placeName, this.inFileEnding, this.outFileEnding);
+        return createTempFilenames(this.tmpDir);
+    }
+
+    /**
+     * Creates a set of temp file names under a directory other than the configured temp dir (does not do any disk
+     * activity)
+     *
+     * @param dir the directory to create the names in
+     * @return the names
+     */
+    public TempFileNames createTempFilenames(final String dir) {
+        return createTempFilenames(dir, this.placeName);
+    }
+
+    /**
+     * Creates a set of temp file names under a directory, with a temp directory name that starts with something other than
+     * the place name (does not do any disk activity)
+     *
+     * @param dir the directory to create the names in
+     * @param namePrefix the start of the temp directory name
+     * @return the names
+     */
+    public TempFileNames createTempFilenames(final String dir, final String namePrefix) {
+        return new TempFileNames(dir, namePrefix, this.inFileEnding, this.outFileEnding);
     }
 
     /**
@@ -846,6 +877,33 @@ public class Executrix {
         return execute(new ExecuteConfig.BaosExecuteConfig(cmd, data, out, err, charset, env));
     }
 
+    /**
+     * Executes a command in a new process through Runtime Exec, streaming the input from a channel and the output to
+     * streams so neither has to be held in memory. Use {@link #createSpillingOutputStream()} for out to get the result as a
+     * {@link SeekableByteChannelFactory}.
+     *
+     * @param cmd the command and arguments to execute
+     * @param data the input data to the command
+     * @param out the destination for the standard output, which is not closed
+     * @param err the destination for the standard error, which is not closed
+     * @param env environment variables for the new process supplied in name=value format.
+     * @return process exit status, or -1 if the process failed to run or its output could not all be copied
+     */
+    public int execute(final String[] cmd, @Nullable final SeekableByteChannelFactory data, @Nullable final OutputStream out,
+            @Nullable final OutputStream err, @Nullable final Map<String, String> env) {
+        return execute(new ExecuteConfig.ChannelExecuteConfig(cmd, data, out, err, env));
+    }
+
+    /**
+     * Create an output stream that keeps up to SPILL_MEMORY_LIMIT bytes in memory and spills the rest to a file in the
+     * configured temp dir
+     *
+     * @return the new stream
+     */
+    public SpillingOutputStream createSpillingOutputStream() {
+        return new SpillingOutputStream(this.spillMemoryLimit, this.tmpDirFile.toPath());
+    }
+
     private int execute(ExecuteConfig eConfig) {
         int exitValue = -1;
         ExecuteWatchdog dog = null;
@@ -861,19 +919,22 @@ public class Executrix {
 
             stdOutThread.start();
             stdErrThread.start();
-            streamData(p, eConfig.getData());
 
             // kill process if it's not done after 5 minutes - would prefer to
-            // pass in a timeout value
+            // pass in a timeout value. Started before the input is streamed
+            // so a process that never reads its input is still killed
             if (this.processMaxMillis >= 1) {
                 dog = new ExecuteWatchdog(this.processMaxMillis);
                 dog.start(p);
             }
+            eConfig.streamData(p);
             p.waitFor();
             stdOutThread.join();
             stdErrThread.join();
             stdOutThread.finish();
             stdErrThread.finish();
+            checkCopied(stdOutThread, "stdout");
+            checkCopied(stdErrThread, "stderr");
             exitValue = p.exitValue();
         } catch (IOException e) {
             logger.warn("Failure during execution: {}, external command={}", e, Arrays.asList(eConfig.getCmd()));
@@ -889,6 +950,17 @@ public class Executrix {
         return exitValue;
     }
 
+    /**
+     * Fail the execution if a reader could not copy all of the process output
+     */
+    private static void checkCopied(final ProcessReader reader, final String name) throws IOException {
+        if (reader instanceof ReadOutputStream) {
+            final IOException copyException = ((ReadOutputStream) reader).getException();
+            if (copyException != null) {
+                throw new IOException("Unable to copy all of the process " + name, copyException);
+            }
+        }
+    }
 
     private static void streamData(Process p, byte[] data) throws IOException {
         try (OutputStream os = new BufferedOutputStream(new DataOutputStream(p.getOutputStream()))) {
@@ -1425,6 +1497,15 @@ public class Executrix {
         return this.processMaxMillis;
     }
 
+    /**
+     * Gets the place name used as the prefix of temp directory names
+     *
+     * @return the place name
+     */
+    public String getPlaceName() {
+        return this.placeName;
+    }
+
     private abstract static class ExecuteConfig {
 
         final String[] cmd;
@@ -1468,6 +1549,10 @@ public class Executrix {
             return err == null ? new ReadOutputLogger("stdErr", p.getErrorStream()) : new ReadOutputBuffer(p.getErrorStream(), err, charset);
         }
 
+        public void streamData(Process p) throws IOException {
+            Executrix.streamData(p, data);
+        }
+
         private static class SbExecuteConfig extends ExecuteConfig {
             final StringBuilder out;
 
@@ -1498,6 +1583,41 @@ public class Executrix {
             }
         }
 
+        private static class ChannelExecuteConfig extends ExecuteConfig {
+            final SeekableByteChannelFactory input;
+            final OutputStream out;
+            final OutputStream errStream;
+
+            public ChannelExecuteConfig(String[] cmd, SeekableByteChannelFactory input, OutputStream out, OutputStream errStream,
+                    Map<String, String> env) {
+                super(cmd, null, null, null, env);
+                this.input = input;
+                this.out = out;
+                this.errStream = errStream;
+            }
+
+            @Override
+            public ProcessReader getStdOutProcessReader(Process p) {
+                return out == null ? super.getStdOutProcessReader(p) : new ReadOutputStream(p.getInputStream(), out);
+            }
+
+            @Override
+            public ProcessReader getStdErrProcessReader(Process p) {
+                return errStream == null ? super.getStdErrProcessReader(p) : new ReadOutputStream(p.getErrorStream(), errStream);
+            }
+
+            @Override
+            public void streamData(Process p) throws IOException {
+                try (OutputStream os = p.getOutputStream()) {
+                    if (input != null) {
+                        try (SeekableByteChannel channel = input.create(); InputStream is = Channels.newInputStream(channel)) {
+                            is.transferTo(os);
+                        }
+                    }
+                }
+            }
+        }
+
     }
 
 
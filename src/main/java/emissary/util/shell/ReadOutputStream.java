@@ -0,0 +1,55 @@
+package emissary.util.shell;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import javax.annotation.Nullable;
+
+/**
+ * Copy process output to any output stream as it arrives, for output too large to buffer in memory. If the copy fails the
+ * rest of the output is discarded and the failure is kept for {@link #getException()}.
+ */
+public class ReadOutputStream extends ProcessReader {
+
+    private final InputStream inputStream;
+    private final OutputStream outputStream;
+    @Nullable
+    private IOException exception;
+
+    public ReadOutputStream(final InputStream is, final OutputStream os) {
+        this.inputStream = is;
+        this.outputStream = os;
+    }
+
+    @Override
+    void runImpl() {
+        try {
+            IOUtils.copy(inputStream, outputStream);
+        } catch (IOException e) {
+            exception = e;
+            // keep reading so the process is not blocked writing output nobody will see
+            try {
+                IOUtils.consume(inputStream);
+            } catch (IOException ignore) {
+                // the process closed the stream
+            }
+        }
+    }
+
+    @Override
+    public void finish() {}
+
+    /**
+     * @return the exception that stopped the copy, or null if all output was copied
+     */
+    @Nullable
+    public IOException getException() {
+        return exception;
+    }
+
+    public OutputStream getOutputStream() {
+        return outputStream;
+    }
+}
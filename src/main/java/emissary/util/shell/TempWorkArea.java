@@ -0,0 +1,218 @@
+package emissary.util.shell;
+
+import emissary.core.channels.FileChannelFactory;
+import emissary.core.channels.SeekableByteChannelFactory;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+/**
+ * The directory a place runs its external commands in, typically a tmpfs such as /dev/shm, along with a quota on the
+ * bytes the place may keep there and a sweep for directories left behind by a previous run.
+ * <p>
+ * Entries of a place start with its owner token, the place name followed by {@value #TOKEN_SEPARATOR}. Temp directories
+ * are named by {@link TempFileNames} as the owner token followed by digits. Output files that outlive their temp directory
+ * are moved next to it and named with the place name followed by {@value #OUTPUT_MARKER}, digits, a dash and the output
+ * name. Nothing else is treated as belonging to the place, so places whose names share a prefix never sweep each other.
+ */
+public class TempWorkArea {
+    private static final Logger logger = LoggerFactory.getLogger(TempWorkArea.class);
+
+    /** Ends the place name in the owner token */
+    public static final String TOKEN_SEPARATOR = ".";
+
+    /** Marks output files adopted by the work area */
+    public static final String OUTPUT_MARKER = TOKEN_SEPARATOR + "out-";
+
+    /** Prefix given to entries claimed by a sweep before they are removed */
+    static final String SWEEP_MARKER = ".sweep-";
+
+    private final Path root;
+    private final String prefix;
+    private final long quotaBytes;
+    private final AtomicLong usedBytes = new AtomicLong();
+
+    /**
+     * Create a work area
+     *
+     * @param root the directory temp directories are created in
+     * @param prefix the place name temp directories start with
+     * @param quotaBytes the most bytes this place may hold in root, 0 for no limit
+     */
+    public TempWorkArea(final Path root, final String prefix, final long quotaBytes) {
+        Validate.notNull(root, "Required: root not null!");
+        Validate.notEmpty(prefix, "Required: prefix not empty!");
+        Validate.isTrue(quotaBytes >= 0, "Required: quotaBytes >= 0!");
+
+        this.root = root;
+        this.prefix = prefix;
+        this.quotaBytes = quotaBytes;
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * @return the start of every temp directory and output name owned by this place
+     */
+    public String getOwnerToken() {
+        return prefix + TOKEN_SEPARATOR;
+    }
+
+    public long getQuotaBytes() {
+        return quotaBytes;
+    }
+
+    /**
+     * @return the bytes currently charged against the quota
+     */
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    /**
+     * Charge bytes against the quota if they fit
+     *
+     * @param bytes the number of bytes about to be written
+     * @return true if the bytes were charged, false if they would exceed the quota
+     */
+    public boolean reserve(final long bytes) {
+        while (true) {
+            final long used = usedBytes.get();
+            if (quotaBytes > 0 && used + bytes > quotaBytes) {
+                return false;
+            }
+            if (usedBytes.compareAndSet(used, used + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Return bytes to the quota once the files they were charged for are deleted
+     *
+     * @param bytes the number of bytes previously reserved
+     */
+    public void release(final long bytes) {
+        usedBytes.addAndGet(-bytes);
+    }
+
+    /**
+     * Move an output file out of its temp directory so it survives the directory's cleanup, and hand ownership of it to a
+     * channel factory. The file is deleted once the factory is released with {@link FileChannelFactory#release} and its
+     * channels are closed, or once the factory, and so the data object holding it, is no longer reachable. Files moved
+     * into the root are charged against the quota until then, even if that exceeds it.
+     *
+     * @param file the output file
+     * @param dir the directory to move it to, which must be on the same file system
+     * @return a factory over the moved file
+     * @throws IOException if the file cannot be moved
+     */
+    public SeekableByteChannelFactory adopt(final Path file, final Path dir) throws IOException {
+        final Path target = Files.createTempFile(dir, prefix + OUTPUT_MARKER, "-" + file.getFileName());
+        Files.move(file, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        if (!dir.equals(root)) {
+            return FileChannelFactory.createTemporary(target, null);
+        }
+        final long size = Files.size(target);
+        usedBytes.addAndGet(size);
+        return FileChannelFactory.createTemporary(target, () -> release(size));
+    }
+
+    /**
+     * Remove temp directories and adopted outputs of this place that are older than a minimum age. Each entry is first
+     * claimed with an atomic rename so that several processes sweeping the same root never remove the same entry twice or
+     * see it half deleted.
+     *
+     * @param minAgeMillis how old an entry must be to be considered orphaned
+     * @return the number of entries removed
+     */
+    public int sweepOrphans(final long minAgeMillis) {
+        if (!Files.isDirectory(root)) {
+            return 0;
+        }
+
+        // list before claiming so renamed entries are not visited twice
+        final List<Path> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(root)) {
+            stream.forEach(entries::add);
+        } catch (IOException e) {
+            logger.warn("Unable to sweep {} for orphaned temp directories", root, e);
+            return 0;
+        }
+
+        final long cutoff = System.currentTimeMillis() - minAgeMillis;
+        int removed = 0;
+        for (final Path entry : entries) {
+            final String name = entry.getFileName().toString();
+            Path claimed = null;
+            if (name.startsWith(SWEEP_MARKER) && isOwned(name.substring(SWEEP_MARKER.length()))) {
+                // claimed by a sweep that did not finish
+                claimed = entry;
+            } else if (isOwned(name) && isOlderThan(entry, cutoff)) {
+                claimed = claim(entry);
+            }
+            if (claimed != null && Files.exists(claimed) && Executrix.cleanupDirectory(claimed.toFile())) {
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            logger.info("Removed {} orphaned temp entries for {} from {}", removed, prefix, root);
+        }
+        return removed;
+    }
+
+    /**
+     * Check for the exact names this place gives its entries, the owner token followed by either digits or the rest of
+     * {@value #OUTPUT_MARKER}, digits, a dash and a file name
+     */
+    boolean isOwned(final String name) {
+        final String token = getOwnerToken();
+        if (!name.startsWith(token)) {
+            return false;
+        }
+        String rest = name.substring(token.length());
+        final String output = OUTPUT_MARKER.substring(TOKEN_SEPARATOR.length());
+        if (rest.startsWith(output)) {
+            final int dash = rest.indexOf('-', output.length());
+            if (dash < 0 || dash == rest.length() - 1) {
+                return false;
+            }
+            rest = rest.substring(output.length(), dash);
+        }
+        return !rest.isEmpty() && rest.chars().allMatch(Character::isDigit);
+    }
+
+    private static boolean isOlderThan(final Path entry, final long cutoff) {
+        try {
+            return Files.getLastModifiedTime(entry).toMillis() < cutoff;
+        } catch (IOException e) {
+            // removed by another sweep
+            return false;
+        }
+    }
+
+    @Nullable
+    private static Path claim(final Path entry) {
+        final Path claimed = entry.resolveSibling(SWEEP_MARKER + entry.getFileName());
+        try {
+            return Files.move(entry, claimed, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.debug("Could not claim {}, another sweep may have it", entry, e);
+            return null;
+        }
+    }
+}
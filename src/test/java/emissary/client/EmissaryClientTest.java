@@ -3,15 +3,27 @@ package emissary.client;
 import emissary.config.ConfigUtil;
 import emissary.test.core.junit5.UnitTest;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.ws.rs.core.MediaType;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.config.ConnectionConfig;
 import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.core5.http.HttpStatus;
 import org.apache.hc.core5.util.Timeout;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -20,6 +32,7 @@ import java.nio.file.StandardOpenOption;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 class EmissaryClientTest extends UnitTest {
 
@@ -114,4 +127,64 @@ class EmissaryClientTest extends UnitTest {
         assertEquals(Timeout.ofMilliseconds(valueInCfgOnClasspath), new EmissaryClient().getConnectionConfig().getConnectTimeout());
     }
 
+    @Test
+    void testSendAsync() throws Exception {
+        Server server = new Server();
+        ServerConnector connector = new ServerConnector(server);
+        connector.setHost("localhost");
+        server.addConnector(connector);
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException {
+                baseRequest.setHandled(true);
+                response.setContentType(MediaType.APPLICATION_JSON);
+                response.getWriter().write("{\"answer\":\"" + target + "\"}");
+            }
+        });
+        server.start();
+        try {
+            EmissaryResponse response = new EmissaryClient()
+                    .sendAsync(SimpleRequestBuilder.get("http://localhost:" + connector.getLocalPort() + "/api/version").build())
+                    .get(10, TimeUnit.SECONDS);
+            assertEquals(HttpStatus.SC_OK, response.getStatus());
+            assertEquals(MediaType.APPLICATION_JSON, response.contentType);
+            assertEquals("{\"answer\":\"/api/version\"}", response.getContentString());
+        } finally {
+            server.stop();
+        }
+
+        EmissaryResponse failed = new EmissaryClient().sendAsync(SimpleRequestBuilder.get("http://localhost:1/api/version").build())
+                .get(10, TimeUnit.SECONDS);
+        assertEquals(HttpStatus.SC_INTERNAL_SERVER_ERROR, failed.getStatus());
+    }
+
+    @Test
+    void testSendAsyncMatchesBlockingClient() throws Exception {
+        Server server = new Server();
+        ServerConnector connector = new ServerConnector(server);
+        connector.setHost("localhost");
+        server.addConnector(connector);
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException {
+                baseRequest.setHandled(true);
+                response.setContentType("text/plain;charset=ISO-8859-1");
+                response.getOutputStream().write(("caf\u00e9 " + request.getHeader("User-Agent")).getBytes(StandardCharsets.ISO_8859_1));
+            }
+        });
+        server.start();
+        try {
+            String url = "http://localhost:" + connector.getLocalPort() + "/api/version";
+            String expected = "caf\u00e9 " + EmissaryClient.USER_AGENT;
+            assertEquals(expected, new EmissaryClient().send(new HttpGet(url)).getContentString());
+
+            SimpleHttpRequest request = SimpleRequestBuilder.get(url).build();
+            RequestConfig config = RequestConfig.custom().setResponseTimeout(Timeout.ofSeconds(5)).build();
+            request.setConfig(config);
+            assertEquals(expected, new EmissaryClient().sendAsync(request).get(10, TimeUnit.SECONDS).getContentString());
+            assertSame(config, request.getConfig());
+        } finally {
+            server.stop();
+        }
+    }
 }
@@ -5,13 +5,29 @@ import emissary.config.ServiceConfigGuide;
 import emissary.test.core.junit5.UnitTest;
 import emissary.util.PkiUtil;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 import javax.net.ssl.SSLContext;
 
+import static emissary.client.HTTPConnectionFactory.CFG_HTTP_VERSION_POLICY;
 import static emissary.client.HTTPConnectionFactory.CFG_KEY_STORE;
 import static emissary.client.HTTPConnectionFactory.CFG_KEY_STORE_PW;
 import static emissary.client.HTTPConnectionFactory.CFG_KEY_STORE_TYPE;
@@ -121,6 +137,63 @@ class HTTPConnectionFactoryTest extends UnitTest {
         Assertions.assertEquals(projectBase, String.valueOf(pw));
     }
 
+    @Test
+    void testAsyncClientNegotiates() throws Exception {
+        final HTTPConnectionFactory instance = new HTTPConnectionFactory(this.cfg);
+        assertEquals(HttpVersionPolicy.NEGOTIATE, instance.getVersionPolicy());
+        // HTTP/2 is only negotiated during a TLS handshake, plain connections use HTTP/1.1 whatever the peer speaks
+        assertEquals("HTTP/1.1", protocolSeen(instance, true));
+        assertEquals("HTTP/1.1", protocolSeen(instance, false));
+    }
+
+    @Test
+    void testAsyncClientForcedHttp2() throws Exception {
+        this.cfg.addEntry(CFG_HTTP_VERSION_POLICY, "force_http_2");
+        final HTTPConnectionFactory instance = new HTTPConnectionFactory(this.cfg);
+        assertEquals(HttpVersionPolicy.FORCE_HTTP_2, instance.getVersionPolicy());
+        assertEquals("HTTP/2.0", protocolSeen(instance, true));
+    }
+
+    @Test
+    void testUnknownVersionPolicy() {
+        this.cfg.addEntry(CFG_HTTP_VERSION_POLICY, "HTTP_3");
+        assertEquals(HTTPConnectionFactory.DFLT_VERSION_POLICY, new HTTPConnectionFactory(this.cfg).getVersionPolicy());
+    }
+
+    /**
+     * Start a server on loopback, send it a request with an asynchronous client from the factory and return the protocol
+     * the server saw
+     */
+    private static String protocolSeen(final HTTPConnectionFactory factory, final boolean http2) throws Exception {
+        final Server server = new Server();
+        final HttpConfiguration config = new HttpConfiguration();
+        final ServerConnector connector = http2
+                ? new ServerConnector(server, new HttpConnectionFactory(config), new HTTP2CServerConnectionFactory(config))
+                : new ServerConnector(server, new HttpConnectionFactory(config));
+        connector.setHost("localhost");
+        connector.setPort(0);
+        server.addConnector(connector);
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(final String target, final Request baseRequest, final HttpServletRequest request,
+                    final HttpServletResponse response) throws IOException {
+                baseRequest.setHandled(true);
+                response.setContentType("text/plain;charset=utf-8");
+                response.getWriter().write(request.getProtocol());
+            }
+        });
+        server.start();
+        try (CloseableHttpAsyncClient client = factory.buildDefaultAsyncClient()) {
+            client.start();
+            final String uri = "http://localhost:" + connector.getLocalPort() + "/";
+            final SimpleHttpResponse response = client.execute(SimpleRequestBuilder.get(uri).build(), null).get(10, TimeUnit.SECONDS);
+            assertEquals(200, response.getCode());
+            return response.getBodyText();
+        } finally {
+            server.stop();
+        }
+    }
+
     private static void addKeystoreProps(final Configurator cfg) {
         cfg.addEntry(CFG_KEY_STORE, projectBase + "/test-classes/certs/testkeystore.jks");
         cfg.addEntry(CFG_KEY_STORE_PW, "password");
@@ -0,0 +1,68 @@
+package emissary.config;
+
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ConfigParseCacheTest extends UnitTest {
+
+    @BeforeEach
+    public void clearCache() {
+        ConfigParseCache.clear();
+    }
+
+    private static Path write(final Path path, final String data) throws IOException {
+        return Files.write(path, data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testSharedImportIsParsedOnce(@TempDir final Path dir) throws IOException {
+        final Path common = write(dir.resolve("common.cfg"), "COMMON = \"@{WHO}\"\nSHARED = \"yes\"\n");
+        final Path a = write(dir.resolve("a.cfg"), "WHO = \"a\"\nIMPORT_FILE = \"" + common + "\"\n");
+        final Path b = write(dir.resolve("b.cfg"), "WHO = \"b\"\nIMPORT_FILE = \"" + common + "\"\n");
+
+        final long start = ConfigParseCache.getParseCount();
+        final Configurator configA = new ServiceConfigGuide(a.toString());
+        final Configurator configB = new ServiceConfigGuide(b.toString());
+        final Configurator configA2 = new ServiceConfigGuide(a.toString());
+
+        assertEquals(3, ConfigParseCache.getParseCount() - start, "Each file is parsed once");
+        assertEquals(3, ConfigParseCache.size());
+        assertEquals("a", configA.findStringEntry("COMMON"), "Substitutions are made for each config");
+        assertEquals("b", configB.findStringEntry("COMMON"));
+        assertEquals("yes", configB.findStringEntry("SHARED"));
+        assertEquals(configA.getEntries(), configA2.getEntries());
+    }
+
+    @Test
+    void testChangedFileIsParsedAgain(@TempDir final Path dir) throws IOException {
+        final Path file = write(dir.resolve("changing.cfg"), "VALUE = \"one\"\n");
+        final FileTime written = Files.getLastModifiedTime(file);
+        assertEquals("one", new ServiceConfigGuide(file.toString()).findStringEntry("VALUE"));
+
+        write(file, "VALUE = \"two\"\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(written.toMillis() + 2000));
+        final long start = ConfigParseCache.getParseCount();
+        assertEquals("two", new ServiceConfigGuide(file.toString()).findStringEntry("VALUE"));
+        assertEquals(1, ConfigParseCache.getParseCount() - start);
+    }
+
+    @Test
+    void testSyntaxErrorIsNotCached(@TempDir final Path dir) throws IOException {
+        final Path file = write(dir.resolve("bad.cfg"), "VALUE = 1 2\n");
+        assertThrows(IOException.class, () -> new ServiceConfigGuide(file.toString()));
+        assertThrows(IOException.class, () -> new ServiceConfigGuide(file.toString()));
+        assertEquals(0, ConfigParseCache.size());
+    }
+}
@@ -17,6 +17,9 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -646,6 +649,39 @@ class ConfigUtilTest extends UnitTest {
         assertEquals(result, noImportExpectedMessage, "IMPORT_FAIL Message Not What Was Expected.");
     }
 
+    @Test
+    void testUnopenableResourceFallsThrough() throws IOException, EmissaryException {
+        final Path configDir1 = createTmpSubDir("config1C");
+        createFileAndPopulate(configDir1, "Resource.cfg", "FOUND = \"OLD_STYLE\"\n");
+        final String origConfigDirProp = System.getProperty(CONFIG_DIR_PROPERTY);
+        System.setProperty(CONFIG_DIR_PROPERTY, configDir1.toString());
+        ConfigUtil.initialize();
+
+        // a resource that is listed but cannot be read, as a damaged jar entry would be
+        final URL broken = new URL(null, "broken:emissary/unopenable/Resource.cfg", new URLStreamHandler() {
+            @Override
+            protected URLConnection openConnection(final URL u) throws IOException {
+                throw new IOException("Cannot open " + u);
+            }
+        });
+        final Thread thread = Thread.currentThread();
+        final ClassLoader original = thread.getContextClassLoader();
+        thread.setContextClassLoader(new ClassLoader(original) {
+            @Override
+            public URL getResource(final String name) {
+                return name.endsWith("emissary/unopenable/Resource.cfg") ? broken : super.getResource(name);
+            }
+        });
+        try {
+            final Configurator c = ConfigUtil.getConfigInfo("emissary.unopenable.Resource.cfg");
+            assertEquals("OLD_STYLE", c.findStringEntry("FOUND"), "The next location is used when a resource cannot be opened");
+        } finally {
+            thread.setContextClassLoader(original);
+            System.setProperty(CONFIG_DIR_PROPERTY, origConfigDirProp);
+            ConfigUtil.initialize();
+        }
+    }
+
     private Path createTmpSubDir(final String name) throws IOException {
         final Path dir = Paths.get(configPath.toString(), name);
         Files.createDirectory(dir);
@@ -0,0 +1,49 @@
+package emissary.config;
+
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyTrieTest extends UnitTest {
+
+    @Test
+    void testPrefixes() {
+        final KeyTrie trie = new KeyTrie();
+        for (final String key : List.of("FOO", "FOO_B", "FOO_A", "FOOD", "BAR", "")) {
+            assertTrue(trie.add(key));
+        }
+        assertFalse(trie.add("FOO"));
+        assertEquals(6, trie.size());
+
+        assertEquals(List.of("FOO", "FOOD", "FOO_A", "FOO_B"), trie.withPrefix("FOO"));
+        assertEquals(List.of("FOO_A", "FOO_B"), trie.withPrefix("FOO_"));
+        assertEquals(List.of("FOO_A"), trie.withPrefix("FOO_A"));
+        assertTrue(trie.withPrefix("FOO_AB").isEmpty());
+        assertTrue(trie.withPrefix("X").isEmpty());
+        assertEquals(6, trie.withPrefix("").size());
+    }
+
+    @Test
+    void testRemove() {
+        final KeyTrie trie = new KeyTrie();
+        trie.add("FOO");
+        trie.add("FOO_LONG_NAME");
+
+        assertFalse(trie.remove("FOO_LONG"), "Only members are removed");
+        assertTrue(trie.remove("FOO_LONG_NAME"));
+        assertFalse(trie.contains("FOO_LONG_NAME"));
+        assertTrue(trie.contains("FOO"));
+        assertEquals(List.of("FOO"), trie.withPrefix("F"));
+
+        assertTrue(trie.remove("FOO"));
+        assertFalse(trie.remove("FOO"));
+        assertEquals(0, trie.size());
+        assertTrue(trie.withPrefix("").isEmpty());
+    }
+}
@@ -697,4 +697,64 @@ class ServiceConfigGuideTest extends UnitTest {
 
     }
 
+    @Test
+    void testIndexFollowsAddRemoveAndMerge() throws IOException {
+        final ServiceConfigGuide config = new ServiceConfigGuide();
+        config.addEntry("FOO_A", "1");
+        config.addEntry("BAR", "2");
+        config.addEntry("FOO_B", "3");
+        config.addEntry("FOO_A", "4");
+        config.addEntry("FOO", "5");
+        config.removeEntry("FOO_B", "3");
+        config.addEntry("FOO_B", "6");
+
+        final ServiceConfigGuide other = new ServiceConfigGuide();
+        other.addEntry("FOO_C", "7");
+        other.addEntry("FOO_A", "8");
+        other.removeEntry("BAR", "*");
+        config.merge(other);
+
+        assertFalse(config.entryKeys().contains("BAR"));
+        assertEquals(List.of("8", "1", "4"), config.findEntries("FOO_A"));
+        assertEquals("8", config.findStringEntry("FOO_A"));
+        assertEquals("4", config.findLastStringEntry("FOO_A"));
+        assertEquals("", config.findLastStringEntry("BAR"));
+        for (final String prefix : List.of("", "F", "FOO", "FOO_", "FOO_A", "FOO_AA", "BAR")) {
+            assertEquals(scan(config, prefix), config.findStringMatchEntries(prefix), "Prefix " + prefix);
+        }
+
+        config.removeAllEntries("FOO_A");
+        assertTrue(config.findEntries("FOO_A").isEmpty());
+        assertEquals(List.of("FOO_C", "FOO_B"), keys(config.findStringMatchEntries("FOO_")));
+        assertEquals(scan(config, "FOO"), config.findStringMatchEntries("FOO"));
+    }
+
+    @Test
+    void testFindStringMatchListLeavesConfigUnchanged() {
+        final ServiceConfigGuide config = new ServiceConfigGuide();
+        config.addEntry("FOO_ONE", "1");
+        config.addEntry("FOO_TWO", "2");
+
+        assertEquals(List.of("ONE", "TWO"), keys(config.findStringMatchList("FOO_")));
+        assertEquals(List.of("FOO_ONE", "FOO_TWO"), keys(config.findStringMatchEntries("FOO_")));
+        assertEquals("1", config.findStringEntry("FOO_ONE"));
+    }
+
+    private static List<ConfigEntry> scan(final Configurator config, final String prefix) {
+        final List<ConfigEntry> list = new ArrayList<>();
+        for (final ConfigEntry entry : config.getEntries()) {
+            if (entry.getKey().startsWith(prefix)) {
+                list.add(entry);
+            }
+        }
+        return list;
+    }
+
+    private static List<String> keys(final List<ConfigEntry> entries) {
+        final List<String> keys = new ArrayList<>();
+        for (final ConfigEntry entry : entries) {
+            keys.add(entry.getKey());
+        }
+        return keys;
+    }
 }
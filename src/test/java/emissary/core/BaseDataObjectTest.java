@@ -48,7 +48,9 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -1172,6 +1174,81 @@ class BaseDataObjectTest extends UnitTest {
         }
     }
 
+    @Test
+    void testCloneProcessingErrors() throws CloneNotSupportedException {
+        this.b.addProcessingError("first");
+        final IBaseDataObject clone = this.b.clone();
+        clone.addProcessingError("second");
+        assertEquals("first\n", this.b.getProcessingError(), "Processing errors must be detached after clone");
+        assertEquals("first\nsecond\n", clone.getProcessingError());
+    }
+
+    @Test
+    void testCloneIsolation() throws CloneNotSupportedException {
+        // data copied in by range is held only by the object, so clones share it
+        final byte[] bytes = "This is a test".getBytes();
+        this.b.setData(bytes, 0, bytes.length);
+        this.b.putParameter("SHARED", "one");
+        this.b.appendTransformHistory("UNKNOWN.FILE_PICK_UP.INPUT.http://localhost:8001/FilePickUpPlace$5050");
+        final IBaseDataObject clone = this.b.clone();
+        final IBaseDataObject cloneOfClone = clone.clone();
+
+        // data changed in place on either side stays there
+        clone.data()[0] = 'X';
+        this.b.data()[1] = 'Y';
+        assertEquals("Xhis is a test", new String(clone.data()), "Clone keeps its own change");
+        assertEquals("TYis is a test", new String(this.b.data()), "Original keeps its own change");
+        assertEquals("This is a test", new String(cloneOfClone.data()), "Other clones see neither change");
+
+        clone.appendParameter("SHARED", "clone");
+        this.b.appendParameter("SHARED", "original");
+        cloneOfClone.deleteParameter("SHARED");
+        assertEquals("one;original", this.b.getStringParameter("SHARED"));
+        assertEquals("one;clone", clone.getStringParameter("SHARED"));
+        assertNull(cloneOfClone.getParameter("SHARED"));
+
+        clone.appendTransformHistory("KNOWN.COOL_STUFF.COORDINATE.http://localhost:8001/CoolStuffPlace$5050", true);
+        this.b.appendTransformHistory("KNOWN.ONE_THING.ANALYZE.http://localhost:8001/DoOneThingPlace$5050");
+        assertEquals(2, this.b.getTransformHistory().size(true));
+        assertEquals(2, clone.getTransformHistory().size(true));
+        assertEquals(1, clone.getTransformHistory().size(false));
+        assertEquals(1, cloneOfClone.getTransformHistory().size(true));
+
+        // the data is copied once, not on every call
+        assertSame(cloneOfClone.data(), cloneOfClone.data());
+        assertSame(clone.data(), clone.data());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void testParameterMultimap() {
+        this.b.getParameterMultimap().put("VIEW", "one");
+        this.b.appendParameter("VIEW", "two");
+        assertEquals("one;two", this.b.getStringParameter("VIEW"));
+        assertEquals(Arrays.asList("one", "two"), this.b.getParameterMultimap().get("VIEW"));
+    }
+
+    @Test
+    void testCloneSharesData() throws Exception {
+        final Field theData = BaseDataObject.class.getDeclaredField("theData");
+        theData.setAccessible(true);
+        final byte[] bytes = "Shared test".getBytes();
+        this.b.setData(bytes);
+        final IBaseDataObject clone = this.b.clone();
+        final IBaseDataObject helperClone = IBaseDataObjectHelper.clone(this.b);
+        assertSame(bytes, theData.get(clone));
+        assertSame(bytes, theData.get(helperClone));
+
+        // the first data() call after the clone copies, later ones hand back the same array
+        final byte[] own = clone.data();
+        assertNotSame(bytes, own);
+        assertSame(own, clone.data());
+        own[0] = 's';
+        assertEquals("Shared test", new String(this.b.data()));
+        assertEquals("Shared test", new String(helperClone.data()));
+        assertEquals("shared test", new String(clone.data()));
+    }
+
     @Test
     void testHeaderEncoding() {
         this.b.setHeaderEncoding("foo");
@@ -1247,6 +1324,7 @@ class BaseDataObjectTest extends UnitTest {
         final String testData = "This is a test";
         bdo.setChannelFactory(SeekableByteChannelHelper.memory(testData.getBytes()));
         Field theData = bdo.getClass().getDeclaredField("theData");
+        theData.setAccessible(true);
         theData.set(bdo, testData.getBytes());
 
         final String msg = "Should throw an error when trying to access data on a BDO where we have a byte array and a channel";
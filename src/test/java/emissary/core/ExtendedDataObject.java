@@ -28,7 +28,6 @@ public class ExtendedDataObject extends BaseDataObject implements Serializable,
 
     public ExtendedDataObject() {
         super();
-        this.theData = null;
         emptyFileTypes = NEW_FILETYPE_EMPTY;
         this.intVar = 37;
     }
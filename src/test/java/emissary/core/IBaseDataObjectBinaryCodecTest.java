@@ -0,0 +1,234 @@
+package emissary.core;
+
+import emissary.core.channels.ExceptionChannelFactory;
+import emissary.core.channels.FileChannelFactory;
+import emissary.core.channels.InMemoryChannelFactory;
+import emissary.test.core.junit5.UnitTest;
+import emissary.util.PlaceComparisonHelper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static emissary.core.IBaseDataObjectXmlCodecs.DEFAULT_ELEMENT_ENCODERS;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IBaseDataObjectBinaryCodecTest extends UnitTest {
+    private static final DiffCheckConfiguration ALL_FIELDS = DiffCheckConfiguration.configure().enableData().enableTimestamp()
+            .enableTransformHistory().enableKeyValueParameterDiff().build();
+
+    private static IBaseDataObject createIbdo(final String name, final byte[] bytes) {
+        final IBaseDataObject ibdo = new BaseDataObject(bytes, name);
+
+        ibdo.setBirthOrder(5);
+        ibdo.setBroken("Broken1");
+        ibdo.setBroken("\001Broken2");
+        ibdo.setClassification("Classification");
+        ibdo.pushCurrentForm("Form1");
+        ibdo.pushCurrentForm("Form2");
+        ibdo.setFileType("FileType");
+        ibdo.setFontEncoding("FontEncoding");
+        ibdo.setFooter("Footer".getBytes(StandardCharsets.UTF_8));
+        ibdo.setHeader("\001Header".getBytes(StandardCharsets.UTF_8));
+        ibdo.setHeaderEncoding("HeaderEncoding");
+        ibdo.setId("Id");
+        ibdo.setNumChildren(9);
+        ibdo.setNumSiblings(10);
+        ibdo.setOutputable(false);
+        ibdo.setPriority(1);
+        ibdo.addProcessingError("ProcessingError1");
+        ibdo.addProcessingError("ProcessingError2");
+        ibdo.setTransactionId("TransactionId");
+        ibdo.setWorkBundleId("WorkBundleId");
+        ibdo.setCreationTimestamp(Instant.ofEpochSecond(1_700_000_000L, 123_456_789));
+        ibdo.putParameter("Parameter1Key", "Parameter1Value");
+        ibdo.putParameter("Parameter2Key", Arrays.asList("Parameter2Value1", "\020Parameter2Value2"));
+        ibdo.putParameter("Parameter3Key", Arrays.asList(10L, 20L));
+        ibdo.putParameter("Parameter4Key", Arrays.asList(1, 2.5d, true));
+        ibdo.addAlternateView("AlternateView1Key", "AlternateView1Value".getBytes(StandardCharsets.UTF_8));
+        ibdo.addAlternateView("\200AlternateView2Key", new byte[] {0, 1, 2});
+        ibdo.appendTransformHistory("*.FIRST.ID.http://localhost:8001/FirstPlace$5050");
+        ibdo.appendTransformHistory("*.SECOND.ANALYZE.http://localhost:8001/SecondPlace$5050");
+        ibdo.appendTransformHistory("*.COORD.ANALYZE.http://localhost:8001/CoordPlace$5050", true);
+
+        return ibdo;
+    }
+
+    private static byte[] randomBytes(final int length) {
+        final byte[] bytes = new byte[length];
+
+        new Random(0).nextBytes(bytes);
+
+        return bytes;
+    }
+
+    private static byte[] encode(final IBaseDataObject parent, final List<IBaseDataObject> children) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        IBaseDataObjectBinaryCodec.encode(parent, children, baos, IBaseDataObjectBinaryCodec.INLINE_PAYLOADS);
+
+        return baos.toByteArray();
+    }
+
+    @Test
+    void testRoundTripAllFields() throws IOException {
+        final IBaseDataObject expectedIbdo = createIbdo("Parent", randomBytes(1000));
+        final List<IBaseDataObject> expectedChildren = Arrays.asList(createIbdo("Child1", randomBytes(10)), createIbdo("Child2", new byte[0]));
+        final List<IBaseDataObject> actualChildren = new ArrayList<>();
+
+        expectedIbdo.addExtractedRecord(createIbdo("ExtractedRecord1", randomBytes(20)));
+        expectedIbdo.addExtractedRecord(createIbdo("ExtractedRecord2", randomBytes(30)));
+
+        final IBaseDataObject actualIbdo = IBaseDataObjectBinaryCodec.decode(new ByteArrayInputStream(encode(expectedIbdo, expectedChildren)),
+                actualChildren, IBaseDataObjectBinaryCodec.FILE_PAYLOADS);
+
+        assertNull(PlaceComparisonHelper.checkDifferences(expectedIbdo, actualIbdo, expectedChildren, actualChildren,
+                "testRoundTripAllFields", ALL_FIELDS));
+        assertEquals(expectedIbdo.getProcessingError(), actualIbdo.getProcessingError());
+        assertEquals(expectedIbdo.getBroken(), actualIbdo.getBroken());
+        assertEquals(expectedIbdo.transformHistory(true), actualIbdo.transformHistory(true));
+        assertEquals(expectedIbdo.getParameters(), actualIbdo.getParameters());
+    }
+
+    @Test
+    void testMatchesXmlHelper() throws IOException {
+        final IBaseDataObject initialIbdo = new BaseDataObject();
+        final IBaseDataObject expectedIbdo = createIbdo("Parent", randomBytes(100));
+        final List<IBaseDataObject> expectedChildren = Collections.singletonList(createIbdo("Child1", randomBytes(10)));
+        final List<IBaseDataObject> actualChildren = new ArrayList<>();
+
+        expectedIbdo.addExtractedRecord(createIbdo("ExtractedRecord1", randomBytes(20)));
+
+        final IBaseDataObject actualIbdo = IBaseDataObjectBinaryCodec.decode(new ByteArrayInputStream(encode(expectedIbdo, expectedChildren)),
+                actualChildren, IBaseDataObjectBinaryCodec.FILE_PAYLOADS);
+
+        assertEquals(IBaseDataObjectXmlHelper.xmlFromIbdo(expectedIbdo, expectedChildren, initialIbdo, DEFAULT_ELEMENT_ENCODERS),
+                IBaseDataObjectXmlHelper.xmlFromIbdo(actualIbdo, actualChildren, initialIbdo, DEFAULT_ELEMENT_ENCODERS));
+    }
+
+    @Test
+    void testEmptyIbdo() throws IOException {
+        final IBaseDataObject expectedIbdo = new BaseDataObject();
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        IBaseDataObjectBinaryCodec.encode(expectedIbdo, baos);
+
+        final IBaseDataObject actualIbdo = IBaseDataObjectBinaryCodec.decode(new ByteArrayInputStream(baos.toByteArray()));
+
+        assertNull(actualIbdo.getChannelFactory());
+        assertNull(PlaceComparisonHelper.checkDifferences(expectedIbdo, actualIbdo, new ArrayList<>(), new ArrayList<>(),
+                "testEmptyIbdo", ALL_FIELDS));
+    }
+
+    @Test
+    void testNullParameterValues() throws IOException {
+        final IBaseDataObject expectedIbdo = new BaseDataObject();
+
+        expectedIbdo.putParameter("NullKey", Arrays.asList("before", null, "after"));
+        expectedIbdo.putParameter("OnlyNullKey", Collections.singletonList(null));
+
+        final IBaseDataObject actualIbdo = IBaseDataObjectBinaryCodec.decode(new ByteArrayInputStream(encode(expectedIbdo, Collections.emptyList())),
+                new ArrayList<>(), IBaseDataObjectBinaryCodec.FILE_PAYLOADS);
+
+        assertEquals(Arrays.asList("before", null, "after"), actualIbdo.getParameter("NullKey"));
+        assertEquals(Collections.singletonList(null), actualIbdo.getParameter("OnlyNullKey"));
+        assertEquals(expectedIbdo.getParameters(), actualIbdo.getParameters());
+    }
+
+    @Test
+    void testEmptyProcessingError() throws IOException {
+        final BaseDataObject expectedIbdo = new BaseDataObject();
+
+        // not reachable through addProcessingError, but other implementations may report it
+        expectedIbdo.procError = new StringBuilder();
+
+        final IBaseDataObject actualIbdo = IBaseDataObjectBinaryCodec.decode(new ByteArrayInputStream(encode(expectedIbdo, Collections.emptyList())),
+                new ArrayList<>(), IBaseDataObjectBinaryCodec.FILE_PAYLOADS);
+
+        assertEquals("", expectedIbdo.getProcessingError());
+        assertNull(actualIbdo.getProcessingError());
+
+        expectedIbdo.addProcessingError("");
+        expectedIbdo.addProcessingError("Error");
+        assertEquals(expectedIbdo.getProcessingError(), IBaseDataObjectBinaryCodec.decode(
+                new ByteArrayInputStream(encode(expectedIbdo, Collections.emptyList())), new ArrayList<>(), IBaseDataObjectBinaryCodec.FILE_PAYLOADS)
+                .getProcessingError());
+    }
+
+    @Test
+    void testDecodeFromChannelFactory() throws IOException {
+        final byte[] bytes = randomBytes(5000);
+        final IBaseDataObject expectedIbdo = createIbdo("Parent", bytes);
+        final List<IBaseDataObject> actualChildren = new ArrayList<>();
+
+        final IBaseDataObject actualIbdo = IBaseDataObjectBinaryCodec.decode(
+                InMemoryChannelFactory.create(encode(expectedIbdo, Collections.emptyList())), actualChildren,
+                IBaseDataObjectBinaryCodec.FILE_PAYLOADS);
+
+        assertEquals(bytes.length, actualIbdo.getChannelSize());
+        assertArrayEquals(bytes, actualIbdo.data());
+        assertEquals(0, actualChildren.size());
+        assertEquals(expectedIbdo.getParameters(), actualIbdo.getParameters());
+    }
+
+    @Test
+    void testPayloadReferences(@TempDir final Path tempDir) throws IOException {
+        final Path payload = tempDir.resolve("payload");
+        final byte[] bytes = randomBytes(100);
+
+        Files.write(payload, bytes);
+
+        final IBaseDataObject expectedIbdo = new BaseDataObject();
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        expectedIbdo.setChannelFactory(FileChannelFactory.create(payload));
+        IBaseDataObjectBinaryCodec.encode(expectedIbdo, Collections.emptyList(), baos, sbcf -> payload.toString());
+
+        // Only the reference is written, not the payload
+        assertTrue(baos.size() < bytes.length);
+
+        final IBaseDataObject actualIbdo = IBaseDataObjectBinaryCodec.decode(new ByteArrayInputStream(baos.toByteArray()));
+
+        assertArrayEquals(bytes, actualIbdo.data());
+    }
+
+    @Test
+    void testBadChannelFactory() {
+        final IBaseDataObject ibdo = new BaseDataObject();
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        ibdo.setChannelFactory(new ExceptionChannelFactory());
+
+        assertThrows(IOException.class, () -> IBaseDataObjectBinaryCodec.encode(ibdo, baos));
+    }
+
+    @Test
+    void testBadHeader() throws IOException {
+        final byte[] encoded = encode(new BaseDataObject(), Collections.emptyList());
+        final byte[] badMagic = encoded.clone();
+        final byte[] badVersion = encoded.clone();
+
+        badMagic[0] = 'X';
+        badVersion[5] = 99;
+
+        assertThrows(IOException.class, () -> IBaseDataObjectBinaryCodec.decode(new ByteArrayInputStream(badMagic)));
+        assertThrows(IOException.class, () -> IBaseDataObjectBinaryCodec.decode(new ByteArrayInputStream(badVersion)));
+        assertThrows(IOException.class, () -> IBaseDataObjectBinaryCodec.decode(new ByteArrayInputStream(Arrays.copyOf(encoded, 20))));
+    }
+}
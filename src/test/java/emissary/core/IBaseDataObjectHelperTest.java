@@ -121,6 +121,29 @@ class IBaseDataObjectHelperTest extends UnitTest {
         assertEquals(0, differences.size());
     }
 
+    @Test
+    void testCloneIsolation() {
+        final IBaseDataObject original = new BaseDataObject("0123456789".getBytes(StandardCharsets.US_ASCII), "Filename");
+        original.putParameter("SHARED", "one");
+        for (final boolean fullClone : new boolean[] {true, false}) {
+            final IBaseDataObject clone = IBaseDataObjectHelper.clone(original, fullClone);
+
+            clone.data()[0] = 'X';
+            clone.appendParameter("SHARED", "clone");
+            assertEquals("0123456789", new String(original.data(), StandardCharsets.US_ASCII));
+            assertEquals("one", original.getStringParameter("SHARED"));
+
+            original.data()[1] = 'Y';
+            original.appendParameter("OWN", "original");
+            assertEquals("X123456789", new String(clone.data(), StandardCharsets.US_ASCII));
+            assertNull(clone.getParameter("OWN"));
+            assertEquals("one;clone", clone.getStringParameter("SHARED"));
+
+            original.setData("0123456789".getBytes(StandardCharsets.US_ASCII));
+            original.deleteParameter("OWN");
+        }
+    }
+
     @Test
     void testCloneArguments() {
         assertNotNull(IBaseDataObjectHelper.clone(new BaseDataObject(), false));
@@ -361,6 +384,28 @@ class IBaseDataObjectHelperTest extends UnitTest {
         assertTrue(true);
     }
 
+    @Test
+    void testAddParentInformationToChildrenHashesChildren() {
+        final KffDataObjectHandler kffDataObjectHandler = new KffDataObjectHandler();
+        final IBaseDataObject child1 = new BaseDataObject();
+        final IBaseDataObject child2 = new BaseDataObject();
+        final IBaseDataObject expected = new BaseDataObject();
+        child1.setChannelFactory(InMemoryChannelFactory.create("0123456789".getBytes(StandardCharsets.US_ASCII)));
+        child2.setChannelFactory(InMemoryChannelFactory.create("abcdefghij".getBytes(StandardCharsets.US_ASCII)));
+        expected.setChannelFactory(InMemoryChannelFactory.create("0123456789".getBytes(StandardCharsets.US_ASCII)));
+        kffDataObjectHandler.hash(expected, true);
+
+        IBaseDataObjectHelper.addParentInformationToChildren(ibdo1, Arrays.asList(child1, null, child2), false, new HashSet<>(), "place",
+                kffDataObjectHandler);
+
+        assertTrue(KffDataObjectHandler.hashPresent(child1));
+        assertTrue(KffDataObjectHandler.hashPresent(child2));
+        assertEquals(KffDataObjectHandler.getMd5Value(expected), KffDataObjectHandler.getMd5Value(child1));
+        assertNotEquals(KffDataObjectHandler.getMd5Value(child1), KffDataObjectHandler.getMd5Value(child2));
+        assertEquals(2, child2.getBirthOrder());
+        assertEquals(3, child2.getNumSiblings());
+    }
+
     @Test
     void testAddParentInformationToChildExcluding() {
         final IBaseDataObject parentIbdo = ibdo1;
@@ -0,0 +1,411 @@
+package emissary.core;
+
+import emissary.test.core.junit5.UnitTest;
+
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParameterMapTest extends UnitTest {
+
+    /**
+     * Runs the same operations against the map and the multimap it replaced and checks they can not be told apart
+     */
+    @Test
+    void testConformsToLinkedListMultimap() {
+        final Random random = new Random(42);
+        final LinkedListMultimap<String, Object> expected = LinkedListMultimap.create();
+        final ParameterMap actual = new ParameterMap();
+
+        for (int op = 0; op < 20000; op++) {
+            final String key = "KEY_" + random.nextInt(300);
+            final Object value = random.nextInt(10) == 0 ? null : "value" + random.nextInt(5);
+            switch (random.nextInt(10)) {
+                case 0:
+                case 1:
+                case 2:
+                case 3:
+                    expected.put(key, value);
+                    actual.put(key, value);
+                    break;
+                case 4:
+                    final List<Object> values = Arrays.asList(value, "more", value);
+                    expected.putAll(key, values);
+                    actual.putAll(key, values);
+                    break;
+                case 5:
+                    expected.putAll(key, Collections.emptyList());
+                    actual.putAll(key, Collections.emptyList());
+                    break;
+                case 6:
+                case 7:
+                    assertEquals(expected.removeAll(key), actual.removeAll(key));
+                    break;
+                case 8:
+                    if (random.nextInt(200) == 0) {
+                        expected.clear();
+                        actual.clear();
+                    } else {
+                        changeThroughViews(random, key, value, expected, actual);
+                    }
+                    break;
+                default:
+                    assertEquals(expected.containsEntry(key, value), actual.containsEntry(key, value));
+                    break;
+            }
+            assertEquals(expected.get(key), actual.get(key));
+            assertEquals(expected.containsKey(key), actual.containsKey(key));
+            assertEquals(expected.size(), actual.size());
+            assertEquals(expected.keySet().size(), actual.keyCount());
+            if (op % 100 == 0) {
+                assertSameContents(expected, actual);
+            }
+        }
+        assertSameContents(expected, actual);
+    }
+
+    /**
+     * Make the same change through the views of both maps
+     */
+    private static void changeThroughViews(final Random random, final String key, @Nullable final Object value,
+            final LinkedListMultimap<String, Object> expected, final ParameterMap actual) {
+        final List<Object> expectedValues = expected.get(key);
+        final List<Object> actualValues = actual.get(key);
+        final int size = expectedValues.size();
+        switch (random.nextInt(7)) {
+            case 0:
+                final int at = random.nextInt(size + 1);
+                expectedValues.add(at, value);
+                actualValues.add(at, value);
+                break;
+            case 1:
+                if (size > 0) {
+                    // the multimap orders keys by their first value, so removing it can move the key, which this map does not
+                    final int index = size == 1 ? 0 : 1 + random.nextInt(size - 1);
+                    assertEquals(expectedValues.remove(index), actualValues.remove(index));
+                }
+                break;
+            case 2:
+                if (size > 0) {
+                    final int index = random.nextInt(size);
+                    assertEquals(expectedValues.set(index, value), actualValues.set(index, value));
+                }
+                break;
+            case 3:
+                assertEquals(expected.asMap().remove(key), actual.asMap().remove(key));
+                break;
+            case 4:
+                assertEquals(expected.keySet().remove(key), actual.keySet().remove(key));
+                break;
+            case 5:
+                final List<Object> replacement = random.nextBoolean() ? Arrays.asList(value, "replaced") : Collections.emptyList();
+                assertEquals(expected.replaceValues(key, replacement), actual.asMultimap().replaceValues(key, replacement));
+                break;
+            default:
+                expectedValues.add(value);
+                actualValues.add(value);
+                break;
+        }
+    }
+
+    @Test
+    void testViewsAreLive() {
+        final ParameterMap map = new ParameterMap();
+        final List<Object> a = map.get("A");
+        final Map<String, Collection<Object>> all = map.asMap();
+        final Set<String> keys = map.keySet();
+        assertTrue(a.isEmpty());
+
+        map.put("A", "1");
+        map.put("B", "2");
+        a.add("3");
+        assertEquals(Arrays.asList("1", "3"), a);
+        assertEquals("{A=[1, 3], B=[2]}", all.toString());
+        assertEquals(Arrays.asList("A", "B"), new ArrayList<>(keys));
+
+        all.get("B").clear();
+        assertFalse(map.containsKey("B"));
+        keys.remove("A");
+        assertTrue(a.isEmpty());
+        assertTrue(all.isEmpty());
+        assertNull(all.get("A"));
+    }
+
+    @Test
+    void testViewIterators() {
+        final ParameterMap map = new ParameterMap();
+        for (int i = 0; i < 40; i++) {
+            map.put("KEY_" + i, i);
+        }
+        final Iterator<String> it = map.keySet().iterator();
+        assertThrows(IllegalStateException.class, it::remove);
+        final List<String> kept = new ArrayList<>();
+        while (it.hasNext()) {
+            final String key = it.next();
+            if (key.hashCode() % 3 == 0) {
+                kept.add(key);
+            } else {
+                it.remove();
+            }
+        }
+        assertEquals(kept, new ArrayList<>(map.keySet()));
+
+        final Iterator<Map.Entry<String, Collection<Object>>> entries = map.asMap().entrySet().iterator();
+        entries.next();
+        map.put("NEW", "added");
+        assertThrows(ConcurrentModificationException.class, entries::next);
+    }
+
+    @Test
+    void testMultimapView() {
+        final ParameterMap map = new ParameterMap();
+        final ListMultimap<String, Object> multimap = map.asMultimap();
+        assertTrue(multimap.put("A", "1"));
+        multimap.putAll("B", Arrays.asList("2", "3"));
+        assertTrue(multimap.containsEntry("B", "3"));
+        assertTrue(multimap.containsValue("1"));
+        assertTrue(multimap.remove("B", "2"));
+        assertFalse(multimap.remove("C", "2"));
+        assertEquals(Collections.singletonList("1"), multimap.replaceValues("A", Arrays.asList("4", "5")));
+        assertEquals("{A=[4, 5], B=[3]}", map.toString());
+        assertEquals(3, multimap.size());
+        assertEquals(Collections.singletonList("3"), multimap.removeAll("B"));
+        assertEquals(Collections.emptyList(), multimap.removeAll(1));
+        assertThrows(UnsupportedOperationException.class, () -> multimap.values().clear());
+        multimap.clear();
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    void testKeyOrder() {
+        final ParameterMap map = new ParameterMap();
+        map.put("B", "1");
+        map.put("A", "2");
+        map.put("C", "3");
+        map.put("B", "4");
+        assertEquals(Arrays.asList("B", "A", "C"), new ArrayList<>(map.keySet()));
+
+        // a key put back goes to the end
+        map.removeAll("B");
+        map.put("B", "5");
+        assertEquals(Arrays.asList("A", "C", "B"), new ArrayList<>(map.keySet()));
+        assertEquals(Collections.singletonList("5"), map.get("B"));
+    }
+
+    @Test
+    void testNullKeysAndValues() {
+        final ParameterMap map = new ParameterMap();
+        map.put(null, "a");
+        map.put("KEY", null);
+        assertTrue(map.containsKey(null));
+        assertTrue(map.containsEntry("KEY", null));
+        assertEquals(Collections.singletonList("a"), map.snapshot().get(null));
+        assertEquals(Collections.singletonList(null), map.removeAll("KEY"));
+        assertEquals(Collections.singletonList("a"), map.removeAll(null));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    void testSnapshotsDoNotChange() {
+        final ParameterMap map = new ParameterMap();
+        map.put("A", "1");
+        map.put("B", "2");
+        final Map<String, Collection<Object>> before = map.snapshot();
+        final Collection<Object> a = before.get("A");
+        assertSame(before, map.snapshot());
+        final String text = before.toString();
+
+        map.put("A", "3");
+        map.removeAll("B");
+        map.put("C", "4");
+        assertEquals("{A=[1], B=[2]}", text);
+        assertEquals(text, before.toString());
+        assertEquals(Collections.singletonList("1"), a);
+        assertEquals("{A=[1, 3], C=[4]}", map.snapshot().toString());
+
+        map.clear();
+        assertEquals(text, before.toString());
+        assertTrue(map.snapshot().isEmpty());
+    }
+
+    @Test
+    void testSnapshotsAreImmutable() {
+        final ParameterMap map = new ParameterMap();
+        map.put("A", "1");
+        final Map<String, Collection<Object>> snapshot = map.snapshot();
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.put("B", Collections.emptyList()));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.get("A").add("2"));
+        assertNull(snapshot.get("B"));
+        assertNull(snapshot.get(7));
+        assertFalse(snapshot.containsKey(7));
+    }
+
+    @Test
+    void testKeysAreInterned() {
+        final ParameterMap one = new ParameterMap();
+        final ParameterMap two = new ParameterMap();
+        one.put(new String("SHARED_KEY"), "1");
+        two.put(new String("SHARED_KEY"), "2");
+        assertSame(one.keySet().iterator().next(), two.keySet().iterator().next());
+    }
+
+    @Test
+    void testCopy() {
+        final ParameterMap map = new ParameterMap();
+        for (int i = 0; i < 100; i++) {
+            map.put("KEY_" + (i % 30), i);
+        }
+        final ParameterMap copy = new ParameterMap(map);
+        assertEquals(map, copy);
+        assertEquals(map.hashCode(), copy.hashCode());
+
+        copy.put("KEY_0", "changed");
+        map.removeAll("KEY_1");
+        assertFalse(copy.get("KEY_1").isEmpty());
+        assertEquals(4, map.get("KEY_0").size());
+        assertEquals(5, copy.get("KEY_0").size());
+    }
+
+    @Test
+    void testCopiesAreIsolated() {
+        final ParameterMap original = new ParameterMap();
+        original.put("A", "1");
+        original.put("A", "2");
+        original.put("B", "3");
+        final ParameterMap copy = original.copy();
+        final ParameterMap copyOfCopy = copy.copy();
+
+        // both sides append past the values they share
+        original.put("A", "original");
+        copy.put("A", "copy");
+        copy.removeAll("B");
+        copyOfCopy.clear();
+        assertEquals("{A=[1, 2, original], B=[3]}", original.toString());
+        assertEquals("{A=[1, 2, copy]}", copy.toString());
+        assertEquals("{}", copyOfCopy.toString());
+    }
+
+    @Test
+    void testCopiesAreIsolatedAfterSerialization() throws IOException, ClassNotFoundException {
+        final ParameterMap original = new ParameterMap();
+        original.put("A", "1");
+        original.put("A", "2");
+        original.put("A", "3");
+        original.put("B", "4");
+        final ParameterMap copy = original.copy();
+
+        // written to one stream the two come back sharing their arrays again
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(original);
+            out.writeObject(copy);
+        }
+        final ParameterMap readOriginal;
+        final ParameterMap readCopy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            readOriginal = (ParameterMap) in.readObject();
+            readCopy = (ParameterMap) in.readObject();
+        }
+
+        readOriginal.put("A", "original");
+        readCopy.put("A", "copy");
+        readCopy.removeAll("B");
+        readOriginal.get("B").set(0, "changed");
+        assertEquals("{A=[1, 2, 3, original], B=[changed]}", readOriginal.toString());
+        assertEquals("{A=[1, 2, 3, copy]}", readCopy.toString());
+    }
+
+    /**
+     * Copies made at random points and changed independently each match a multimap copied at the same point
+     */
+    @Test
+    void testCopiesConformToLinkedListMultimap() {
+        final Random random = new Random(7);
+        final List<LinkedListMultimap<String, Object>> expected = new ArrayList<>();
+        final List<ParameterMap> actual = new ArrayList<>();
+        expected.add(LinkedListMultimap.create());
+        actual.add(new ParameterMap());
+
+        for (int op = 0; op < 20000; op++) {
+            final int which = random.nextInt(actual.size());
+            final String key = "KEY_" + random.nextInt(40);
+            final String value = "value" + random.nextInt(5);
+            switch (random.nextInt(8)) {
+                case 0:
+                    if (actual.size() < 20) {
+                        expected.add(LinkedListMultimap.create(expected.get(which)));
+                        actual.add(actual.get(which).copy());
+                    }
+                    break;
+                case 1:
+                    assertEquals(expected.get(which).removeAll(key), actual.get(which).removeAll(key));
+                    break;
+                case 2:
+                    expected.get(which).putAll(key, Arrays.asList(value, value));
+                    actual.get(which).putAll(key, Arrays.asList(value, value));
+                    break;
+                case 3:
+                    changeThroughViews(random, key, value, expected.get(which), actual.get(which));
+                    break;
+                default:
+                    expected.get(which).put(key, value);
+                    actual.get(which).put(key, value);
+                    break;
+            }
+        }
+        for (int i = 0; i < actual.size(); i++) {
+            assertSameContents(expected.get(i), actual.get(i));
+        }
+    }
+
+    private static void assertSameContents(final LinkedListMultimap<String, Object> expected, final ParameterMap actual) {
+        final Map<String, Collection<Object>> snapshot = actual.snapshot();
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(actual.keySet()));
+        assertEquals(expected.asMap(), snapshot);
+        assertEquals(snapshot, expected.asMap());
+        assertEquals(expected.asMap().toString(), snapshot.toString());
+        assertEquals(expected.asMap().hashCode(), snapshot.hashCode());
+        assertEquals(expected.asMap(), actual.asMap());
+        assertEquals(expected.asMap().hashCode(), actual.hashCode());
+        assertEquals(actual, new ParameterMap(actual));
+        final ListMultimap<String, Object> multimap = actual.asMultimap();
+        assertEquals(expected, multimap);
+        assertEquals(multimap, expected);
+        assertEquals(expected.hashCode(), multimap.hashCode());
+        // entries and values come key by key rather than in the order they were added
+        final List<Map.Entry<String, Object>> entries = new ArrayList<>();
+        expected.asMap().forEach((key, values) -> values.forEach(value -> entries.add(Maps.immutableEntry(key, value))));
+        assertEquals(entries, new ArrayList<>(multimap.entries()));
+        assertEquals(entries.stream().map(Map.Entry::getValue).collect(Collectors.toList()), new ArrayList<>(multimap.values()));
+        assertEquals(expected.keys(), multimap.keys());
+        for (final String key : expected.keySet()) {
+            assertEquals(expected.get(key), snapshot.get(key));
+        }
+    }
+}
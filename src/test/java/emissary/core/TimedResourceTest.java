@@ -72,6 +72,25 @@ class TimedResourceTest extends UnitTest {
 
     }
 
+    @TestAttempts
+    void testIsOverdue() {
+        TestMobileAgent tma = new TestMobileAgent();
+        tma.addPayload(new BaseDataObject());
+        TimedResource limited = new TimedResource(tma, tp, 1000, new Timer());
+        TimedResource unlimited = new TimedResource(tma, tp, -2, new Timer());
+        long later = System.currentTimeMillis() + 5000;
+
+        assertFalse(limited.isOverdue(System.currentTimeMillis()));
+        assertTrue(limited.isOverdue(later));
+        assertFalse(unlimited.isOverdue(later), "No limit, never overdue");
+        limited.close();
+        assertFalse(limited.isOverdue(later), "Closed resources are never overdue");
+        assertFalse(TimedResource.EMPTY.isOverdue(later));
+
+        unlimited.close();
+        tma.latch.countDown();
+    }
+
     static class TestMobileAgent extends HDMobileAgent {
         private static final long serialVersionUID = 1L;
 
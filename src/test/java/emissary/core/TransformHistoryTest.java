@@ -52,6 +52,36 @@ class TransformHistoryTest extends UnitTest {
         assertTrue(newHistory.get().contains(key2));
     }
 
+    @Test
+    void testCopiesAreIsolated() {
+        String key1 = "UNKNOWN.FILE_PICK_UP.INPUT.http://localhost:8001/FilePickUpPlace$5050";
+        String key2 = "KNOWN.COOL_STUFF.COORDINATE.http://localhost:8001/CoolStuffPlace$5050";
+        String key3 = "KNOWN.ONE_THING.ANALYZE.http://localhost:8001/DoOneThingPlace$5050";
+
+        TransformHistory original = new TransformHistory();
+        original.set(List.of(key1, key2));
+        TransformHistory copy = new TransformHistory(original);
+        TransformHistory setCopy = new TransformHistory();
+        setCopy.set(original);
+
+        // a coordinated key changes the shared last entry
+        copy.append(key3, true);
+        assertEquals(List.of(key1, key2, key3), copy.get(true));
+        assertEquals(List.of(key1, key2), original.get(true));
+        assertEquals(List.of(key1, key2), setCopy.get(true));
+
+        original.append(key3);
+        original.append(key1, true);
+        assertEquals(List.of(key1, key2, key3, key1), original.get(true));
+        assertEquals(List.of(key1, key2, key3), copy.get(true));
+        assertEquals(List.of(key1, key2), setCopy.get(true));
+
+        setCopy.clear();
+        assertEquals(0, setCopy.size());
+        assertEquals(3, original.size());
+        assertEquals(2, copy.size());
+    }
+
     @Test
     void testAppend() {
         String key1 = "UNKNOWN.FILE_PICK_UP.INPUT.http://localhost:8001/FilePickUpPlace$5050";
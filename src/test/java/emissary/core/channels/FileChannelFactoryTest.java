@@ -13,9 +13,12 @@ import java.nio.channels.NonWritableChannelException;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -97,4 +100,76 @@ class FileChannelFactoryTest extends UnitTest {
         assertEquals(9, sbcf.create().size());
         assertThrows(NullPointerException.class, () -> FileChannelFactory.create(null), "Can't create a FCF with nulls");
     }
+
+    @Test
+    void testGetPath(@TempDir final Path tempDir) {
+        final Path path = tempDir.resolve("testBytes");
+        assertEquals(path, FileChannelFactory.getPath(FileChannelFactory.create(path)));
+        assertEquals(path, FileChannelFactory.getPath(FileChannelFactory.createTemporary(path, null)));
+        assertNull(FileChannelFactory.getPath(InMemoryChannelFactory.create(TEST_BYTES)));
+        assertNull(FileChannelFactory.getPath(null));
+    }
+
+    @Test
+    void testCreateIsWrapped(@TempDir final Path tempDir) {
+        final SeekableByteChannelFactory created = FileChannelFactory.create(tempDir.resolve("testBytes"));
+        assertNotSame(created, ImmutableChannelFactory.unwrap(created));
+    }
+
+    @Test
+    void testTemporaryFileDeletedOnRelease(@TempDir final Path tempDir) throws IOException {
+        final Path path = tempDir.resolve("temporaryBytes");
+        Files.write(TEST_BYTES, path.toFile());
+        final AtomicInteger deleted = new AtomicInteger();
+
+        final SeekableByteChannelFactory temporary = FileChannelFactory.createTemporary(path, deleted::incrementAndGet);
+        assertTrue(FileChannelFactory.release(temporary));
+        assertEquals(1, deleted.get());
+        assertFalse(java.nio.file.Files.exists(path));
+
+        assertFalse(FileChannelFactory.release(temporary), "A factory can only be released once");
+        assertEquals(1, deleted.get());
+    }
+
+    @Test
+    void testTemporaryFileDeletedWhenLastChannelClosed(@TempDir final Path tempDir) throws IOException {
+        final Path path = tempDir.resolve("temporaryBytes");
+        Files.write(TEST_BYTES, path.toFile());
+        final AtomicInteger deleted = new AtomicInteger();
+
+        final SeekableByteChannelFactory temporary = FileChannelFactory.createTemporary(path, deleted::incrementAndGet);
+        final SeekableByteChannel first = temporary.create();
+        final SeekableByteChannel second = temporary.create();
+        assertTrue(FileChannelFactory.release(temporary));
+
+        // open channels keep the file
+        assertTrue(java.nio.file.Files.exists(path));
+        final ByteBuffer buff = ByteBuffer.allocate(TEST_BYTES.length);
+        first.read(buff);
+        assertEquals(TEST_STRING, new String(buff.array(), StandardCharsets.US_ASCII));
+        first.close();
+        first.close();
+        assertTrue(java.nio.file.Files.exists(path));
+        assertEquals(0, deleted.get());
+
+        second.close();
+        assertEquals(1, deleted.get());
+        assertFalse(java.nio.file.Files.exists(path));
+
+        // channels created after the file is gone do not hold it again
+        final SeekableByteChannel late = temporary.create();
+        assertThrows(IOException.class, () -> late.read(ByteBuffer.allocate(1)));
+        late.close();
+        assertEquals(1, deleted.get());
+    }
+
+    @Test
+    void testReleaseIgnoresOtherFactories(@TempDir final Path tempDir) throws IOException {
+        final Path path = tempDir.resolve("testBytes");
+        Files.write(TEST_BYTES, path.toFile());
+        assertFalse(FileChannelFactory.release(FileChannelFactory.create(path)));
+        assertFalse(FileChannelFactory.release(InMemoryChannelFactory.create(TEST_BYTES)));
+        assertFalse(FileChannelFactory.release(null));
+        assertTrue(java.nio.file.Files.exists(path));
+    }
 }
@@ -0,0 +1,113 @@
+package emissary.core.channels;
+
+import emissary.test.core.junit5.UnitTest;
+
+import com.google.common.io.Files;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedChannelFactoryTest extends UnitTest {
+    private static final String TEST_STRING = "test data";
+    private static final byte[] TEST_BYTES = TEST_STRING.getBytes(StandardCharsets.US_ASCII);
+
+    @Test
+    void testCanCreateMultipleIndependentChannelsForTheSameFile(@TempDir final Path tempDir) throws IOException {
+        final SeekableByteChannelFactory sbcf = MappedChannelFactory.create(write(tempDir, TEST_BYTES));
+
+        try (SeekableByteChannel sbc = sbcf.create(); SeekableByteChannel sbc2 = sbcf.create()) {
+            final ByteBuffer buff = ByteBuffer.allocate(4);
+            sbc.read(buff);
+            assertEquals("test", new String(buff.array(), StandardCharsets.US_ASCII));
+            assertEquals(4, sbc.position());
+            assertEquals(0, sbc2.position());
+
+            final ByteBuffer buff2 = ByteBuffer.allocate(TEST_BYTES.length);
+            sbc2.read(buff2);
+            assertEquals(TEST_STRING, new String(buff2.array(), StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Test
+    void testSegments(@TempDir final Path tempDir) throws IOException {
+        final byte[] bytes = new byte[67];
+
+        new Random(0).nextBytes(bytes);
+
+        final Path path = write(tempDir, bytes);
+
+        ChannelTestHelper.checkByteArrayAgainstSbc(bytes, MappedChannelFactory.create(path));
+    }
+
+    @Test
+    void testReadsSpanningRegions(@TempDir final Path tempDir) throws IOException {
+        final byte[] bytes = new byte[67];
+
+        new Random(0).nextBytes(bytes);
+
+        final Path path = write(tempDir, bytes);
+
+        for (int regionSize = 1; regionSize < bytes.length * 2; regionSize++) {
+            ChannelTestHelper.checkByteArrayAgainstSbc(bytes, MappedChannelFactory.create(path, regionSize));
+        }
+    }
+
+    @Test
+    void testClose(@TempDir final Path tempDir) throws IOException {
+        final SeekableByteChannel sbc = MappedChannelFactory.create(write(tempDir, TEST_BYTES)).create();
+        assertTrue(sbc.isOpen());
+        sbc.read(ByteBuffer.allocate(1));
+        sbc.close();
+        assertFalse(sbc.isOpen());
+    }
+
+    @Test
+    void testImmutability(@TempDir final Path tempDir) throws IOException {
+        final SeekableByteChannel sbc = MappedChannelFactory.create(write(tempDir, TEST_BYTES)).create();
+        final ByteBuffer buff = ByteBuffer.wrap("New data".getBytes(StandardCharsets.US_ASCII));
+        assertThrows(NonWritableChannelException.class, () -> sbc.write(buff), "Can't write to byte channel as it's immutable");
+        assertThrows(NonWritableChannelException.class, () -> sbc.truncate(5L), "Can't truncate byte channel as it's immutable");
+    }
+
+    @Test
+    void testCanCreateAndRetrieveEmptyFile(@TempDir final Path tempDir) throws IOException {
+        final SeekableByteChannelFactory sbcf = MappedChannelFactory.create(write(tempDir, new byte[0]));
+        assertEquals(0L, sbcf.create().size());
+        assertEquals(-1, sbcf.create().read(ByteBuffer.allocate(1)));
+    }
+
+    @Test
+    void testMissingFileFailsOnUse(@TempDir final Path tempDir) {
+        final SeekableByteChannelFactory sbcf = MappedChannelFactory.create(tempDir.resolve("missing"));
+        final SeekableByteChannel sbc = sbcf.create();
+        assertThrows(NoSuchFileException.class, sbc::size);
+    }
+
+    @Test
+    void testConstructors() {
+        assertThrows(NullPointerException.class, () -> MappedChannelFactory.create(null), "Can't create a MCF with nulls");
+        final Path path = Path.of("test");
+        assertThrows(IllegalArgumentException.class, () -> MappedChannelFactory.create(path, 0));
+    }
+
+    private static Path write(final Path tempDir, final byte[] bytes) throws IOException {
+        final Path path = tempDir.resolve("testBytes");
+
+        Files.write(bytes, path.toFile());
+
+        return path;
+    }
+}
@@ -0,0 +1,94 @@
+package emissary.core.channels;
+
+import emissary.test.core.junit5.UnitTest;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PrefetchingChannelFactoryTest extends UnitTest {
+    @Test
+    void testRandomAccess() throws IOException {
+        final byte[] bytes = new byte[67];
+        final SeekableByteChannelFactory bytesSbcf = InMemoryChannelFactory.create(bytes);
+
+        new Random(0).nextBytes(bytes);
+
+        assertThrows(NullPointerException.class, () -> PrefetchingChannelFactory.create(null, 10));
+        assertThrows(IllegalArgumentException.class, () -> PrefetchingChannelFactory.create(bytesSbcf, 0));
+        assertThrows(NullPointerException.class, () -> PrefetchingChannelFactory.create(bytesSbcf, 10, null));
+
+        for (int blockSize = 1; blockSize < bytes.length * 3; blockSize++) {
+            ChannelTestHelper.checkByteArrayAgainstSbc(bytes, PrefetchingChannelFactory.create(bytesSbcf, blockSize));
+        }
+    }
+
+    @Test
+    void testSequentialScan() throws IOException {
+        final byte[] bytes = new byte[100_000];
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+        new Random(0).nextBytes(bytes);
+
+        try {
+            final SeekableByteChannelFactory sbcf = PrefetchingChannelFactory.create(InMemoryChannelFactory.create(bytes), 4096, executorService);
+
+            // Read with a buffer that does not line up with the block size
+            try (SeekableByteChannel sbc = sbcf.create()) {
+                final ByteBuffer scanned = ByteBuffer.allocate(bytes.length);
+                final ByteBuffer buff = ByteBuffer.allocate(1000);
+
+                while (IOUtils.read(sbc, buff) > 0) {
+                    buff.flip();
+                    scanned.put(buff);
+                    buff.clear();
+                }
+
+                assertEquals(bytes.length, sbc.position());
+                assertArrayEquals(bytes, scanned.array());
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void testPrefetchFailureIsReported() throws IOException {
+        // The second block of the wrapped channel can never be read
+        final SeekableByteChannelFactory failingSbcf = () -> new AbstractSeekableByteChannel() {
+            @Override
+            protected void closeImpl() {}
+
+            @Override
+            protected int readImpl(final ByteBuffer byteBuffer) throws IOException {
+                if (position() >= 10) {
+                    throw new IOException("Test SBC that throws IOExceptions after the first block!");
+                }
+                final int bytesToRead = (int) Math.min(byteBuffer.remaining(), 10 - position());
+                byteBuffer.put(new byte[bytesToRead]);
+                return bytesToRead;
+            }
+
+            @Override
+            protected long sizeImpl() {
+                return 20;
+            }
+        };
+
+        try (SeekableByteChannel sbc = PrefetchingChannelFactory.create(failingSbcf, 10).create()) {
+            assertEquals(10, sbc.read(ByteBuffer.allocate(10)));
+            final ByteBuffer buff = ByteBuffer.allocate(10);
+            assertThrows(IOException.class, () -> sbc.read(buff));
+        }
+    }
+}
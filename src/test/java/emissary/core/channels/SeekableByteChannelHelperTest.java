@@ -147,6 +147,87 @@ class SeekableByteChannelHelperTest extends UnitTest {
         }
     }
 
+    /**
+     * Fails on any read that reaches {@code failAt}, discarding the bytes a bulk read got before the failure
+     */
+    private static class FailingInputStream extends InputStream {
+        private final byte[] bytes;
+        private final int failAt;
+        private final boolean markSupported;
+        private int position = 0;
+        private int mark = 0;
+
+        FailingInputStream(final byte[] bytes, final int failAt, final boolean markSupported) {
+            this.bytes = bytes;
+            this.failAt = failAt;
+            this.markSupported = markSupported;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (position >= failAt) {
+                throw new IOException("Failed at " + position);
+            }
+            return position < bytes.length ? bytes[position++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            final int count = Math.min(len, bytes.length - position);
+            if (count <= 0) {
+                return -1;
+            }
+            if (position + count > failAt) {
+                throw new IOException("Failed at " + position);
+            }
+            System.arraycopy(bytes, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return markSupported;
+        }
+
+        @Override
+        public void mark(final int readlimit) {
+            mark = position;
+        }
+
+        @Override
+        public void reset() {
+            position = mark;
+        }
+    }
+
+    @Test
+    void testLengthWhenStreamFailsPartway() {
+        final byte[] bytes = new byte[20000];
+        final int failAt = 12345;
+
+        // a stream that only reads a byte at a time reports the bytes before the failure from its bulk read
+        final InputStream singleByte = new InputStream() {
+            private int position = 0;
+
+            @Override
+            public int read() throws IOException {
+                if (position >= failAt) {
+                    throw new IOException("Failed at " + position);
+                }
+                return bytes[position++];
+            }
+        };
+        assertEquals(failAt, SeekableByteChannelHelper.available(singleByte));
+
+        // a markable stream that discards them is re-read a byte at a time from the start of the failed read
+        assertEquals(failAt, SeekableByteChannelHelper.available(new FailingInputStream(bytes, failAt, true)));
+
+        // any other stream that discards them is only counted to the end of its last successful read
+        final long counted = SeekableByteChannelHelper.available(new FailingInputStream(bytes, failAt, false));
+        assertTrue(counted > 0 && counted < failAt, "Counted " + counted);
+    }
+
     @Test
     void testGetDataWhenLargerThanMaxInt() throws IOException {
         final BaseDataObject bdo = new BaseDataObject();
@@ -7,19 +7,34 @@ import emissary.test.core.junit5.UnitTest;
 import jakarta.ws.rs.core.MediaType;
 import org.apache.commons.io.IOUtils;
 import org.apache.hc.client5.http.classic.methods.HttpUriRequest;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
 import org.apache.hc.core5.http.Header;
 import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.HttpHeaders;
 import org.apache.hc.core5.http.NoHttpResponseException;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
 import org.apache.hc.core5.http.message.BasicHeader;
 import org.apache.hc.core5.http.protocol.HttpContext;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
@@ -85,4 +100,257 @@ class HeartbeatManagerTest extends UnitTest {
         assertTrue(response.getContentString().contains("Bad request -> status: 401 message: " + responseString));
     }
 
+    private static final String DIRECTORY_KEY = "EMISSARY_DIRECTORY_SERVICES.DIRECTORY.STUDY.http://localhost:8001/DirectoryPlace";
+    private static final long INTERVAL = 1000;
+
+    private final AtomicLong now = new AtomicLong();
+
+    private static String peer(final int port) {
+        return KeyManipulator.getDefaultDirectoryKey("*.*.*.http://localhost:" + port + "/DirectoryPlace");
+    }
+
+    @Test
+    void testHealthyPeerStaysHealthy() {
+        final FakeEmissaryClient client = new FakeEmissaryClient();
+        final RecordingHeartbeatManager mgr = new RecordingHeartbeatManager(TimeUnit.HOURS.toMillis(1), INTERVAL, 1, client, now::get);
+        try {
+            mgr.addRemoteDirectory(peer(9001));
+            for (int i = 0; i < 20; i++) {
+                round(mgr, peer(9001));
+                assertTrue(mgr.isHealthy(peer(9001)));
+            }
+            assertTrue(mgr.failures.isEmpty());
+            assertTrue(mgr.successes.isEmpty());
+        } finally {
+            mgr.shutDown();
+        }
+    }
+
+    @Test
+    void testDeadPeerFailsThenFailsPermanently() {
+        final FakeEmissaryClient client = new FakeEmissaryClient();
+        final RecordingHeartbeatManager mgr = new RecordingHeartbeatManager(TimeUnit.HOURS.toMillis(1), INTERVAL, 1, client, now::get);
+        try {
+            mgr.addRemoteDirectory(peer(9001));
+            for (int i = 0; i < 10; i++) {
+                round(mgr, peer(9001));
+            }
+
+            client.setBehavior(9001, Behavior.DOWN);
+            int unhealthyAt = -1;
+            int deadAt = -1;
+            for (int i = 1; i <= 25 && deadAt < 0; i++) {
+                round(mgr, peer(9001));
+                if (unhealthyAt < 0 && !mgr.isHealthy(peer(9001))) {
+                    unhealthyAt = i;
+                }
+                if (!mgr.isAlive(peer(9001))) {
+                    deadAt = i;
+                }
+            }
+            // the default thresholds tolerate 3 and 20 intervals of silence
+            assertEquals(4, unhealthyAt);
+            assertEquals(21, deadAt);
+            assertEquals(List.of(peer(9001) + ":false", peer(9001) + ":true"), mgr.failures);
+
+            client.setBehavior(9001, Behavior.UP);
+            round(mgr, peer(9001));
+            assertTrue(mgr.isHealthy(peer(9001)));
+            assertTrue(mgr.isAlive(peer(9001)));
+            assertEquals(List.of(peer(9001)), mgr.successes);
+        } finally {
+            mgr.shutDown();
+        }
+    }
+
+    @Test
+    void testFlappingPeerIsNotFailed() {
+        final FakeEmissaryClient client = new FakeEmissaryClient();
+        final RecordingHeartbeatManager mgr = new RecordingHeartbeatManager(TimeUnit.HOURS.toMillis(1), INTERVAL, 1, client, now::get);
+        try {
+            mgr.addRemoteDirectory(peer(9001));
+            for (int i = 0; i < 40; i++) {
+                client.setBehavior(9001, i % 2 == 0 ? Behavior.UP : Behavior.DOWN);
+                round(mgr, peer(9001));
+                assertTrue(mgr.isHealthy(peer(9001)), "Flapping peer failed on round " + i);
+            }
+            assertTrue(mgr.failures.isEmpty());
+        } finally {
+            mgr.shutDown();
+        }
+    }
+
+    @Test
+    void testNoContactPeerRecovers() {
+        final FakeEmissaryClient client = new FakeEmissaryClient();
+        final RecordingHeartbeatManager mgr = new RecordingHeartbeatManager(TimeUnit.HOURS.toMillis(1), INTERVAL, 1, client, now::get);
+        try {
+            mgr.addRemoteDirectory(peer(9001), HeartbeatManager.NO_CONTACT);
+            assertFalse(mgr.isHealthy(peer(9001)));
+            mgr.checkHealth();
+            assertFalse(mgr.isAlive(peer(9001)), "Stays down until it answers");
+
+            assertTrue(mgr.heartbeat(peer(9001)));
+            assertTrue(mgr.isHealthy(peer(9001)));
+            assertEquals(List.of(peer(9001)), mgr.successes);
+
+            mgr.setHealthStatus(peer(9001), HeartbeatManager.NO_CONTACT, "Failed zone transfer");
+            mgr.checkHealth();
+            assertFalse(mgr.isAlive(peer(9001)));
+            assertTrue(mgr.failures.isEmpty(), "External status changes do not trigger actions");
+        } finally {
+            mgr.shutDown();
+        }
+    }
+
+    @Test
+    void testSlowPeerDoesNotDelayOthers() throws Exception {
+        final FakeEmissaryClient client = new FakeEmissaryClient();
+        client.setBehavior(9001, Behavior.HANG);
+        final RecordingHeartbeatManager mgr =
+                new RecordingHeartbeatManager(0, 50, 2, client, () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+        try {
+            mgr.addRemoteDirectory(peer(9001));
+            mgr.addRemoteDirectory(peer(9002));
+            mgr.addRemoteDirectory(peer(9003));
+
+            assertTrue(waitFor(() -> client.calls(9002) >= 5 && client.calls(9003) >= 5), "Other peers keep being heartbeat");
+            assertEquals(1, client.calls(9001), "Only one heartbeat in flight for each peer");
+            assertTrue(waitFor(() -> !mgr.isHealthy(peer(9001))), "Hung peer is suspected while its heartbeat is in flight");
+            assertTrue(mgr.isHealthy(peer(9002)));
+            assertTrue(mgr.isHealthy(peer(9003)));
+            assertEquals(List.of(peer(9001) + ":false"), mgr.failures.subList(0, 1));
+        } finally {
+            client.release.countDown();
+            mgr.shutDown();
+        }
+    }
+
+    @Test
+    void testInFlightHeartbeatsAreBounded() throws Exception {
+        final FakeEmissaryClient client = new FakeEmissaryClient();
+        final RecordingHeartbeatManager mgr =
+                new RecordingHeartbeatManager(0, 50, 2, client, () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+        try {
+            for (int port = 9001; port <= 9005; port++) {
+                client.setBehavior(port, Behavior.HANG);
+                mgr.addRemoteDirectory(peer(port));
+            }
+            assertTrue(waitFor(() -> client.inFlight.get() == 2));
+            Thread.sleep(200);
+            assertEquals(2, client.maxInFlight.get());
+
+            // the queued peers are heartbeat once the hung ones answer
+            client.release.countDown();
+            assertTrue(waitFor(() -> {
+                for (int port = 9001; port <= 9005; port++) {
+                    if (client.calls(port) == 0) {
+                        return false;
+                    }
+                }
+                return true;
+            }));
+            assertEquals(2, client.maxInFlight.get());
+        } finally {
+            client.release.countDown();
+            mgr.shutDown();
+        }
+    }
+
+    private void round(final HeartbeatManager mgr, final String key) {
+        now.addAndGet(INTERVAL);
+        mgr.heartbeat(key);
+        mgr.checkHealth();
+    }
+
+    private static boolean waitFor(final BooleanSupplier condition) throws InterruptedException {
+        final long end = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > end) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    enum Behavior {
+        UP, DOWN, HANG
+    }
+
+    /**
+     * Answers heartbeats as each peer, told apart by port, is set to behave
+     */
+    static class FakeEmissaryClient extends EmissaryClient {
+        final Map<Integer, Behavior> behaviors = new ConcurrentHashMap<>();
+        final Map<Integer, AtomicInteger> calls = new ConcurrentHashMap<>();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+
+        void setBehavior(final int port, final Behavior behavior) {
+            behaviors.put(port, behavior);
+        }
+
+        int calls(final int port) {
+            return calls.computeIfAbsent(port, p -> new AtomicInteger()).get();
+        }
+
+        @Override
+        public EmissaryResponse send(final HttpUriRequestBase method) {
+            final int port;
+            try {
+                port = method.getUri().getPort();
+            } catch (URISyntaxException e) {
+                throw new IllegalStateException(e);
+            }
+            calls.computeIfAbsent(port, p -> new AtomicInteger()).incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                switch (behaviors.getOrDefault(port, Behavior.UP)) {
+                    case HANG:
+                        release.await();
+                        return response(500, "Timed out");
+                    case DOWN:
+                        return response(500, "Connection refused");
+                    default:
+                        return response(200, "OK");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return response(500, "Interrupted");
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        private static EmissaryResponse response(final int status, final String content) {
+            final BasicClassicHttpResponse response = new BasicClassicHttpResponse(status, content);
+            response.setEntity(new StringEntity(content));
+            return new EmissaryResponse(response);
+        }
+    }
+
+    /**
+     * Records the actions it would have taken on the local directory
+     */
+    static class RecordingHeartbeatManager extends HeartbeatManager {
+        final List<String> failures = new CopyOnWriteArrayList<>();
+        final List<String> successes = new CopyOnWriteArrayList<>();
+
+        RecordingHeartbeatManager(final long initialDelayMillis, final long intervalMillis, final int maxInFlight, final EmissaryClient client,
+                final LongSupplier clock) {
+            super(DIRECTORY_KEY, initialDelayMillis, intervalMillis, maxInFlight, client, clock);
+        }
+
+        @Override
+        public void takeFailureAction(final String key, final boolean permanent) {
+            failures.add(key + ":" + permanent);
+        }
+
+        @Override
+        void takeSuccessAction(final String key) {
+            successes.add(key);
+        }
+    }
 }
@@ -0,0 +1,79 @@
+package emissary.directory;
+
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PhiAccrualFailureDetectorTest extends UnitTest {
+
+    @Test
+    void testNotStarted() {
+        final PhiAccrualFailureDetector detector = new PhiAccrualFailureDetector(10, 1000, 100);
+        assertEquals(0.0, detector.phi(1_000_000, 0));
+    }
+
+    @Test
+    void testPhiRisesWithSilence() {
+        final PhiAccrualFailureDetector detector = new PhiAccrualFailureDetector(10, 1000, 100);
+        for (long t = 0; t <= 10_000; t += 1000) {
+            detector.heartbeat(t);
+        }
+        assertEquals(10, detector.getSampleCount());
+        final double onTime = detector.phi(11_000, 0);
+        final double late = detector.phi(11_300, 0);
+        final double silent = detector.phi(13_000, 0);
+        assertTrue(onTime < 1.0, "On time heartbeat is not suspicious " + onTime);
+        assertTrue(late > onTime);
+        assertTrue(silent > 8.0, "Missed heartbeats are suspicious " + silent);
+        assertTrue(detector.phi(13_000, 2000) < 1.0, "Acceptable pause is tolerated");
+    }
+
+    @Test
+    void testIrregularHistoryIsSuspectedLater() {
+        final PhiAccrualFailureDetector regular = new PhiAccrualFailureDetector(100, 1000, 10);
+        final PhiAccrualFailureDetector irregular = new PhiAccrualFailureDetector(100, 1000, 10);
+        long r = 0;
+        long i = 0;
+        for (int n = 0; n < 50; n++) {
+            regular.heartbeat(r += 1000);
+            irregular.heartbeat(i += n % 2 == 0 ? 500 : 1500);
+        }
+        assertTrue(irregular.phi(i + 1500, 0) < regular.phi(r + 1500, 0));
+    }
+
+    @Test
+    void testWindowForgetsOldIntervals() {
+        final PhiAccrualFailureDetector detector = new PhiAccrualFailureDetector(5, 1000, 10);
+        long t = 0;
+        for (int n = 0; n < 5; n++) {
+            detector.heartbeat(t += 10_000);
+        }
+        for (int n = 0; n < 5; n++) {
+            detector.heartbeat(t += 1000);
+        }
+        assertEquals(5, detector.getSampleCount());
+        assertTrue(detector.phi(t + 5000, 0) > 8.0, "Only the recent one second intervals count");
+    }
+
+    @Test
+    void testRestart() {
+        final PhiAccrualFailureDetector detector = new PhiAccrualFailureDetector(10, 1000, 100);
+        detector.start(0);
+        detector.start(5000);
+        assertTrue(detector.phi(5000, 0) > 8.0, "Start only sets the first measurement");
+        detector.restart(5000);
+        assertTrue(detector.phi(5000, 0) < 1.0);
+        assertEquals(0, detector.getSampleCount());
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new PhiAccrualFailureDetector(0, 1000, 100));
+        assertThrows(IllegalArgumentException.class, () -> new PhiAccrualFailureDetector(10, 0, 100));
+        assertThrows(IllegalArgumentException.class, () -> new PhiAccrualFailureDetector(10, 1000, 0));
+    }
+}
@@ -5,6 +5,7 @@ import emissary.config.Configurator;
 import emissary.core.DataObjectFactory;
 import emissary.core.Form;
 import emissary.core.IBaseDataObject;
+import emissary.core.channels.SeekableByteChannelHelper;
 import emissary.place.IServiceProviderPlace;
 import emissary.test.core.junit5.IdentificationTest;
 import emissary.test.core.junit5.LogbackTester;
@@ -17,9 +18,13 @@ import org.junit.jupiter.params.provider.Arguments;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class UnixFilePlaceTest extends IdentificationTest {
@@ -52,4 +57,62 @@ class UnixFilePlaceTest extends IdentificationTest {
             logbackTester.checkLogList(Collections.emptyList());
         }
     }
+
+    @Test
+    void testTextForm() throws Exception {
+        Configurator configG = ConfigUtil.getConfigInfo(UnixFilePlace.class);
+        configG.addEntry("TEXT_FORM", "TEXT");
+        place = new UnixFilePlace(configG);
+
+        byte[] data = "plain text\r\nПрезидент Буш\n".getBytes(StandardCharsets.UTF_8);
+        IBaseDataObject text = DataObjectFactory.getInstance(data, "text", Form.UNKNOWN);
+        place.agentProcessHeavyDuty(text);
+        assertEquals("TEXT", text.currentForm());
+        assertEquals("TEXT", text.getFileType());
+
+        IBaseDataObject binary = DataObjectFactory.getInstance(new byte[] {'a', 0x01, 'b', 0x02, 'c', 0x03}, "binary", Form.UNKNOWN);
+        place.agentProcessHeavyDuty(binary);
+        assertEquals(Form.UNKNOWN, binary.currentForm());
+    }
+
+    @Test
+    void testLargeChannelIsNotLoaded() {
+        final UnixFilePlace unixFile = (UnixFilePlace) place;
+        final byte[] gzip = {0x1f, (byte) 0x8b, 0x08, 0x00};
+        final AtomicLong read = new AtomicLong();
+        final IBaseDataObject payload = DataObjectFactory.getInstance();
+        payload.setFilename("large.gz");
+        payload.setCurrentForm(Form.UNKNOWN);
+        payload.setChannelFactory(SeekableByteChannelHelper.inputStream(4L * Integer.MAX_VALUE, () -> headerThenZeros(gzip, read)));
+
+        unixFile.process(payload);
+
+        assertTrue(StringUtils.isBlank(payload.getProcessingError()), "Expected no processing error");
+        assertEquals("GZIP", payload.currentForm());
+        assertTrue(read.get() > 0 && read.get() <= unixFile.magicSampleLength, "Read " + read.get() + " bytes");
+    }
+
+    @Test
+    void testSampleMatchesWholeData() throws Exception {
+        final UnixFilePlace unixFile = (UnixFilePlace) place;
+        final byte[] gzip = {0x1f, (byte) 0x8b, 0x08, 0x08};
+        final byte[] data = new byte[unixFile.magicSampleLength * 2];
+        System.arraycopy(gzip, 0, data, 0, gzip.length);
+        Arrays.fill(data, gzip.length, data.length, (byte) 'a');
+        assertEquals(unixFile.unixFileUtil.evaluateByMagicNumber(data),
+                unixFile.unixFileUtil.evaluateByMagicNumber(Arrays.copyOf(data, unixFile.magicSampleLength)));
+    }
+
+    // a stream of the header followed by zeros that counts the bytes read from it
+    private static InputStream headerThenZeros(final byte[] header, final AtomicLong read) {
+        return new InputStream() {
+            private int pos = 0;
+
+            @Override
+            public int read() {
+                read.incrementAndGet();
+                return pos < header.length ? header[pos++] & 0xff : 0;
+            }
+        };
+    }
 }
@@ -0,0 +1,182 @@
+package emissary.kff;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.annotation.Nullable;
+
+/**
+ * An in-process server speaking enough of the memcached text protocol (get, gets, set, delete, version and quit) to
+ * exercise a real client. Every get is recorded with the keys it asked for.
+ */
+class FakeMemcachedServer implements Closeable {
+
+    private static final class Item {
+        final String flags;
+        final byte[] data;
+
+        Item(final String flags, final byte[] data) {
+            this.flags = flags;
+            this.data = data;
+        }
+    }
+
+    private final ServerSocket serverSocket;
+    private final Map<String, Item> items = new ConcurrentHashMap<>();
+    private final List<List<String>> gets = new CopyOnWriteArrayList<>();
+    private final List<Socket> connections = new CopyOnWriteArrayList<>();
+
+    FakeMemcachedServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        final Thread acceptor = new Thread(this::accept, "FakeMemcachedServer");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    InetSocketAddress getAddress() {
+        return new InetSocketAddress(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+    }
+
+    /**
+     * Store a value as the client's transcoder stores a string
+     */
+    void put(final String key, final String value) {
+        items.put(key, new Item("0", value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Nullable
+    String get(final String key) {
+        final Item item = items.get(key);
+        return item == null ? null : new String(item.data, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Wait for a value that is set asynchronously by the client
+     */
+    @Nullable
+    String await(final String key, final long millis) throws InterruptedException {
+        final long end = System.currentTimeMillis() + millis;
+        while (!items.containsKey(key) && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        return get(key);
+    }
+
+    /**
+     * @return the keys of each get received, in order
+     */
+    List<List<String>> getGets() {
+        return gets;
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                connections.add(socket);
+                final Thread handler = new Thread(() -> serve(socket), "FakeMemcachedConnection");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                // closed
+            }
+        }
+    }
+
+    private void serve(final Socket socket) {
+        try (InputStream in = new BufferedInputStream(socket.getInputStream()); OutputStream out = socket.getOutputStream()) {
+            String line;
+            while ((line = readLine(in)) != null) {
+                final String[] parts = line.trim().split(" +");
+                switch (parts[0]) {
+                    case "get":
+                    case "gets":
+                        get(parts, out);
+                        break;
+                    case "set":
+                        set(parts, in, out);
+                        break;
+                    case "delete":
+                        out.write(ascii(items.remove(parts[1]) != null ? "DELETED\r\n" : "NOT_FOUND\r\n"));
+                        break;
+                    case "version":
+                        out.write(ascii("VERSION 1.6.0\r\n"));
+                        break;
+                    case "quit":
+                        return;
+                    default:
+                        out.write(ascii("ERROR\r\n"));
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            // client went away
+        }
+    }
+
+    private void get(final String[] parts, final OutputStream out) throws IOException {
+        gets.add(List.of(parts).subList(1, parts.length));
+        for (int i = 1; i < parts.length; i++) {
+            final Item item = items.get(parts[i]);
+            if (item != null) {
+                out.write(ascii("VALUE " + parts[i] + " " + item.flags + " " + item.data.length + "\r\n"));
+                out.write(item.data);
+                out.write(ascii("\r\n"));
+            }
+        }
+        out.write(ascii("END\r\n"));
+    }
+
+    private void set(final String[] parts, final InputStream in, final OutputStream out) throws IOException {
+        final int length = Integer.parseInt(parts[4]);
+        final byte[] data = in.readNBytes(length);
+        final int cr = in.read();
+        final int lf = in.read();
+        if (data.length != length || cr != '\r' || lf != '\n') {
+            throw new IOException("Bad data block for " + parts[1]);
+        }
+        items.put(parts[1], new Item(parts[2], data));
+        if (parts.length < 6 || !"noreply".equals(parts[5])) {
+            out.write(ascii("STORED\r\n"));
+        }
+    }
+
+    @Nullable
+    private static String readLine(final InputStream in) throws IOException {
+        final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                final byte[] bytes = line.toByteArray();
+                final int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+                return new String(bytes, 0, length, StandardCharsets.UTF_8);
+            }
+            line.write(b);
+        }
+        return null;
+    }
+
+    private static byte[] ascii(final String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (final Socket socket : connections) {
+            socket.close();
+        }
+    }
+}
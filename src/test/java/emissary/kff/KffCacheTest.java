@@ -0,0 +1,147 @@
+package emissary.kff;
+
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KffCacheTest extends UnitTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private void advanceMillis(final long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @Test
+    void testPositiveAndNegativeEntries() {
+        final KffCache cache = new KffCache(100, 1000, 100, now::get);
+        cache.putPositive("found", "id1");
+        cache.putNegative("missing");
+
+        final KffCache.Entry found = cache.get("found");
+        assertNotNull(found);
+        assertTrue(found.isPositive());
+        assertEquals("id1", found.getValue());
+
+        final KffCache.Entry missing = cache.get("missing");
+        assertNotNull(missing);
+        assertFalse(missing.isPositive());
+        assertNull(missing.getValue());
+
+        assertNull(cache.get("unknown"));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void testExpiry() {
+        final KffCache cache = new KffCache(100, 1000, 100, now::get);
+        cache.putPositive("found", "id1");
+        cache.putNegative("missing");
+
+        advanceMillis(100);
+        assertNotNull(cache.get("found"));
+        assertNull(cache.get("missing"), "Negative entries expire first");
+
+        advanceMillis(900);
+        assertNull(cache.get("found"));
+        assertEquals(0, cache.size(), "Expired entries are removed when seen");
+    }
+
+    @Test
+    void testNegativeEntriesDisabled() {
+        final KffCache cache = new KffCache(100, 1000, 0, now::get);
+        cache.putNegative("missing");
+        assertNull(cache.get("missing"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEviction() {
+        // one entry per segment
+        final KffCache cache = new KffCache(1, 1000, 1000, now::get);
+        final List<String> keys = new ArrayList<>();
+        for (int i = 0; keys.size() < 3; i++) {
+            final String key = "key" + i;
+            if (keys.isEmpty() || sameSegment(keys.get(0), key)) {
+                keys.add(key);
+            }
+        }
+
+        cache.putPositive(keys.get(0), "a");
+        cache.putPositive(keys.get(1), "b");
+        assertNull(cache.get(keys.get(0)), "Older entry is evicted when the segment is full");
+        assertNotNull(cache.get(keys.get(1)));
+
+        cache.putPositive(keys.get(2), "c");
+        assertNull(cache.get(keys.get(1)));
+        assertEquals("c", cache.get(keys.get(2)).getValue());
+    }
+
+    private static boolean sameSegment(final String a, final String b) {
+        final int ha = a.hashCode();
+        final int hb = b.hashCode();
+        return ((ha ^ (ha >>> 16)) & 15) == ((hb ^ (hb >>> 16)) & 15);
+    }
+
+    @Test
+    void testSizeBound() {
+        final KffCache cache = new KffCache(64, 1000, 1000);
+        for (int i = 0; i < 10000; i++) {
+            cache.putPositive("key" + i, "id" + i);
+        }
+        assertTrue(cache.size() <= 64, "Cache holds at most its maximum size");
+        cache.putPositive("last", "id");
+        cache.invalidate("last");
+        assertNull(cache.get("last"));
+    }
+
+    @Test
+    void testConcurrentUse() throws Exception {
+        final KffCache cache = new KffCache(1000, 60000, 60000);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10000; i++) {
+                        final String key = "key" + ((i * 7 + thread) % 2000);
+                        if (cache.get(key) == null) {
+                            cache.putPositive(key, key);
+                        }
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(40000, cache.getHitCount() + cache.getMissCount());
+        assertTrue(cache.size() <= 1008);
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new KffCache(0, 1000, 0));
+        assertThrows(IllegalArgumentException.class, () -> new KffCache(10, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new KffCache(10, 1000, -1));
+    }
+}
@@ -1,17 +1,24 @@
 package emissary.kff;
 
+import emissary.core.channels.InMemoryChannelFactory;
+import emissary.core.channels.SeekableByteChannelFactory;
 import emissary.test.core.junit5.UnitTest;
 
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 class KffChainTest extends UnitTest {
@@ -102,4 +109,180 @@ class KffChainTest extends UnitTest {
         }
     }
 
+    /**
+     * Hits items whose SHA-1 is in a known set, failing on items named BAD and counting its calls
+     */
+    static class KnownSha1Filter implements KffFilter {
+        final Set<String> known = new HashSet<>();
+        final FilterType type;
+        int checkAllCalls = 0;
+
+        KnownSha1Filter(FilterType type) {
+            this.type = type;
+        }
+
+        @Override
+        public String getName() {
+            return type.name();
+        }
+
+        @Override
+        public FilterType getFilterType() {
+            return type;
+        }
+
+        @Override
+        public boolean check(String fname, ChecksumResults sums) throws Exception {
+            if (fname.equals("BAD")) {
+                throw new Exception("bad item");
+            }
+            return known.contains(sums.getHashString("SHA-1"));
+        }
+
+        @Override
+        public boolean[] checkAll(List<String> fnames, List<ChecksumResults> sums) throws Exception {
+            checkAllCalls++;
+            return KffFilter.super.checkAll(fnames, sums);
+        }
+    }
+
+    @Test
+    void testBatchCheckMatchesSingleChecks() throws Exception {
+        List<byte[]> contents = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            contents.add(("content " + i).getBytes());
+            names.add("item" + i);
+        }
+        names.set(4, "BAD");
+        contents.set(5, new byte[2]);
+
+        KffChain chain = new KffChain();
+        chain.addAlgorithm("SHA-1");
+        chain.setMinDataSize(5);
+        KnownSha1Filter ignore = new KnownSha1Filter(KffFilter.FilterType.IGNORE);
+        ignore.known.add(chain.computeSums(contents.get(0)).getHashString("SHA-1"));
+        KnownSha1Filter dupe = new KnownSha1Filter(KffFilter.FilterType.DUPLICATE);
+        dupe.known.add(chain.computeSums(contents.get(0)).getHashString("SHA-1"));
+        dupe.known.add(chain.computeSums(contents.get(1)).getHashString("SHA-1"));
+        dupe.known.add(chain.computeSums(contents.get(5)).getHashString("SHA-1"));
+        chain.addFilter(ignore);
+        chain.addFilter(dupe);
+
+        List<KffResult> results = chain.check(names, contents);
+        assertEquals(names.size(), results.size());
+        assertEquals(1, ignore.checkAllCalls, "Each filter sees the batch once");
+        assertEquals(1, dupe.checkAllCalls, "Each filter sees the batch once");
+
+        for (int i = 0; i < names.size(); i++) {
+            KffResult single = chain.check(names.get(i), contents.get(i));
+            KffResult batched = results.get(i);
+            assertEquals(names.get(i), batched.getItemName());
+            assertEquals(single.isHit(), batched.isHit(), "Hit for item " + i);
+            assertEquals(single.getFilterName(), batched.getFilterName(), "Filter for item " + i);
+            assertEquals(single.getShaString(), batched.getShaString());
+        }
+        assertTrue(results.get(0).isKnown());
+        assertTrue(results.get(1).isDupe());
+        assertFalse(results.get(2).isHit());
+        assertFalse(results.get(4).isHit(), "An item that fails only gets checksums");
+        assertFalse(results.get(5).isHit(), "Items below the minimum size are never hits");
+        assertThrows(IllegalArgumentException.class, () -> chain.check(names, contents.subList(0, 1)));
+    }
+
+    @Test
+    void testBatchTimeoutFailsWholeBatch() throws Exception {
+        List<byte[]> contents = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            contents.add(("content " + i).getBytes());
+            names.add("item" + i);
+        }
+
+        KffChain chain = new KffChain();
+        chain.addAlgorithm("SHA-1");
+        AtomicInteger checkCalls = new AtomicInteger();
+        KnownSha1Filter slow = new KnownSha1Filter(KffFilter.FilterType.IGNORE) {
+            @Override
+            public boolean check(String fname, ChecksumResults sums) throws Exception {
+                checkCalls.incrementAndGet();
+                throw new TimeoutException("too slow");
+            }
+
+            @Override
+            public boolean[] checkAll(List<String> fnames, List<ChecksumResults> sums) throws Exception {
+                checkAllCalls++;
+                throw new TimeoutException("too slow");
+            }
+        };
+        KnownSha1Filter dupe = new KnownSha1Filter(KffFilter.FilterType.DUPLICATE);
+        dupe.known.add(chain.computeSums(contents.get(0)).getHashString("SHA-1"));
+        chain.addFilter(slow);
+        chain.addFilter(dupe);
+
+        List<KffResult> results = chain.check(names, contents);
+        assertEquals(1, slow.checkAllCalls);
+        assertEquals(0, checkCalls.get(), "Items are not retried one at a time after a timeout");
+        assertEquals(0, dupe.checkAllCalls, "A timeout ends the batch rather than trying later filters");
+        for (int i = 0; i < names.size(); i++) {
+            assertFalse(results.get(i).isHit(), "Item " + i + " only gets checksums");
+            assertNotNull(results.get(i).getShaString());
+        }
+    }
+
+    @Test
+    void testIndividualTimeoutFailsWholeBatch() throws Exception {
+        List<byte[]> contents = List.of("content 0".getBytes(), "content 1".getBytes(), "content 2".getBytes());
+        List<String> names = List.of("item0", "item1", "item2");
+
+        KffChain chain = new KffChain();
+        chain.addAlgorithm("SHA-1");
+        AtomicInteger checkCalls = new AtomicInteger();
+        KnownSha1Filter flaky = new KnownSha1Filter(KffFilter.FilterType.IGNORE) {
+            @Override
+            public boolean check(String fname, ChecksumResults sums) throws Exception {
+                checkCalls.incrementAndGet();
+                throw new TimeoutException("too slow");
+            }
+
+            @Override
+            public boolean[] checkAll(List<String> fnames, List<ChecksumResults> sums) throws Exception {
+                throw new IllegalStateException("bulk get failed");
+            }
+        };
+        chain.addFilter(flaky);
+
+        List<KffResult> results = chain.check(names, contents);
+        assertEquals(1, checkCalls.get(), "The first timeout ends the one at a time fallback");
+        assertEquals(names.size(), results.size());
+        assertFalse(results.get(2).isHit());
+    }
+
+    @Test
+    void testCheckChannelsMatchesCheck() throws Exception {
+        List<byte[]> contents = List.of("content 0".getBytes(), "content 1".getBytes(), new byte[2]);
+        List<String> names = List.of("item0", "item1", "item2");
+        List<SeekableByteChannelFactory> sbcfs = new ArrayList<>();
+        for (byte[] content : contents) {
+            sbcfs.add(InMemoryChannelFactory.create(content));
+        }
+
+        KffChain chain = new KffChain();
+        chain.addAlgorithm("SHA-1");
+        chain.setMinDataSize(5);
+        KnownSha1Filter dupe = new KnownSha1Filter(KffFilter.FilterType.DUPLICATE);
+        dupe.known.add(chain.computeSums(contents.get(1)).getHashString("SHA-1"));
+        dupe.known.add(chain.computeSums(contents.get(2)).getHashString("SHA-1"));
+        chain.addFilter(dupe);
+
+        List<KffResult> fromBytes = chain.check(names, contents);
+        List<KffResult> fromChannels = chain.checkChannels(names, sbcfs);
+        for (int i = 0; i < names.size(); i++) {
+            assertEquals(fromBytes.get(i).isHit(), fromChannels.get(i).isHit(), "Hit for item " + i);
+            assertEquals(fromBytes.get(i).getShaString(), fromChannels.get(i).getShaString());
+        }
+        assertTrue(fromChannels.get(1).isDupe());
+        assertFalse(fromChannels.get(2).isHit(), "Items below the minimum size are never hits");
+        assertThrows(IllegalArgumentException.class, () -> chain.checkChannels(names, sbcfs.subList(0, 1)));
+    }
 }
@@ -16,7 +16,10 @@ import org.junit.jupiter.api.Test;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
 
@@ -363,6 +366,50 @@ class KffDataObjectHandlerTest extends UnitTest {
         assertEquals(SeekableByteChannelHelper.EMPTY_CHANNEL_FACTORY, payload.getChannelFactory());
     }
 
+    @Test
+    void testHashAllMatchesHash() throws IOException {
+        kff = new KffDataObjectHandler(true, true, true);
+        final List<IBaseDataObject> family = new ArrayList<>();
+        final List<IBaseDataObject> expected = new ArrayList<>();
+        for (final SeekableByteChannelFactory sbcf : List.of(SBC_DATA, SeekableByteChannelHelper.memory("other".getBytes()),
+                SeekableByteChannelHelper.EMPTY_CHANNEL_FACTORY)) {
+            final IBaseDataObject d = DataObjectFactory.getInstance(new byte[0], resource, "test");
+            d.setChannelFactory(sbcf);
+            d.setParameter(KffDataObjectHandler.KFF_PARAM_MD5, "stale");
+            d.setParameter(KffDataObjectHandler.KFF_PARAM_KNOWN_FILTER_NAME, "test.filter");
+            family.add(d);
+            final IBaseDataObject e = DataObjectFactory.getInstance(new byte[0], resource, "test");
+            e.setChannelFactory(sbcf);
+            e.setParameter(KffDataObjectHandler.KFF_PARAM_MD5, "stale");
+            e.setParameter(KffDataObjectHandler.KFF_PARAM_KNOWN_FILTER_NAME, "test.filter");
+            kff.hash(e, true);
+            expected.add(e);
+        }
+        family.add(null);
+
+        kff.hashAll(family);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getParameters(), family.get(i).getParameters(), "Parameters of item " + i);
+            assertEquals(expected.get(i).getChannelSize(), family.get(i).getChannelSize());
+            assertEquals(expected.get(i).getFileType(), family.get(i).getFileType());
+        }
+        assertEquals(DATA_SHA1, family.get(0).getStringParameter(KffDataObjectHandler.KFF_PARAM_SHA1));
+        assertEquals("stale", family.get(0).getStringParameter(KffDataObjectHandler.MD5_ORIGINAL));
+        assertFalse(KffDataObjectHandler.hashPresent(family.get(2)));
+        assertEquals("test", family.get(2).getFileType(), "Data objects without data keep their file type");
+    }
+
+    @Test
+    void testHashAllAppliesKnownPolicy() throws IOException {
+        kff = new KffDataObjectHandler(true, true, true);
+        payload.setParameter(KffDataObjectHandler.KFF_PARAM_KNOWN_FILTER_NAME, "test.filter");
+        payload.setChannelFactory(SBC_DATA);
+        kff.hashAll(Collections.singletonList(payload));
+        assertEquals(DATA_MD5, payload.getStringParameter(KffDataObjectHandler.KFF_PARAM_MD5));
+        assertEquals(KffDataObjectHandler.KFF_DUPE_CURRENT_FORM, payload.getFileType());
+        assertEquals(0, payload.getChannelSize());
+    }
+
     @Test
     void testNullPayload() {
         assertDoesNotThrow(() -> kff.hash(null));
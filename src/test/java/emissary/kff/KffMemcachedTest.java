@@ -2,6 +2,7 @@ package emissary.kff;
 
 import emissary.kff.KffFilter.FilterType;
 import emissary.test.core.junit5.UnitTest;
+import emissary.util.Hexl;
 
 import net.spy.memcached.MemcachedClient;
 import net.spy.memcached.internal.GetFuture;
@@ -17,6 +18,7 @@ import org.mockito.stubbing.Answer;
 
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
@@ -28,8 +30,10 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import javax.annotation.Nullable;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
@@ -106,6 +110,96 @@ class KffMemcachedTest extends UnitTest {
         assertTrue(mcdFilter.check(TEST_ID_WITH_SPACES, createSums(mcdFilter)), "Filter should hit");
     }
 
+    @Test
+    void testCheckAllUsesOneMultiGet() throws Exception {
+        try (FakeMemcachedServer server = new FakeMemcachedServer()) {
+            KffMemcached mcdFilter = createServerFilter(server);
+            try {
+                ChecksumResults known = createSums(mcdFilter, "known");
+                ChecksumResults unknown = createSums(mcdFilter, "unknown");
+                ChecksumResults other = createSums(mcdFilter, "other");
+                server.put(keyFor(mcdFilter, known), "original-id");
+
+                boolean[] hits = mcdFilter.checkAll(List.of("id-1", "id-2", "id-3", "id-4"), List.of(known, unknown, other, unknown));
+
+                assertArrayEquals(new boolean[] {true, false, false, true}, hits);
+                assertEquals(List.of(List.of(keyFor(mcdFilter, known), keyFor(mcdFilter, unknown), keyFor(mcdFilter, other))),
+                        server.getGets(), "All distinct hashes are fetched with one multi-get");
+                assertEquals("id-2", server.await(keyFor(mcdFilter, unknown), 5000), "Misses are stored");
+                assertEquals("id-3", server.await(keyFor(mcdFilter, other), 5000), "Misses are stored");
+                assertEquals(keyFor(mcdFilter, known), server.await("id-1", 5000), "Duplicate ids are stored");
+                assertEquals(keyFor(mcdFilter, unknown), server.await("id-4", 5000), "A repeat within the batch is a duplicate");
+            } finally {
+                mcdFilter.client.shutdown();
+            }
+        }
+    }
+
+    @Test
+    void testCacheServesRepeatedLookups() throws Exception {
+        try (FakeMemcachedServer server = new FakeMemcachedServer()) {
+            KffMemcached mcdFilter = createServerFilter(server);
+            try {
+                ChecksumResults sums = createSums(mcdFilter, "payload");
+                assertFalse(mcdFilter.check("id-1", sums), "First sighting is a miss");
+                assertTrue(mcdFilter.check("id-2", sums), "Second sighting is a hit");
+                assertTrue(mcdFilter.checkAll(List.of("id-3"), List.of(sums))[0], "Batch sighting is a hit");
+
+                assertEquals(1, server.getGets().size(), "Only the first lookup goes to the server");
+                assertEquals(2, mcdFilter.getCache().getHitCount());
+                assertEquals(keyFor(mcdFilter, sums), server.await("id-3", 5000), "Duplicate ids are still stored");
+            } finally {
+                mcdFilter.client.shutdown();
+            }
+        }
+    }
+
+    @Test
+    void testNegativeCacheWhenMissesAreNotStored() throws Exception {
+        try (FakeMemcachedServer server = new FakeMemcachedServer()) {
+            KffMemcached mcdFilter = createServerFilter(server);
+            mcdFilter.storeMisses = false;
+            try {
+                ChecksumResults sums = createSums(mcdFilter, "payload");
+                assertFalse(mcdFilter.check("id-1", sums));
+                assertFalse(mcdFilter.check("id-1", sums));
+                assertFalse(mcdFilter.checkAll(List.of("id-1"), List.of(sums))[0]);
+
+                assertEquals(1, server.getGets().size(), "Misses are remembered locally");
+                assertNull(server.get(keyFor(mcdFilter, sums)), "Misses are not stored");
+            } finally {
+                mcdFilter.client.shutdown();
+            }
+        }
+    }
+
+    @Test
+    void testIgnoredIdsAreNotLookedUp() throws Exception {
+        try (FakeMemcachedServer server = new FakeMemcachedServer()) {
+            KffMemcached mcdFilter = createServerFilter(server);
+            try {
+                boolean[] hits = mcdFilter.checkAll(List.of("a-badvalue-id"), List.of(createSums(mcdFilter, "payload")));
+                assertArrayEquals(new boolean[] {false}, hits);
+                assertTrue(server.getGets().isEmpty());
+                assertThrows(Exception.class, () -> mcdFilter.checkAll(List.of(""), List.of(createSums(mcdFilter, "payload"))));
+            } finally {
+                mcdFilter.client.shutdown();
+            }
+        }
+    }
+
+    private static KffMemcached createServerFilter(FakeMemcachedServer server) throws IOException {
+        return new KffMemcached(TEST_ID_WITH_SPACES, "KFF", FilterType.DUPLICATE, new MemcachedClient(server.getAddress()));
+    }
+
+    private static ChecksumResults createSums(KffMemcached mcd, String payload) throws NoSuchAlgorithmException {
+        return new ChecksumCalculator(List.of(mcd.getPreferredAlgorithm())).digest(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String keyFor(KffMemcached mcd, ChecksumResults sums) {
+        return Hexl.toUnformattedHexString(sums.getHash(mcd.getPreferredAlgorithm()));
+    }
+
     private static ChecksumResults createSums(KffMemcached mcd) throws NoSuchAlgorithmException {
         List<String> kffalgs = new ArrayList<>();
         kffalgs.add(mcd.getPreferredAlgorithm());
@@ -0,0 +1,271 @@
+package emissary.output;
+
+import emissary.config.Configurator;
+import emissary.config.ServiceConfigGuide;
+import emissary.core.DataObjectFactory;
+import emissary.core.Family;
+import emissary.core.IBaseDataObject;
+import emissary.test.core.junit5.UnitTest;
+import emissary.util.TimeUtil;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.annotation.Nullable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PathSpecTest extends UnitTest {
+
+    private static final String[] PIECES = {"%U%", "%S%", "%I%", "%P%", "%i%", "%p%", "%F%", "%L%", "%G%", "%R%", "%B%", "%b%", "%Y%", "%M%",
+            "%D%", "%J%", "%Q%", "%", "%%", "%S", "@META{'DTG'}", "@META{'MISSING'}", "@META{'X.Y'}", "@META{''}", "@META{'", "@TLD{'TARGETBIN'}",
+            "@TLD{'MISSING'}", "@TLD{''}", "@TLD{'", "@", "@TL", "/", "\\", ".", "..", "./", ".\\", "abc", "-", "_"};
+
+    private DropOffUtil util;
+
+    @BeforeEach
+    public void createUtil() {
+        final Configurator cfg = new ServiceConfigGuide();
+        cfg.addEntry("ID", "MY_ID");
+        cfg.addEntry("ID", "SHORTNAME");
+        cfg.addEntry("UNIX_ROOT", "/out/root");
+        this.util = new DropOffUtil(cfg);
+    }
+
+    @Test
+    void testCompiledMatchesInterpreter() {
+        final List<IBaseDataObject[]> families = families();
+        final Random random = new Random(43L);
+        for (int n = 0; n < 3000; n++) {
+            final StringBuilder sb = new StringBuilder();
+            for (int p = random.nextInt(8); p > 0; p--) {
+                sb.append(PIECES[random.nextInt(PIECES.length)]);
+            }
+            final String spec = sb.toString();
+            final PathSpec compiled = PathSpec.compile(spec);
+            for (final IBaseDataObject[] family : families) {
+                final IBaseDataObject d = family[0];
+                final IBaseDataObject tld = family[1];
+                assertEquals(interpret(spec, d, tld), compiled.render(util, d, tld), spec);
+                assertEquals(interpret(spec, d, tld), util.getPathFromSpec(spec, d, tld), spec);
+            }
+        }
+    }
+
+    @Test
+    void testEveryToken() {
+        final IBaseDataObject tld = payload("/in\\put/dir.x/file", "TLD_ID");
+        final IBaseDataObject child = payload("/in\\put/dir.x/file" + Family.SEP + "2", "CHILD_ID");
+        for (final String piece : PIECES) {
+            final String spec = "a/" + piece + "/z";
+            assertEquals(interpret(spec, child, tld), util.getPathFromSpec(spec, child, tld), spec);
+            assertEquals(interpret(spec, child, null), util.getPathFromSpec(spec, child, null), spec);
+            assertEquals(interpret(spec, tld, tld), util.getPathFromSpec(spec, tld), spec);
+        }
+    }
+
+    @Test
+    void testDefaultSpec() {
+        final IBaseDataObject tld = payload("/in/file", "ID");
+        tld.setParameter("TARGETBIN", "bin.");
+        assertEquals("/out/root/bin_/file", util.getPathFromSpec(null, tld));
+        assertEquals(PathSpec.DEFAULT_SPEC, PathSpec.compile(null).getSpec());
+    }
+
+    @Test
+    void testOverridesAreUsed() {
+        final DropOffUtil custom = new DropOffUtil(new ServiceConfigGuide()) {
+            @Override
+            public String getRootPath() {
+                return "/custom";
+            }
+        };
+        assertEquals("/custom/x", custom.getPathFromSpec("%R%/x", null, null));
+    }
+
+    @Test
+    void testSetupPathCache(@TempDir final Path dir) throws IOException {
+        final String fileName = dir.resolve("a").resolve("b").resolve("file").toString();
+        final File parent = new File(fileName).getParentFile();
+        assertTrue(util.setupPath(fileName));
+        assertTrue(parent.isDirectory());
+
+        // a remembered directory is not checked again until the cache is cleared
+        Files.delete(parent.toPath());
+        assertTrue(util.setupPath(fileName));
+        assertFalse(parent.exists());
+        util.clearPathCache();
+        assertTrue(util.setupPath(fileName));
+        assertTrue(parent.isDirectory());
+    }
+
+    @Test
+    void testSetupPathCacheDisabled(@TempDir final Path dir) throws IOException {
+        final Configurator cfg = new ServiceConfigGuide();
+        cfg.addEntry("PATH_CACHE_SIZE", "0");
+        final DropOffUtil uncached = new DropOffUtil(cfg);
+        final String fileName = dir.resolve("a").resolve("file").toString();
+        final File parent = new File(fileName).getParentFile();
+        assertTrue(uncached.setupPath(fileName));
+        Files.delete(parent.toPath());
+        assertTrue(uncached.setupPath(fileName));
+        assertTrue(parent.isDirectory());
+    }
+
+    private static List<IBaseDataObject[]> families() {
+        final List<IBaseDataObject[]> families = new ArrayList<>();
+        final IBaseDataObject tld = payload("/in/dir/file.txt", "ID.1");
+        tld.setParameter("TARGETBIN", "bin..one");
+        tld.setParameter("UserName", "bob");
+        tld.setParameter("DTG", "2024-01-02 03:04:05");
+        final IBaseDataObject child = payload("C:\\in\\dir\\file.txt" + Family.SEP + "1" + Family.SEP + "3", "CHILD");
+        child.setParameter("LANGUAGE", "ENGLISH");
+        child.setParameter("X.Y", "a...b");
+        child.setParameter("DTG", "2023-05-06 07:08:09");
+        child.setFileType("TYPE..X");
+        final IBaseDataObject bare = payload("file", "BARE");
+        families.add(new IBaseDataObject[] {tld, tld});
+        families.add(new IBaseDataObject[] {child, tld});
+        families.add(new IBaseDataObject[] {child, null});
+        families.add(new IBaseDataObject[] {bare, null});
+        return families;
+    }
+
+    private static IBaseDataObject payload(final String filename, final String id) {
+        final IBaseDataObject d = DataObjectFactory.getInstance("data".getBytes(), filename, "UNKNOWN");
+        d.setParameter("MY_ID", id);
+        return d;
+    }
+
+    // the interpreter DropOffUtil used before specs were compiled
+    private String interpret(@Nullable final String specArg, @Nullable final IBaseDataObject d, @Nullable final IBaseDataObject tld) {
+        final StringBuilder sb = new StringBuilder(128);
+        final String spec = specArg == null ? "%R%/@TLD{'TARGETBIN'}/%S%" : specArg;
+        for (int i = 0; i < spec.length(); i++) {
+            final char c = spec.charAt(i);
+            if (c == '%' && i < spec.length() - 2) {
+                final char t = spec.charAt(i + 1);
+                final char x = spec.charAt(i + 2);
+                if (x == c) {
+                    switch (t) {
+                        case 'U':
+                            if (tld != null) {
+                                sb.append(util.nvl(tld.getParameter("UserName"), "no-userid"));
+                            } else if (d != null) {
+                                sb.append(util.nvl(d.getParameter("UserName"), "no-userid"));
+                            }
+                            break;
+                        case 'S':
+                            if (d != null) {
+                                sb.append(d.shortName());
+                            }
+                            break;
+                        case 'I':
+                            if (d != null) {
+                                sb.append(d.getFilename());
+                            }
+                            break;
+                        case 'i':
+                            if (d != null) {
+                                sb.append(d.getFilename().replaceAll("[/\\\\]", "_"));
+                            }
+                            break;
+                        case 'P':
+                            if (d != null) {
+                                sb.append(d.getFilename(), 0, d.getFilename().length() - d.shortName().length());
+                            }
+                            break;
+                        case 'p':
+                            if (d != null) {
+                                sb.append(d.getFilename().substring(0, d.getFilename().length() - d.shortName().length()).replaceAll("[/\\\\]", "_"));
+                            }
+                            break;
+                        case 'F':
+                            if (d != null) {
+                                sb.append(util.nvl(util.cleanSpecPath(d.getFileType()), "NONE"));
+                            }
+                            break;
+                        case 'L':
+                            if (d != null) {
+                                sb.append(util.nvl(d.getParameter("LANGUAGE"), "NONE"));
+                            }
+                            break;
+                        case 'G':
+                            if (tld != null) {
+                                sb.append(util.datePath(util.cleanSpecPath(tld.getStringParameter("DTG"))));
+                            } else if (d != null) {
+                                sb.append(util.datePath(util.cleanSpecPath(d.getStringParameter("DTG"))));
+                            }
+                            break;
+                        case 'R':
+                            sb.append(util.getRootPath());
+                            break;
+                        case 'B':
+                            if (tld != null) {
+                                sb.append(util.cleanSpecPath(util.getBestIdFrom(tld)));
+                            } else if (d != null) {
+                                sb.append(util.cleanSpecPath(util.getBestIdFrom(d)));
+                            }
+                            break;
+                        case 'b':
+                            sb.append(util.cleanSpecPath((tld != null) ? util.getBestIdFrom(tld) : util.getBestIdFrom(d)));
+                            final String sn = d.shortName();
+                            final int pos = sn.indexOf(Family.SEP);
+                            if (pos > 0) {
+                                sb.append(sn.substring(pos));
+                            }
+                            break;
+                        case 'Y':
+                            sb.append(TimeUtil.getDate("yyyy", "GMT"));
+                            break;
+                        case 'M':
+                            sb.append(TimeUtil.getDate("MM", "GMT"));
+                            break;
+                        case 'D':
+                            sb.append(TimeUtil.getDate("dd", "GMT"));
+                            break;
+                        case 'J':
+                            sb.append(TimeUtil.getDate("DDD", "GMT"));
+                            break;
+                        default:
+                            sb.append(c).append(t).append(x);
+                    }
+                    i += 2;
+                } else {
+                    sb.append(c);
+                }
+            } else if (c == '@' && i < spec.length() - 8 && spec.startsWith("META{'", i + 1)) {
+                final int endpos = spec.indexOf("'", i + 7);
+                if (endpos > i + 7) {
+                    final String token = spec.substring(i + 7, endpos);
+                    sb.append(util.nvl(util.cleanSpecPath(d.getStringParameter(token)), "NO-" + token));
+                    i += 8 + token.length();
+                } else {
+                    sb.append(c);
+                }
+            } else if (c == '@' && i < spec.length() - 7 && spec.startsWith("TLD{'", i + 1) && tld != null) {
+                final int endpos = spec.indexOf("'", i + 6);
+                if (endpos > i + 6) {
+                    final String token = spec.substring(i + 6, endpos);
+                    sb.append(util.nvl(util.cleanSpecPath(tld.getStringParameter(token)), "NO-" + token));
+                    i += 7 + token.length();
+                } else {
+                    sb.append(c);
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString().replace('\\', '/').replaceAll("\\.([/\\\\])", "_$1");
+    }
+}
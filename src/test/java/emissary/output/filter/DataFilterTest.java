@@ -4,12 +4,14 @@ import emissary.config.Configurator;
 import emissary.config.ServiceConfigGuide;
 import emissary.core.DataObjectFactory;
 import emissary.core.IBaseDataObject;
+import emissary.output.DropOffUtil;
 import emissary.test.core.junit5.UnitTest;
 import emissary.util.shell.Executrix;
 
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -56,4 +58,24 @@ class DataFilterTest extends UnitTest {
 
         expected.delete();
     }
+
+    @Test
+    void testLanguageFromBatch() {
+        IBaseDataObject payload = DataObjectFactory.getInstance();
+        payload.putParameter("LANGUAGE", "ENGLISH");
+        Map<String, Object> params = new HashMap<>();
+        params.put(IDropOffFilter.METADATA_BATCH, new MetadataBatch(Collections.singletonList(payload)));
+
+        DataFilter f = new DataFilter();
+        f.initialize(new ServiceConfigGuide(), "FOO");
+        assertEquals("ENGLISH", f.getLanguage(payload, params));
+
+        f.dropOffUtil = new DropOffUtil() {
+            @Override
+            public String getLanguage(final IBaseDataObject d) {
+                return "CUSTOM";
+            }
+        };
+        assertEquals("CUSTOM", f.getLanguage(payload, params), "An overridden getLanguage must be used with a batch");
+    }
 }
@@ -5,6 +5,7 @@ import emissary.core.DataObjectFactory;
 import emissary.core.IBaseDataObject;
 import emissary.test.core.junit5.UnitTest;
 
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -17,6 +18,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -382,4 +384,83 @@ class JsonOutputFilterTest extends UnitTest {
         assertTrue(s.contains("\"FOO\":[\"ONE\"]"), "Output should have prefix stripped parameter " + s);
         assertTrue(s.contains("\"BAR\":[\"TWO\"]"), "Output should have prefix stripped parameter " + s);
     }
+
+    @Test
+    void testMetadataBatchOutputMatches() {
+        config.addEntry("EXTRA_PARAM", "*");
+        config.addEntry("DENYLIST_FIELD", "SECRET");
+        config.addEntry("DENYLIST_PREFIX", "HIDE_");
+        config.addEntry("DENYLIST_VALUE_FOO", "stuff");
+        config.addEntry("DENYLIST_VALUE_GONE", "only");
+        config.addEntry("STRIP_PARAM_PREFIX", "STRIP_");
+        f.initialize(config, "FOO", config);
+
+        List<IBaseDataObject> family = new ArrayList<>();
+        family.add(payload);
+        for (int i = 1; i < 5; i++) {
+            IBaseDataObject child = DataObjectFactory.getInstance();
+            child.setData(("child " + i).getBytes());
+            child.setFilename("/this/is/a/testfile-att-" + i);
+            child.appendParameter("FOO", "stuff");
+            child.appendParameter("FOO", "z" + i);
+            child.appendParameter("FOO", "a" + i);
+            child.appendParameter("SECRET", "hidden");
+            child.appendParameter("HIDE_ME", "hidden");
+            child.appendParameter("STRIP_NAME", "caf\u00e9 \"quoted\" \u65e5\u672c");
+            child.appendParameter("GONE", "only");
+            child.appendParameter("odd key-" + i, "value");
+            child.putParameter("COUNT", i);
+            family.add(child);
+        }
+        IBaseDataObject record = DataObjectFactory.getInstance();
+        record.setFilename("/this/is/a/testfile-att-1-record");
+        record.putParameter("RECORD_ONLY", "from the record");
+        family.get(1).setExtractedRecords(Collections.singletonList(record));
+
+        Map<String, Object> params = new HashMap<>();
+        params.put(IDropOffFilter.METADATA_BATCH, new MetadataBatch(family));
+        ByteArrayOutputStream batched = new ByteArrayOutputStream();
+        assertEquals(IDropOffFilter.STATUS_SUCCESS, f.filter(family, params, batched));
+
+        ByteArrayOutputStream direct = new ByteArrayOutputStream();
+        assertEquals(IDropOffFilter.STATUS_SUCCESS, f.filter(family, new HashMap<>(), direct));
+
+        String expected = withoutTimestamps(direct.toString());
+        assertEquals(expected, withoutTimestamps(batched.toString()));
+        assertTrue(expected.contains("\"DESCENDANT_COUNT\":[4]"), expected);
+        assertTrue(expected.contains("\"FOO\":[\"a1\",\"z1\"]"), expected);
+        assertTrue(expected.contains("\"RECORD_ONLY\":[\"from the record\"]"), expected);
+        assertFalse(expected.contains("GONE"), expected);
+    }
+
+    @Test
+    void testMetadataBatchUsesOverriddenValueFilter() {
+        f = new JsonOutputFilter() {
+            @Override
+            protected void initJsonMapper() {
+                super.initJsonMapper();
+                jsonMapper.setFilterProvider(new SimpleFilterProvider().addFilter("param_filter", new IbdoParameterFilter() {
+                    @Override
+                    protected Collection<Object> filter(String key, Collection<Object> values) {
+                        return Collections.singletonList(values.size() + " values");
+                    }
+                }));
+            }
+        };
+        f.initialize(config, "FOO", config);
+
+        List<IBaseDataObject> family = Collections.singletonList(payload);
+        Map<String, Object> params = new HashMap<>();
+        params.put(IDropOffFilter.METADATA_BATCH, new MetadataBatch(family));
+        ByteArrayOutputStream batched = new ByteArrayOutputStream();
+        assertEquals(IDropOffFilter.STATUS_SUCCESS, f.filter(family, params, batched));
+
+        String s = batched.toString();
+        assertTrue(s.contains("\"FOO\":[\"2 values\"]"), "Overridden value filter must be used with a batch " + s);
+    }
+
+    // the timestamp and any generated ids differ from one run to the next
+    private static String withoutTimestamps(String json) {
+        return json.replaceAll("\"processedTimestamp\":\"[^\"]*\"", "").replaceAll("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}", "UUID");
+    }
 }
@@ -0,0 +1,146 @@
+package emissary.output.filter;
+
+import emissary.core.DataObjectFactory;
+import emissary.core.IBaseDataObject;
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetadataBatchTest extends UnitTest {
+
+    private List<IBaseDataObject> family;
+
+    @BeforeEach
+    public void setupFamily() {
+        family = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final IBaseDataObject d = DataObjectFactory.getInstance();
+            d.setFilename("/this/is/a/testfile" + (i == 0 ? "" : "-att-" + i));
+            d.appendParameter("SHARED", "same");
+            d.appendParameter("OWN_" + i, "value" + i);
+            family.add(d);
+        }
+        family.get(1).appendParameter("MULTI", "b");
+        family.get(1).appendParameter("MULTI", "a");
+        family.get(1).appendParameter("MULTI", "b");
+    }
+
+    @Test
+    void testKeysAreShared() {
+        final MetadataBatch batch = new MetadataBatch(family);
+        assertEquals(3, batch.size());
+        // SHARED, OWN_0, OWN_1, MULTI, OWN_2
+        assertEquals(5, batch.getKeyCount());
+
+        final int shared = batch.indexOf("SHARED");
+        for (int r = 0; r < batch.size(); r++) {
+            assertSame(family.get(r), batch.getRecord(r));
+            assertEquals(r, batch.indexOf(family.get(r)));
+            assertEquals(0, batch.fieldOf(r, shared));
+            assertEquals("same", batch.getStringValue(r, "SHARED"));
+        }
+        assertEquals(-1, batch.indexOf("MISSING"));
+        assertEquals(-1, batch.indexOf(DataObjectFactory.getInstance()));
+        assertNull(batch.getStringValue(0, "MISSING"));
+        assertNull(batch.getStringValue(0, "OWN_1"));
+    }
+
+    @Test
+    void testRecordOrderAndValues() {
+        final MetadataBatch batch = new MetadataBatch(family);
+        final IBaseDataObject d = family.get(1);
+        final List<String> keys = new ArrayList<>();
+        for (int field = 0; field < batch.getFieldCount(1); field++) {
+            final String key = batch.getKey(batch.getFieldKey(1, field));
+            keys.add(key);
+            assertEquals(d.getParameter(key), batch.getValues(1, field));
+            assertEquals(d.getStringParameter(key), batch.getStringValue(1, field));
+        }
+        assertEquals(new ArrayList<>(d.getParameterKeys()), keys);
+
+        final int multi = batch.fieldOf(1, batch.indexOf("MULTI"));
+        assertEquals("b;a;b", batch.getStringValue(1, multi));
+        assertArrayEquals(new Object[] {"a", "b"}, batch.getSortedValues(1, multi));
+        assertArrayEquals("a".getBytes(StandardCharsets.UTF_8), batch.getSortedUtf8(1, multi)[0]);
+    }
+
+    @Test
+    void testEqualValuesShareEncoding() {
+        final MetadataBatch batch = new MetadataBatch(family);
+        final byte[] first = batch.getSortedUtf8(0, 0)[0];
+        for (int r = 1; r < batch.size(); r++) {
+            assertSame(first, batch.getSortedUtf8(r, 0)[0]);
+        }
+    }
+
+    @Test
+    void testUnsortableValues() {
+        family.get(0).putParameter("MIXED", Arrays.asList("text", 7L));
+        final MetadataBatch batch = new MetadataBatch(family);
+        final int mixed = batch.fieldOf(0, batch.indexOf("MIXED"));
+        assertNull(batch.getSortedValues(0, mixed));
+        assertNull(batch.getSortedUtf8(0, mixed));
+        assertEquals("text;7", batch.getStringValue(0, mixed));
+    }
+
+    @Test
+    void testRefresh() {
+        final MetadataBatch batch = new MetadataBatch(family);
+        // an unchanged record keeps what was worked out
+        final String joined = batch.getStringValue(1, "MULTI");
+        assertFalse(batch.refresh(1));
+        assertSame(joined, batch.getStringValue(1, "MULTI"));
+
+        family.get(0).putParameter("SHARED", "changed");
+        assertEquals("same", batch.getStringValue(0, "SHARED"), "Changes are only seen after a refresh");
+        assertTrue(batch.refresh(0));
+        assertEquals("changed", batch.getStringValue(0, "SHARED"));
+
+        family.get(0).putParameter("LATE", "added");
+        assertTrue(batch.refresh(0));
+        assertEquals("added", batch.getStringValue(0, "LATE"));
+        assertEquals(6, batch.getKeyCount());
+
+        family.get(1).appendParameter("MULTI", "c");
+        assertTrue(batch.refresh(1));
+        assertEquals("b;a;b;c", batch.getStringValue(1, "MULTI"));
+        assertFalse(batch.refresh(2));
+    }
+
+    @Test
+    void testFromParams() {
+        final MetadataBatch batch = new MetadataBatch(family);
+        final Map<String, Object> params = new HashMap<>();
+        assertNull(MetadataBatch.from(params, family));
+
+        params.put(IDropOffFilter.METADATA_BATCH, batch);
+        assertSame(batch, MetadataBatch.from(params, family));
+        assertSame(batch, MetadataBatch.from(params, new ArrayList<>(family)));
+        assertSame(batch, MetadataBatch.from(params, family.get(2)));
+        assertNull(MetadataBatch.from(params, family.subList(0, 2)));
+        assertNull(MetadataBatch.from(params, Collections.singletonList(family.get(0))));
+        assertNull(MetadataBatch.from(params, DataObjectFactory.getInstance()));
+
+        final List<IBaseDataObject> reordered = new ArrayList<>(family);
+        Collections.reverse(reordered);
+        assertTrue(batch.covers(family));
+        assertNull(MetadataBatch.from(params, reordered), "Filters rely on the records being in batch order");
+        assertEquals(Arrays.asList("same"), batch.getValues(2, 0));
+    }
+}
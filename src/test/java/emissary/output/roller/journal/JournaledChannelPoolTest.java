@@ -15,7 +15,11 @@ import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -56,6 +60,28 @@ class JournaledChannelPoolTest extends UnitTest {
         assertEquals(free + 1, this.instance.getFreeSize(), "Free should be one more than " + free);
     }
 
+    @Test
+    void testFreeTwiceQueuesOnce() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 100; i++) {
+                final KeyedOutput out = this.instance.getFree();
+                final int free = this.instance.getFreeSize();
+                final List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < 2; t++) {
+                    futures.add(executor.submit(() -> this.instance.free(out.jc)));
+                }
+                for (final Future<?> future : futures) {
+                    future.get();
+                }
+                assertEquals(free + 1, this.instance.getFreeSize(), "A channel returned twice is queued once");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(this.instance.getCreatedCount(), this.instance.getFreeSize());
+    }
+
     /**
      * Test of getJournalEntries method, of class JournaledChannelPool.
      */
@@ -83,6 +109,65 @@ class JournaledChannelPoolTest extends UnitTest {
         assertEquals(totlen, jrnltot, "Total length should be " + totlen);
     }
 
+    @Test
+    void testPreallocation() throws Exception {
+        try (JournaledChannelPool pool = new JournaledChannelPool(this.directory, UUID.randomUUID().toString(), 3, 2)) {
+            awaitFree(pool, 2);
+            assertEquals(2, pool.getCreatedCount(), "Channels should be created ahead of demand");
+
+            try (KeyedOutput k1 = pool.getFree()) {
+                k1.write('x');
+                k1.commit();
+                awaitFree(pool, 2);
+                assertEquals(3, pool.getCreatedCount(), "A leased channel should be replaced ahead of demand");
+            }
+            assertEquals(3, pool.getFreeSize());
+        }
+    }
+
+    // channels are counted as created before they are queued, so wait for the queue
+    private static void awaitFree(final JournaledChannelPool pool, final int count) throws InterruptedException {
+        final long end = System.currentTimeMillis() + 10000;
+        while (pool.getFreeSize() < count && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, pool.getFreeSize());
+    }
+
+    @Test
+    void testConcurrentLeases() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        try (KeyedOutput ko = this.instance.getFree()) {
+                            ko.write('x');
+                            ko.commit();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(3, this.instance.getCreatedCount(), "Never more than the max channels");
+        assertEquals(3, this.instance.getFreeSize(), "Every channel is returned");
+
+        long written = 0;
+        for (final Path journalPath : JournalReader.getJournalPaths(this.directory)) {
+            try (JournalReader jr = new JournalReader(journalPath)) {
+                written += jr.getJournal().getLastEntry().getOffset();
+            }
+        }
+        assertEquals(800, written, "Every committed byte is journaled");
+    }
+
     private static void writeText(final KeyedOutput ko, final String text) throws IOException {
         try (BufferedWriter bw = new BufferedWriter(Channels.newWriter(ko, StandardCharsets.UTF_8))) {
             bw.write(text);
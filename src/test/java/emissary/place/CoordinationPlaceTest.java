@@ -1,6 +1,7 @@
 package emissary.place;
 
 import emissary.core.DataObjectFactory;
+import emissary.core.Family;
 import emissary.core.IBaseDataObject;
 import emissary.core.MobileAgent;
 import emissary.core.Namespace;
@@ -15,12 +16,18 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -95,4 +102,182 @@ class CoordinationPlaceTest extends UnitTest {
 
         place.configG.removeEntry("SERVICE_COORDINATION", "fakePlace");
     }
+
+    @Test
+    void testIndependentPlacesRunConcurrently() throws Exception {
+        place.configG.addEntry("COORDINATION_THREADS", "2");
+        place.configG.addEntry("DEPENDS_ON_ThirdPlace", "FirstPlace");
+        addMetadataOnly("FirstPlace", "SecondPlace", "ThirdPlace");
+        place.configurePlace();
+        try {
+            CountDownLatch running = new CountDownLatch(2);
+            IServiceProviderPlace first = namedPlace("FirstPlace");
+            doAnswer(invocation -> {
+                IBaseDataObject d = invocation.getArgument(0);
+                running.countDown();
+                d.putParameter("FIRST_SAW_SECOND", running.await(10, TimeUnit.SECONDS));
+                d.putParameter("WINNER", "first");
+                return null;
+            }).when(first).agentProcessCall(any(IBaseDataObject.class));
+
+            IServiceProviderPlace second = namedPlace("SecondPlace");
+            doAnswer(invocation -> {
+                IBaseDataObject d = invocation.getArgument(0);
+                running.countDown();
+                running.await(10, TimeUnit.SECONDS);
+                d.putParameter("WINNER", "second");
+                d.deleteParameter("REMOVED");
+                return null;
+            }).when(second).agentProcessCall(any(IBaseDataObject.class));
+
+            IServiceProviderPlace third = namedPlace("ThirdPlace");
+            doAnswer(invocation -> {
+                IBaseDataObject d = invocation.getArgument(0);
+                d.putParameter("THIRD_SAW", d.getStringParameter("WINNER"));
+                return null;
+            }).when(third).agentProcessCall(any(IBaseDataObject.class));
+
+            place.placeRefs = List.of(first, second, third);
+            assertEquals(List.of(List.of(first, second), List.of(third)), place.planWaves(place.placeRefs));
+
+            IBaseDataObject ibdo = DataObjectFactory.getInstance("testing this".getBytes(), "test_file", "text");
+            ibdo.putParameter("REMOVED", "yes");
+            place.process(ibdo);
+
+            assertEquals("true", ibdo.getStringParameter("FIRST_SAW_SECOND"), "Independent places must overlap");
+            assertEquals("second", ibdo.getStringParameter("WINNER"), "The later configured place wins");
+            assertEquals("second", ibdo.getStringParameter("THIRD_SAW"), "Dependent places see the merged result");
+            assertFalse(ibdo.hasParameter("REMOVED"));
+            assertTrue(ibdo.getAllCurrentForms().contains("TESTCOORDINATE"));
+        } finally {
+            place.configG.removeEntry("COORDINATION_THREADS", "2");
+            place.configG.removeEntry("DEPENDS_ON_ThirdPlace", "FirstPlace");
+            removeMetadataOnly("FirstPlace", "SecondPlace", "ThirdPlace");
+            place.configurePlace();
+        }
+    }
+
+    @Test
+    void testStopConditionSetInAWaveStopsTheRestOfIt() throws Exception {
+        CoordinationPlace stopping = new CoordinationPlace(new ResourceReader().getConfigDataAsStream(this)) {
+            @Override
+            protected boolean shouldContinue(IBaseDataObject d, IServiceProviderPlace p) {
+                return !d.hasParameter("STOP");
+            }
+
+            @Override
+            protected boolean shouldSkip(IBaseDataObject d, IServiceProviderPlace p) {
+                return d.hasParameter("SKIP_" + p.getPlaceName());
+            }
+        };
+        stopping.configG.addEntry("COORDINATION_THREADS", "2");
+        for (String name : List.of("FirstPlace", "SecondPlace", "ThirdPlace", "FourthPlace")) {
+            stopping.configG.addEntry("METADATA_ONLY", name);
+        }
+        stopping.configurePlace();
+        try {
+            stopping.placeRefs = List.of(settingPlace("FirstPlace", "SKIP_SecondPlace"), settingPlace("SecondPlace", "SECOND_RAN"),
+                    settingPlace("ThirdPlace", "STOP"), settingPlace("FourthPlace", "FOURTH_RAN"));
+            assertEquals(1, stopping.planWaves(stopping.placeRefs).size());
+
+            IBaseDataObject ibdo = DataObjectFactory.getInstance("testing this".getBytes(), "test_file", "text");
+            stopping.process(ibdo);
+
+            assertTrue(ibdo.hasParameter("SKIP_SecondPlace"));
+            assertFalse(ibdo.hasParameter("SECOND_RAN"), "A place skipped by the results of an earlier place in its wave is dropped");
+            assertTrue(ibdo.hasParameter("STOP"));
+            assertFalse(ibdo.hasParameter("FOURTH_RAN"), "A stop set by an earlier place in the wave stops the places after it");
+        } finally {
+            stopping.configG.removeEntry("COORDINATION_THREADS", "2");
+            stopping.configurePlace();
+        }
+    }
+
+    @Test
+    void testOtherPlacesRunAlone() {
+        place.configG.addEntry("COORDINATION_THREADS", "2");
+        addMetadataOnly("FirstPlace", "ThirdPlace", "FourthPlace");
+        place.configurePlace();
+        try {
+            IServiceProviderPlace first = namedPlace("FirstPlace");
+            IServiceProviderPlace second = namedPlace("SecondPlace");
+            IServiceProviderPlace third = namedPlace("ThirdPlace");
+            IServiceProviderPlace fourth = namedPlace("FourthPlace");
+
+            assertEquals(List.of(List.of(first), List.of(second), List.of(third, fourth)), place.planWaves(List.of(first, second, third, fourth)));
+        } finally {
+            place.configG.removeEntry("COORDINATION_THREADS", "2");
+            removeMetadataOnly("FirstPlace", "ThirdPlace", "FourthPlace");
+            place.configurePlace();
+        }
+    }
+
+    @Test
+    void testChildrenFromOneWaveAreNumberedInOrder() throws Exception {
+        place.configG.addEntry("COORDINATION_THREADS", "2");
+        addMetadataOnly("FirstPlace", "SecondPlace");
+        place.configurePlace();
+        try {
+            IServiceProviderPlace first = sproutingPlace("FirstPlace", 1);
+            IServiceProviderPlace second = sproutingPlace("SecondPlace", 2);
+            place.placeRefs = List.of(first, second);
+
+            IBaseDataObject ibdo = DataObjectFactory.getInstance("testing this".getBytes(), "test_file", "text");
+            List<IBaseDataObject> sprouts = place.processHeavyDuty(ibdo);
+
+            assertEquals(List.of("test_file-att-1", "test_file-att-2", "test_file-att-3"),
+                    sprouts.stream().map(IBaseDataObject::getFilename).collect(Collectors.toList()));
+            assertEquals(List.of(1, 2, 3), sprouts.stream().map(IBaseDataObject::getBirthOrder).collect(Collectors.toList()));
+            assertEquals(3, ibdo.getNumChildren());
+        } finally {
+            place.configG.removeEntry("COORDINATION_THREADS", "2");
+            removeMetadataOnly("FirstPlace", "SecondPlace");
+            place.configurePlace();
+        }
+    }
+
+    private void addMetadataOnly(String... names) {
+        for (String name : names) {
+            place.configG.addEntry("METADATA_ONLY", name);
+        }
+    }
+
+    private void removeMetadataOnly(String... names) {
+        for (String name : names) {
+            place.configG.removeEntry("METADATA_ONLY", name);
+        }
+    }
+
+    private static IServiceProviderPlace sproutingPlace(String name, int count) throws Exception {
+        IServiceProviderPlace p = namedPlace(name);
+        when(p.agentProcessHeavyDuty(any(IBaseDataObject.class))).thenAnswer(invocation -> {
+            IBaseDataObject d = invocation.getArgument(0);
+            List<IBaseDataObject> children = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                int birthOrder = d.getNumChildren() + 1;
+                IBaseDataObject child = DataObjectFactory.getInstance("child".getBytes(), d.getFilename() + Family.SEP + birthOrder, "text");
+                child.setBirthOrder(birthOrder);
+                d.setNumChildren(birthOrder);
+                children.add(child);
+            }
+            return children;
+        });
+        return p;
+    }
+
+    private static IServiceProviderPlace settingPlace(String name, String parameter) throws Exception {
+        IServiceProviderPlace p = namedPlace(name);
+        doAnswer(invocation -> {
+            IBaseDataObject d = invocation.getArgument(0);
+            d.putParameter(parameter, "true");
+            return null;
+        }).when(p).agentProcessCall(any(IBaseDataObject.class));
+        return p;
+    }
+
+    private static IServiceProviderPlace namedPlace(String name) {
+        IServiceProviderPlace p = mock(IServiceProviderPlace.class);
+        when(p.getPlaceName()).thenReturn(name);
+        return p;
+    }
 }
@@ -4,6 +4,7 @@ import emissary.core.DataObjectFactory;
 import emissary.core.IBaseDataObject;
 import emissary.test.core.junit5.UnitTest;
 import emissary.util.io.ResourceReader;
+import emissary.util.shell.CoProcessPool;
 import emissary.util.shell.Executrix;
 
 import org.apache.commons.io.IOUtils;
@@ -107,6 +108,20 @@ class UnixCommandPlaceTest extends UnitTest {
         verify(mockLogger, times(LOG_MSGS.length)).info(anyString());
     }
 
+    @Test
+    void testUnixCommandPlaceCoProcess() throws Exception {
+        assertNotNull(place, "Place must be created");
+        createCoProcessScript();
+        place.setCoProcessPool(new CoProcessPool(new String[] {"/bin/bash", scriptFile.toString()}, 1, 0, 0, 10000));
+
+        place.process(payload);
+        place.process(payload);
+        byte[] altView = payload.getAlternateView("TEST_VIEW");
+        assertNotNull(altView, "Alt view should have been created");
+        assertEquals(FORM, payload.currentForm(), "Payload should have same current form");
+        assertEquals("abcdefg", new String(altView, StandardCharsets.UTF_8), "Co-process output should be the echoed payload");
+    }
+
     @Test
     void testFileProcess() throws Exception {
         Executrix e = mock(Executrix.class);
@@ -179,6 +194,20 @@ class UnixCommandPlaceTest extends UnitTest {
         return fos;
     }
 
+    private void createCoProcessScript() throws IOException {
+        try (OutputStream fos = startScript()) {
+            // Echo each length prefixed request back with a zero status
+            fos.write(("while :; do\n"
+                    + "  header=$(dd bs=1 count=4 2>/dev/null | od -An -tu1)\n"
+                    + "  set -- $header\n"
+                    + "  [ $# -eq 4 ] || exit 0\n"
+                    + "  printf '\\000\\000\\000\\000'\n"
+                    + "  printf \"\\\\$(printf %o $1)\\\\$(printf %o $2)\\\\$(printf %o $3)\\\\$(printf %o $4)\"\n"
+                    + "  dd bs=1 count=$(( ($1 << 24) | ($2 << 16) | ($3 << 8) | $4 )) 2>/dev/null\n"
+                    + "done\n").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
     private void createScript(Executrix.OUTPUT_TYPE ot) throws IOException {
         try (OutputStream fos = startScript()) {
             fos.write(("echo '" + W + "'").getBytes());
@@ -8,10 +8,12 @@ import emissary.test.core.junit5.extensions.EmissaryIsolatedClassLoaderExtension
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -86,6 +88,119 @@ class RollManagerTest extends UnitTest {
         assertFalse(rm.exec.getQueue().contains(r));
     }
 
+    @Test
+    void testSlowRollDoesNotDelayOthers() throws Exception {
+        RollManager rm = new RollManager(ConfigUtil.getConfigInfo(this.getClass()));
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            Roller slow = new Roller(TimeUnit.DAYS, 1, new Rollable() {
+                @Override
+                public void roll() {
+                    slowStarted.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                @Override
+                public boolean isRolling() {
+                    return false;
+                }
+
+                @Override
+                public void close() {
+                    // noop
+                }
+            }, 1);
+            RollableTest fastRollable = new RollableTest();
+            Roller fast = new Roller(TimeUnit.DAYS, 1, fastRollable, 1);
+            rm.addRoller(slow);
+            rm.addRoller(fast);
+
+            slow.incrementProgress();
+            assertTrue(slowStarted.await(5, TimeUnit.SECONDS));
+            fast.incrementProgress();
+            Assertions.assertNotNull(fastRollable.waitForThread(), "Fast roll completed while the slow roll was running");
+        } finally {
+            release.countDown();
+            rm.exec.shutdown();
+            rm.workers.shutdown();
+        }
+    }
+
+    @Test
+    void testPolicyCheckRollsOnAge() throws Exception {
+        RollManager rm = new RollManager(ConfigUtil.getConfigInfo(this.getClass()));
+        try {
+            RollableTest tr = new RollableTest();
+            Roller r = new Roller(TimeUnit.DAYS, 1, tr);
+            r.setPolicy(RollPolicy.builder().maxAgeMillis(1).build());
+            rm.addRoller(r);
+            r.recordWrite(1);
+            Thread.sleep(5);
+            rm.checkPolicies();
+            Assertions.assertNotNull(tr.waitForThread(), "Aged output rolled");
+        } finally {
+            rm.exec.shutdown();
+            rm.workers.shutdown();
+        }
+    }
+
+    @Test
+    void testRecoverOnAdd(@TempDir Path dir) throws Exception {
+        RollManager rm = new RollManager(ConfigUtil.getConfigInfo(this.getClass()));
+        try {
+            rm.intentLog = new RollIntentLog(dir);
+            // a roll that was running when the process died
+            rm.intentLog.begin("recovering");
+
+            RollableTest tr = new RollableTest();
+            Roller r = new Roller(TimeUnit.DAYS, 1, tr);
+            r.setName("recovering");
+            rm.addRoller(r);
+            Assertions.assertNotNull(tr.waitForThread(), "Interrupted roll recovered as soon as the roller is added");
+            for (int i = 0; i < 100 && rm.intentLog.isPending("recovering"); i++) {
+                Thread.sleep(10);
+            }
+            assertFalse(rm.intentLog.isPending("recovering"));
+        } finally {
+            rm.exec.shutdown();
+            rm.workers.shutdown();
+        }
+    }
+
+    @Test
+    void testRollersShareNoIntent(@TempDir Path dir) throws Exception {
+        RollManager rm = new RollManager(ConfigUtil.getConfigInfo(this.getClass()));
+        try {
+            rm.intentLog = new RollIntentLog(dir);
+
+            Roller unnamed = new Roller(TimeUnit.DAYS, 1, new RollableTest());
+            rm.addRoller(unnamed);
+            Assertions.assertNull(unnamed.getIntentLog(), "A roller without a name is not tracked");
+
+            Roller first = new Roller(TimeUnit.DAYS, 1, new RollableTest());
+            first.setName("output");
+            rm.addRoller(first);
+            Roller second = new Roller(TimeUnit.DAYS, 1, new RollableTest());
+            second.setName("output");
+            rm.addRoller(second);
+            Roller other = new Roller(TimeUnit.DAYS, 1, new RollableTest());
+            other.setName("other");
+            rm.addRoller(other);
+
+            Assertions.assertNotNull(first.getIntentLog());
+            Assertions.assertNull(second.getIntentLog(), "A second roller with the same name is not tracked");
+            Assertions.assertNotNull(other.getIntentLog());
+        } finally {
+            rm.exec.shutdown();
+            rm.workers.shutdown();
+        }
+    }
+
     static class RollTestObserver implements PropertyChangeListener {
         Object o;
         String prop;
@@ -0,0 +1,69 @@
+package emissary.roll;
+
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RollPolicyTest extends UnitTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testSizeLimits() {
+        RollPolicy policy = RollPolicy.builder().maxBytes(100).maxRecords(10).build();
+        assertFalse(policy.isSizeDue(99, 9));
+        assertTrue(policy.isSizeDue(100, 1), "Bytes limit reached");
+        assertTrue(policy.isSizeDue(1, 10), "Records limit reached");
+        assertFalse(policy.hasTimedLimits());
+    }
+
+    @Test
+    void testAgeLimit() {
+        RollPolicy policy = RollPolicy.builder().maxAgeMillis(1000).build();
+        assertTrue(policy.hasTimedLimits());
+        assertFalse(policy.isDue(10, 1, 999));
+        assertTrue(policy.isDue(10, 1, 1000));
+        assertFalse(policy.isDue(0, 0, 5000), "Nothing written, nothing to roll");
+    }
+
+    @Test
+    void testFreeSpaceLimit() {
+        RollPolicy plenty = RollPolicy.builder().minFreeBytes(dir, 1).build();
+        assertFalse(plenty.isLowOnSpace());
+        assertFalse(plenty.isDue(1, 1, 0));
+
+        RollPolicy low = RollPolicy.builder().minFreeBytes(dir, Long.MAX_VALUE).build();
+        assertTrue(low.isLowOnSpace());
+        assertTrue(low.isDue(1, 1, 0));
+        assertFalse(low.isDue(0, 0, 0), "Nothing written, nothing to roll");
+    }
+
+    @Test
+    void testUnlimited() {
+        RollPolicy policy = RollPolicy.builder().build();
+        assertFalse(policy.isDue(Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    void testBuildPolicy() {
+        assertNull(RollUtil.buildPolicy(Map.of("CLASS", "emissary.roll.RollableTest")));
+        RollPolicy policy = RollUtil.buildPolicy(Map.of("MAX_BYTES", "1024", "MAX_AGE_MILLIS", "60000", "MIN_FREE_BYTES", "10",
+                "FREE_SPACE_PATH", dir.toString()));
+        assertNotNull(policy);
+        assertEquals(1024, policy.getMaxBytes());
+        assertEquals(0, policy.getMaxRecords());
+        assertEquals(60000, policy.getMaxAgeMillis());
+        assertEquals(10, policy.getMinFreeBytes());
+    }
+}
@@ -2,12 +2,17 @@ package emissary.roll;
 
 import emissary.test.core.junit5.UnitTest;
 
+import emissary.core.EmissaryRuntimeException;
+
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Path;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class RollerTest extends UnitTest {
@@ -48,4 +53,134 @@ class RollerTest extends UnitTest {
         r.run();
         assertTrue(tr.wasRolled);
     }
+
+    @Test
+    void testPolicyRoll() {
+        RollableTest tr = new RollableTest();
+        Roller r = new Roller(TimeUnit.HOURS, 1, tr);
+        r.setPolicy(RollPolicy.builder().maxBytes(100).build());
+        r.addPropertyChangeListener(tr);
+
+        r.recordWrite(60);
+        assertEquals(0, tr.getUpdateCount());
+        r.recordWrite(60);
+        assertEquals(1, tr.getUpdateCount(), "Roll fired when the bytes limit is reached");
+        assertEquals(2, r.getRecords());
+
+        r.run();
+        assertTrue(tr.wasRolled);
+        assertEquals(0, r.getBytes());
+        assertEquals(0, r.getRecords());
+    }
+
+    @Test
+    void testRollIntentRecordedAndCleared(@TempDir Path dir) throws Exception {
+        RollIntentLog intents = new RollIntentLog(dir);
+        RollableTest tr = new RollableTest();
+        Roller r = new Roller(TimeUnit.MILLISECONDS, 1, tr);
+        r.setName("roller");
+        r.setIntentLog(intents);
+        assertFalse(r.isRecoveryPending());
+
+        r.run();
+        assertTrue(tr.wasRolled);
+        assertFalse(intents.isPending("roller"), "Intent is cleared once the roll completes");
+    }
+
+    @Test
+    void testUnnamedRollerIsNotTracked(@TempDir Path dir) throws Exception {
+        RollIntentLog intents = new RollIntentLog(dir);
+        intents.begin(RollableTest.class.getName());
+
+        RollableTest tr = new RollableTest();
+        Roller r = new Roller(TimeUnit.MILLISECONDS, 1, tr);
+        r.setIntentLog(intents);
+        assertFalse(r.isRecoveryPending(), "Another roller of the same class may own the intent");
+
+        r.run();
+        assertTrue(tr.wasRolled);
+        assertTrue(intents.isPending(RollableTest.class.getName()));
+    }
+
+    @Test
+    void testRecoveryAfterInterruptedRoll(@TempDir Path dir) throws Exception {
+        RollIntentLog intents = new RollIntentLog(dir);
+        CrashingRollable crashing = new CrashingRollable();
+        Roller r = new Roller(TimeUnit.MILLISECONDS, 1, crashing);
+        r.setName("roller");
+        r.setIntentLog(intents);
+
+        // the roll dies part way through, as it would if the process were killed
+        assertThrows(EmissaryRuntimeException.class, r::run);
+        assertTrue(intents.isPending("roller"), "Intent survives an interrupted roll");
+
+        // on restart the same roller finds the intent and recovers before rolling normally
+        CrashingRollable restarted = new CrashingRollable();
+        restarted.crash = false;
+        Roller recovered = new Roller(TimeUnit.MILLISECONDS, 1, restarted);
+        recovered.setName("roller");
+        recovered.setIntentLog(new RollIntentLog(dir));
+        assertTrue(recovered.isRecoveryPending());
+
+        recovered.run();
+        assertEquals(1, restarted.recovered);
+        assertEquals(0, restarted.rolled, "Recovery replaces the next roll");
+        assertFalse(recovered.isRecoveryPending());
+        assertFalse(intents.isPending("roller"));
+
+        recovered.run();
+        assertEquals(1, restarted.rolled);
+    }
+
+    @Test
+    void testFailedRecoveryIsRetried(@TempDir Path dir) throws Exception {
+        RollIntentLog intents = new RollIntentLog(dir);
+        intents.begin("roller");
+
+        CrashingRollable rollable = new CrashingRollable();
+        Roller r = new Roller(TimeUnit.MILLISECONDS, 1, rollable);
+        r.setName("roller");
+        r.setIntentLog(intents);
+
+        assertThrows(EmissaryRuntimeException.class, r::run);
+        assertTrue(r.isRecoveryPending(), "Recovery is retried until it succeeds");
+        assertTrue(intents.isPending("roller"));
+
+        rollable.crash = false;
+        r.run();
+        assertFalse(r.isRecoveryPending());
+        assertFalse(intents.isPending("roller"));
+    }
+
+    static class CrashingRollable implements Rollable {
+        boolean crash = true;
+        int rolled;
+        int recovered;
+
+        @Override
+        public void roll() {
+            if (crash) {
+                throw new EmissaryRuntimeException("Simulated crash during roll");
+            }
+            rolled++;
+        }
+
+        @Override
+        public void recover() {
+            if (crash) {
+                throw new EmissaryRuntimeException("Simulated crash during recovery");
+            }
+            recovered++;
+        }
+
+        @Override
+        public boolean isRolling() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+            // noop
+        }
+    }
 }
@@ -0,0 +1,127 @@
+package emissary.server;
+
+import emissary.test.core.junit5.UnitTest;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import javax.annotation.Nullable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmissaryServerConnectorTest extends UnitTest {
+
+    // long enough to be worth compressing
+    private static final String PADDING = " <entry>padding</entry>".repeat(20);
+
+    private Server server;
+
+    @AfterEach
+    public void stopServer() throws Exception {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    void testHttp2Connector() throws Exception {
+        final URI uri = start(true, new ProtocolHandler());
+
+        final Answer h2 = send(HttpClient.Version.HTTP_2, uri, false);
+        assertEquals(HttpClient.Version.HTTP_2, h2.version);
+        assertTrue(h2.body.startsWith("HTTP/2.0"), h2.body);
+
+        // peers that only speak HTTP/1.1 are still served
+        final Answer h1 = send(HttpClient.Version.HTTP_1_1, uri, false);
+        assertEquals(HttpClient.Version.HTTP_1_1, h1.version);
+        assertTrue(h1.body.startsWith("HTTP/1.1"), h1.body);
+    }
+
+    @Test
+    void testHttp1ConnectorFallsBack() throws Exception {
+        final URI uri = start(false, new ProtocolHandler());
+        final Answer response = send(HttpClient.Version.HTTP_2, uri, false);
+        assertEquals(HttpClient.Version.HTTP_1_1, response.version);
+        assertTrue(response.body.startsWith("HTTP/1.1"), response.body);
+    }
+
+    @Test
+    void testGzip() throws Exception {
+        final URI uri = start(true, EmissaryServer.buildGzipHandler(new ProtocolHandler()));
+        for (final HttpClient.Version version : HttpClient.Version.values()) {
+            final Answer compressed = send(version, uri, true);
+            assertEquals("gzip", compressed.encoding);
+            assertTrue(compressed.body.endsWith(PADDING));
+
+            final Answer plain = send(version, uri, false);
+            assertNull(plain.encoding);
+            assertTrue(plain.body.endsWith(PADDING));
+        }
+    }
+
+    private URI start(final boolean http2, final Handler handler) throws Exception {
+        server = new Server();
+        final ServerConnector connector = EmissaryServer.createHttpConnector(server, http2);
+        connector.setHost("localhost");
+        connector.setPort(0);
+        server.addConnector(connector);
+        server.setHandler(handler);
+        server.start();
+        return URI.create("http://localhost:" + connector.getLocalPort() + "/api/version");
+    }
+
+    private static Answer send(final HttpClient.Version version, final URI uri, final boolean gzip) throws IOException, InterruptedException {
+        final HttpRequest.Builder request = HttpRequest.newBuilder(uri).GET();
+        if (gzip) {
+            request.header("Accept-Encoding", "gzip");
+        }
+        final HttpResponse<InputStream> response =
+                HttpClient.newBuilder().version(version).build().send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        assertEquals(HttpServletResponse.SC_OK, response.statusCode());
+        final boolean compressed = response.headers().firstValue("Content-Encoding").filter("gzip"::equals).isPresent();
+        try (InputStream body = compressed ? new GZIPInputStream(response.body()) : response.body()) {
+            return new Answer(response, new String(body.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static final class Answer {
+        final HttpClient.Version version;
+        @Nullable
+        final String encoding;
+        final String body;
+
+        Answer(final HttpResponse<?> response, final String body) {
+            this.version = response.version();
+            this.encoding = response.headers().firstValue("Content-Encoding").orElse(null);
+            this.body = body;
+        }
+    }
+
+    // answers with the protocol the request arrived with
+    private static final class ProtocolHandler extends AbstractHandler {
+        @Override
+        public void handle(final String target, final Request baseRequest, final HttpServletRequest request, final HttpServletResponse response)
+                throws IOException {
+            baseRequest.setHandled(true);
+            response.setContentType("text/xml");
+            response.getOutputStream().write((request.getProtocol() + PADDING).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
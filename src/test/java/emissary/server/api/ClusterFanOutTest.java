@@ -0,0 +1,193 @@
+package emissary.server.api;
+
+import emissary.client.EmissaryClient;
+import emissary.client.response.MapResponseEntity;
+import emissary.test.core.junit5.UnitTest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClusterFanOutTest extends UnitTest {
+
+    private static final long SLOW_MILLIS = 3000;
+
+    private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+    private Server server;
+    private int port;
+    private ClusterFanOut fanOut;
+
+    @BeforeEach
+    public void startPeers() throws Exception {
+        server = new Server(0);
+        server.setHandler(new PeerHandler());
+        server.setStopTimeout(100);
+        server.start();
+        port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+    }
+
+    @AfterEach
+    public void stopPeers() throws Exception {
+        if (fanOut != null) {
+            fanOut.shutDown();
+        }
+        server.stop();
+    }
+
+    @Test
+    void testGathersEveryPeer() {
+        fanOut = fanOut(5000, 0);
+        final MapResponseEntity entity = local();
+        fanOut.gather(peers("one", "two", "three"), "api/version", MapResponseEntity.class, entity);
+        assertEquals(4, entity.getResponse().size());
+        assertEquals("up", entity.getResponse().get("three"));
+        assertTrue(entity.getErrors().isEmpty(), entity.getErrors().toString());
+    }
+
+    @Test
+    void testSlowAndFailingPeers() {
+        fanOut = fanOut(500, 0);
+        final MapResponseEntity entity = local();
+        final List<String> peers = peers("one", "slow", "fail");
+        peers.add("*.*.*.http://localhost:1/DirectoryPlace");
+
+        final long start = System.nanoTime();
+        fanOut.gather(peers, "api/version", MapResponseEntity.class, entity);
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsed < SLOW_MILLIS, "A slow peer stalled the call for " + elapsed + "ms");
+        assertEquals("up", entity.getResponse().get("one"));
+        assertEquals(2, entity.getResponse().size());
+        assertEquals(3, entity.getErrors().size(), entity.getErrors().toString());
+        assertTrue(entity.getErrors().stream().anyMatch(e -> e.startsWith(url("slow")) && e.contains("no answer")));
+        assertTrue(entity.getErrors().stream().anyMatch(e -> e.startsWith(url("fail")) && e.contains("500")));
+        assertTrue(entity.getErrors().stream().anyMatch(e -> e.startsWith("http://localhost:1/")));
+    }
+
+    @Test
+    void testPeersAreAskedConcurrently() {
+        fanOut = fanOut(5000, 0);
+        final MapResponseEntity entity = local();
+        final long start = System.nanoTime();
+        fanOut.gather(peers("wait1", "wait2", "wait3", "wait4"), "api/version", MapResponseEntity.class, entity);
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(5, entity.getResponse().size());
+        // asked one after another the four would take 2000ms
+        assertTrue(elapsed < 1500, "Took " + elapsed + "ms");
+    }
+
+    @Test
+    void testEveryPeerIsInFlightAtOnce() {
+        fanOut = fanOut(1500, 0);
+        final MapResponseEntity entity = local();
+        // two hosts so the connections to each stay within the pool limit per route
+        final List<String> peers = peers("wait1", "wait2", "wait3", "wait4");
+        for (int i = 5; i <= 8; i++) {
+            peers.add("*.*.*.http://127.0.0.1:" + port + "/wait" + i + "/DirectoryPlace");
+        }
+        fanOut.gather(peers, "api/version", MapResponseEntity.class, entity);
+        assertTrue(entity.getErrors().isEmpty(), entity.getErrors().toString());
+        assertEquals(9, entity.getResponse().size());
+    }
+
+    @Test
+    void testAnswersAreCached() {
+        fanOut = fanOut(5000, TimeUnit.MINUTES.toMillis(1));
+        for (int i = 0; i < 3; i++) {
+            fanOut.gather(peers("one", "fail"), "api/version", MapResponseEntity.class, local());
+        }
+        assertEquals(1, hits.get("one").get());
+        assertEquals(3, hits.get("fail").get(), "Failures are not cached");
+
+        fanOut.clearCache();
+        final MapResponseEntity entity = local();
+        fanOut.gather(peers("one"), "api/version", MapResponseEntity.class, entity);
+        assertEquals(2, hits.get("one").get());
+        assertEquals("up", entity.getResponse().get("one"));
+    }
+
+    @Test
+    void testNoCache() {
+        fanOut = fanOut(5000, 0);
+        for (int i = 0; i < 3; i++) {
+            fanOut.gather(peers("one"), "api/version", MapResponseEntity.class, local());
+        }
+        assertEquals(3, hits.get("one").get());
+    }
+
+    @Test
+    void testBadSettings() {
+        assertThrows(IllegalArgumentException.class, () -> fanOut(0, 0));
+    }
+
+    private static ClusterFanOut fanOut(final long timeout, final long ttl) {
+        return new ClusterFanOut(new EmissaryClient(), timeout, ttl, () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+    }
+
+    private static MapResponseEntity local() {
+        final MapResponseEntity entity = new MapResponseEntity();
+        entity.addKeyValue("local", "up");
+        return entity;
+    }
+
+    private List<String> peers(final String... names) {
+        final String[] keys = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            keys[i] = "*.*.*." + url(names[i]) + "DirectoryPlace";
+        }
+        return new ArrayList<>(Arrays.asList(keys));
+    }
+
+    private String url(final String name) {
+        return "http://localhost:" + port + "/" + name + "/";
+    }
+
+    // each peer is a path on the one server, the path says how it behaves
+    private final class PeerHandler extends AbstractHandler {
+        @Override
+        public void handle(final String target, final Request baseRequest, final HttpServletRequest request, final HttpServletResponse response)
+                throws IOException {
+            baseRequest.setHandled(true);
+            final String peer = target.substring(1, target.indexOf('/', 1));
+            hits.computeIfAbsent(peer, k -> new AtomicInteger()).incrementAndGet();
+            try {
+                if (peer.startsWith("slow")) {
+                    Thread.sleep(SLOW_MILLIS);
+                } else if (peer.startsWith("wait")) {
+                    Thread.sleep(500);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (peer.startsWith("fail")) {
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "broken");
+                return;
+            }
+            final MapResponseEntity entity = new MapResponseEntity();
+            entity.addKeyValue(peer, "up");
+            response.setContentType("application/json");
+            response.getOutputStream().write(new ObjectMapper().writeValueAsString(entity).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -252,9 +252,9 @@ public abstract class RegressionTest extends ExtractionTest {
     protected static class ClearDataBaseDataObject extends BaseDataObject {
         private static final long serialVersionUID = -8728006876784881020L;
 
+        @Override
         protected void clearData() {
-            theData = null;
-            seekableByteChannelFactory = null;
+            super.clearData();
         }
     }
 
@@ -0,0 +1,173 @@
+package emissary.transform.decode;
+
+import emissary.test.core.junit5.UnitTest;
+import emissary.util.CharacterCounterSet;
+import emissary.util.HtmlEntityMap;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TranscoderTest extends UnitTest {
+
+    private static HtmlEntityMap entities;
+
+    @BeforeAll
+    static void loadEntities() {
+        entities = new HtmlEntityMap();
+    }
+
+    @Test
+    void testHtml() {
+        final Transcoder html = new HtmlTranscoder();
+        assertEquals("Copy©Right", decode(html, "Copy&#169;Right"));
+        assertEquals("Copy©Right", decode(html, "Copy&#xA9;Right"));
+        assertEquals("Test \ud835\udca5 Script J", decode(html, "Test &#x1D4A5; Script J"));
+        assertEquals("&#12a; &#; &#x; &#1234567;", decode(html, "&#12a; &#; &#x; &#1234567;"), "Failed references are unchanged");
+        assertEquals("?", decode(html, "&#xD800;"), "Surrogates cannot be encoded");
+    }
+
+    @Test
+    void testHtmlEntities() {
+        final Transcoder entity = new HtmlEntityTranscoder(entities);
+        assertEquals("Test Space", decode(entity, "Test&nbsp;Space"));
+        assertEquals("a»b", decode(entity, "a&;raquo;b"), "Extra semicolon");
+        assertEquals("© 2024", decode(entity, "&copy 2024"), "Space terminator is kept");
+        assertEquals("&unknown; &", decode(entity, "&unknown; &"));
+    }
+
+    @Test
+    void testJson() {
+        final Transcoder json = new JsonTranscoder();
+        assertEquals("<This is a Test>", decode(json, "\\u003cThis is a Test\\u003E"));
+        assertEquals("\"77 \"", decode(json, "\\04277 \\42"));
+        assertEquals("a\nb\tc\rd\"e/f\\", decode(json, "a\\nb\\tc\\rd\\\"e\\/f\\\\"));
+        assertEquals("\\ufoodebar \\99 \\u", decode(json, "\\ufoodebar \\99 \\u"), "Failed escapes are unchanged");
+    }
+
+    @Test
+    void testJavascript() {
+        final Transcoder javascript = new JavascriptTranscoder();
+        assertEquals("AB١", decode(javascript, "\\u0041\\u0042\\u0661"));
+        assertEquals("\\U0041", decode(javascript, "\\U0041"), "Only lower case u");
+        assertEquals("a\nb\nc", decode(javascript, "a\\nb\\rc"), "Escape letter is consumed");
+    }
+
+    @Test
+    void testSplitWritesMatchWhole() throws IOException {
+        final Transcoder[] transcoders = {new HtmlTranscoder(64), new HtmlEntityTranscoder(entities, 64), new JsonTranscoder(64),
+                new JavascriptTranscoder(64)};
+        final String[] pieces = {"&", "#", "x", "41", ";", "amp", "nbsp", " ", "\\", "u", "00e9", "42", "n", "abc", "é", "CounterClockwiseContourIntegral"};
+        final Random random = new Random(5L);
+        for (int n = 0; n < 2000; n++) {
+            final StringBuilder sb = new StringBuilder();
+            for (int p = random.nextInt(40); p > 0; p--) {
+                sb.append(pieces[random.nextInt(pieces.length)]);
+            }
+            final byte[] data = sb.toString().getBytes(StandardCharsets.UTF_8);
+            for (final Transcoder transcoder : transcoders) {
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                try (WritableByteChannel channel = transcoder.wrap(Channels.newChannel(out), null)) {
+                    int pos = 0;
+                    while (pos < data.length) {
+                        final int len = Math.min(data.length - pos, random.nextInt(9));
+                        channel.write(ByteBuffer.wrap(data, pos, len));
+                        pos += len;
+                    }
+                }
+                assertArrayEquals(transcoder.transcode(data, null), out.toByteArray(), sb.toString());
+            }
+        }
+    }
+
+    @Test
+    void testChannels() throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 50_000; i++) {
+            sb.append("x&#x3b1;&amp;y ");
+            expected.append("xα&y ");
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final CharacterCounterSet counters = new CharacterCounterSet();
+        final Transcoder html = new HtmlTranscoder(256).then(new HtmlEntityTranscoder(entities, 256));
+        html.transcode(Channels.newChannel(new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8))),
+                Channels.newChannel(out), counters);
+        assertEquals(expected.toString(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+        assertEquals(50_000, counters.getLetterCount());
+        assertEquals(50_000, counters.getPunctuationCount());
+    }
+
+    @Test
+    void testChainMatchesTwoPasses() {
+        final Transcoder html = new HtmlTranscoder();
+        final Transcoder entity = new HtmlEntityTranscoder(entities);
+        final byte[] data = "&#38;amp; &amp;#65; &#x26;lt; &lt;".getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(entity.transcode(html.transcode(data, null), null), html.then(entity).transcode(data, null));
+    }
+
+    @Test
+    void testChainStagesCountApart() throws IOException {
+        final Transcoder chain = new HtmlTranscoder().then(new HtmlEntityTranscoder(entities)).then(new JsonTranscoder());
+        assertEquals(3, chain.stages());
+
+        final CharacterCounterSet html = new CharacterCounterSet();
+        final CharacterCounterSet entity = new CharacterCounterSet();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (WritableByteChannel channel = chain.wrapStages(Channels.newChannel(out), Arrays.asList(html, entity, null))) {
+            channel.write(ByteBuffer.wrap("&#38;amp; &#65;".getBytes(StandardCharsets.UTF_8)));
+        }
+        assertEquals("& A", new String(out.toByteArray(), StandardCharsets.UTF_8));
+        assertEquals(1, html.getPunctuationCount());
+        assertEquals(1, html.getLetterCount());
+        assertEquals(1, entity.getPunctuationCount());
+        assertEquals(0, entity.getLetterCount());
+
+        assertThrows(IllegalArgumentException.class, () -> chain.wrapStages(Channels.newChannel(out), List.of(html, entity)));
+    }
+
+    @Test
+    void testTranscodeLeavesChannelOpen() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (WritableByteChannel channel = Channels.newChannel(out)) {
+            new JsonTranscoder().transcode(Channels.newChannel(new ByteArrayInputStream("\\u0041".getBytes(StandardCharsets.UTF_8))), channel,
+                    null);
+            assertTrue(channel.isOpen());
+        }
+        assertEquals("A", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testWriteAfterClose() throws IOException {
+        final WritableByteChannel channel = new JsonTranscoder().wrap(Channels.newChannel(new ByteArrayOutputStream()), null);
+        channel.close();
+        assertFalse(channel.isOpen());
+        assertThrows(ClosedChannelException.class, () -> channel.write(ByteBuffer.allocate(1)));
+    }
+
+    @Test
+    void testBufferTooSmall() {
+        assertThrows(IllegalArgumentException.class, () -> new HtmlTranscoder(EscapeTranscoder.MIN_BUFFER_SIZE - 1));
+    }
+
+    private static String decode(final Transcoder transcoder, final String s) {
+        return new String(transcoder.transcode(s.getBytes(StandardCharsets.UTF_8), null), StandardCharsets.UTF_8);
+    }
+}
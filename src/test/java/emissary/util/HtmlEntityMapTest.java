@@ -6,7 +6,10 @@ import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class HtmlEntityMapTest extends UnitTest {
@@ -21,4 +24,37 @@ class HtmlEntityMapTest extends UnitTest {
         assertTrue(report.contains("&Uarr;"), "HtmlEntityMap must contain escaped output");
         assertTrue(report.contains("\u219F"), "HtmlEntityMap must contain utf chars");
     }
+
+    @Test
+    void testIndexOfEveryEntity() {
+        HtmlEntityMap h = new HtmlEntityMap();
+        assertTrue(h.entityMap.size() > 2000, "Configured entities must be loaded");
+        for (String name : h.entityMap.keySet()) {
+            byte[] padded = ("xx" + name + "yy").getBytes(StandardCharsets.UTF_8);
+            int index = h.indexOfHtmlEntity(padded, 2, name.length());
+            assertTrue(index >= 0, "Entity must be found " + name);
+            assertEquals(h.getValueForHtmlEntity(name), h.getValue(index));
+            ByteBuffer utf8 = h.getUtf8Value(index);
+            byte[] value = new byte[utf8.remaining()];
+            utf8.get(value);
+            assertEquals(h.getValue(index), new String(value, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testIndexOfUnknownEntity() {
+        HtmlEntityMap h = new HtmlEntityMap();
+        for (String name : new String[] {"", "nbs", "nbspx", "NBSP", "CounterClockwiseContourIntegralx", "\u00e9"}) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            assertEquals(-1, h.indexOfHtmlEntity(bytes, 0, bytes.length), "Entity must not be found " + name);
+        }
+    }
+
+    @Test
+    void testIndexOfWithAmpersand() {
+        HtmlEntityMap h = new HtmlEntityMap();
+        byte[] bytes = "&amp;".getBytes(StandardCharsets.UTF_8);
+        assertEquals(h.indexOfHtmlEntity(bytes, 1, 3), h.indexOfHtmlEntity(bytes, 0, bytes.length));
+        assertEquals("&", h.getValue(h.indexOfHtmlEntity(bytes, 0, 4)));
+    }
 }
@@ -0,0 +1,174 @@
+package emissary.util;
+
+import emissary.core.channels.SeekableByteChannelHelper;
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextStatsTest extends UnitTest {
+
+    // pieces that exercise every branch of the utf8 checks when glued together at random
+    private static final String[] PIECES = {"a", "Z", " ", "\t", "\n", "\r", "\f", "\u0000", "\u0007", "\u001b", "\u007f", "\u0085", "\u00e9", "\u0800",
+            "\u2003", "\u2029", "\u3000", "\ud7ff", "\ue000", "\ufeff", "\ufffd", "\uffff", "\ud83d\ude00", "\udbff\udfff"};
+
+    private static final int[] RAW = {0x80, 0xbf, 0xc0, 0xc1, 0xc2, 0xdf, 0xe0, 0xed, 0xef, 0xf0, 0xf4, 0xf5, 0xf8, 0xfc, 0xff, 0x9f, 0xa0};
+
+    @Test
+    void testAgreesWithExistingImplementations() {
+        final Random random = new Random(0x5eedL);
+        for (int n = 0; n < 5000; n++) {
+            final byte[] data = randomData(random);
+            final TextStats stats = TextStats.of(data);
+            final String msg = "Mismatch for " + Hexl.toUnformattedHexString(data);
+            assertEquals(CharsetUtil.isUtf8(data), stats.isUtf8(), msg);
+            assertEquals(ByteUtil.containsNonIndexableBytes(new ByteArrayInputStream(data)), stats.containsNonIndexableBytes(), msg);
+            assertEquals(wellFormed(data), stats.isWellFormedUtf8(), msg);
+            assertEquals(entropy(data), stats.getEntropy(), msg);
+            assertEquals(entropy(data) < 6.0, Entropy.checkText(data), msg);
+            assertEquals(ascii(data), stats.isAscii(), msg);
+            assertEquals(data.length, stats.getLength(), msg);
+        }
+    }
+
+    @Test
+    void testPiecesAgreeWithWhole() {
+        final Random random = new Random(42L);
+        for (int n = 0; n < 1000; n++) {
+            final byte[] data = randomData(random);
+            final TextStats whole = TextStats.of(data);
+            final TextStats pieces = new TextStats();
+            int pos = 0;
+            while (pos < data.length) {
+                final int len = Math.min(data.length - pos, random.nextInt(4));
+                pieces.update(data, pos, len);
+                pos += len;
+            }
+            assertEquals(whole.isUtf8(), pieces.isUtf8());
+            assertEquals(whole.isWellFormedUtf8(), pieces.isWellFormedUtf8());
+            assertEquals(whole.containsNonIndexableBytes(), pieces.containsNonIndexableBytes());
+            assertEquals(whole.getNonIndexableCount(), pieces.getNonIndexableCount());
+            assertEquals(whole.getControlCount(), pieces.getControlCount());
+            assertArrayEquals(whole.getHistogram(), pieces.getHistogram());
+        }
+    }
+
+    @Test
+    void testCounts() {
+        final TextStats stats = TextStats.of("a\tb\u0000\u0007\u2028\u00e9".getBytes(StandardCharsets.UTF_8));
+        assertEquals(10, stats.getLength());
+        assertEquals(2, stats.getControlCount());
+        assertEquals(3, stats.getNonIndexableCount());
+        assertEquals(1, stats.getCount('a'));
+        assertFalse(stats.isAscii());
+        assertTrue(stats.isUtf8());
+        assertTrue(stats.containsNonIndexableBytes());
+    }
+
+    @Test
+    void testEmpty() {
+        final TextStats stats = TextStats.of(new byte[0]);
+        assertTrue(stats.isUtf8());
+        assertTrue(stats.isAscii());
+        assertTrue(stats.isText());
+        assertFalse(stats.containsNonIndexableBytes());
+        assertEquals(0.0, stats.getEntropy());
+    }
+
+    @Test
+    void testTruncatedSequence() {
+        final byte[] data = "\u00e9\u0800".getBytes(StandardCharsets.UTF_8);
+        final TextStats stats = TextStats.of(data, 0, data.length - 1);
+        assertFalse(stats.isUtf8());
+        assertFalse(stats.isWellFormedUtf8());
+        assertTrue(stats.containsNonIndexableBytes());
+        assertEquals(0, stats.getNonIndexableCount());
+    }
+
+    @Test
+    void testChannel() throws IOException {
+        final byte[] data = randomData(new Random(7L));
+        try (SeekableByteChannel channel = SeekableByteChannelHelper.memory(data).create()) {
+            final TextStats stats = TextStats.of(channel);
+            assertEquals(data.length, stats.getLength());
+            assertEquals(CharsetUtil.isUtf8(data), stats.isUtf8());
+            assertArrayEquals(TextStats.of(data).getHistogram(), stats.getHistogram());
+        }
+    }
+
+    @Test
+    void testInvalidRange() {
+        final TextStats stats = new TextStats();
+        final byte[] data = new byte[4];
+        assertThrows(IllegalArgumentException.class, () -> stats.update(data, 2, 3));
+        assertThrows(IllegalArgumentException.class, () -> stats.update(data, -1, 1));
+    }
+
+    private static byte[] randomData(final Random random) {
+        final int pieces = random.nextInt(12);
+        final byte[][] parts = new byte[pieces][];
+        int size = 0;
+        for (int i = 0; i < pieces; i++) {
+            if (random.nextInt(5) == 0) {
+                parts[i] = new byte[] {(byte) RAW[random.nextInt(RAW.length)]};
+            } else {
+                parts[i] = PIECES[random.nextInt(PIECES.length)].getBytes(StandardCharsets.UTF_8);
+            }
+            size += parts[i].length;
+        }
+        final byte[] data = new byte[size];
+        int pos = 0;
+        for (final byte[] part : parts) {
+            System.arraycopy(part, 0, data, pos, part.length);
+            pos += part.length;
+        }
+        return data;
+    }
+
+    private static boolean wellFormed(final byte[] data) {
+        try {
+            StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(data));
+            return true;
+        } catch (CharacterCodingException e) {
+            return false;
+        }
+    }
+
+    private static boolean ascii(final byte[] data) {
+        for (final byte b : data) {
+            if (b < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // the calculation Entropy used before it moved to TextStats
+    private static double entropy(final byte[] data) {
+        final int[] histogram = new int[256];
+        for (final byte b : data) {
+            histogram[b & 0xff]++;
+        }
+        double entropy = 0;
+        for (int i = 0; i < 256; ++i) {
+            if (histogram[i] != 0) {
+                final double relativeFreq = (double) histogram[i] / (double) data.length;
+                entropy = entropy + (relativeFreq * Math.log(1 / relativeFreq));
+            }
+        }
+        return entropy / Math.log(2);
+    }
+}
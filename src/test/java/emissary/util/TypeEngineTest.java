@@ -7,11 +7,33 @@ import emissary.test.core.junit5.UnitTest;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TypeEngineTest extends UnitTest {
+
+    @TempDir
+    Path configDir;
+
     @BeforeEach
     public void configureTest() throws EmissaryException {
         setConfig(null, true);
@@ -50,4 +72,148 @@ class TypeEngineTest extends UnitTest {
         assertEquals("newstuff", engine.getFormByExtension("test", "blah.WHATEVER"), "File extension chopping must still match");
         assertEquals("newstuff", engine.getFormByExtension("test", "WHATEVER"), "File extension chopping must still match");
     }
+
+    @Test
+    void testLabelsAreCaseFolded() {
+        final TypeEngine engine = new TypeEngine(Collections.singletonList("test-types.cfg"));
+        assertEquals("XYZZY", engine.getForm("test", "whatever"));
+        assertEquals("XYZZY", engine.getForm("test", "WhatEver"));
+
+        engine.addType("test", "lower", "LOWER");
+        assertEquals("LOWER", engine.getForm("test", "LOWER"));
+        assertEquals("LOWER", engine.getForm("test", "lower"));
+    }
+
+    @Test
+    void testMultiDotExtensions() {
+        final TypeEngine engine = new TypeEngine();
+        engine.addType("ext", "GZ", "GZIP");
+        engine.addType("ext", "tar.gz", "TARGZ");
+
+        assertEquals("TARGZ", engine.getFormByExtension("ext", "backup.tar.gz"));
+        assertEquals("TARGZ", engine.getFormByExtension("ext", "BACKUP.TAR.GZ"));
+        assertEquals("TARGZ", engine.getFormByExtension("ext", "one.more.tar.gz"));
+        assertEquals("GZIP", engine.getFormByExtension("ext", "backup.gz"));
+        assertEquals("GZIP", engine.getFormByExtension("ext", "backup.star.gz"), "Only whole extensions match");
+        assertEquals("GZIP", engine.getFormByExtension("ext", "tar.gz"), "A name is not its own extension");
+        assertEquals("GZIP", engine.getFormByExtension("ext", "gz"));
+        assertNull(engine.getFormByExtension("ext", "backup.agz"));
+        assertNull(engine.getFormByExtension("ext", "backup.gz.old"));
+        assertNull(engine.getFormByExtension("ext", "backup."));
+        assertNull(engine.getFormByExtension("nope", "backup.gz"));
+        assertNull(engine.getFormByExtension(null, "backup.gz"));
+    }
+
+    @Test
+    void testReload() throws IOException {
+        final String name = write("reload-types.cfg", "ZIP = \"OLD\"", 1);
+        final TypeEngine engine = new TypeEngine(Collections.singletonList(name));
+        engine.addType("reload", "EXTRA", "KEPT");
+        assertEquals("OLD", engine.getForm("reload", "ZIP"));
+
+        write("reload-types.cfg", "ZIP = \"NEWER\"\nJAR = \"JAVA\"", 2);
+        assertEquals("OLD", engine.getForm("reload", "ZIP"), "Changes are not seen before a reload");
+        engine.reload();
+        assertEquals("NEWER", engine.getForm("reload", "ZIP"));
+        assertEquals("JAVA", engine.getFormByExtension("reload", "lib.jar"));
+        assertEquals("KEPT", engine.getForm("reload", "EXTRA"), "Extra types must survive a reload");
+
+        Files.delete(configDir.resolve("reload-types.cfg"));
+        engine.reload();
+        assertEquals("NEWER", engine.getForm("reload", "ZIP"), "Unreadable files keep their mappings");
+    }
+
+    @Test
+    void testWatching() throws Exception {
+        final String name = write("watch-types.cfg", "ZIP = \"OLD\"", 1);
+        final Configurator conf = new ServiceConfigGuide();
+        conf.addEntry("TYPE_ENGINE_FILE", name);
+        conf.addEntry("TYPE_ENGINE_RELOAD_INTERVAL", "20");
+        final TypeEngine engine = new TypeEngine(conf);
+        try {
+            assertTrue(engine.isWatching());
+            assertEquals("OLD", engine.getForm("watch", "ZIP"));
+            write("watch-types.cfg", "ZIP = \"NEWER\"", 2);
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (!"NEWER".equals(engine.getForm("watch", "ZIP")) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals("NEWER", engine.getForm("watch", "ZIP"));
+        } finally {
+            engine.stopWatching();
+        }
+        assertFalse(engine.isWatching());
+        assertThrows(IllegalArgumentException.class, () -> engine.startWatching(0));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void testDeprecatedMappingsSeenOnReload() {
+        final TypeEngine engine = new TypeEngine(Collections.singletonList("test-types.cfg")) {
+            {
+                assertTrue(contextMapping.containsKey("test"));
+                extraMapping.computeIfAbsent("test", k -> new HashMap<>()).put("direct", "DIRECT");
+            }
+        };
+        assertNull(engine.getForm("test", "DIRECT"), "Direct changes are not seen before a reload");
+        engine.reload();
+        assertEquals("DIRECT", engine.getForm("test", "direct"));
+        assertEquals("XYZZY", engine.getForm("test", "WHATEVER"));
+    }
+
+    @Test
+    void testSwapWhileLookingUp() throws Exception {
+        final String name = write("swap-types.cfg", "TAR = \"TAPE\"\nZIP = \"V0\"", 1);
+        final TypeEngine engine = new TypeEngine(Collections.singletonList(name));
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<String> failure = new AtomicReference<>();
+        final CountDownLatch started = new CountDownLatch(4);
+
+        final List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            final Thread t = new Thread(() -> {
+                started.countDown();
+                int last = 0;
+                while (!done.get() && failure.get() == null) {
+                    final String tar = engine.getFormByExtension("swap", "backup.tar");
+                    final String zip = engine.getForm("swap", "zip");
+                    if (!"TAPE".equals(tar) || zip == null || !zip.startsWith("V")) {
+                        failure.compareAndSet(null, "tar=" + tar + " zip=" + zip);
+                        return;
+                    }
+                    final int version = Integer.parseInt(zip.substring(1));
+                    if (version < last) {
+                        failure.compareAndSet(null, "went back from V" + last + " to " + zip);
+                        return;
+                    }
+                    last = version;
+                }
+            });
+            readers.add(t);
+            t.start();
+        }
+
+        started.await();
+        for (int i = 1; i <= 500; i++) {
+            engine.addType("swap", "ZIP", "V" + i);
+            if (i % 50 == 0) {
+                engine.reload();
+            }
+        }
+        done.set(true);
+        for (final Thread t : readers) {
+            t.join();
+        }
+        assertNull(failure.get());
+        assertEquals("V500", engine.getForm("swap", "ZIP"));
+    }
+
+    private String write(final String file, final String mappings, final int generation) throws IOException {
+        final String engineName = file.substring(0, file.indexOf('-'));
+        final Path path = configDir.resolve(file);
+        Files.write(path, ("ENGINE_TYPE = \"" + engineName + "\"\n" + mappings + "\n").getBytes(StandardCharsets.UTF_8));
+        // make each generation look changed even on coarse file system clocks
+        Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() + generation * 10_000L));
+        return path.toString();
+    }
 }
@@ -0,0 +1,85 @@
+package emissary.util.io;
+
+import emissary.core.channels.SeekableByteChannelHelper;
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpillingOutputStreamTest extends UnitTest {
+
+    private static byte[] read(final SpillingOutputStream stream) throws IOException {
+        return SeekableByteChannelHelper.getByteArrayFromChannel(stream.getChannelFactory(), (int) stream.size());
+    }
+
+    @Test
+    void testInMemory(@TempDir final Path dir) throws IOException {
+        final SpillingOutputStream stream = new SpillingOutputStream(10, dir);
+        stream.write("abc".getBytes(StandardCharsets.UTF_8));
+        stream.write('d');
+        stream.write("0123456789".getBytes(StandardCharsets.UTF_8), 4, 6);
+        stream.close();
+
+        assertFalse(stream.isSpilled());
+        assertNull(stream.getFile());
+        assertEquals(10, stream.size());
+        assertArrayEquals("abcd456789".getBytes(StandardCharsets.UTF_8), read(stream));
+        assertTrue(stream.delete());
+    }
+
+    @Test
+    void testSpill(@TempDir final Path dir) throws IOException {
+        final SpillingOutputStream stream = new SpillingOutputStream(4, dir);
+        stream.write("abc".getBytes(StandardCharsets.UTF_8));
+        assertFalse(stream.isSpilled());
+        stream.write("defgh".getBytes(StandardCharsets.UTF_8));
+        assertTrue(stream.isSpilled());
+        stream.write('i');
+        stream.close();
+
+        final Path file = stream.getFile();
+        assertTrue(Files.exists(file));
+        assertEquals(9, stream.size());
+        assertArrayEquals("abcdefghi".getBytes(StandardCharsets.UTF_8), read(stream));
+
+        assertTrue(stream.delete());
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void testZeroMemoryLimit(@TempDir final Path dir) throws IOException {
+        final SpillingOutputStream stream = new SpillingOutputStream(0, dir);
+        stream.close();
+        assertFalse(stream.isSpilled());
+        assertEquals(0, read(stream).length);
+
+        final SpillingOutputStream spilled = new SpillingOutputStream(0, dir);
+        spilled.write('x');
+        spilled.close();
+        assertTrue(spilled.isSpilled());
+        assertArrayEquals(new byte[] {'x'}, read(spilled));
+        assertTrue(spilled.delete());
+    }
+
+    @Test
+    void testMustCloseBeforeReading(@TempDir final Path dir) throws IOException {
+        final SpillingOutputStream stream = new SpillingOutputStream(10, dir);
+        stream.write('a');
+        assertThrows(IllegalArgumentException.class, stream::getChannelFactory);
+        stream.close();
+        assertThrows(IllegalArgumentException.class, () -> stream.write('b'));
+        assertThrows(IllegalArgumentException.class, () -> new SpillingOutputStream(-1, dir));
+    }
+}
@@ -0,0 +1,199 @@
+package emissary.util.search;
+
+import emissary.core.channels.InMemoryChannelFactory;
+import emissary.core.channels.SeekableByteChannelFactory;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AhoCorasickAutomatonTest {
+
+    private static final byte[][] KEYWORDS = {{1, 2, 3}, {2, 3}, {3}, {(byte) 0xff, 0, (byte) 0x80}, {1, 2, 1, 2}, {2, 3}};
+
+    private static byte[] randomData(final long seed, final int length) {
+        final Random random = new Random(seed);
+        final byte[] data = new byte[length];
+
+        // Use a small alphabet so that keywords occur frequently
+        final byte[] alphabet = {0, 1, 2, 3, (byte) 0x80, (byte) 0xff};
+        for (int i = 0; i < length; i++) {
+            data[i] = alphabet[random.nextInt(alphabet.length)];
+        }
+        return data;
+    }
+
+    /**
+     * Expected hits in (end offset, longest keyword first, lowest id first) order.
+     */
+    private static List<long[]> naiveHits(final byte[][] keywords, final byte[] data) {
+        final List<long[]> hits = new ArrayList<>();
+
+        for (int end = 0; end < data.length; end++) {
+            final List<long[]> atEnd = new ArrayList<>();
+            for (int id = 0; id < keywords.length; id++) {
+                final int start = end - keywords[id].length + 1;
+                if (start >= 0 && Arrays.equals(keywords[id], Arrays.copyOfRange(data, start, end + 1))) {
+                    atEnd.add(new long[] {start, id});
+                }
+            }
+            atEnd.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+            hits.addAll(atEnd);
+        }
+        return hits;
+    }
+
+    private static void assertHits(final List<long[]> expected, final HitBuffer actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i)[0], actual.getOffset(i), "offset of hit " + i);
+            assertEquals(expected.get(i)[1], actual.getId(i), "id of hit " + i);
+            assertEquals(KEYWORDS[(int) expected.get(i)[1]].length, actual.getLength(i), "length of hit " + i);
+        }
+    }
+
+    @Test
+    void testMatchesNaiveSearch() {
+        final AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(KEYWORDS);
+        final HitBuffer hits = new HitBuffer(1);
+
+        for (long seed = 0; seed < 20; seed++) {
+            final byte[] data = randomData(seed, 1000);
+
+            hits.clear();
+            automaton.scan(data, hits);
+
+            assertHits(naiveHits(KEYWORDS, data), hits);
+        }
+    }
+
+    @Test
+    void testResumeAcrossBuffers() {
+        final AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(KEYWORDS);
+        final byte[] data = randomData(0, 1000);
+        final HitBuffer hits = new HitBuffer();
+
+        // Scan the data as three separate arrays, as if read in chunks
+        final byte[] first = Arrays.copyOfRange(data, 0, 333);
+        final byte[] second = Arrays.copyOfRange(data, 333, 334);
+        final byte[] third = Arrays.copyOfRange(data, 334, 1000);
+        int state = automaton.scan(first, 0, first.length, AhoCorasickAutomaton.INITIAL_STATE, 0, hits);
+        state = automaton.scan(second, 0, second.length, state, 333, hits);
+        automaton.scan(third, 0, third.length, state, 334, hits);
+
+        assertHits(naiveHits(KEYWORDS, data), hits);
+    }
+
+    @Test
+    void testScanChannel() throws IOException {
+        final AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(KEYWORDS);
+        final byte[] data = randomData(1, 10000);
+        final SeekableByteChannelFactory sbcf = InMemoryChannelFactory.create(data);
+        final List<long[]> expected = naiveHits(KEYWORDS, data);
+
+        for (final int chunkSize : new int[] {1, 2, 7, 4096, 20000}) {
+            final HitBuffer hits = new HitBuffer();
+            try (SeekableByteChannel channel = sbcf.create()) {
+                automaton.scan(channel, chunkSize, hits);
+            }
+            assertHits(expected, hits);
+        }
+
+        final HitBuffer hits = new HitBuffer();
+        automaton.scan(sbcf, hits);
+        assertHits(expected, hits);
+    }
+
+    @Test
+    void testScanChannelFromPosition() throws IOException {
+        final AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(new String[] {"fox", "dog"});
+        final HitBuffer hits = new HitBuffer();
+
+        try (SeekableByteChannel channel = InMemoryChannelFactory.create("the fox and the dog".getBytes()).create()) {
+            channel.position(5);
+            automaton.scan(channel, 4, hits);
+        }
+
+        assertEquals(1, hits.size());
+        assertEquals(16, hits.getOffset(0));
+        assertEquals(1, hits.getId(0));
+    }
+
+    @Test
+    void testConcurrentScans() throws Exception {
+        final AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(KEYWORDS);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            final List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                final long seed = i;
+                results.add(executor.submit(() -> {
+                    final byte[] data = randomData(seed, 5000);
+                    final HitBuffer hits = new HitBuffer();
+                    for (int j = 0; j < 10; j++) {
+                        hits.clear();
+                        automaton.scan(data, hits);
+                    }
+                    assertHits(naiveHits(KEYWORDS, data), hits);
+                    return true;
+                }));
+            }
+            for (final Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testStateCount() {
+        final AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(new String[] {"he", "she", "his", "hers"});
+
+        assertEquals(4, automaton.getKeywordCount());
+        assertEquals(3, automaton.getKeywordLength(1));
+        // root, h, he, her, hers, hi, his, s, sh, she
+        assertEquals(10, automaton.getStateCount());
+    }
+
+    @Test
+    void testInvalidKeywords() {
+        assertThrows(NullPointerException.class, () -> new AhoCorasickAutomaton((String[]) null));
+        assertThrows(NullPointerException.class, () -> new AhoCorasickAutomaton(new String[] {"a", null}));
+        assertThrows(IllegalArgumentException.class, () -> new AhoCorasickAutomaton(new String[] {"a", ""}));
+        assertThrows(IllegalArgumentException.class, () -> new AhoCorasickAutomaton(new byte[][] {null}));
+    }
+
+    @Test
+    void testHitBuffer() {
+        final HitBuffer hits = new HitBuffer(1);
+
+        hits.add(1, 2, 3);
+        hits.add(3, 4, 5);
+        hits.add(Integer.MAX_VALUE + 1L, 5, 6);
+
+        assertEquals(3, hits.size());
+        assertEquals(3, hits.getOffset(1));
+        assertEquals(4, hits.getId(1));
+        assertEquals(5, hits.getLength(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> hits.getId(3));
+        assertThrows(ArithmeticException.class, hits::toHitList);
+
+        hits.clear();
+        assertTrue(hits.isEmpty());
+        assertTrue(hits.toHitList().isEmpty());
+    }
+}
@@ -0,0 +1,154 @@
+package emissary.util.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AhoCorasickScannerTest {
+
+    private final String[] defaultKeywords = {"fox", "dog"};
+    private static final byte[] DEFAULT_DATA = "the quick brown fox jumped over the lazy dog".getBytes(StandardCharsets.UTF_8);
+
+    private static void assertHit(final Hit hit, final int id, final int offset) {
+        assertEquals(id, hit.getId());
+        assertEquals(offset, hit.getOffset());
+    }
+
+    @Test
+    void testFindAll() {
+        AhoCorasickScanner scanner = new AhoCorasickScanner();
+        scanner.loadKeywords(defaultKeywords);
+        HitList hits = scanner.findAll(DEFAULT_DATA);
+        assertEquals(2, hits.size());
+        assertHit(hits.get(0), 0, 16);
+        assertHit(hits.get(1), 1, 41);
+
+        hits = scanner.findAll(null);
+        assertTrue(hits.isEmpty());
+    }
+
+    @Test
+    void testFindAllStart() {
+        AhoCorasickScanner scanner = new AhoCorasickScanner();
+        scanner.loadKeywords(defaultKeywords);
+        HitList hits = scanner.findAll(DEFAULT_DATA, 28);
+        assertEquals(1, hits.size());
+        assertHit(hits.get(0), 1, 41);
+
+        // Keywords must lie entirely within the range
+        hits = scanner.findAll(DEFAULT_DATA, 17);
+        assertEquals(1, hits.size());
+        assertHit(hits.get(0), 1, 41);
+
+        hits = scanner.findAll(null, 0);
+        assertTrue(hits.isEmpty());
+    }
+
+    @Test
+    void testFindAllStartStop() {
+        AhoCorasickScanner scanner = new AhoCorasickScanner();
+        scanner.loadKeywords(defaultKeywords);
+        HitList hits = scanner.findAll(DEFAULT_DATA, 0, 24);
+        assertEquals(1, hits.size());
+        assertHit(hits.get(0), 0, 16);
+
+        hits = scanner.findAll(DEFAULT_DATA, 0, 18);
+        assertTrue(hits.isEmpty());
+
+        hits = scanner.findAll(null, 0, 0);
+        assertTrue(hits.isEmpty());
+    }
+
+    @Test
+    void testFindNext() {
+        AhoCorasickScanner scanner = new AhoCorasickScanner();
+        scanner.loadKeywords(defaultKeywords);
+        HitList hits = scanner.findNext(DEFAULT_DATA);
+        assertEquals(1, hits.size());
+        assertHit(hits.get(0), 0, 16);
+
+        hits = scanner.findNext(DEFAULT_DATA);
+        assertEquals(1, hits.size());
+        assertHit(hits.get(0), 1, 41);
+
+        hits = scanner.findNext();
+        assertTrue(hits.isEmpty());
+
+        hits = scanner.findNext(null);
+        assertTrue(hits.isEmpty());
+    }
+
+    @Test
+    void testFindNextOverlapping() {
+        AhoCorasickScanner scanner = new AhoCorasickScanner();
+        scanner.loadKeywords(new String[] {"he", "she", "hers"});
+        byte[] data = "ushers".getBytes(StandardCharsets.UTF_8);
+
+        HitList hits = scanner.findNext(data);
+        assertEquals(2, hits.size());
+        assertHit(hits.get(0), 1, 1);
+        assertHit(hits.get(1), 0, 2);
+
+        // Resuming finds the keyword that started before the previous hit
+        hits = scanner.findNext();
+        assertEquals(1, hits.size());
+        assertHit(hits.get(0), 2, 2);
+    }
+
+    @Test
+    void testFindNextStart() {
+        AhoCorasickScanner scanner = new AhoCorasickScanner();
+        scanner.loadKeywords(defaultKeywords);
+        HitList hits = scanner.findNext(DEFAULT_DATA, 28);
+        assertEquals(1, hits.size());
+        assertHit(hits.get(0), 1, 41);
+
+        hits = scanner.findNext(null, 28);
+        assertTrue(hits.isEmpty());
+    }
+
+    @Test
+    void testFindNextStartStop() {
+        AhoCorasickScanner scanner = new AhoCorasickScanner();
+        scanner.loadKeywords(defaultKeywords);
+        HitList hits = scanner.findNext(DEFAULT_DATA, 0, 24);
+        assertEquals(1, hits.size());
+        assertHit(hits.get(0), 0, 16);
+
+        hits = scanner.findNext(null, 0, 0);
+        assertTrue(hits.isEmpty());
+    }
+
+    @Test
+    void testReset() {
+        AhoCorasickScanner scanner = new AhoCorasickScanner();
+        scanner.loadKeywords(defaultKeywords);
+        scanner.loadKeywords(new String[] {"quick", "brown", "lazy"});
+        HitList hits = scanner.findAll(DEFAULT_DATA);
+
+        assertEquals(3, hits.size());
+        assertHit(hits.get(0), 0, 4);
+        assertHit(hits.get(1), 1, 10);
+        assertHit(hits.get(2), 2, 36);
+    }
+
+    @Test
+    void testSharedAutomaton() {
+        AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(defaultKeywords);
+        AhoCorasickScanner first = new AhoCorasickScanner(automaton);
+        AhoCorasickScanner second = new AhoCorasickScanner(automaton);
+
+        assertHit(first.findNext(DEFAULT_DATA).get(0), 0, 16);
+        assertHit(second.findNext(DEFAULT_DATA, 20).get(0), 1, 41);
+        assertHit(first.findNext(DEFAULT_DATA).get(0), 1, 41);
+    }
+
+    @Test
+    void testNoKeywords() {
+        assertTrue(new AhoCorasickScanner().findAll(DEFAULT_DATA).isEmpty());
+        assertTrue(new AhoCorasickScanner().findNext(DEFAULT_DATA).isEmpty());
+    }
+}
@@ -0,0 +1,116 @@
+package emissary.util.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BackwardsTrieTest {
+
+    private static final byte[] DATA = "the quick brown fox jumped over the lazy dog".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void testScan() {
+        final BackwardsTrie trie = BackwardsTrie.compile(new String[] {"dog", "lazy dog", "og", "cat"});
+        final HitBuffer hits = new HitBuffer();
+
+        assertEquals(34, trie.scan(DATA, DATA.length - 1, hits));
+
+        // Shorter keywords are found first
+        assertEquals(3, hits.size());
+        assertEquals(42, hits.getOffset(0));
+        assertEquals(2, hits.getId(0));
+        assertEquals(2, hits.getLength(0));
+        assertEquals(41, hits.getOffset(1));
+        assertEquals(0, hits.getId(1));
+        assertEquals(3, hits.getLength(1));
+        assertEquals(36, hits.getOffset(2));
+        assertEquals(1, hits.getId(2));
+        assertEquals(8, hits.getLength(2));
+    }
+
+    @Test
+    void testScanToStartOfData() {
+        final BackwardsTrie trie = BackwardsTrie.compile(new String[] {"the"});
+        final HitBuffer hits = new HitBuffer();
+
+        assertEquals(-1, trie.scan(DATA, 2, hits));
+        assertEquals(1, hits.size());
+        assertEquals(0, hits.getOffset(0));
+    }
+
+    @Test
+    void testKeywordGroups() {
+        final BackwardsTrie trie = BackwardsTrie.compile(new String[][] {{"fox", "dog"}, {"lazy"}});
+        final HitBuffer hits = new HitBuffer();
+
+        trie.scan(DATA, 18, hits);
+        trie.scan(DATA, 39, hits);
+        trie.scan(DATA, 43, hits);
+
+        assertEquals(3, hits.size());
+        assertEquals(0, hits.getId(0));
+        assertEquals(1, hits.getId(1));
+        assertEquals(0, hits.getId(2));
+        assertEquals(3, trie.getMinKeywordLength());
+        assertEquals(4, trie.getMaxKeywordLength());
+    }
+
+    @Test
+    void testHighBytes() {
+        final BackwardsTrie trie = new BackwardsTrie(new byte[][] {{(byte) 0xe6, (byte) 0xff}, {0x66, 0x7f}}, new int[] {7, 8});
+        final HitBuffer hits = new HitBuffer();
+
+        trie.scan(new byte[] {0x66, 0x7f, (byte) 0xe6, (byte) 0xff}, 3, hits);
+        trie.scan(new byte[] {0x66, 0x7f, (byte) 0xe6, (byte) 0xff}, 1, hits);
+
+        assertEquals(2, hits.size());
+        assertEquals(7, hits.getId(0));
+        assertEquals(2, hits.getOffset(0));
+        assertEquals(8, hits.getId(1));
+        assertEquals(0, hits.getOffset(1));
+        // root, ff, ff e6, 7f, 7f 66
+        assertEquals(5, trie.getStateCount());
+    }
+
+    @Test
+    void testInvalidKeywords() {
+        assertThrows(NullPointerException.class, () -> BackwardsTrie.compile((String[]) null));
+        assertThrows(IllegalArgumentException.class, () -> BackwardsTrie.compile(new String[] {"a", ""}));
+        assertThrows(IllegalArgumentException.class, () -> new BackwardsTrie(new byte[][] {{1}}, new int[0]));
+    }
+
+    @Test
+    void testConcurrentScans() throws Exception {
+        final BackwardsTrie trie = BackwardsTrie.compile(new String[] {"fox", "dog", "the"});
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            final List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    final HitBuffer hits = new HitBuffer();
+                    for (int j = 0; j < 1000; j++) {
+                        hits.clear();
+                        for (int pos = 0; pos < DATA.length; pos++) {
+                            trie.scan(DATA, pos, hits);
+                        }
+                    }
+                    return hits.size();
+                }));
+            }
+            for (final Future<Integer> result : results) {
+                assertEquals(4, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -124,6 +124,27 @@ class ByteMatcherTest extends UnitTest {
 
     }
 
+    @Test
+    void testListIndexOfIntList() {
+        IntList offsets = new IntList();
+        assertEquals(3, this.bl.listIndexOf("test".getBytes(), 0, LIST_DATA.length(), offsets));
+        assertEquals(List.of(10, 26, 47), offsets.toList());
+
+        offsets.clear();
+        assertEquals(4, this.bl.indexListIgnoreCase("test".getBytes(), 0, LIST_DATA.length(), offsets));
+        assertEquals(List.of(10, 26, 47, 53), offsets.toList());
+
+        offsets.clear();
+        assertEquals(2, this.bl.listIndexOf(BytePattern.compile("TeSt", false), 15, 52, offsets));
+        assertEquals(List.of(26, 47), offsets.toList());
+        assertEquals(0, this.bl.listIndexOf("test".getBytes(), 0, LIST_DATA.length() + 1, offsets));
+
+        // The scanner is left case sensitive
+        assertEquals(53, this.bl.indexOf("TEST"));
+        assertEquals(53, this.bl.indexOf(BytePattern.compile("test", false), 48, LIST_DATA.length()));
+        assertEquals(-1, this.bl.indexOf(BytePattern.compile("test", true), 48, LIST_DATA.length()));
+    }
+
     @Test
     void testOffsetScan() {
         assertEquals(DATA.indexOf("fox", 9), this.b.indexOf("fox", 9), "Match pos same as string using offset");
@@ -0,0 +1,143 @@
+package emissary.util.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BytePatternTest {
+
+    private static final byte[] DATA = "THIS is a test of the Emergency broadcasting system.".getBytes(StandardCharsets.UTF_8);
+
+    private static int lowercase(final byte b) {
+        return (b >= 'A' && b <= 'Z') ? b + 32 : b;
+    }
+
+    private static int naiveIndexOf(final byte[] data, final byte[] pattern, final boolean caseSensitive, final int start, final int stop) {
+        for (int i = Math.max(start, 0); i + pattern.length <= stop; i++) {
+            boolean found = true;
+            for (int j = 0; j < pattern.length && found; j++) {
+                found = caseSensitive ? data[i + j] == pattern[j] : lowercase(data[i + j]) == lowercase(pattern[j]);
+            }
+            if (found) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    void testIndexOf() {
+        assertEquals(33, BytePattern.compile("road", true).indexOf(DATA));
+        assertEquals(22, BytePattern.compile("Emergency", true).indexOf(DATA));
+        assertEquals(-1, BytePattern.compile("Emergency", true).indexOf(DATA, 40, DATA.length));
+        assertEquals(12, BytePattern.compile("st", true).indexOf(DATA, 0, 30));
+        assertEquals(39, BytePattern.compile("st", true).indexOf(DATA, 30, 41));
+        assertEquals(-1, BytePattern.compile("st", true).indexOf(DATA, 30, 40));
+        assertEquals(22, BytePattern.compile("E", true).indexOf(DATA, -1, DATA.length));
+        assertEquals(DATA.length - 1, BytePattern.compile(".", true).indexOf(DATA));
+        assertEquals(0, BytePattern.compile("THIS", true).indexOf(DATA, 0, 100));
+        assertEquals(-1, BytePattern.compile("TEST", true).indexOf(DATA));
+    }
+
+    @Test
+    void testIndexOfIgnoreCase() {
+        assertEquals(10, BytePattern.compile("TeST", false).indexOf(DATA));
+        assertEquals(10, BytePattern.compile("tes", false).indexOf(DATA));
+        assertEquals(0, BytePattern.compile("this", false).indexOf(DATA));
+        assertEquals(22, BytePattern.compile("eMERGENCY", false).indexOf(DATA));
+        assertEquals(-1, BytePattern.compile("Foo", false).indexOf(DATA));
+        // Only ASCII letters are folded
+        assertEquals(-1, BytePattern.compile(new byte[] {(byte) 0xc9}, false).indexOf(new byte[] {(byte) 0xe9}));
+    }
+
+    @Test
+    void testIndexAll() {
+        final byte[] data = "This is a test. Is this a test? Yes, this is a test.".getBytes(StandardCharsets.UTF_8);
+        final IntList offsets = new IntList(1);
+
+        assertEquals(3, BytePattern.compile("test", true).indexAll(data, 0, data.length, offsets));
+        assertEquals(List.of(10, 26, 47), offsets.toList());
+
+        offsets.clear();
+        assertEquals(6, BytePattern.compile("is", false).indexAll(data, 0, data.length, offsets));
+        assertArrayEquals(new int[] {2, 5, 16, 21, 39, 42}, offsets.toArray());
+
+        // Matches do not overlap
+        offsets.clear();
+        assertEquals(2, BytePattern.compile("aa", true).indexAll("aaaaa".getBytes(StandardCharsets.UTF_8), 0, 5, offsets));
+        assertEquals(List.of(0, 2), offsets.toList());
+    }
+
+    @Test
+    void testMatchesNaiveSearch() {
+        final Random random = new Random(0);
+        final byte[] data = new byte[4096];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) "aAbBcáÁ".charAt(random.nextInt(7));
+        }
+
+        for (int length = 1; length <= 8; length++) {
+            for (int trial = 0; trial < 50; trial++) {
+                final int offset = random.nextInt(data.length - length);
+                final byte[] pattern = Arrays.copyOfRange(data, offset, offset + length);
+                if (random.nextBoolean()) {
+                    pattern[random.nextInt(length)] ^= 0x20;
+                }
+                final int start = random.nextInt(100) - 10;
+                final int stop = data.length - random.nextInt(100);
+
+                for (final boolean caseSensitive : new boolean[] {true, false}) {
+                    final BytePattern compiled = BytePattern.compile(pattern, caseSensitive);
+                    assertEquals(naiveIndexOf(data, pattern, caseSensitive, start, stop), compiled.indexOf(data, start, stop),
+                            "pattern " + Arrays.toString(pattern) + " caseSensitive " + caseSensitive);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testPatternIsCopied() {
+        final byte[] bytes = "abc".getBytes(StandardCharsets.UTF_8);
+        final BytePattern pattern = BytePattern.compile(bytes);
+
+        assertTrue(pattern.matches(bytes, true));
+        assertFalse(pattern.matches(bytes, false));
+        bytes[0] = 'x';
+        assertFalse(pattern.matches(bytes, true));
+        assertEquals(3, pattern.length());
+        assertTrue(pattern.isCaseSensitive());
+        assertEquals(0, pattern.indexOf("abc".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void testInvalidPattern() {
+        assertThrows(NullPointerException.class, () -> BytePattern.compile(null));
+        assertThrows(IllegalArgumentException.class, () -> BytePattern.compile(new byte[0]));
+    }
+
+    @Test
+    void testIntList() {
+        final IntList list = new IntList(1);
+
+        assertTrue(list.isEmpty());
+        for (int i = 0; i < 100; i++) {
+            list.add(i * 2);
+        }
+        assertEquals(100, list.size());
+        assertEquals(198, list.get(99));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(100));
+
+        list.clear();
+        assertEquals(0, list.toArray().length);
+        assertTrue(list.toList().isEmpty());
+    }
+}
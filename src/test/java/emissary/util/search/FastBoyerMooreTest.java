@@ -4,10 +4,18 @@ import emissary.test.core.junit5.UnitTest;
 
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 class FastBoyerMooreTest extends UnitTest {
@@ -36,4 +44,157 @@ class FastBoyerMooreTest extends UnitTest {
         }
     }
 
+    private static final byte[] DATA = ("Hi, this is a one-two-cinco test of the emergency alpha five gamma\nbroadcasting system. \n\n"
+            + "If this were a real emergency epsilon (delta) alpha you would four dos tres get the heck out of here.")
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void testScanAll() throws Exception {
+        final FastBoyerMoore scanner = new FastBoyerMoore(this.keywords);
+        final List<int[]> result = new ArrayList<>();
+        final HitBuffer hits = new HitBuffer();
+
+        scanner.scan(DATA, 0, DATA.length, result);
+        scanner.scan(DATA, 0, DATA.length, hits);
+
+        assertEquals(12, result.size());
+        assertEquals(12, hits.size());
+        for (int i = 0; i < hits.size(); i++) {
+            assertEquals(result.get(i)[FastBoyerMoore.LOC], hits.getOffset(i));
+            assertEquals(result.get(i)[FastBoyerMoore.ID], hits.getId(i));
+            assertEquals(result.get(i)[FastBoyerMoore.LENGTH], hits.getLength(i));
+        }
+    }
+
+    @Test
+    void testCursor() throws Exception {
+        final FastBoyerMoore scanner = new FastBoyerMoore(this.keywords);
+        final FastBoyerMoore.Cursor cursor = scanner.cursor(DATA, 0, DATA.length);
+        final HitBuffer hits = new HitBuffer();
+
+        assertTrue(cursor.next(hits));
+        assertEquals(1, hits.size());
+        assertEquals(14, hits.getOffset(0));
+        assertEquals(0, hits.getId(0));
+        assertEquals(3, hits.getLength(0));
+
+        int calls = 1;
+        while (cursor.next(hits)) {
+            calls++;
+        }
+        assertEquals(12, calls);
+        assertEquals(12, hits.size());
+        assertFalse(cursor.next(hits));
+    }
+
+    @Test
+    void testHighBitDataDoesNotMatchAscii() throws Exception {
+        final FastBoyerMoore scanner = new FastBoyerMoore(new String[] {"one"});
+        final List<int[]> result = new ArrayList<>();
+
+        // 0xef, 0xee and 0xe5 are 'o', 'n' and 'e' with the high bit set
+        scanner.scan(new byte[] {(byte) 0xef, (byte) 0xee, (byte) 0xe5, 'o', 'n', 'e'}, 0, 6, result);
+
+        assertEquals(1, result.size());
+        assertEquals(3, result.get(0)[FastBoyerMoore.LOC]);
+    }
+
+    @Test
+    void testNonAsciiKeyword() throws Exception {
+        final FastBoyerMoore scanner = new FastBoyerMoore(new String[] {"café"});
+        final byte[] data = "un café, une cafe".getBytes(StandardCharsets.UTF_8);
+        final List<int[]> result = new ArrayList<>();
+
+        scanner.scan(data, 0, data.length, result);
+
+        assertEquals(1, result.size());
+        assertEquals(3, result.get(0)[FastBoyerMoore.LOC]);
+        assertEquals(5, result.get(0)[FastBoyerMoore.LENGTH]);
+    }
+
+    @Test
+    void testRepeatedScansAreIndependent() throws Exception {
+        final FastBoyerMoore scanner = new FastBoyerMoore(this.keywords);
+        final List<int[]> first = new ArrayList<>();
+        final List<int[]> second = new ArrayList<>();
+
+        scanner.scan(DATA, 0, DATA.length, first);
+        scanner.scan(DATA, 0, 10, second);
+        scanner.scan(DATA, 0, DATA.length, second);
+
+        assertEquals(12, first.size());
+        assertEquals(12, second.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertArrayEquals(first.get(i), second.get(i));
+        }
+    }
+
+    @Test
+    void testSharedAcrossThreads() throws Exception {
+        final FastBoyerMoore scanner = new FastBoyerMoore(this.keywords);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            final List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    final HitBuffer hits = new HitBuffer();
+                    for (int j = 0; j < 1000; j++) {
+                        hits.clear();
+                        scanner.scan(DATA, 0, DATA.length, hits);
+                    }
+                    return hits.size();
+                }));
+            }
+            for (final Future<Integer> result : results) {
+                assertEquals(12, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testNestedBackwardsTreeScanner() throws Exception {
+        final FastBoyerMoore.BackwardsTreeScanner scanner = new FastBoyerMoore.BackwardsTreeScanner(new String[] {"five", "gamma"});
+        final FastBoyerMoore.BackwardsTreeScanner copy = new FastBoyerMoore.BackwardsTreeScanner(scanner);
+        final List<int[]> result = new ArrayList<>();
+
+        final int end = 65;
+        assertEquals(DATA.length, copy.scan(DATA, DATA.length, result));
+        copy.scan(DATA, end, result);
+
+        assertEquals(1, result.size());
+        assertEquals(end - 4, result.get(0)[FastBoyerMoore.LOC]);
+        assertEquals(1, result.get(0)[FastBoyerMoore.ID]);
+        assertEquals(5, result.get(0)[FastBoyerMoore.LENGTH]);
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void testDeprecatedRootMatchesTrie() throws Exception {
+        final FastBoyerMoore.BackwardsTreeScanner scanner = new FastBoyerMoore.BackwardsTreeScanner(this.keywords);
+        final FastBoyerMoore.BackwardsTreeScanner.State root = scanner.getRoot();
+        assertSame(root, scanner.getRoot());
+
+        // walking the legacy states backwards from every offset finds what the trie finds
+        for (int offset = 0; offset < DATA.length; offset++) {
+            final List<int[]> expected = new ArrayList<>();
+            scanner.scan(DATA, offset, expected);
+            final List<int[]> actual = new ArrayList<>();
+            FastBoyerMoore.BackwardsTreeScanner.State state = root;
+            for (int pos = offset; pos >= 0 && state != null; pos--) {
+                state = state.nextStates[DATA[pos] & 0xff];
+                if (state != null && state.matches != null) {
+                    for (final int id : state.matches) {
+                        actual.add(new int[] {pos, id, offset - pos + 1});
+                    }
+                }
+            }
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertArrayEquals(expected.get(i), actual.get(i));
+            }
+        }
+    }
 }
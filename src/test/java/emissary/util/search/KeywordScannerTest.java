@@ -200,4 +200,37 @@ class KeywordScannerTest extends UnitTest {
         // we can't continue from last successful index returned, a bad stop ends it
         assertEquals(-1, this.ks.findNext());
     }
+
+    @Test
+    void testCompiledPattern() {
+        BytePattern pattern = BytePattern.compile("st", true);
+        assertEquals(12, this.ks.indexOfPattern(pattern, 0, DATA.length));
+        assertEquals(39, this.ks.findNext());
+        assertEquals(47, this.ks.findNext());
+        assertEquals(-1, this.ks.findNext());
+        assertEquals(-1, this.ks.indexOfPattern(pattern, DATA.length, DATA.length));
+
+        // The pattern's case sensitivity is used rather than the scanner's
+        this.ks.setCaseSensitive(false);
+        assertEquals(-1, this.ks.indexOfPattern(BytePattern.compile("TEST", true), 0, DATA.length));
+        this.ks.setCaseSensitive(true);
+        assertEquals(10, this.ks.indexOfPattern(BytePattern.compile("TEST", false), 0, DATA.length));
+    }
+
+    @Test
+    void testListIndexOfIntList() {
+        KeywordScanner lks = new KeywordScanner(LIST_DATA);
+        IntList offsets = new IntList();
+        assertEquals(3, lks.listIndexOf("test".getBytes(), 0, LIST_DATA.length, offsets));
+        assertEquals(List.of(10, 26, 47), offsets.toList());
+        assertEquals(-1, lks.findNext());
+
+        // Results are appended
+        assertEquals(3, lks.listIndexOf("is".getBytes(), 0, 38, offsets));
+        assertEquals(List.of(10, 26, 47, 2, 5, 21), offsets.toList());
+
+        assertEquals(0, lks.listIndexOf((byte[]) null, 0, LIST_DATA.length, offsets));
+        assertEquals(0, lks.listIndexOf(BytePattern.compile("is", true), 0, LIST_DATA.length + 1, offsets));
+        assertEquals(6, offsets.size());
+    }
 }
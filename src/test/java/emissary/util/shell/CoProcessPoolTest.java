@@ -0,0 +1,218 @@
+package emissary.util.shell;
+
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CoProcessPoolTest extends UnitTest {
+
+    /**
+     * Reads framed requests and answers each with STATUS and the request payload, exiting after EXIT_AFTER payloads if it
+     * is set
+     */
+    static final String ECHO_WORKER = "#!/bin/sh\n"
+            + "count=0\n"
+            + "while :; do\n"
+            + "  header=$(dd bs=1 count=4 2>/dev/null | od -An -tu1)\n"
+            + "  set -- $header\n"
+            + "  [ $# -eq 4 ] || exit 0\n"
+            + "  len=$(( ($1 << 24) | ($2 << 16) | ($3 << 8) | $4 ))\n"
+            + "  printf \"\\\\000\\\\000\\\\000\\\\$(printf %o ${STATUS:-0})\"\n"
+            + "  printf \"\\\\$(printf %o $1)\\\\$(printf %o $2)\\\\$(printf %o $3)\\\\$(printf %o $4)\"\n"
+            + "  dd bs=1 count=$len 2>/dev/null\n"
+            + "  [ $len -eq 0 ] || count=$((count + 1))\n"
+            + "  [ -z \"$EXIT_AFTER\" ] || [ $count -lt $EXIT_AFTER ] || exit 0\n"
+            + "done\n";
+
+    static Path writeEchoWorker(final Path dir) throws IOException {
+        final Path script = dir.resolve("echoWorker.sh");
+        Files.write(script, ECHO_WORKER.getBytes(StandardCharsets.UTF_8));
+        return script;
+    }
+
+    private static String[] command(final Path script, final String env) {
+        return new String[] {"/bin/sh", "-c", env + " /bin/sh " + script};
+    }
+
+    private static String send(final CoProcessPool pool, final String payload, final int expectedStatus) throws InterruptedException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(expectedStatus, pool.execute(payload.getBytes(StandardCharsets.UTF_8), out));
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testEcho(@TempDir final Path dir) throws Exception {
+        try (CoProcessPool pool = new CoProcessPool(command(writeEchoWorker(dir), ""), 2, 0, 0, 10000)) {
+            assertEquals("hello", send(pool, "hello", 0));
+            assertEquals("Президент\nБуш\r\n", send(pool, "Президент\nБуш\r\n", 0));
+            assertEquals(2, pool.getStartedCount());
+            assertEquals(0, pool.checkHealth());
+            assertEquals(2, pool.getStartedCount());
+        }
+    }
+
+    @Test
+    void testStatus(@TempDir final Path dir) throws Exception {
+        try (CoProcessPool pool = new CoProcessPool(command(writeEchoWorker(dir), "STATUS=3"), 1, 0, 0, 10000)) {
+            assertEquals("abc", send(pool, "abc", 3));
+            assertEquals(0, pool.getFailedCount());
+        }
+    }
+
+    @Test
+    void testRecycleAfterPayloads(@TempDir final Path dir) throws Exception {
+        try (CoProcessPool pool = new CoProcessPool(command(writeEchoWorker(dir), ""), 1, 3, 0, 10000)) {
+            for (int i = 0; i < 7; i++) {
+                assertEquals("payload" + i, send(pool, "payload" + i, 0));
+            }
+            assertEquals(2, pool.getRecycledCount());
+            assertEquals(3, pool.getStartedCount());
+            assertEquals(0, pool.getFailedCount());
+        }
+    }
+
+    @Test
+    void testRecycleAfterLifetime(@TempDir final Path dir) throws Exception {
+        try (CoProcessPool pool = new CoProcessPool(command(writeEchoWorker(dir), ""), 1, 0, 1, 10000)) {
+            Thread.sleep(5);
+            assertEquals("a", send(pool, "a", 0));
+            assertEquals(1, pool.getRecycledCount());
+            assertEquals(2, pool.getStartedCount());
+        }
+    }
+
+    @Test
+    void testWorkerExitIsReplaced(@TempDir final Path dir) throws Exception {
+        try (CoProcessPool pool = new CoProcessPool(command(writeEchoWorker(dir), "EXIT_AFTER=1"), 1, 0, 0, 10000)) {
+            assertEquals("one", send(pool, "one", 0));
+            assertEquals("two", send(pool, "two", 0));
+            assertEquals("three", send(pool, "three", 0));
+            assertTrue(pool.getStartedCount() >= 3);
+        }
+    }
+
+    @Test
+    void testTimeout(@TempDir final Path dir) throws Exception {
+        try (CoProcessPool pool = new CoProcessPool(new String[] {"/bin/sh", "-c", "exec sleep 60"}, 1, 0, 0, 200)) {
+            final long start = System.currentTimeMillis();
+            assertEquals("", send(pool, "never answered", -1));
+            assertTrue(System.currentTimeMillis() - start < 30000);
+            assertEquals(1, pool.getFailedCount());
+            assertEquals(2, pool.getStartedCount());
+        }
+    }
+
+    @Test
+    void testHealthCheckReplacesDeadWorkers() throws Exception {
+        try (CoProcessPool pool = new CoProcessPool(new String[] {"/bin/sh", "-c", "exit 0"}, 2, 0, 0, 10000)) {
+            Thread.sleep(200);
+            assertEquals(2, pool.checkHealth());
+            assertEquals(4, pool.getStartedCount());
+        }
+    }
+
+    @Test
+    void testScheduledHealthChecks() throws Exception {
+        try (CoProcessPool pool = new CoProcessPool(new String[] {"/bin/sh", "-c", "exit 0"}, 2, 0, 0, 10000)) {
+            pool.startHealthChecks(50);
+            final long deadline = System.currentTimeMillis() + 10000;
+            while (pool.getFailedCount() < 4 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertTrue(pool.getFailedCount() >= 4, "Dead workers should be replaced without an explicit check");
+            assertTrue(pool.getStartedCount() >= 6);
+        }
+    }
+
+    @Test
+    void testRetriesAreCapped() throws Exception {
+        // each worker reads the request length and exits without answering
+        final String[] cmd = {"/bin/sh", "-c", "dd bs=1 count=4 >/dev/null 2>&1; exit 0"};
+        try (CoProcessPool pool = new CoProcessPool(cmd, 3, 0, 0, 10000)) {
+            pool.setMaxRetries(0);
+            assertEquals("", send(pool, "poison", -1));
+            assertEquals(1, pool.getFailedCount());
+
+            pool.setMaxRetries(2);
+            assertEquals("", send(pool, "poison", -1));
+            assertEquals(4, pool.getFailedCount());
+            assertThrows(IllegalArgumentException.class, () -> pool.setMaxRetries(-1));
+        }
+    }
+
+    @Test
+    void testNoLiveWorkersFailsFast(@TempDir final Path dir) throws Exception {
+        // a private copy of the shell that can be removed so replacements fail to start
+        final Path shell = dir.resolve("sh");
+        Files.copy(Paths.get("/bin/sh"), shell);
+        assertTrue(shell.toFile().setExecutable(true));
+        final String[] cmd = {shell.toString(), "-c", "EXIT_AFTER=1 /bin/sh " + writeEchoWorker(dir)};
+
+        try (CoProcessPool pool = new CoProcessPool(cmd, 1, 0, 0, 10000)) {
+            assertEquals("one", send(pool, "one", 0));
+            Files.delete(shell);
+
+            final long start = System.currentTimeMillis();
+            assertEquals("", send(pool, "two", -1));
+            assertTrue(System.currentTimeMillis() - start < 5000);
+            assertEquals(0, pool.getLiveCount());
+
+            Files.copy(Paths.get("/bin/sh"), shell);
+            assertTrue(shell.toFile().setExecutable(true));
+            assertEquals("three", send(pool, "three", 0));
+            assertEquals(1, pool.getLiveCount());
+        }
+    }
+
+    @Test
+    void testConcurrentUse(@TempDir final Path dir) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (CoProcessPool pool = new CoProcessPool(command(writeEchoWorker(dir), ""), 2, 5, 0, 10000)) {
+            final List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                final String payload = "payload" + i;
+                results.add(executor.submit(() -> send(pool, payload, 0)));
+            }
+            for (int i = 0; i < 20; i++) {
+                assertEquals("payload" + i, results.get(i).get());
+            }
+            assertEquals(0, pool.getFailedCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testClosed(@TempDir final Path dir) throws Exception {
+        final CoProcessPool pool = new CoProcessPool(command(writeEchoWorker(dir), ""), 1, 0, 0, 10000);
+        pool.close();
+        assertTrue(pool.isClosed());
+        assertEquals("", send(pool, "abc", -1));
+    }
+
+    @Test
+    void testInvalidArguments() {
+        final String[] cmd = {"/bin/cat"};
+        assertThrows(IllegalArgumentException.class, () -> new CoProcessPool(new String[0], 1, 0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new CoProcessPool(cmd, 0, 0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new CoProcessPool(cmd, 1, -1, 0, 0));
+        assertThrows(IOException.class, () -> new CoProcessPool(new String[] {"/no/such/worker"}, 1, 0, 0, 0));
+    }
+}
@@ -1,6 +1,9 @@
 package emissary.util.shell;
 
+import emissary.core.channels.SeekableByteChannelFactory;
+import emissary.core.channels.SeekableByteChannelHelper;
 import emissary.test.core.junit5.UnitTest;
+import emissary.util.io.SpillingOutputStream;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -10,6 +13,7 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
@@ -586,6 +590,76 @@ class ExecutrixTest extends UnitTest {
         baosOut.reset();
     }
 
+    @Test
+    void testExecuteChannel(@TempDir Path dir) throws IOException {
+        e.setTmpDir(dir.toString());
+        e.setTmpDirFile(dir.toFile());
+        final byte[] input = new byte[5 * 1024 * 1024 + 3];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (byte) i;
+        }
+
+        final SpillingOutputStream out = e.createSpillingOutputStream();
+        final SpillingOutputStream err = new SpillingOutputStream(16, dir);
+        try {
+            final int pstat = e.execute(new String[] {"/bin/cat"}, SeekableByteChannelHelper.memory(input), out, err, null);
+            out.close();
+            err.close();
+
+            assertEquals(0, pstat, "Process return value");
+            assertTrue(out.isSpilled(), "Output larger than the memory limit must spill");
+            assertEquals(input.length, out.size());
+            final SeekableByteChannelFactory result = out.getChannelFactory();
+            assertArrayEquals(input, SeekableByteChannelHelper.getByteArrayFromChannel(result, input.length));
+            assertEquals(0, err.size());
+        } finally {
+            assertTrue(out.delete());
+            assertTrue(err.delete());
+        }
+        assertFalse(Files.exists(out.getFile()), "Spill file must be removed");
+    }
+
+    @Test
+    void testExecuteChannelNoInput() throws IOException {
+        final SpillingOutputStream out = e.createSpillingOutputStream();
+        final SpillingOutputStream err = e.createSpillingOutputStream();
+        final int pstat = e.execute(new String[] {"/bin/sh", "-c", "printf out; printf err >&2; exit 3"}, null, out, err, null);
+        out.close();
+        err.close();
+
+        assertEquals(3, pstat, "Process return value");
+        assertFalse(out.isSpilled());
+        assertArrayEquals("out".getBytes(StandardCharsets.UTF_8), SeekableByteChannelHelper.getByteArrayFromChannel(out.getChannelFactory(), 10));
+        assertArrayEquals("err".getBytes(StandardCharsets.UTF_8), SeekableByteChannelHelper.getByteArrayFromChannel(err.getChannelFactory(), 10));
+    }
+
+    @Test
+    void testExecuteChannelOutputCopyFails() {
+        final OutputStream failing = new OutputStream() {
+            @Override
+            public void write(final int b) throws IOException {
+                throw new IOException("No space left on device");
+            }
+        };
+        final int pstat = e.execute(new String[] {"/bin/sh", "-c", "head -c 1000000 /dev/zero"}, null, failing, null, null);
+
+        assertEquals(-1, pstat, "Output that could not all be copied must fail the execution");
+    }
+
+    @Test
+    void testExecuteChannelTimeoutWhileStreamingInput() {
+        // far more input than the pipe holds, to a process that never reads it
+        final byte[] input = new byte[8 * 1024 * 1024];
+        e.setProcessMaxMillis(500);
+
+        final long start = System.currentTimeMillis();
+        final int pstat = e.execute(new String[] {"/bin/sh", "-c", "exec sleep 60"}, SeekableByteChannelHelper.memory(input),
+                new ByteArrayOutputStream(), new ByteArrayOutputStream(), null);
+
+        assertEquals(-1, pstat, "Process return value");
+        assertTrue(System.currentTimeMillis() - start < 30000, "The process must be killed while its input is being streamed");
+    }
+
     private static void readAndNuke(final String name) throws IOException {
         final File f = new File(name);
         assertTrue(f.exists(), "File " + name + " must exist");
@@ -0,0 +1,119 @@
+package emissary.util.shell;
+
+import emissary.core.channels.FileChannelFactory;
+import emissary.core.channels.SeekableByteChannelFactory;
+import emissary.core.channels.SeekableByteChannelHelper;
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TempWorkAreaTest extends UnitTest {
+
+    private static final byte[] DATA = "some output".getBytes(StandardCharsets.UTF_8);
+
+    private static Path age(final Path path) throws IOException {
+        Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() - 60000));
+        return path;
+    }
+
+    @Test
+    void testQuota(@TempDir final Path root) {
+        final TempWorkArea area = new TempWorkArea(root, "TestPlace", 100);
+
+        assertTrue(area.reserve(60));
+        assertFalse(area.reserve(41));
+        assertTrue(area.reserve(40));
+        assertEquals(100, area.getUsedBytes());
+        area.release(60);
+        assertTrue(area.reserve(50));
+        assertEquals(90, area.getUsedBytes());
+
+        final TempWorkArea unlimited = new TempWorkArea(root, "TestPlace", 0);
+        assertTrue(unlimited.reserve(Long.MAX_VALUE / 2));
+    }
+
+    @Test
+    void testAdopt(@TempDir final Path root) throws IOException {
+        final TempWorkArea area = new TempWorkArea(root, "TestPlace", 5);
+        final Path tempDir = Files.createDirectories(root.resolve(area.getOwnerToken() + "123"));
+        final Path output = Files.write(tempDir.resolve("child.txt"), DATA);
+
+        final SeekableByteChannelFactory sbcf = area.adopt(output, root);
+        Executrix.cleanupDirectory(tempDir.toFile());
+
+        final Path adopted = FileChannelFactory.getPath(sbcf);
+        assertFalse(Files.exists(output));
+        assertTrue(Files.exists(adopted));
+        assertTrue(adopted.getFileName().toString().startsWith("TestPlace" + TempWorkArea.OUTPUT_MARKER));
+        assertTrue(adopted.getFileName().toString().endsWith("-child.txt"));
+        assertArrayEquals(DATA, SeekableByteChannelHelper.getByteArrayFromChannel(sbcf, DATA.length));
+        assertEquals(DATA.length, area.getUsedBytes(), "Adopted outputs are charged even when over quota");
+        assertFalse(area.reserve(1));
+
+        assertTrue(FileChannelFactory.release(sbcf));
+        assertFalse(Files.exists(adopted), "Released outputs are deleted straight away");
+        assertEquals(0, area.getUsedBytes());
+    }
+
+    @Test
+    void testSweepOrphans(@TempDir final Path root) throws IOException {
+        final TempWorkArea area = new TempWorkArea(root, "TestPlace", 0);
+        final Path orphan = Files.createDirectories(root.resolve("TestPlace.12345"));
+        Files.write(orphan.resolve("input.in"), DATA);
+        age(orphan);
+        final Path orphanOutput = age(Files.write(root.resolve("TestPlace" + TempWorkArea.OUTPUT_MARKER + "99-child.txt"), DATA));
+        final Path halfSwept = Files.createDirectories(root.resolve(TempWorkArea.SWEEP_MARKER + "TestPlace.777"));
+        final Path recent = Files.createDirectories(root.resolve("TestPlace.678"));
+        final Path otherPlace = age(Files.createDirectories(root.resolve("TestPlaceOther.42")));
+        final Path otherHalfSwept = Files.createDirectories(root.resolve(TempWorkArea.SWEEP_MARKER + "TestPlace2.777"));
+        final Path unrelated = age(Files.write(root.resolve("unrelated"), DATA));
+
+        assertEquals(3, area.sweepOrphans(30000));
+
+        assertFalse(Files.exists(orphan));
+        assertFalse(Files.exists(orphanOutput));
+        assertFalse(Files.exists(halfSwept));
+        assertTrue(Files.exists(recent));
+        assertTrue(Files.exists(otherPlace));
+        assertTrue(Files.exists(otherHalfSwept));
+        assertTrue(Files.exists(unrelated));
+        try (Stream<Path> entries = Files.list(root)) {
+            assertEquals(4, entries.count(), "No claimed entries should be left behind");
+        }
+
+        assertEquals(0, new TempWorkArea(root.resolve("missing"), "TestPlace", 0).sweepOrphans(0));
+    }
+
+    @Test
+    void testOwnerToken(@TempDir final Path root) {
+        final TempWorkArea area = new TempWorkArea(root, "TestPlace", 0);
+        assertEquals("TestPlace.", area.getOwnerToken());
+
+        assertTrue(area.isOwned("TestPlace.12345"));
+        assertTrue(area.isOwned("TestPlace" + TempWorkArea.OUTPUT_MARKER + "99-child.txt"));
+
+        // another place whose name starts with this one
+        assertFalse(area.isOwned("TestPlace12345"));
+        assertFalse(area.isOwned("TestPlace2.12345"));
+        assertFalse(area.isOwned("TestPlace2" + TempWorkArea.OUTPUT_MARKER + "99-child.txt"));
+        // not a name this place creates
+        assertFalse(area.isOwned("TestPlace."));
+        assertFalse(area.isOwned("TestPlace.abc"));
+        assertFalse(area.isOwned("TestPlace" + TempWorkArea.OUTPUT_MARKER + "99"));
+        assertFalse(area.isOwned("TestPlace" + TempWorkArea.OUTPUT_MARKER + "99-"));
+        assertFalse(area.isOwned("TestPlace" + TempWorkArea.OUTPUT_MARKER + "x9-child.txt"));
+    }
+}